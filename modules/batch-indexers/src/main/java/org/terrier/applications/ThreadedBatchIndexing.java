@@ -38,12 +38,17 @@ import org.terrier.indexing.CollectionFactory;
 import org.terrier.structures.Index;
 import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.IndexUtil;
+import org.terrier.structures.indexing.singlepass.PipelinedSinglePassIndexer;
 import org.terrier.structures.merging.BlockStructureMerger;
 import org.terrier.structures.merging.StructureMerger;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.TagSet;
 /** An implementation of BatchIndexing that uses Java 8 parallel streams to
  * increase indexing speed on multi-core machines.
+ * <p>
+ * For single-pass indexing without blocks, setting the property <tt>indexing.singlepass.pipelined</tt> to true
+ * uses a single {@link PipelinedSinglePassIndexer}, whose parsing threads feed a single inverter, such that
+ * no merging of separately built indices is required.
  * @author Craig Macdonald
  * @since 4.2
  */
@@ -93,6 +98,25 @@ public class ThreadedBatchIndexing extends BatchIndexing {
 		this.maxThreads = threads;
 	}
 
+	/** Indexes all partitions of the collection using a single {@link PipelinedSinglePassIndexer} */
+	protected void indexPipelined(int threadCount) throws Exception
+	{
+		if (Index.existsIndex(path, prefix))
+		{
+			logger.error("Cannot index while an index exists at "+path + ","+ prefix);
+			return;
+		}
+		List<List<String>> partitioned = CollectionFactory.splitCollectionSpecFileList(ApplicationSetup.COLLECTION_SPEC, threadCount);
+		Collection[] collections = new Collection[partitioned.size()];
+		for(int i=0;i<collections.length;i++)
+			collections[i] = loadCollection(partitioned.get(i));
+		PipelinedSinglePassIndexer indexer = new PipelinedSinglePassIndexer(path, prefix);
+		indexer.setThreads(threadCount);
+		indexer.index(collections);
+		for(Collection c : collections)
+			c.close();
+	}
+
 	@Override
 	public void index()
 	{	
@@ -103,6 +127,15 @@ public class ThreadedBatchIndexing extends BatchIndexing {
 			
 			final int threadCount = this.maxThreads == -1 ? ForkJoinPool.commonPool().getParallelism() : this.maxThreads;
 			logger.info("Started " + this.getClass().getSimpleName() + " with parallelism " + threadCount);
+			if (singlePass && ! blocks && Boolean.parseBoolean(ApplicationSetup.getProperty("indexing.singlepass.pipelined", "false")))
+			{
+				indexPipelined(threadCount);
+				logger.info("Parallel indexing completed after " 
+					+ (System.currentTimeMillis() - starttime)/1000 + " seconds, using " 
+					+ threadCount + " threads");
+				logger.info("Final index is at "+path+" " + prefix);
+				return;
+			}
 			if (singlePass)
 			{
 				int reservationFactor = Math.min(threadCount, 10);
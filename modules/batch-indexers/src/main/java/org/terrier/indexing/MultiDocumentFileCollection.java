@@ -28,6 +28,8 @@
  */
 package org.terrier.indexing;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -82,6 +84,8 @@ public abstract class MultiDocumentFileCollection implements Collection {
 	protected Class<? extends Document> documentClass;
 	/** Tokeniser to use for all documents parsed by this class */
 	protected Tokeniser tokeniser = Tokeniser.getTokeniser();
+	/** should the content of each document be read into memory, see {@link #detachDocuments()} */
+	protected boolean detachDocuments = false;
 
 	protected MultiDocumentFileCollection(){}
 	
@@ -148,6 +152,29 @@ public abstract class MultiDocumentFileCollection implements Collection {
 		}
 	}
 
+	/** Documents are detached by reading the content of each into memory when it is obtained by {@link #getDocument()}. */
+	@Override
+	public boolean detachDocuments() {
+		detachDocuments = true;
+		return true;
+	}
+
+	/** Makes a document of the class set by <tt>trec.document.class</tt>, from the specified
+	 * stream of its content. If the documents are detached, the content is first read into memory. */
+	protected Document makeDocument(InputStream content) throws Exception
+	{
+		if (detachDocuments)
+		{
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final byte[] b = new byte[8192];
+			int read;
+			while((read = content.read(b)) != -1)
+				buffer.write(b, 0, read);
+			content = new ByteArrayInputStream(buffer.toByteArray());
+		}
+		return documentClass.getConstructor(InputStream.class, Map.class, Tokeniser.class).newInstance(content, DocProperties, tokeniser);
+	}
+
 	/**
 	 * Check whether it is the last document in the collection
 	 * @return boolean
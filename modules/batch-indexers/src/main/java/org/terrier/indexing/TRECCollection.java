@@ -32,9 +32,7 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 
-import org.terrier.indexing.tokenisation.Tokeniser;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.Files;
 import org.terrier.utility.LookAheadStream;
@@ -478,7 +476,7 @@ public class TRECCollection extends MultiDocumentFileCollection {
 			InputStream is = tags_CaseSensitive
 		        ? new LookAheadStream(br, desiredEncoding == null ? end_docTag.getBytes() : end_docTag.getBytes(desiredEncoding))
 		        : new LookAheadStreamCaseInsensitive(br, end_docTag);
-	    	return documentClass.getConstructor(InputStream.class, Map.class, Tokeniser.class).newInstance(is, DocProperties, tokeniser);
+	    	return makeDocument(is);
 	    } catch (Exception e) {
 	    	throw new RuntimeException(e);
 	    }
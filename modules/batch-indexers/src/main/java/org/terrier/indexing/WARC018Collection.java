@@ -31,9 +31,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import org.terrier.indexing.tokenisation.Tokeniser;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.FixedSizeInputStream;
 
@@ -175,7 +173,7 @@ public class WARC018Collection extends MultiDocumentFileCollection implements Co
 		fsis.suppressClose();
 		Document rtr; 
 		try {
-			rtr = documentClass.getConstructor(InputStream.class, Map.class, Tokeniser.class).newInstance(fsis, DocProperties, tokeniser);
+			rtr = makeDocument(fsis);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -30,11 +30,9 @@ import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.List;
 import java.util.TimeZone;
 
-import org.terrier.indexing.tokenisation.Tokeniser;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.FixedSizeInputStream;
 
@@ -103,7 +101,7 @@ public class WARC09Collection extends MultiDocumentFileCollection
 		fsis.suppressClose();
 		Document rtr; 
 		try {
-			rtr = documentClass.getConstructor(InputStream.class, Map.class, Tokeniser.class).newInstance(fsis, DocProperties, tokeniser);
+			rtr = makeDocument(fsis);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
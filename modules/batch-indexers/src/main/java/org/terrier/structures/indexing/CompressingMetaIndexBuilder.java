@@ -41,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.collections.FSOrderedMapFile;
+import org.terrier.structures.collections.FingerprintHashFile;
 import org.terrier.structures.collections.FSOrderedMapFile.MapFileWriter;
 import org.terrier.structures.collections.FSOrderedMapFile.MultiFSOMapWriter;
 import org.terrier.structures.seralization.FixedSizeIntWritableFactory;
@@ -58,6 +59,17 @@ import org.terrier.utility.RuntimeMemoryChecker;
  * <li><tt>metaindex.compressed.max.index.in-mem.mb</tt> - maximum size that a meta index .zdata file will be kept in memory. Defaults to 100(mb).</li>
  * <li><tt>metaindex.compressed.reverse.allow.duplicates</tt> - set this property to true to suppress errors when a reverse meta value is not unique. Default false.</li>
  * <li><tt>metaindex.compressed.crop.long</tt> - set this property to suppress errors with overlong Document metadata, while will instead be cropped.</li>
+ * <li><tt>metaindex.compressed.reverse.fphash</tt> - set this property to false to prevent a {@link FingerprintHashFile} being written for each reverse key. 
+ * When present, reverse lookups (e.g. docno to docid) use the hash table rather than binary searching the ordered map file. Default true.</li>
+ * <li><tt>indexer.meta.filter.keys</tt> - comma delimited list of forward meta keys, whose values are recorded in a {@link org.terrier.structures.FilterIndex}, 
+ * such that they can be used as filters during matching. Only applies to the "meta" structure. Default empty.</li>
+ * <li><tt>indexer.meta.filter.site.keys</tt> - comma delimited subset of <tt>indexer.meta.filter.keys</tt> that contain URLs, which are recorded by each
+ * suffix of their hostname, for use by the site control. Default empty.</li>
+ * <li><tt>indexer.meta.daterange.key</tt> - name of a forward meta key containing the date of each document, which is recorded
+ * in a {@link org.terrier.structures.RangeIndex} called "daterange", for use by {@link org.terrier.matching.matchops.DateRangeOp}. 
+ * Only applies to the "meta" structure. Default empty.</li>
+ * <li><tt>indexer.meta.daterange.format</tt> - the {@link java.text.SimpleDateFormat} of the dates, which are parsed in UTC. Default yyyy-MM-dd.</li>
+ * <li><tt>indexer.meta.daterange.fanout</tt> - the number of buckets of each level of the daterange structure that form one bucket of the next level. Default 16.</li>
  * </ul>
  * @since 3.0
  * @author Craig Macdonald &amp; Vassilis Plachouras 
@@ -72,6 +84,8 @@ public class CompressingMetaIndexBuilder extends MetaIndexBuilder implements Flu
 			Boolean.parseBoolean(ApplicationSetup.getProperty("metaindex.compressed.reverse.allow.duplicates", "false"));
 	protected final boolean CROP_LONG = 
 			Boolean.parseBoolean(ApplicationSetup.getProperty("metaindex.compressed.crop.long", "false"));
+	protected final boolean REVERSE_FPHASH = 
+			Boolean.parseBoolean(ApplicationSetup.getProperty("metaindex.compressed.reverse.fphash", "true"));
 	
 	protected final int REVERSE_KEY_LOOKUP_WRITING_BUFFER_SIZE = 20000;
 	protected final int DOCS_PER_CHECK = ApplicationSetup.DOCS_CHECK_SINGLEPASS;
@@ -104,6 +118,13 @@ public class CompressingMetaIndexBuilder extends MetaIndexBuilder implements Flu
 	protected MemoryChecker memCheck = new RuntimeMemoryChecker();
 	protected FixedSizeWriteableFactory<Text>[] keyFactories;
 	protected String structureName;
+	/** writes the filter structure, if any filter keys are configured */
+	protected FilterIndexBuilder filterBuilder;
+	protected int[] filterKeys;
+	/** writes the daterange structure, if a date key is configured */
+	protected RangeIndexBuilder dateRangeBuilder;
+	protected int dateRangeKey;
+	protected final String DATE_FORMAT = ApplicationSetup.getProperty("indexer.meta.daterange.format", "yyyy-MM-dd");
 	
 	/**
 	 * constructor
@@ -183,6 +204,29 @@ public class CompressingMetaIndexBuilder extends MetaIndexBuilder implements Flu
 			this.entryLengthBytes += this.valueLensBytes[i];
 		}
 		this.spaces = new byte[entryLengthBytes];//for padding
+		
+		final String[] filterKeyNames = ArrayUtils.parseCommaDelimitedString(ApplicationSetup.getProperty("indexer.meta.filter.keys", ""));
+		if (structureName.equals("meta") && filterKeyNames.length > 0)
+		{
+			this.filterKeys = new int[filterKeyNames.length];
+			for(i=0;i<filterKeyNames.length;i++)
+			{
+				if (! key2Index.contains(filterKeyNames[i]))
+					throw new IllegalArgumentException("Filter key " + filterKeyNames[i] + " must also be a forward meta index key. Add it to indexer.meta.forward.keys");
+				filterKeys[i] = key2Index.get(filterKeyNames[i]);
+			}
+			this.filterBuilder = new FilterIndexBuilder(_index, "filter", filterKeyNames, 
+				ArrayUtils.parseCommaDelimitedString(ApplicationSetup.getProperty("indexer.meta.filter.site.keys", "")));
+		}
+		final String dateKeyName = ApplicationSetup.getProperty("indexer.meta.daterange.key", "").trim();
+		if (structureName.equals("meta") && dateKeyName.length() > 0)
+		{
+			if (! key2Index.contains(dateKeyName))
+				throw new IllegalArgumentException("Date key " + dateKeyName + " must also be a forward meta index key. Add it to indexer.meta.forward.keys");
+			this.dateRangeKey = key2Index.get(dateKeyName);
+			this.dateRangeBuilder = new RangeIndexBuilder(_index, "daterange", 
+				Integer.parseInt(ApplicationSetup.getProperty("indexer.meta.daterange.fanout", "16")));
+		}
 	}
 	
 	/** {@inheritDoc} */
@@ -267,6 +311,15 @@ public class CompressingMetaIndexBuilder extends MetaIndexBuilder implements Flu
 				forwardKeyValuesSorted[i] = false;
 			lastValues[i] = data[forwardKeys[i]];
 		}
+		if (filterBuilder != null)
+		{
+			final String[] filterValues = new String[filterKeys.length];
+			for(i=0;i<filterKeys.length;i++)
+				filterValues[i] = data[filterKeys[i]];
+			filterBuilder.addDocument(entryCount, filterValues);
+		}
+		if (dateRangeBuilder != null)
+			dateRangeBuilder.addDocument(entryCount, data[dateRangeKey], DATE_FORMAT);
 		entryCount++;
 		
 		//check for low memory, and flush if necessary
@@ -320,11 +373,47 @@ public class CompressingMetaIndexBuilder extends MetaIndexBuilder implements Flu
 			{
 				forwardWriters[i].close();
 			}
+			if (REVERSE_FPHASH && writeFingerprintHash(i))
+				index.setIndexProperty("index."+structureName+".reverse."+forwardKeyNames[i]+".fphash", "true");
 		}		
 		index.setIndexProperty("index."+structureName+".reverse-key-names", ArrayUtils.join(forwardKeyNames, ","));
 		index.flush();
+		if (filterBuilder != null)
+			filterBuilder.close();
+		if (dateRangeBuilder != null)
+			dateRangeBuilder.close();
 		
 	}
+	
+	/** Writes a {@link FingerprintHashFile} for the ith reverse key, by scanning its (already written) ordered map file.
+	 * @return true if the hash file was written
+	 */
+	protected boolean writeFingerprintHash(int i) throws IOException
+	{
+		final String prefix = index.getPath() + "/" + index.getPrefix() + "."+structureName+"-"+i;
+		try{
+			final FingerprintHashFile.Builder hashBuilder = new FingerprintHashFile.Builder(entryCount);
+			final FSOrderedMapFile.EntryIterator<Text,IntWritable> entries = new FSOrderedMapFile.EntryIterator<Text,IntWritable>(
+				prefix + FSOrderedMapFile.USUAL_EXTENSION, keyFactories[i], new FixedSizeIntWritableFactory());
+			while(entries.hasNext())
+			{
+				final Map.Entry<Text,IntWritable> e = entries.next();
+				//values are hashed trimmed, as they are verified against the (trimmed) forward values
+				hashBuilder.add(e.getKey().toString().trim(), e.getValue().get());
+			}
+			entries.close();
+			hashBuilder.write(prefix + FingerprintHashFile.USUAL_EXTENSION);
+		} catch (OutOfMemoryError oome) {
+			logger.warn("OutOfMemoryError: Not enough memory to write fingerprint hash for reverse key " 
+				+ forwardKeyNames[i] + ", reverse lookups will binary search instead");
+			return false;
+		} catch (IllegalArgumentException iae) {
+			logger.warn("Too many documents ("+entryCount+") to write fingerprint hash for reverse key " 
+				+ forwardKeyNames[i] + ", reverse lookups will binary search instead");
+			return false;
+		}
+		return true;
+	}
 
 	
 
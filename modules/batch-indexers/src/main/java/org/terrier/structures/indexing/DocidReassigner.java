@@ -0,0 +1,509 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is DocidReassigner.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.structures.indexing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.applications.CLITool;
+import org.terrier.applications.CLITool.CLIParsedCLITool;
+import org.terrier.structures.AbstractPostingOutputStream;
+import org.terrier.structures.BitIndexPointer;
+import org.terrier.structures.DocumentIndex;
+import org.terrier.structures.DocumentIndexEntry;
+import org.terrier.structures.FSOMapFileLexiconOutputStream;
+import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.IndexUtil;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.LexiconOutputStream;
+import org.terrier.structures.MetaIndex;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.PostingIndexInputStream;
+import org.terrier.structures.indexing.CompressionFactory.CompressionConfiguration;
+import org.terrier.structures.postings.BlockPosting;
+import org.terrier.structures.postings.FieldPosting;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.structures.postings.IterablePostingImpl;
+import org.terrier.structures.postings.PostingIdComparator;
+import org.terrier.structures.postings.WritablePosting;
+import org.terrier.structures.seralization.FixedSizeWriteableFactory;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.ArrayUtils;
+import org.terrier.utility.TerrierTimer;
+
+/**
+ * Rewrites an existing index such that its documents are assigned different docids.
+ * Docids that are assigned such that similar documents are numbered closely result in
+ * smaller gaps within the posting lists, and hence in smaller and faster-to-decode
+ * inverted indices. The new docids are given by an {@link Ordering}:
+ * {@link MetaKeyOrdering} sorts the documents by a metadata key (e.g. their URL),
+ * {@link RecursiveGraphBisection} groups documents that share terms, while
+ * {@link StaticScoreOrdering} sorts the documents by decreasing static score.
+ * <p>
+ * The document, meta, direct (if any), inverted and lexicon structures are written to a new index
+ * under the new docids. Termids and all statistics are unchanged. As with the {@link org.terrier.structures.merging.StructureMerger},
+ * the inverted and direct structures are compressed using the configured <tt>indexing.inverted.compression.configuration</tt>
+ * and <tt>indexing.direct.compression.configuration</tt>. Any other structures of the source index are not copied.
+ * Each posting list is reordered in memory, hence the longest posting list must fit in memory.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class DocidReassigner {
+
+	protected static final Logger logger = LoggerFactory.getLogger(DocidReassigner.class);
+
+	/** The structures rewritten by this class. Structures whose names start with
+	 * one of these followed by a hyphen (e.g. <tt>lexicon-valuefactory</tt>) are retained also. */
+	static final String[] REWRITTEN_STRUCTURES = {"document", "direct", "meta", "inverted", "lexicon"};
+
+	/** Defines how the new docid of each document is determined */
+	public interface Ordering
+	{
+		/** Returns the new docid for each document, indexed by the existing docid. The
+		 * returned array must be a permutation of 0..N-1. */
+		int[] getNewDocids(IndexOnDisk index) throws IOException;
+	}
+
+	/** Orders the documents by the value of a metadata key, for instance their URL.
+	 * Ties retain their existing relative order. */
+	public static class MetaKeyOrdering implements Ordering
+	{
+		final String key;
+
+		/** Orders by the named metadata key */
+		public MetaKeyOrdering(String key)
+		{
+			this.key = key;
+		}
+
+		@Override
+		public int[] getNewDocids(IndexOnDisk index) throws IOException {
+			final MetaIndex meta = index.getMetaIndex();
+			final int numDocs = index.getCollectionStatistics().getNumberOfDocuments();
+			final String[] values = new String[numDocs];
+			final Integer[] order = new Integer[numDocs];
+			for(int i=0;i<numDocs;i++)
+			{
+				values[i] = meta.getItem(key, i);
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return values[o1].compareTo(values[o2]);
+				}
+			});
+			final int[] newDocids = new int[numDocs];
+			for(int i=0;i<numDocs;i++)
+				newDocids[order[i]] = i;
+			return newDocids;
+		}
+	}
+
+	protected final IndexOnDisk source;
+
+	/** Constructs a DocidReassigner to rewrite the specified index */
+	public DocidReassigner(IndexOnDisk source)
+	{
+		this.source = source;
+	}
+
+	/** Writes a new index at the specified location, in which the documents are ordered as specified.
+	 * @param ordering obtains the new docids
+	 * @param path path of the new index
+	 * @param prefix prefix of the new index
+	 * @return the new index
+	 */
+	public IndexOnDisk reassign(Ordering ordering, String path, String prefix) throws IOException
+	{
+		logger.info("Obtaining new docids using " + ordering.getClass().getSimpleName());
+		return reassign(ordering.getNewDocids(source), path, prefix);
+	}
+
+	/** Writes a new index at the specified location, in which each document has the specified docid.
+	 * @param newDocids the new docid for each document, indexed by existing docid
+	 * @param path path of the new index
+	 * @param prefix prefix of the new index
+	 * @return the new index
+	 */
+	public IndexOnDisk reassign(int[] newDocids, String path, String prefix) throws IOException
+	{
+		final int numDocs = source.getCollectionStatistics().getNumberOfDocuments();
+		final int[] oldDocids = invert(newDocids, numDocs);
+		final IndexOnDisk dest = Index.createNewIndex(path, prefix);
+		copyProperties(dest);
+		writeDocumentAndDirect(dest, oldDocids);
+		writeMeta(dest, oldDocids);
+		writeInvertedAndLexicon(dest, newDocids);
+		dest.flush();
+		return dest;
+	}
+
+	/** Checks that the specified array is a permutation, and returns its inverse */
+	static int[] invert(int[] newDocids, int numDocs)
+	{
+		if (newDocids.length != numDocs)
+			throw new IllegalArgumentException("Expected "+numDocs+" new docids, but got " + newDocids.length);
+		final int[] oldDocids = new int[numDocs];
+		Arrays.fill(oldDocids, -1);
+		for(int i=0;i<numDocs;i++)
+		{
+			final int newDocid = newDocids[i];
+			if (newDocid < 0 || newDocid >= numDocs || oldDocids[newDocid] != -1)
+				throw new IllegalArgumentException("New docids are not a permutation: docid " + i + " was assigned " + newDocid);
+			oldDocids[newDocid] = i;
+		}
+		return oldDocids;
+	}
+
+	/** Copies the properties of the source index, except for the structures that will not be written */
+	protected void copyProperties(IndexOnDisk dest)
+	{
+		copyProperties(source, dest, REWRITTEN_STRUCTURES);
+	}
+
+	/** Copies the properties of one index to another, except for the properties of structures that are not retained.
+	 * A structure is retained if its name is one of those specified, or starts with one of those specified followed
+	 * by a hyphen (e.g. <tt>lexicon-valuefactory</tt>).
+	 * @param source index to copy properties from
+	 * @param dest index to copy properties to
+	 * @param retainedStructures names of the structures whose properties should be copied
+	 */
+	public static void copyProperties(IndexOnDisk source, IndexOnDisk dest, String[] retainedStructures)
+	{
+		final Set<String> dropped = new HashSet<String>();
+		for(Object o : source.getProperties().keySet())
+		{
+			final String key = (String)o;
+			if (key.startsWith("index.") && key.endsWith(".class"))
+			{
+				final String structureName = key.substring("index.".length(), key.length() - ".class".length());
+				if (! isRetained(structureName, retainedStructures))
+					dropped.add(structureName);
+			}
+		}
+		for(Object o : source.getProperties().keySet())
+		{
+			final String key = (String)o;
+			boolean drop = false;
+			for(String structureName : dropped)
+				if (key.startsWith("index." + structureName + "."))
+					drop = true;
+			if (! drop)
+				dest.setIndexProperty(key, source.getIndexProperty(key, null));
+		}
+		for(String structureName : dropped)
+			logger.warn("Structure " + structureName + " will not be present in the index at " + dest.getPath() + "/" + dest.getPrefix());
+	}
+
+	static boolean isRetained(String structureName, String[] retainedStructures)
+	{
+		for(String s : retainedStructures)
+			if (structureName.equals(s) || structureName.startsWith(s + "-"))
+				return true;
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void writeDocumentAndDirect(IndexOnDisk dest, int[] oldDocids) throws IOException
+	{
+		final DocumentIndex doi = source.getDocumentIndex();
+		final DocumentIndexBuilder docOut = new DocumentIndexBuilder(dest, "document");
+		PostingIndex<?> direct = null;
+		AbstractPostingOutputStream directOut = null;
+		CompressionConfiguration directConfig = null;
+		if (source.hasIndexStructure("direct"))
+		{
+			direct = source.getDirectIndex();
+			directConfig = CompressionFactory.getCompressionConfiguration("direct",
+				ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.direct.fields.names", "")),
+				source.getIntIndexProperty("index.direct.blocks", 0),
+				source.getIntIndexProperty("index.direct.blocks.max", 0));
+			directOut = directConfig.getPostingOutputStream(
+				dest.getPath() + ApplicationSetup.FILE_SEPARATOR + dest.getPrefix() + ".direct" + directConfig.getStructureFileExtension());
+		}
+		final TerrierTimer tt = new TerrierTimer("Rewriting document" + (direct != null ? " and direct" : "") + " structures", oldDocids.length);
+		tt.start();
+		try{
+			for(int newDocid=0;newDocid<oldDocids.length;newDocid++)
+			{
+				final DocumentIndexEntry die = doi.getDocumentEntry(oldDocids[newDocid]);
+				if (direct != null)
+				{
+					final IterablePosting ip = direct.getPostings(die);
+					final BitIndexPointer pointer = directOut.writePostings(ip);
+					ip.close();
+					die.setBitIndexPointer(pointer);
+				}
+				docOut.addEntryToBuffer(die);
+				tt.increment();
+			}
+		} finally {
+			tt.finished();
+			if (directOut != null)
+				directOut.close();
+			docOut.finishedCollections();
+		}
+		if (directConfig != null)
+			directConfig.writeIndexProperties(dest, "document-inputstream");
+	}
+
+	protected void writeMeta(IndexOnDisk dest, int[] oldDocids) throws IOException
+	{
+		final MetaIndex meta = source.getMetaIndex();
+		final MetaIndexBuilder metaOut = new CompressingMetaIndexBuilder(dest,
+			ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.meta.key-names", "docno")),
+			ArrayUtils.parseCommaDelimitedInts(source.getIndexProperty("index.meta.value-lengths", "20")),
+			ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.meta.reverse-key-names", "")));
+		try{
+			for(int newDocid=0;newDocid<oldDocids.length;newDocid++)
+				metaOut.writeDocumentEntry(meta.getAllItems(oldDocids[newDocid]));
+		} finally {
+			metaOut.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void writeInvertedAndLexicon(IndexOnDisk dest, int[] newDocids) throws IOException
+	{
+		final CompressionConfiguration invertedConfig = CompressionFactory.getCompressionConfiguration("inverted",
+				ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.inverted.fields.names", "")),
+				source.getIntIndexProperty("index.inverted.blocks", 0),
+				source.getIntIndexProperty("index.inverted.blocks.max", 0));
+		final AbstractPostingOutputStream invOut = invertedConfig.getPostingOutputStream(
+				dest.getPath() + ApplicationSetup.FILE_SEPARATOR + dest.getPrefix() + ".inverted" + invertedConfig.getStructureFileExtension());
+		final FixedSizeWriteableFactory<LexiconEntry> valueFactory = (FixedSizeWriteableFactory<LexiconEntry>)source.getIndexStructure("lexicon-valuefactory");
+		final LexiconOutputStream<String> lexOut = new FSOMapFileLexiconOutputStream(dest, "lexicon",
+				(Class<? extends FixedSizeWriteableFactory<LexiconEntry>>) valueFactory.getClass());
+		final Iterator<Entry<String, LexiconEntry>> lexIn = (Iterator<Entry<String, LexiconEntry>>) source.getIndexStructureInputStream("lexicon");
+		final PostingIndexInputStream invIn = (PostingIndexInputStream) source.getIndexStructureInputStream("inverted");
+
+		final List<WritablePosting> postings = new ArrayList<WritablePosting>();
+		final PostingIdComparator comparator = new PostingIdComparator();
+		final TerrierTimer tt = new TerrierTimer("Rewriting inverted structure", source.getCollectionStatistics().getNumberOfUniqueTerms());
+		tt.start();
+		try{
+			while(lexIn.hasNext())
+			{
+				final Entry<String, LexiconEntry> lee = lexIn.next();
+				final IterablePosting ip = invIn.next();
+				postings.clear();
+				while(ip.next() != IterablePosting.EOL)
+				{
+					final WritablePosting p = ip.asWritablePosting();
+					p.setId(newDocids[ip.getId()]);
+					postings.add(p);
+				}
+				postings.sort(comparator);
+				final BitIndexPointer pointer = invOut.writePostings(new ListIterablePosting(postings));
+				lee.getValue().setPointer(pointer);
+				lexOut.writeNextEntry(lee.getKey(), lee.getValue());
+				tt.increment();
+			}
+		} finally {
+			tt.finished();
+			invOut.close();
+			lexOut.close();
+			IndexUtil.close(lexIn);
+			IndexUtil.close(invIn);
+		}
+		invertedConfig.writeIndexProperties(dest, "lexicon-entry-inputstream");
+		LexiconBuilder.optimise(dest, "lexicon");
+	}
+
+	/** Presents a list of postings, sorted by id, as an IterablePosting. The postings may have
+	 * fields and/or blocks, as required by the posting output stream. */
+	public static class ListIterablePosting extends IterablePostingImpl implements BlockPosting, FieldPosting
+	{
+		final List<WritablePosting> postings;
+		int index = -1;
+		WritablePosting current;
+
+		/** Presents the specified postings, which must be sorted by id */
+		public ListIterablePosting(List<WritablePosting> postings)
+		{
+			this.postings = postings;
+		}
+
+		@Override
+		public int next() throws IOException {
+			if (++index >= postings.size())
+			{
+				current = null;
+				return EOL;
+			}
+			current = postings.get(index);
+			return current.getId();
+		}
+
+		@Override
+		public boolean endOfPostings() {
+			return index >= postings.size();
+		}
+
+		@Override
+		public int getId() {
+			return current == null ? (index < 0 ? -1 : EOL) : current.getId();
+		}
+
+		@Override
+		public int getFrequency() {
+			return current.getFrequency();
+		}
+
+		@Override
+		public int getDocumentLength() {
+			return current.getDocumentLength();
+		}
+
+		@Override
+		public void setId(int id) {
+			current.setId(id);
+		}
+
+		@Override
+		public WritablePosting asWritablePosting() {
+			return current.asWritablePosting();
+		}
+
+		@Override
+		public int[] getPositions() {
+			return ((BlockPosting)current).getPositions();
+		}
+
+		@Override
+		public int[] getFieldFrequencies() {
+			return ((FieldPosting)current).getFieldFrequencies();
+		}
+
+		@Override
+		public int[] getFieldLengths() {
+			return ((FieldPosting)current).getFieldLengths();
+		}
+
+		@Override
+		public void setFieldLengths(int[] newLengths) {
+			((FieldPosting)current).setFieldLengths(newLengths);
+		}
+
+		@Override
+		public void close() throws IOException {}
+	}
+
+	/** Command to rewrite the default index with new docids */
+	public static class Command extends CLIParsedCLITool
+	{
+		@Override
+		public String commandname() {
+			return "reassign-docids";
+		}
+
+		@Override
+		public Set<String> commandaliases() {
+			return new HashSet<String>(Arrays.asList("reorder"));
+		}
+
+		@Override
+		public String helpsummary() {
+			return "writes a copy of an index with docids reassigned to improve compression";
+		}
+
+		@Override
+		public String sourcepackage() {
+			return CLITool.PLATFORM_MODULE;
+		}
+
+		@Override
+		protected Options getOptions() {
+			Options options = super.getOptions();
+			options.addOption(Option.builder("s")
+					.argName("strategy")
+					.longOpt("strategy")
+					.hasArg()
+					.desc("how to reassign docids: bp (recursive graph bisection, default), meta (sort by a metadata key) or static (decreasing static score, as configured by the ssa.* properties)")
+					.build());
+			options.addOption(Option.builder("k")
+					.argName("key")
+					.longOpt("key")
+					.hasArg()
+					.desc("metadata key to sort by for the meta strategy, default url")
+					.build());
+			options.addOption(Option.builder("p")
+					.argName("prefix")
+					.longOpt("prefix")
+					.hasArg()
+					.desc("prefix of the new index, written in the same directory. Default is the existing prefix followed by -reordered")
+					.build());
+			return options;
+		}
+
+		@Override
+		public int run(CommandLine line) throws Exception {
+			Index.setIndexLoadingProfileAsRetrieval(false);
+			IndexOnDisk index = Index.createIndex();
+			if (index == null)
+			{
+				System.err.println("Sorry, no index could be found in default location");
+				return 1;
+			}
+			final String strategy = line.getOptionValue("s", "bp");
+			final Ordering ordering;
+			if (strategy.equals("bp"))
+				ordering = new RecursiveGraphBisection();
+			else if (strategy.equals("meta"))
+				ordering = new MetaKeyOrdering(line.getOptionValue("k", "url"));
+			else if (strategy.equals("static"))
+				ordering = new StaticScoreOrdering();
+			else
+			{
+				System.err.println("Unknown strategy " + strategy);
+				return 1;
+			}
+			final String prefix = line.getOptionValue("p", index.getPrefix() + "-reordered");
+			IndexOnDisk dest = new DocidReassigner(index).reassign(ordering, index.getPath(), prefix);
+			if (ordering instanceof StaticScoreOrdering)
+				((StaticScoreOrdering)ordering).writeStaticScores(dest);
+			dest.close();
+			index.close();
+			return 0;
+		}
+	}
+}
@@ -31,12 +31,20 @@ import org.apache.hadoop.io.Writable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.terrier.structures.DocumentIndexEntry;
+import org.terrier.structures.FSADocumentIndex;
+import org.terrier.structures.FSAFieldDocumentIndex;
+import org.terrier.structures.FieldDocumentIndexEntry;
 import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.collections.FSArrayFile;
+import org.terrier.structures.collections.IntColumnFile;
 import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
 
 /**
- * A builder for the document index. 
+ * A builder for the document index. As well as the document index entries, the
+ * document lengths (and field lengths, if any) are written as column files, which
+ * allow these to be loaded quickly when the index is opened.
  * @author Vassilis Plachouras
   */
 public class DocumentIndexBuilder {
@@ -53,6 +61,8 @@ public class DocumentIndexBuilder {
 	protected IndexOnDisk index;
 	
 	FSArrayFile.ArrayFileWriter fileWriter;
+	IntColumnFile.Writer lengthsWriter;
+	IntColumnFile.Writer fieldLengthsWriter;
 	
 	/** Construct a DocumentIndex associated with the specified index
 	  * @param i Index being constructed
@@ -67,6 +77,9 @@ public class DocumentIndexBuilder {
 		} catch (IOException ioe) {
 			logger.error("Could not make FSArrayFile.ArrayFileWriter", ioe);
 		}
+		//any existing columns would no longer match the entries
+		Files.delete(FSADocumentIndex.getColumnFilename(index, structureName, FSADocumentIndex.LENGTHS_COLUMN));
+		Files.delete(FSADocumentIndex.getColumnFilename(index, structureName, FSAFieldDocumentIndex.FIELD_LENGTHS_COLUMN));
 	}
 
 	/**
@@ -80,6 +93,18 @@ public class DocumentIndexBuilder {
 		throws java.io.IOException 
 	{	
 		fileWriter.write(die);
+		if (die instanceof DocumentIndexEntry)
+		{
+			if (lengthsWriter == null)
+				lengthsWriter = new IntColumnFile.Writer(FSADocumentIndex.getColumnFilename(index, structureName, FSADocumentIndex.LENGTHS_COLUMN));
+			lengthsWriter.write(((DocumentIndexEntry)die).getDocumentLength());
+			if (die instanceof FieldDocumentIndexEntry)
+			{
+				if (fieldLengthsWriter == null)
+					fieldLengthsWriter = new IntColumnFile.Writer(FSADocumentIndex.getColumnFilename(index, structureName, FSAFieldDocumentIndex.FIELD_LENGTHS_COLUMN));
+				fieldLengthsWriter.write(((FieldDocumentIndexEntry)die).getFieldLengths());
+			}
+		}
 		numberOfDocumentIndexEntries++;
 	}
 	/**
@@ -88,6 +113,11 @@ public class DocumentIndexBuilder {
 	public void close() {
 		try {
 			fileWriter.close();
+			if (lengthsWriter != null)
+				lengthsWriter.close();
+			if (fieldLengthsWriter != null)
+				fieldLengthsWriter.close();
+			lengthsWriter = fieldLengthsWriter = null;
 		} catch (IOException ioe) {
 			logger.error("Input/Output exception while closing docIndex file. Stack trace follows", ioe);
 		}
@@ -0,0 +1,100 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is DocumentTokensIndexBuilder.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.indexing;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.terrier.structures.DocumentTokensIndex;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/** Writes a {@link DocumentTokensIndex}. Documents must be added in docid order, including empty documents.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class DocumentTokensIndexBuilder implements Closeable {
+
+	protected final IndexOnDisk index;
+	protected final String structureName;
+	protected final DataOutputStream data;
+	protected final DataOutputStream offsets;
+	protected long offset = 0;
+
+	/**
+	 * constructor
+	 * @param _index index to write the structure into
+	 * @param _structureName name of the structure, usually "tokens"
+	 */
+	public DocumentTokensIndexBuilder(IndexOnDisk _index, String _structureName) throws IOException
+	{
+		index = _index;
+		structureName = _structureName;
+		final String filenamePrefix = index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix() + "." + structureName;
+		data = new DataOutputStream(Files.writeFileStream(filenamePrefix + DocumentTokensIndex.DATA_EXTENSION));
+		offsets = new DataOutputStream(Files.writeFileStream(filenamePrefix + DocumentTokensIndex.OFFSETS_EXTENSION));
+	}
+
+	/** Records the tokens of the next document.
+	 * @param termids termids of the document, in order of position
+	 * @param numTokens the number of termids to write
+	 * @param sentences ascending positions at which the sentences after the first sentence start
+	 * @param numSentences the number of sentence positions to write
+	 */
+	public void addDocument(int[] termids, int numTokens, int[] sentences, int numSentences) throws IOException
+	{
+		offsets.writeLong(offset);
+		writeVInt(numTokens);
+		writeVInt(numSentences);
+		for(int i=0;i<numTokens;i++)
+			writeVInt(termids[i]);
+		int last = 0;
+		for(int i=0;i<numSentences;i++)
+		{
+			writeVInt(sentences[i] - last);
+			last = sentences[i];
+		}
+	}
+
+	private void writeVInt(int value) throws IOException
+	{
+		WritableUtils.writeVInt(data, value);
+		offset += WritableUtils.getVIntSize(value);
+	}
+
+	/** Closes the files, and adds the structure to the index */
+	@Override
+	public void close() throws IOException
+	{
+		offsets.writeLong(offset);
+		offsets.close();
+		data.close();
+		index.addIndexStructure(structureName, DocumentTokensIndex.class.getName(), "org.terrier.structures.IndexOnDisk,java.lang.String", "index,structureName");
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FilterIndexBuilder.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.indexing;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.terrier.structures.FilterIndex;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.collections.DocidBitmap;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.ArrayUtils;
+import org.terrier.utility.Files;
+
+/** Writes a {@link FilterIndex}, by recording the docids having each value of the filter keys.
+ * Docids must be added in ascending order, as they are by a {@link MetaIndexBuilder}.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class FilterIndexBuilder implements Closeable {
+
+	protected final IndexOnDisk index;
+	protected final String structureName;
+	protected final String[] keyNames;
+	protected final boolean[] siteKeys;
+	protected final Map<String,DocidBitmap.Builder>[] values;
+
+	/**
+	 * constructor
+	 * @param _index index to write the structure into
+	 * @param _structureName name of the structure, usually "filter"
+	 * @param _keyNames keys to be indexed
+	 * @param _siteKeys keys containing URLs, which are recorded using all suffixes of their hostname. At most one
+	 * of the keys to be indexed can be named, as the site control has a single value.
+	 * @throws IllegalArgumentException if more than one of the keys is a site key
+	 */
+	@SuppressWarnings("unchecked")
+	public FilterIndexBuilder(IndexOnDisk _index, String _structureName, String[] _keyNames, String[] _siteKeys)
+	{
+		this.index = _index;
+		this.structureName = _structureName;
+		this.keyNames = _keyNames;
+		this.siteKeys = new boolean[keyNames.length];
+		this.values = new Map[keyNames.length];
+		int siteKeyCount = 0;
+		for(int i=0;i<keyNames.length;i++)
+		{
+			values[i] = new HashMap<>();
+			for(String siteKey : _siteKeys)
+				if (siteKey.equals(keyNames[i]))
+					siteKeys[i] = true;
+			if (siteKeys[i])
+				siteKeyCount++;
+		}
+		if (siteKeyCount > 1)
+			throw new IllegalArgumentException("Only one key can be named in indexer.meta.filter.site.keys, found " + String.join(",", _siteKeys));
+	}
+
+	/** Records the value of each filter key for the specified document.
+	 * @param docid the docid of the document, larger than that of any previous document
+	 * @param data the value of each filter key, in the order of the key names, null or empty if there is no value
+	 */
+	public void addDocument(int docid, String[] data)
+	{
+		for(int i=0;i<keyNames.length;i++)
+		{
+			if (data[i] == null || data[i].length() == 0)
+				continue;
+			if (siteKeys[i])
+			{
+				final String host = getHost(data[i]);
+				if (host == null)
+					continue;
+				int dot = -1;
+				do {
+					add(i, host.substring(dot+1), docid);
+				} while((dot = host.indexOf('.', dot+1)) != -1);
+			}
+			else
+				add(i, data[i], docid);
+		}
+	}
+
+	void add(int i, String value, int docid)
+	{
+		DocidBitmap.Builder b = values[i].get(value);
+		if (b == null)
+			values[i].put(value, b = new DocidBitmap.Builder());
+		b.add(docid);
+	}
+
+	static String getHost(String url)
+	{
+		try{
+			return new URL(url.contains("://") ? url : "http://" + url).getHost().toLowerCase();
+		} catch (MalformedURLException mue) {
+			return null;
+		}
+	}
+
+	/** Writes the bitmaps, and adds the structure to the index */
+	@Override
+	public void close() throws IOException
+	{
+		final StringBuilder siteKeyNames = new StringBuilder();
+		for(int i=0;i<keyNames.length;i++)
+		{
+			final String filename = index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix()
+				+ "." + structureName + "-" + i + FilterIndex.USUAL_EXTENSION;
+			try(DataOutputStream dos = new DataOutputStream(Files.writeFileStream(filename)))
+			{
+				dos.writeInt(values[i].size());
+				for(Map.Entry<String,DocidBitmap.Builder> kv : values[i].entrySet())
+				{
+					dos.writeUTF(kv.getKey());
+					kv.getValue().build().write(dos);
+				}
+			}
+			values[i].clear();
+			if (siteKeys[i])
+				siteKeyNames.append(siteKeyNames.length() > 0 ? "," : "").append(keyNames[i]);
+		}
+		index.addIndexStructure(structureName, FilterIndex.class.getName(), "org.terrier.structures.IndexOnDisk,java.lang.String", "index,structureName");
+		index.setIndexProperty("index."+structureName+".key-names", ArrayUtils.join(keyNames, ","));
+		index.setIndexProperty("index."+structureName+".site-key-names", siteKeyNames.toString());
+		index.flush();
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is ImpactOrderedIndexBuilder.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.structures.indexing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.applications.CLITool;
+import org.terrier.applications.CLITool.CLIParsedCLITool;
+import org.terrier.compression.bit.BitIn;
+import org.terrier.compression.bit.BitOutputStream;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.matching.models.WeightingModelFactory;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.IndexUtil;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.PostingIndexInputStream;
+import org.terrier.structures.SimpleBitIndexPointer;
+import org.terrier.structures.bit.ImpactOrderedPostingIndex;
+import org.terrier.structures.collections.FSArrayFile;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.TerrierTimer;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Builds an {@link ImpactOrderedPostingIndex} from the inverted index of an existing index.
+ * Each posting is scored by the specified weighting model, and the scores are quantised
+ * uniformly between the minimum and maximum scores of the index, such that impacts can be summed
+ * across terms. Two passes are made over the inverted index: the first determines the range of scores,
+ * and the second writes the segments of each term. The postings of each term are sorted in memory.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class ImpactOrderedIndexBuilder {
+
+	protected static final Logger logger = LoggerFactory.getLogger(ImpactOrderedIndexBuilder.class);
+
+	protected final IndexOnDisk index;
+	protected final String wmodelName;
+	protected final int levels;
+
+	/** Constructs a builder.
+	 * @param _index index with an inverted structure
+	 * @param _wmodelName name of the weighting model to compute the impacts with
+	 * @param bits number of bits of each impact. The impacts will range between 1 and 2^bits - 1.
+	 */
+	public ImpactOrderedIndexBuilder(IndexOnDisk _index, String _wmodelName, int bits)
+	{
+		if (bits < 1 || bits > 16)
+			throw new IllegalArgumentException("Quantization bits must be between 1 and 16, got " + bits);
+		this.index = _index;
+		this.wmodelName = _wmodelName;
+		this.levels = (1 << bits) - 1;
+	}
+
+	/** Writes the named impact-ordered structure, and adds it to the index */
+	@SuppressWarnings("unchecked")
+	public void build(String structureName) throws IOException
+	{
+		final CollectionStatistics cs = index.getCollectionStatistics();
+		final WeightingModel wmodel = WeightingModelFactory.newInstance(wmodelName, index).clone();
+		wmodel.setCollectionStatistics(cs);
+		wmodel.setKeyFrequency(1);
+
+		//pass 1: determine the range of scores
+		double minScore = Double.POSITIVE_INFINITY;
+		double maxScore = Double.NEGATIVE_INFINITY;
+		Iterator<Entry<String, LexiconEntry>> lexIn = (Iterator<Entry<String, LexiconEntry>>) index.getIndexStructureInputStream("lexicon");
+		PostingIndexInputStream invIn = (PostingIndexInputStream) index.getIndexStructureInputStream("inverted");
+		TerrierTimer tt = new TerrierTimer("Determining range of " + wmodel.getInfo() + " scores", cs.getNumberOfUniqueTerms());
+		tt.start();
+		while(lexIn.hasNext())
+		{
+			final LexiconEntry le = lexIn.next().getValue();
+			final IterablePosting ip = invIn.next();
+			wmodel.setEntryStatistics(le);
+			wmodel.prepare();
+			while(ip.next() != IterablePosting.EOL)
+			{
+				final double score = wmodel.score(ip);
+				minScore = Math.min(minScore, score);
+				maxScore = Math.max(maxScore, score);
+			}
+			tt.increment();
+		}
+		tt.finished();
+		IndexUtil.close(lexIn);
+		IndexUtil.close(invIn);
+		logger.info(wmodel.getInfo() + " scores range from " + minScore + " to " + maxScore);
+
+		//pass 2: write the segments of each term
+		final String filename = index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix() + "." + structureName;
+		final SimpleBitIndexPointer[] pointers = new SimpleBitIndexPointer[cs.getNumberOfUniqueTerms()];
+		final BitOutputStream out = new BitOutputStream(filename + BitIn.USUAL_EXTENSION);
+		lexIn = (Iterator<Entry<String, LexiconEntry>>) index.getIndexStructureInputStream("lexicon");
+		invIn = (PostingIndexInputStream) index.getIndexStructureInputStream("inverted");
+		tt = new TerrierTimer("Writing impact-ordered structure " + structureName, cs.getNumberOfUniqueTerms());
+		tt.start();
+		long[] sortKeys = new long[0];
+		int[] impacts = new int[0];
+		int[] docids = new int[0];
+		try{
+			while(lexIn.hasNext())
+			{
+				final LexiconEntry le = lexIn.next().getValue();
+				final IterablePosting ip = invIn.next();
+				final int df = le.getDocumentFrequency();
+				if (sortKeys.length < df)
+				{
+					sortKeys = new long[df];
+					impacts = new int[df];
+					docids = new int[df];
+				}
+				wmodel.setEntryStatistics(le);
+				wmodel.prepare();
+				int count = 0;
+				while(ip.next() != IterablePosting.EOL)
+				{
+					final int impact = quantise(wmodel.score(ip), minScore, maxScore);
+					//decreasing impact, then increasing docid
+					sortKeys[count++] = ((long)(levels - impact) << 32) | ip.getId();
+				}
+				Arrays.sort(sortKeys, 0, count);
+				for(int i=0;i<count;i++)
+				{
+					impacts[i] = levels - (int)(sortKeys[i] >>> 32);
+					docids[i] = (int)(sortKeys[i] & 0xffffffffL);
+				}
+				final long offset = out.getByteOffset();
+				final byte bits = out.getBitOffset();
+				final int segments = ImpactOrderedPostingIndex.writeSegments(out, impacts, docids, count);
+				pointers[le.getTermId()] = new SimpleBitIndexPointer(offset, bits, segments);
+				tt.increment();
+			}
+		} finally {
+			tt.finished();
+			out.close();
+			IndexUtil.close(lexIn);
+			IndexUtil.close(invIn);
+		}
+
+		final FSArrayFile.ArrayFileWriter pointersOut = FSArrayFile.writeFSArrayFile(
+			filename + ImpactOrderedPostingIndex.POINTERS_SUFFIX + FSArrayFile.USUAL_EXTENSION);
+		final SimpleBitIndexPointer empty = new SimpleBitIndexPointer();
+		for(SimpleBitIndexPointer p : pointers)
+			pointersOut.write(p != null ? p : empty);
+		pointersOut.close();
+
+		index.addIndexStructure(structureName, ImpactOrderedPostingIndex.class.getName(),
+			"org.terrier.structures.IndexOnDisk,java.lang.String", "index,structureName");
+		index.setIndexProperty("index." + structureName + ".weighting-model", wmodelName);
+		index.setIndexProperty("index." + structureName + ".quantization-levels", String.valueOf(levels));
+		index.flush();
+	}
+
+	/** Maps a score in [min,max] to an impact in [1,levels] */
+	int quantise(double score, double min, double max)
+	{
+		if (max <= min)
+			return 1;
+		final int impact = 1 + (int) ((score - min) / (max - min) * (levels - 1) + 0.5d);
+		return Math.min(levels, Math.max(1, impact));
+	}
+
+	/** Command to build an impact-ordered structure for the default index */
+	public static class Command extends CLIParsedCLITool
+	{
+		@Override
+		public String commandname() {
+			return "impact-index";
+		}
+
+		@Override
+		public Set<String> commandaliases() {
+			return Sets.newHashSet("impacts");
+		}
+
+		@Override
+		public String helpsummary() {
+			return "builds an impact-ordered inverted index for score-at-a-time retrieval";
+		}
+
+		@Override
+		public String sourcepackage() {
+			return CLITool.PLATFORM_MODULE;
+		}
+
+		@Override
+		protected Options getOptions() {
+			Options options = super.getOptions();
+			options.addOption(Option.builder("w")
+					.argName("wmodel")
+					.longOpt("wmodel")
+					.hasArg()
+					.desc("weighting model used to compute the impacts, default BM25")
+					.build());
+			options.addOption(Option.builder("b")
+					.argName("bits")
+					.longOpt("bits")
+					.hasArg()
+					.desc("number of bits of each impact, default 8")
+					.build());
+			options.addOption(Option.builder("s")
+					.argName("structure")
+					.longOpt("structure")
+					.hasArg()
+					.desc("name of the structure to write, default impact")
+					.build());
+			return options;
+		}
+
+		@Override
+		public int run(CommandLine line) throws Exception {
+			Index.setIndexLoadingProfileAsRetrieval(false);
+			IndexOnDisk index = Index.createIndex();
+			if (index == null)
+			{
+				System.err.println("Sorry, no index could be found in default location");
+				return 1;
+			}
+			new ImpactOrderedIndexBuilder(index,
+				line.getOptionValue("w", "BM25"),
+				Integer.parseInt(line.getOptionValue("b", "8"))).build(line.getOptionValue("s", "impact"));
+			index.close();
+			return 0;
+		}
+	}
+}
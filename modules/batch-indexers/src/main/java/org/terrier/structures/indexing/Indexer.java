@@ -45,10 +45,12 @@ import org.terrier.structures.MetaIndex;
 import org.terrier.structures.indexing.classical.InvertedIndexBuilder;
 import org.terrier.structures.merging.BlockStructureMerger;
 import org.terrier.structures.merging.StructureMerger;
+import org.terrier.terms.CachingTermPipeline;
 import org.terrier.terms.PorterStemmer;
 import org.terrier.terms.SkipTermPipeline;
 import org.terrier.terms.Stopwords;
 import org.terrier.terms.TermPipeline;
+import org.terrier.terms.TermPipelineCache;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.ArrayUtils;
 import org.terrier.utility.FieldScore;
@@ -110,6 +112,8 @@ public abstract class Indexer
 	 * The first component of the term pipeline.
 	 */
 	protected TermPipeline pipeline_first;
+	/** The memo of the term pipeline output shared by all pipelines created by this indexer, or null */
+	protected TermPipelineCache pipelineCache;
 	/**
 	 * Indicates whether an entry for empty documents is stored in the 
 	 * document index, or empty documents should be ignored.
@@ -294,13 +298,36 @@ public abstract class Indexer
 	 */
 	//@SuppressWarnings("unchecked")
 	protected void load_pipeline()
+	{
+		String[] pipes = ApplicationSetup.getProperty(
+				"termpipelines", "Stopwords,PorterStemmer").trim()
+				.split("\\s*,\\s*");
+		//memoise the output of the pipeline for frequent terms, if its stages allow
+		pipelineCache = TermPipelineCache.create(pipes, PIPELINE_NAMESPACE);
+		pipeline_first = createPipeline(getEndOfPipeline());
+	}
+
+	/** 
+	 * Creates a new instance of the term pipeline specified by the property <tt>termpipelines</tt>,
+	 * ending at the specified stage. Pipelines created by this method share the same
+	 * {@link TermPipelineCache}, so that each may be used by a different thread.
+	 * @param end the last stage of the pipeline
+	 * @return the first stage of the pipeline
+	 */
+	protected TermPipeline createPipeline(TermPipeline end)
 	{
 		String[] pipes = ApplicationSetup.getProperty(
 				"termpipelines", "Stopwords,PorterStemmer").trim()
 				.split("\\s*,\\s*");
 		
-		TermPipeline next = getEndOfPipeline();
-		final TermPipeline last = next;
+		TermPipeline next = end;
+		TermPipeline last = next;
+		CachingTermPipeline caching = null;
+		if (pipelineCache != null)
+		{
+			caching = new CachingTermPipeline(last, pipelineCache);
+			next = last = caching.getCaptureStage();
+		}
 		TermPipeline tmp;
 		for(int i=pipes.length-1; i>=0; i--)
 		{
@@ -318,12 +345,19 @@ public abstract class Indexer
 				e.printStackTrace();
 			}
 		}
+		TermPipeline first;
 		String skipTerms = null;
 		//add SkipTermPipeline as the first pipeline step to allow for special terms to skip the pipeline processing sequence
 		if ((skipTerms = ApplicationSetup.getProperty("termpipelines.skip", null)) != null && skipTerms.trim().length() > 0)
-			pipeline_first = new SkipTermPipeline(next, last);
+			first = new SkipTermPipeline(next, last);
 		else
-			pipeline_first = next;
+			first = next;
+		if (caching != null)
+		{
+			caching.setPipeline(first);
+			first = caching;
+		}
+		return first;
 	}
 
 
@@ -43,6 +43,7 @@ import org.terrier.structures.FSOMapFileLexiconGeneric;
 import org.terrier.structures.FSOMapFileLexiconOutputStream;
 import org.terrier.structures.FSOMapFileLexiconOutputStreamGeneric;
 import org.terrier.structures.FieldLexiconEntry;
+import org.terrier.structures.FrontCodedLexicon;
 import org.terrier.structures.Index;
 import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.IndexUtil;
@@ -811,7 +812,9 @@ public class LexiconBuilder
 		optimise(index, defaultStructureName);
 	}
 	
-	/** Optimises the lexicon, eg lexid file */
+	/** Optimises the lexicon, eg lexid file. If property <tt>lexicon.frontcoded</tt> is set (default false),
+	 * the lexicon is then converted to a {@link FrontCodedLexicon}, with blocks of
+	 * <tt>lexicon.frontcoded.blocksize</tt> terms (default 16). */
 	public static void optimise(final IndexOnDisk index, final String structureName)
 	{
 		try {
@@ -837,6 +840,12 @@ public class LexiconBuilder
 			}
 			FSOMapFileLexiconUtilities.optimise(structureName, index, counter);
 			counter.close();
+			if (Boolean.parseBoolean(ApplicationSetup.getProperty("lexicon.frontcoded", "false")))
+			{
+				logger.info("Converting structure "+structureName+" to a front-coded lexicon");
+				FrontCodedLexicon.convert(index, structureName,
+					Integer.parseInt(ApplicationSetup.getProperty("lexicon.frontcoded.blocksize", String.valueOf(FrontCodedLexicon.DEFAULT_BLOCK_SIZE))));
+			}
 			index.flush();
 		} catch(IOException ioe) {
 			logger.error("IOException while creating optimising lexicon called " + structureName, ioe);
@@ -0,0 +1,151 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is RangeIndexBuilder.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.indexing;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.RangeIndex;
+import org.terrier.structures.collections.DocidBitmap;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/** Writes a {@link RangeIndex}, by recording the docids having each value at every level of the hierarchy.
+ * As each document has at most one value, and documents are added in ascending docid order,
+ * the bitmap of every bucket can be built incrementally.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class RangeIndexBuilder implements Closeable {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RangeIndexBuilder.class);
+
+	/** maximum number of levels of the hierarchy */
+	static final int MAX_LEVELS = 8;
+
+	protected final IndexOnDisk index;
+	protected final String structureName;
+	protected final int fanout;
+	protected final Map<Integer,DocidBitmap.Builder>[] levels;
+	protected SimpleDateFormat dateFormat;
+
+	/**
+	 * constructor
+	 * @param _index index to write the structure into
+	 * @param _structureName name of the structure, e.g. "daterange"
+	 * @param _fanout number of buckets of each level that are combined into one bucket of the next level
+	 */
+	@SuppressWarnings("unchecked")
+	public RangeIndexBuilder(IndexOnDisk _index, String _structureName, int _fanout)
+	{
+		if (_fanout < 2)
+			throw new IllegalArgumentException("Fanout must be at least 2");
+		this.index = _index;
+		this.structureName = _structureName;
+		this.fanout = _fanout;
+		this.levels = new Map[MAX_LEVELS];
+		for(int l=0;l<MAX_LEVELS;l++)
+			levels[l] = new TreeMap<>();
+	}
+
+	/** Records the value of the specified document.
+	 * @param docid the docid of the document, larger than that of any previous document
+	 * @param value the value of the document
+	 */
+	public void addDocument(int docid, int value)
+	{
+		long bucket = value;
+		for(int l=0;l<MAX_LEVELS;l++)
+		{
+			DocidBitmap.Builder b = levels[l].get((int)bucket);
+			if (b == null)
+				levels[l].put((int)bucket, b = new DocidBitmap.Builder());
+			b.add(docid);
+			bucket = Math.floorDiv(bucket, fanout);
+		}
+	}
+
+	/** Records the date of the specified document, which is parsed using the specified format, in UTC.
+	 * Documents with dates that cannot be parsed are not recorded.
+	 * @param docid the docid of the document, larger than that of any previous document
+	 * @param date the date of the document
+	 * @param format a {@link SimpleDateFormat} pattern, e.g. yyyy-MM-dd
+	 */
+	public void addDocument(int docid, String date, String format)
+	{
+		if (date == null || date.length() == 0)
+			return;
+		if (dateFormat == null || ! dateFormat.toPattern().equals(format))
+		{
+			dateFormat = new SimpleDateFormat(format);
+			dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		}
+		try{
+			addDocument(docid, RangeIndex.toDays(dateFormat.parse(date)));
+		} catch (ParseException pe) {
+			logger.debug("Could not parse date " + date + " of docid " + docid);
+		}
+	}
+
+	/** Writes the bitmaps, and adds the structure to the index. Levels above the first level with a single bucket are omitted. */
+	@Override
+	public void close() throws IOException
+	{
+		int numLevels = 1;
+		while(numLevels < MAX_LEVELS && levels[numLevels-1].size() > 1)
+			numLevels++;
+		final String filename = index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix()
+			+ "." + structureName + RangeIndex.USUAL_EXTENSION;
+		try(DataOutputStream dos = new DataOutputStream(Files.writeFileStream(filename)))
+		{
+			dos.writeInt(fanout);
+			dos.writeInt(numLevels);
+			for(int l=0;l<numLevels;l++)
+			{
+				dos.writeInt(levels[l].size());
+				for(Map.Entry<Integer,DocidBitmap.Builder> kv : levels[l].entrySet())
+				{
+					dos.writeInt(kv.getKey());
+					kv.getValue().build().write(dos);
+				}
+			}
+		}
+		for(Map<Integer,DocidBitmap.Builder> level : levels)
+			level.clear();
+		index.addIndexStructure(structureName, RangeIndex.class.getName(), "org.terrier.structures.IndexOnDisk,java.lang.String", "index,structureName");
+		index.setIndexProperty("index."+structureName+".fanout", String.valueOf(fanout));
+		index.flush();
+	}
+}
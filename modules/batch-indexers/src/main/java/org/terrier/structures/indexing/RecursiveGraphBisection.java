@@ -0,0 +1,265 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is RecursiveGraphBisection.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.structures.indexing;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.IndexUtil;
+import org.terrier.structures.PostingIndexInputStream;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.utility.ApplicationSetup;
+
+/**
+ * Orders documents using recursive graph bisection (also known as BP), as proposed by
+ * Dhulipala et al. (KDD 2016). The documents are recursively split into two halves; at each level, documents
+ * are iteratively swapped between the halves such that documents sharing terms are placed in the
+ * same half, reducing the estimated cost of encoding the gaps of the posting lists. The following
+ * properties are supported:
+ * <ul>
+ * <li><tt>reorder.bp.iterations</tt> - maximum number of swapping iterations at each level. Default is 20.</li>
+ * <li><tt>reorder.bp.min.partition.size</tt> - partitions of this number of documents or fewer are not split further. Default is 16.</li>
+ * <li><tt>reorder.bp.max.depth</tt> - maximum depth of the recursion. Default is 100.</li>
+ * </ul>
+ * Terms occurring in fewer than two documents have no effect on the ordering and are ignored. The
+ * forward (document to term) graph is held in memory.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class RecursiveGraphBisection implements DocidReassigner.Ordering {
+
+	protected static final Logger logger = LoggerFactory.getLogger(RecursiveGraphBisection.class);
+
+	protected int maxIterations = Integer.parseInt(ApplicationSetup.getProperty("reorder.bp.iterations", "20"));
+	protected int minPartitionSize = Integer.parseInt(ApplicationSetup.getProperty("reorder.bp.min.partition.size", "16"));
+	protected int maxDepth = Integer.parseInt(ApplicationSetup.getProperty("reorder.bp.max.depth", "100"));
+
+	/** terms of each document */
+	int[][] docTerms;
+	/** number of documents containing each term in the left partition */
+	int[] leftDegrees;
+	/** number of documents containing each term in the right partition */
+	int[] rightDegrees;
+	/** gain of moving a document with each term from left to right */
+	float[] leftGains;
+	/** gain of moving a document with each term from right to left */
+	float[] rightGains;
+	/** terms whose degrees are non-zero in the current partition */
+	int[] touched;
+	int touchedCount;
+	float[] docGains;
+	long[] sortKeys;
+
+	@Override
+	public int[] getNewDocids(IndexOnDisk index) throws IOException {
+		final int numDocs = index.getCollectionStatistics().getNumberOfDocuments();
+		final int numTerms = index.getCollectionStatistics().getNumberOfUniqueTerms();
+		readForwardGraph(index, numDocs, numTerms);
+		leftDegrees = new int[numTerms];
+		rightDegrees = new int[numTerms];
+		leftGains = new float[numTerms];
+		rightGains = new float[numTerms];
+		touched = new int[numTerms];
+		docGains = new float[numDocs];
+		sortKeys = new long[numDocs];
+
+		final int[] order = new int[numDocs];
+		for(int i=0;i<numDocs;i++)
+			order[i] = i;
+		bisect(order, 0, numDocs, 0);
+
+		final int[] newDocids = new int[numDocs];
+		for(int pos=0;pos<numDocs;pos++)
+			newDocids[order[pos]] = pos;
+		docTerms = null;
+		return newDocids;
+	}
+
+	/** Builds the forward graph by two passes over the inverted index: the first counts the terms of each
+	 * document, while the second records them. */
+	protected void readForwardGraph(IndexOnDisk index, int numDocs, int numTerms) throws IOException
+	{
+		final int[] counts = new int[numDocs];
+		PostingIndexInputStream invIn = (PostingIndexInputStream) index.getIndexStructureInputStream("inverted");
+		while(invIn.hasNext())
+		{
+			final IterablePosting ip = invIn.next();
+			if (invIn.getNumberOfCurrentPostings() < 2)
+				continue;
+			while(ip.next() != IterablePosting.EOL)
+				counts[ip.getId()]++;
+		}
+		IndexUtil.close(invIn);
+		docTerms = new int[numDocs][];
+		for(int i=0;i<numDocs;i++)
+			docTerms[i] = new int[counts[i]];
+		Arrays.fill(counts, 0);
+		invIn = (PostingIndexInputStream) index.getIndexStructureInputStream("inverted");
+		int termid = -1;
+		while(invIn.hasNext())
+		{
+			final IterablePosting ip = invIn.next();
+			termid++;
+			if (invIn.getNumberOfCurrentPostings() < 2)
+				continue;
+			int docid;
+			while((docid = ip.next()) != IterablePosting.EOL)
+				docTerms[docid][counts[docid]++] = termid;
+		}
+		IndexUtil.close(invIn);
+	}
+
+	/** Orders the documents order[start..end) */
+	void bisect(int[] order, int start, int end, int depth)
+	{
+		final int size = end - start;
+		if (size <= minPartitionSize || depth >= maxDepth)
+			return;
+		final int mid = start + size / 2;
+		computeDegrees(order, start, mid, end);
+		for(int iteration=0;iteration<maxIterations;iteration++)
+		{
+			computeGains(mid - start, end - mid);
+			for(int i=start;i<end;i++)
+			{
+				float gain = 0f;
+				final boolean left = i < mid;
+				for(int t : docTerms[order[i]])
+					gain += left ? leftGains[t] : rightGains[t];
+				docGains[i] = gain;
+			}
+			sortByGain(order, start, mid);
+			sortByGain(order, mid, end);
+			int swaps = 0;
+			for(int l=start, r=mid; l<mid && r<end; l++, r++)
+			{
+				if (docGains[l] + docGains[r] <= 0f)
+					break;
+				for(int t : docTerms[order[l]])
+				{
+					leftDegrees[t]--;
+					rightDegrees[t]++;
+				}
+				for(int t : docTerms[order[r]])
+				{
+					rightDegrees[t]--;
+					leftDegrees[t]++;
+				}
+				final int tmp = order[l];
+				order[l] = order[r];
+				order[r] = tmp;
+				swaps++;
+			}
+			if (swaps == 0)
+				break;
+		}
+		clearDegrees();
+		bisect(order, start, mid, depth+1);
+		bisect(order, mid, end, depth+1);
+	}
+
+	void computeDegrees(int[] order, int start, int mid, int end)
+	{
+		touchedCount = 0;
+		for(int i=start;i<end;i++)
+		{
+			final int[] degrees = i < mid ? leftDegrees : rightDegrees;
+			for(int t : docTerms[order[i]])
+			{
+				if (leftDegrees[t] == 0 && rightDegrees[t] == 0)
+					touched[touchedCount++] = t;
+				degrees[t]++;
+			}
+		}
+	}
+
+	void clearDegrees()
+	{
+		for(int i=0;i<touchedCount;i++)
+		{
+			final int t = touched[i];
+			leftDegrees[t] = 0;
+			rightDegrees[t] = 0;
+		}
+		touchedCount = 0;
+	}
+
+	/** Computes, for each term of the partition, the reduction in the log-gap cost obtained by moving one
+	 * of its documents to the other half. */
+	void computeGains(int leftSize, int rightSize)
+	{
+		for(int i=0;i<touchedCount;i++)
+		{
+			final int t = touched[i];
+			final int dl = leftDegrees[t];
+			final int dr = rightDegrees[t];
+			final float current = cost(dl, leftSize) + cost(dr, rightSize);
+			leftGains[t] = dl > 0 ? current - cost(dl - 1, leftSize) - cost(dr + 1, rightSize) : 0f;
+			rightGains[t] = dr > 0 ? current - cost(dl + 1, leftSize) - cost(dr - 1, rightSize) : 0f;
+		}
+	}
+
+	/** Estimated number of bits needed to encode the gaps of a posting list with
+	 * the specified number of documents in a partition of the specified size. */
+	static float cost(int degree, int size)
+	{
+		return degree == 0 ? 0f : (float) (degree * log2((double)size / (double)(degree + 1)));
+	}
+
+	static double log2(double x)
+	{
+		return Math.log(x) / Math.log(2);
+	}
+
+	/** Sorts order[start..end) and docGains[start..end) by decreasing gain */
+	void sortByGain(int[] order, int start, int end)
+	{
+		for(int i=start;i<end;i++)
+			sortKeys[i] = ((long) sortableBits(-docGains[i]) << 32) | (i - start);
+		Arrays.sort(sortKeys, start, end);
+		final int[] tmpOrder = new int[end-start];
+		final float[] tmpGains = new float[end-start];
+		for(int i=start;i<end;i++)
+		{
+			final int from = start + (int)(sortKeys[i] & 0xffffffffL);
+			tmpOrder[i-start] = order[from];
+			tmpGains[i-start] = docGains[from];
+		}
+		System.arraycopy(tmpOrder, 0, order, start, end-start);
+		System.arraycopy(tmpGains, 0, docGains, start, end-start);
+	}
+
+	/** Maps a float to an int whose signed ordering is that of the floats */
+	static int sortableBits(float f)
+	{
+		final int bits = Float.floatToIntBits(f);
+		return bits < 0 ? bits ^ 0x7fffffff : bits;
+	}
+}
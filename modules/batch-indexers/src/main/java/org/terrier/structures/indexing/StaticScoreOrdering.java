@@ -0,0 +1,118 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is StaticScoreOrdering.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.structures.indexing;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.matching.dsms.SimpleStaticScoreModifier;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/**
+ * Orders the documents by decreasing static (query independent) score, such as PageRank,
+ * such that {@link org.terrier.matching.daat.StaticPriorFull} can terminate matching early.
+ * The static scores are loaded as for {@link SimpleStaticScoreModifier}, using the
+ * <tt>ssa.input.file</tt> and <tt>ssa.input.type</tt> properties. Ties retain their existing
+ * relative order. After the index has been rewritten, {@link #writeStaticScores(IndexOnDisk)} writes
+ * the static scores in the new docid order, for use with <tt>ssa.input.type=oos</tt>. As the written
+ * scores have already been normalised, <tt>ssa.normalise</tt> and <tt>ssa.negate</tt> should not be
+ * set when loading them.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class StaticScoreOrdering implements DocidReassigner.Ordering {
+
+	protected static final Logger logger = LoggerFactory.getLogger(StaticScoreOrdering.class);
+
+	/** suffix of the file written by {@link #writeStaticScores(IndexOnDisk)} */
+	public static final String STATIC_SCORES_SUFFIX = ".staticscores.oos";
+
+	double[] scores;
+	int[] newDocids;
+
+	/** Orders by the static scores configured by the <tt>ssa.*</tt> properties */
+	public StaticScoreOrdering() {}
+
+	/** Orders by the specified static scores, indexed by existing docid */
+	public StaticScoreOrdering(double[] _scores)
+	{
+		this.scores = _scores;
+	}
+
+	@Override
+	public int[] getNewDocids(IndexOnDisk index) throws IOException {
+		final int numDocs = index.getCollectionStatistics().getNumberOfDocuments();
+		if (scores == null)
+			scores = new SimpleStaticScoreModifier().getStaticScores(index);
+		if (scores == null || scores.length < numDocs)
+			throw new IOException("Static scores were not loaded for all " + numDocs + " documents");
+		final Integer[] order = new Integer[numDocs];
+		for(int i=0;i<numDocs;i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(scores[o2], scores[o1]);
+			}
+		});
+		newDocids = new int[numDocs];
+		for(int i=0;i<numDocs;i++)
+			newDocids[order[i]] = i;
+		return newDocids;
+	}
+
+	/** Returns the static scores indexed by the new docids */
+	public double[] getReorderedStaticScores()
+	{
+		if (newDocids == null)
+			throw new IllegalStateException("getNewDocids() has not been called");
+		final double[] rtr = new double[newDocids.length];
+		for(int i=0;i<newDocids.length;i++)
+			rtr[newDocids[i]] = scores[i];
+		return rtr;
+	}
+
+	/** Writes the static scores under the new docids next to the specified (reordered) index,
+	 * as a serialised array of doubles.
+	 * @return the filename written
+	 */
+	public String writeStaticScores(IndexOnDisk dest) throws IOException
+	{
+		final String filename = dest.getPath() + ApplicationSetup.FILE_SEPARATOR + dest.getPrefix() + STATIC_SCORES_SUFFIX;
+		final ObjectOutputStream oos = new ObjectOutputStream(Files.writeFileStream(filename));
+		oos.writeObject(getReorderedStaticScores());
+		oos.close();
+		logger.info("Wrote static scores in the new docid order to " + filename);
+		return filename;
+	}
+}
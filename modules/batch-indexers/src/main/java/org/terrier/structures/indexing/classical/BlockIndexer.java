@@ -27,6 +27,7 @@
  */
 package org.terrier.structures.indexing.classical;
 import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
 import gnu.trove.TIntHashSet;
 
 import java.io.IOException;
@@ -49,6 +50,7 @@ import org.terrier.structures.indexing.CompressionFactory;
 import org.terrier.structures.indexing.CompressionFactory.CompressionConfiguration;
 import org.terrier.structures.indexing.DocumentIndexBuilder;
 import org.terrier.structures.indexing.DocumentPostingList;
+import org.terrier.structures.indexing.DocumentTokensIndexBuilder;
 import org.terrier.structures.indexing.FieldLexiconMap;
 import org.terrier.structures.indexing.Indexer;
 import org.terrier.structures.indexing.LexiconBuilder;
@@ -80,6 +82,12 @@ import org.terrier.utility.TermCodes;
  * <li><tt>block.delimiters.index.doclength</tt> - set to true if markers terms should contribute to document length. Defaults to false, only has effect if 
  * <tt>block.delimiters.index.terms</tt> is set. </li>
  * </ul>
+ * <p><b>Stored Tokens</b><br>If property <tt>block.tokens.store</tt> is set to true, the sequence of termids of each document
+ * is also written to the "tokens" structure (see {@link org.terrier.structures.DocumentTokensIndex}), which allows 
+ * query biased summaries to be made without storing the document text in the meta index. When markered blocks are enabled, 
+ * each marker is recorded as the start of a new sentence. The tokens structure cannot be merged, hence stored tokens
+ * cannot be combined with more than one builder (i.e. <tt>indexing.max.docs.per.builder</tt> or 
+ * <tt>indexing.builder.boundary.docnos</tt>) - indexing fails with an IllegalStateException in this case.
  * @author Craig Macdonald, Vassilis Plachouras, Rodrygo Santos
  */
 public class BlockIndexer extends Indexer {
@@ -94,6 +102,7 @@ public class BlockIndexer extends Indexer {
 			if (t != null) {
 				//add term to thingy tree
 				((BlockDocumentPostingList)termsInDocument).insert(t, blockId);
+				recordToken(t);
 				numOfTokensInDocument++;
 				if (++numOfTokensInBlock >= BLOCK_SIZE && blockId < MAX_BLOCKS) {
 					numOfTokensInBlock = 0;
@@ -132,6 +141,7 @@ public class BlockIndexer extends Indexer {
 					fields.add(ELSE_FIELD_ID);
 				}
 				((BlockFieldDocumentPostingList)termsInDocument).insert(t,fields.toArray(), blockId);
+				recordToken(t);
 				numOfTokensInDocument++;
 				if (++numOfTokensInBlock >= BLOCK_SIZE && blockId < MAX_BLOCKS) {
 					numOfTokensInBlock = 0;
@@ -173,15 +183,18 @@ public class BlockIndexer extends Indexer {
 				// delimiters should also be indexed
 				if (indexDelimiters) {
 						((BlockDocumentPostingList)termsInDocument).insert(t, blockId);
+						recordToken(t);
 						if (countDelimiters)
 								numOfTokensInDocument++;
 				}
+				recordSentence();
 				numOfTokensInBlock = 0;
 				blockId++;
 			}
 			else {
 				// index non-delimiter term
 				((BlockDocumentPostingList)termsInDocument).insert(t, blockId);
+				recordToken(t);
 				numOfTokensInDocument++;
 			}
 		}
@@ -226,9 +239,11 @@ public class BlockIndexer extends Indexer {
 						i++;
 					}
 					((BlockFieldDocumentPostingList)termsInDocument).insert(t, fieldIds, blockId);
+					recordToken(t);
 					if (countDelimiters)
 						numOfTokensInDocument++;
 				}
+				recordSentence();
 				numOfTokensInBlock = 0;
 				blockId++;
 				}
@@ -242,6 +257,7 @@ public class BlockIndexer extends Indexer {
 					i++;
 				}
 				((BlockFieldDocumentPostingList)termsInDocument).insert(t, fieldIds, blockId);
+				recordToken(t);
 				numOfTokensInDocument++;
 			}
 		}
@@ -275,6 +291,17 @@ public class BlockIndexer extends Indexer {
 	 * See Property <tt>blocks.max</tt>. */
 	protected int MAX_BLOCKS;
 	
+	/** Whether the termids of each document should be stored. See Property <tt>block.tokens.store</tt> */
+	protected boolean storeTokens;
+	/** The termids of the current document, if tokens are stored */
+	protected TIntArrayList documentTokens;
+	/** The positions at which the sentences of the current document start, if tokens are stored */
+	protected TIntArrayList documentSentences;
+	/** Writes the tokens structure, if tokens are stored */
+	protected DocumentTokensIndexBuilder tokensBuilder;
+	/** The number of tokens structures written by the current call to {@link #index(Collection[])} */
+	protected int tokensStructures;
+	
 	/** The compression configuration for the direct index */
 	protected CompressionConfiguration compressionDirectConfig;
 	
@@ -299,6 +326,21 @@ public class BlockIndexer extends Indexer {
 		super.blocks = true;
 	}
 
+	/** Records the next term of the current document in the tokens structure, if enabled */
+	protected void recordToken(String t) {
+		if (documentTokens != null)
+			documentTokens.add(termCodes.getCode(t));
+	}
+	
+	/** Records that a new sentence starts at the next term of the current document, if tokens are stored */
+	protected void recordSentence() {
+		if (documentSentences == null)
+			return;
+		final int pos = documentTokens.size();
+		if (pos > 0 && (documentSentences.size() == 0 || documentSentences.get(documentSentences.size()-1) != pos))
+			documentSentences.add(pos);
+	}
+	
 	/** 
 	 * Returns the object that is to be the end of the TermPipeline. 
 	 * This method is used at construction time of the parent object. 
@@ -326,6 +368,12 @@ public class BlockIndexer extends Indexer {
 	
 	
 
+	@Override
+	public void index(Collection[] collections) {
+		tokensStructures = 0;
+		super.index(collections);
+	}
+
 	/**
 	 * For the given collection, it iterates through the documents and
 	 * creates the direct index, document index and lexicon, using 
@@ -335,6 +383,9 @@ public class BlockIndexer extends Indexer {
 	 */
 	//TODO if this class extends BasicIndexer, then perhaps this method could be inherited
 	public void createDirectIndex(Collection[] collections) {
+		if (storeTokens && tokensStructures++ > 0)
+			throw new IllegalStateException("block.tokens.store cannot be used with more than one builder, "
+				+ "as the tokens structure cannot be merged - increase indexing.max.docs.per.builder");
 		logger.info("BlockIndexer creating direct index"+ 
 			(Boolean.parseBoolean(ApplicationSetup.getProperty("block.delimiters.enabled", "false"))
 			? " delimited-block indexing enabled" : ""));
@@ -354,6 +405,14 @@ public class BlockIndexer extends Indexer {
 		}
 		docIndexBuilder = new DocumentIndexBuilder(currentIndex, "document");
 		metaBuilder = createMetaIndexBuilder();
+		if (storeTokens)
+		{
+			try{
+				tokensBuilder = new DocumentTokensIndexBuilder((IndexOnDisk) currentIndex, "tokens");
+			} catch (IOException ioe) {
+				logger.error("Cannot make DocumentTokensIndexBuilder, tokens will not be stored:", ioe);
+			}
+		}
 		emptyDocIndexEntry = (FieldScore.FIELDS_COUNT > 0) ? new FieldDocumentIndexEntry(FieldScore.FIELDS_COUNT) : new BasicDocumentIndexEntry();
 		
 		int numberOfDocuments = 0;
@@ -410,9 +469,14 @@ public class BlockIndexer extends Indexer {
 						//this document is empty, add the
 						// minimum to the document index
 						indexEmpty(doc.getAllProperties());
+						if (tokensBuilder != null && IndexEmptyDocuments)
+							tokensBuilder.addDocument(new int[0], 0, new int[0], 0);
 					} else { /* index this docuent */
 						//numberOfTokens += numOfTokensInDocument;
 						indexDocument(doc.getAllProperties(), termsInDocument);
+						if (tokensBuilder != null)
+							tokensBuilder.addDocument(documentTokens.toNativeArray(), documentTokens.size(), 
+								documentSentences.toNativeArray(), documentSentences.size());
 					}
 				}
 				catch (Exception ioe)
@@ -471,6 +535,15 @@ public class BlockIndexer extends Indexer {
 		} catch (IOException ioe) {
 			logger.error("Could not finish MetaIndexBuilder: ", ioe);
 		}
+		if (tokensBuilder != null)
+		{
+			try {
+				tokensBuilder.close();
+			} catch (IOException ioe) {
+				logger.error("Could not finish DocumentTokensIndexBuilder: ", ioe);
+			}
+			tokensBuilder = null;
+		}
 		if (FieldScore.FIELDS_COUNT > 0)
 		{
 			currentIndex.addIndexStructure("lexicon-valuefactory", FieldLexiconEntry.Factory.class.getName(), "java.lang.String", "${index.direct.fields.count}");
@@ -574,6 +647,11 @@ public class BlockIndexer extends Indexer {
 			termsInDocument = new BlockDocumentPostingList();
 		blockId = 0;
 		numOfTokensInBlock = 0;	
+		if (storeTokens)
+		{
+			documentTokens = new TIntArrayList();
+			documentSentences = new TIntArrayList();
+		}
 	}
 
 	@Override
@@ -581,5 +659,6 @@ public class BlockIndexer extends Indexer {
 		super.load_indexer_properties();
 		BLOCK_SIZE = ApplicationSetup.BLOCK_SIZE;
 		MAX_BLOCKS = ApplicationSetup.MAX_BLOCKS;
+		storeTokens = Boolean.parseBoolean(ApplicationSetup.getProperty("block.tokens.store", "false"));
 	}
 }
@@ -0,0 +1,479 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is PipelinedSinglePassIndexer.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.structures.indexing.singlepass;
+
+import gnu.trove.TIntHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.terrier.indexing.Collection;
+import org.terrier.indexing.Document;
+import org.terrier.structures.FieldDocumentIndexEntry;
+import org.terrier.structures.Index;
+import org.terrier.structures.SimpleDocumentIndexEntry;
+import org.terrier.structures.indexing.DocumentIndexBuilder;
+import org.terrier.structures.indexing.DocumentPostingList;
+import org.terrier.structures.indexing.FieldDocumentPostingList;
+import org.terrier.terms.TermPipeline;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.FieldScore;
+import org.terrier.utility.UnitUtils;
+
+/**
+ * A single-pass indexer that parses documents using several threads. Each parsing thread
+ * tokenises documents and passes their terms through its own instance of the term pipeline,
+ * producing a {@link DocumentPostingList} for each document. These are placed onto a bounded queue,
+ * from which a single inverter (the calling thread) assigns docids - in the order the documents were read from
+ * the collections - and adds them to the in-memory postings. Runs are written to disk by a background thread,
+ * such that inversion can continue while a run is being flushed. As a single index is built, no merging of
+ * separately built indices is required, unlike {@link org.terrier.applications.ThreadedBatchIndexing}.
+ * <p>
+ * Documents are obtained from a {@link Collection} while holding a lock on the collection. When using several
+ * threads, each collection is asked to detach its documents (see {@link Collection#detachDocuments()}), e.g. by reading each
+ * document into memory, such that documents are tokenised outside of the lock, in parallel. Otherwise, as documents may be
+ * lazily read from the collection's underlying stream, they are tokenised while holding the lock. Hence, when several
+ * collections are provided, each parsing thread starts on a different collection. The term pipeline is always applied outside of the lock.
+ * Blocks are not supported, and documents are indexed by the inherited single-threaded implementation when
+ * <tt>indexing.max.docs.per.builder</tt> or <tt>indexing.builder.boundary.docnos</tt> are set.
+ * <p>
+ * <b>Properties:</b>
+ * <ul>
+ * <li><tt>indexing.singlepass.threads</tt> - number of parsing threads. Defaults to one less than the number of available processors.</li>
+ * <li><tt>indexing.singlepass.queue.size</tt> - maximum number of parsed documents awaiting inversion. Default is 1000.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class PipelinedSinglePassIndexer extends BasicSinglePassIndexer {
+
+	/** A document that has been parsed, awaiting inversion */
+	static class ParsedDocument
+	{
+		final long seq;
+		final Map<String,String> properties;
+		final DocumentPostingList postings;
+		final int numOfTokens;
+
+		ParsedDocument(long _seq, Map<String,String> _properties, DocumentPostingList _postings, int _numOfTokens)
+		{
+			this.seq = _seq;
+			this.properties = _properties;
+			this.postings = _postings;
+			this.numOfTokens = _numOfTokens;
+		}
+	}
+
+	/** placed on the queue by each parsing thread when it has finished */
+	static final ParsedDocument END = new ParsedDocument(-1, null, null, 0);
+
+	/** Parses documents from the collections, and is the end of its own term pipeline */
+	protected class ParsingThread implements Runnable, TermPipeline
+	{
+		final int threadId;
+		final Collection[] collections;
+		final boolean[] detached;
+		final boolean[] exhausted;
+		final AtomicLong nextSeq;
+		final Semaphore permits;
+		final BlockingQueue<ParsedDocument> queue;
+		final AtomicReference<Throwable> failure;
+		final TermPipeline pipeline;
+
+		final List<String> terms = new ArrayList<String>();
+		final List<int[]> termFieldIds = new ArrayList<int[]>();
+		final TIntHashSet fields = new TIntHashSet(numFields);
+		final boolean ELSE_ENABLED = fieldNames.containsKey("ELSE");
+		final int ELSE_FIELD_ID = fieldNames.get("ELSE") -1;
+		DocumentPostingList postings;
+		int[] currentFields;
+		int numOfTokens;
+
+		ParsingThread(int _threadId, Collection[] _collections, boolean[] _detached, boolean[] _exhausted, AtomicLong _nextSeq,
+				Semaphore _permits, BlockingQueue<ParsedDocument> _queue, AtomicReference<Throwable> _failure)
+		{
+			this.threadId = _threadId;
+			this.collections = _collections;
+			this.detached = _detached;
+			this.exhausted = _exhausted;
+			this.nextSeq = _nextSeq;
+			this.permits = _permits;
+			this.queue = _queue;
+			this.failure = _failure;
+			this.pipeline = createPipeline(this);
+		}
+
+		@Override
+		public void run()
+		{
+			try{
+				final int numCollections = collections.length;
+				for(int i=0;i<numCollections && failure.get() == null;i++)
+				{
+					final int collectionNo = (threadId + i) % numCollections;
+					while(failure.get() == null)
+					{
+						permits.acquire();
+						final ParsedDocument parsed = parseNext(collectionNo);
+						if (parsed == null)
+						{
+							permits.release();
+							break;
+						}
+						queue.put(parsed);
+					}
+				}
+			} catch (InterruptedException ie) {
+				//the inverter has aborted
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			} finally {
+				try{
+					queue.put(END);
+				} catch (InterruptedException ie) {}
+			}
+		}
+
+		/** Returns the next document of the specified collection, or null if it has been exhausted. */
+		ParsedDocument parseNext(int collectionNo)
+		{
+			final Collection collection = collections[collectionNo];
+			Map<String,String> properties = null;
+			Document doc = null;
+			final long seq;
+			synchronized (collection) {
+				while(doc == null)
+				{
+					if (exhausted[collectionNo] || ! collection.nextDocument())
+					{
+						exhausted[collectionNo] = true;
+						return null;
+					}
+					doc = collection.getDocument();
+				}
+				seq = nextSeq.getAndIncrement();
+				//unless detached, documents may be read lazily from the collection, so tokenise while holding its lock
+				if (! detached[collectionNo])
+					properties = tokenise(doc);
+			}
+			if (properties == null)
+				properties = tokenise(doc);
+
+			postings = (FieldScore.FIELDS_COUNT > 0)
+				? new FieldDocumentPostingList(FieldScore.FIELDS_COUNT)
+				: new DocumentPostingList();
+			numOfTokens = 0;
+			final int numTerms = terms.size();
+			for(int i=0;i<numTerms;i++)
+			{
+				if (useFieldInformation)
+					currentFields = termFieldIds.get(i);
+				/* pass term into TermPipeline (stop, stem etc) */
+				pipeline.processTerm(terms.get(i));
+				if (MAX_TOKENS_IN_DOCUMENT > 0 &&
+						numOfTokens > MAX_TOKENS_IN_DOCUMENT)
+					break;
+			}
+			pipeline.reset();
+			return new ParsedDocument(seq, properties, postings, numOfTokens);
+		}
+
+		/** Reads the terms of the document into terms (and termFieldIds), and returns a copy of its properties */
+		Map<String,String> tokenise(Document doc)
+		{
+			terms.clear();
+			termFieldIds.clear();
+			String term;
+			while (!doc.endOfDocument()) {
+				if ((term = doc.getNextTerm())!=null && !term.equals("")) {
+					terms.add(term);
+					if (useFieldInformation)
+						termFieldIds.add(getFieldIds(doc.getFields()));
+				}
+			}
+			return new HashMap<String,String>(doc.getAllProperties());
+		}
+
+		int[] getFieldIds(Set<String> termFields)
+		{
+			for (String fieldName: termFields)
+			{
+				int tmp = fieldNames.get(fieldName);
+				if (tmp > 0)
+				{
+					fields.add(tmp -1);
+				}
+			}
+			if (ELSE_ENABLED && fields.size() == 0)
+			{
+				fields.add(ELSE_FIELD_ID);
+			}
+			final int[] rtr = fields.toArray();
+			fields.clear();
+			return rtr;
+		}
+
+		@Override
+		public void processTerm(String term)
+		{
+			/* null means the term has been filtered out (eg stopwords) */
+			if (term != null)
+			{
+				if (useFieldInformation)
+					((FieldDocumentPostingList)postings).insert(term, currentFields);
+				else
+					postings.insert(term);
+				numOfTokens++;
+			}
+		}
+
+		@Override
+		public boolean reset() {
+			return true;
+		}
+	}
+
+	/** number of parsing threads */
+	protected int numThreads;
+	/** maximum number of parsed documents awaiting inversion */
+	protected int queueSize;
+	/** writes runs to disk in the background */
+	protected ExecutorService flushExecutor;
+	/** the run currently being written, if any */
+	protected Future<?> pendingFlush;
+
+	/**
+	 * Constructs an instance of a PipelinedSinglePassIndexer, using the given path name
+	 * for storing the data structures.
+	 * @param pathname String the path where the datastructures will be created. This is assumed to be
+	 * absolute.
+	 * @param prefix String the prefix of the index, usually "data".
+	 */
+	public PipelinedSinglePassIndexer(String pathname, String prefix) {
+		super(pathname, prefix);
+		if (this.getClass() == PipelinedSinglePassIndexer.class)
+			init();
+	}
+
+	/** Protected do-nothing constructor for use by child classes */
+	protected PipelinedSinglePassIndexer(long a, long b, long c) {
+		super(a,b,c);
+	}
+
+	/** Set the number of parsing threads */
+	public void setThreads(int threads)
+	{
+		this.numThreads = Math.max(1, threads);
+	}
+
+	@Override
+	protected void load_indexer_properties() {
+		super.load_indexer_properties();
+		numThreads = Math.max(1, Integer.parseInt(ApplicationSetup.getProperty("indexing.singlepass.threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors() -1))));
+		queueSize = Math.max(1, Integer.parseInt(ApplicationSetup.getProperty("indexing.singlepass.queue.size", "1000")));
+	}
+
+	/**
+	 *  Builds the inverted file and lexicon file for the given collections, using
+	 *  several threads to parse the documents.
+	 *  @param collections Collection[] the collections to be indexed.
+	 */
+	@Override
+	public void createInvertedIndex(Collection[] collections) {
+		if (UnitUtils.parseInt(ApplicationSetup.getProperty("indexing.max.docs.per.builder", "0")) > 0
+				|| BUILDER_BOUNDARY_DOCUMENTS.size() > 0)
+		{
+			logger.warn("Builder boundaries are not supported by " + this.getClass().getSimpleName() + ", parsing documents in a single thread");
+			super.createInvertedIndex(collections);
+			return;
+		}
+		logger.info("Creating IF (no direct file) using "+numThreads+" parsing threads..");
+		final long startCollection = System.currentTimeMillis();
+		fileNames = new LinkedList<String[]>();
+		numberOfDocuments = currentId = numberOfDocsSinceCheck = numberOfDocsSinceFlush = numberOfUniqueTerms = 0;
+		numberOfTokens = numberOfPointers = 0;
+		createMemoryPostings();
+		currentIndex = Index.createNewIndex(path, prefix);
+		docIndexBuilder = new DocumentIndexBuilder(currentIndex, "document");
+		metaBuilder = createMetaIndexBuilder();
+		emptyDocIndexEntry = (FieldScore.FIELDS_COUNT > 0) ? new FieldDocumentIndexEntry(FieldScore.FIELDS_COUNT) : new SimpleDocumentIndexEntry();
+		maxMemory = UnitUtils.parseLong(ApplicationSetup.getProperty("indexing.singlepass.max.postings.memory", "0"));
+		memoryAfterFlush = runtime.freeMemory();
+
+		final boolean[] exhausted = new boolean[collections.length];
+		//with several threads, tokenise outside of the lock on the collection where possible
+		final boolean[] detached = new boolean[collections.length];
+		for(int i=0;i<collections.length;i++)
+		{
+			detached[i] = numThreads > 1 && collections[i].detachDocuments();
+			if (numThreads > 1 && ! detached[i])
+				logger.warn(collections[i].getClass().getSimpleName() + " cannot detach its documents, which will be tokenised by one thread at a time");
+		}
+		final AtomicLong nextSeq = new AtomicLong();
+		final Semaphore permits = new Semaphore(queueSize);
+		final BlockingQueue<ParsedDocument> queue = new ArrayBlockingQueue<ParsedDocument>(queueSize + numThreads);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final ExecutorService parsers = Executors.newFixedThreadPool(numThreads);
+		flushExecutor = Executors.newSingleThreadExecutor();
+		try{
+			for(int i=0;i<numThreads;i++)
+				parsers.execute(new ParsingThread(i, collections, detached, exhausted, nextSeq, permits, queue, failure));
+
+			//documents may be parsed out of order, so re-order them by their sequence number
+			final Map<Long,ParsedDocument> parsed = new HashMap<Long,ParsedDocument>();
+			long expectedSeq = 0;
+			int finished = 0;
+			while(finished < numThreads)
+			{
+				ParsedDocument pd = queue.take();
+				if (pd == END)
+				{
+					finished++;
+					if (failure.get() != null)
+						throw new IOException("Problem parsing documents", failure.get());
+					continue;
+				}
+				parsed.put(pd.seq, pd);
+				while((pd = parsed.remove(expectedSeq)) != null)
+				{
+					invertDocument(pd);
+					expectedSeq++;
+					permits.release();
+				}
+			}
+
+			forceFlush();
+			waitForFlush();
+			long partialTime = (System.currentTimeMillis()-startCollection)/1000;
+			logger.info("Took "+partialTime+ " seconds to build the runs for "+numberOfDocuments+" documents");
+
+			docIndexBuilder.finishedCollections();
+			if (FieldScore.FIELDS_COUNT > 0)
+			{
+				currentIndex.addIndexStructure("document-factory", FieldDocumentIndexEntry.Factory.class.getName(), "java.lang.String", "${index.inverted.fields.count}");
+			}
+			else
+			{
+				currentIndex.addIndexStructure("document-factory", SimpleDocumentIndexEntry.Factory.class.getName(), "", "");
+			}
+			currentIndex.setIndexProperty("termpipelines", ApplicationSetup.getProperty("termpipelines", "Stopwords,PorterStemmer"));
+			metaBuilder.close();
+			currentIndex.flush();
+
+			logger.info("Merging "+fileNames.size()+" runs...");
+			final long startMerge = System.currentTimeMillis();
+			performMultiWayMerge();
+			currentIndex.flush();
+			logger.info("Took "+((System.currentTimeMillis()-startMerge)/1000)+" seconds to merge");
+		} catch (InterruptedException ie) {
+			throw new RuntimeException(ie);
+		} catch (IOException ioe) {
+			throw new RuntimeException(ioe);
+		} finally {
+			parsers.shutdownNow();
+			flushExecutor.shutdownNow();
+		}
+		finishedInvertedIndexBuild();
+	}
+
+	/** Assigns the next docid to the parsed document, and adds it to the in-memory postings */
+	protected void invertDocument(ParsedDocument pd) throws IOException
+	{
+		try
+		{
+			if (pd.postings.getDocumentLength() == 0)
+			{	/* this document is empty, add the minimum to the document index */
+				indexEmpty(pd.properties);
+				if (IndexEmptyDocuments)
+				{
+					currentId++;
+					numberOfDocuments++;
+				}
+			}
+			else
+			{	/* index this document */
+				numberOfTokens += pd.numOfTokens;
+				indexDocument(pd.properties, pd.postings);
+			}
+		}
+		catch (Exception e)
+		{
+			logger.error("Failed to index "+pd.properties.get("docno"),e);
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Causes the posting lists built up in memory to be written to disk by a background thread,
+	 * once any previous run has been written.
+	 */
+	@Override
+	protected void forceFlush() throws IOException
+	{
+		waitForFlush();
+		final MemoryPostings toFlush = mp;
+		final String[] names = finishMemoryPosting();
+		pendingFlush = flushExecutor.submit(() -> {
+			toFlush.finish(names);
+			return null;
+		});
+		createMemoryPostings();
+		memoryCheck.reset();
+		numberOfDocsSinceFlush = 0;
+	}
+
+	/** Waits until any run being written by the background thread is complete */
+	protected void waitForFlush() throws IOException
+	{
+		if (pendingFlush == null)
+			return;
+		try{
+			pendingFlush.get();
+		} catch (InterruptedException ie) {
+			throw new IOException(ie);
+		} catch (ExecutionException ee) {
+			throw new IOException(ee.getCause());
+		} finally {
+			pendingFlush = null;
+		}
+	}
+}
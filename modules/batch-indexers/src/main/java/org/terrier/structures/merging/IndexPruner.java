@@ -0,0 +1,480 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is IndexPruner.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+package org.terrier.structures.merging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.applications.CLITool;
+import org.terrier.applications.CLITool.CLIParsedCLITool;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.matching.models.WeightingModelFactory;
+import org.terrier.structures.AbstractPostingOutputStream;
+import org.terrier.structures.BasicLexiconEntry;
+import org.terrier.structures.DocumentIndex;
+import org.terrier.structures.DocumentIndexEntry;
+import org.terrier.structures.FSOMapFileLexiconOutputStream;
+import org.terrier.structures.FieldDocumentIndexEntry;
+import org.terrier.structures.FieldLexiconEntry;
+import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.IndexUtil;
+import org.terrier.structures.Lexicon;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.LexiconOutputStream;
+import org.terrier.structures.MetaIndex;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.PostingIndexInputStream;
+import org.terrier.structures.indexing.CompressingMetaIndexBuilder;
+import org.terrier.structures.indexing.CompressionFactory;
+import org.terrier.structures.indexing.CompressionFactory.CompressionConfiguration;
+import org.terrier.structures.indexing.DocidReassigner;
+import org.terrier.structures.indexing.DocumentIndexBuilder;
+import org.terrier.structures.indexing.LexiconBuilder;
+import org.terrier.structures.indexing.MetaIndexBuilder;
+import org.terrier.structures.postings.BasicPostingImpl;
+import org.terrier.structures.postings.FieldPosting;
+import org.terrier.structures.postings.FieldPostingImpl;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.structures.postings.WritablePosting;
+import org.terrier.structures.seralization.FixedSizeWriteableFactory;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.ArrayUtils;
+import org.terrier.utility.TerrierTimer;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Writes a statically pruned copy of an index, which retains only a fraction of the postings of the
+ * inverted index. A pruned index can be used as a first tier, answering most queries from a smaller
+ * index, with the full index being consulted only if too few documents are retrieved - see
+ * {@link org.terrier.matching.FallThroughMatching}. Three strategies are supported:
+ * <ul>
+ * <li>{@link Strategy#TERM} - term-centric pruning (Carmel et al., SIGIR 2001): for each term, the postings with the
+ * highest scores according to a weighting model are retained.</li>
+ * <li>{@link Strategy#DOCUMENT} - document-centric pruning (B&uuml;ttcher &amp; Clarke, CIKM 2006): for each document,
+ * the postings of the terms with the highest scores according to a weighting model are retained. This requires a direct index.</li>
+ * <li>{@link Strategy#DOCID} - the postings for the lowest docids are retained. This is suitable when the docids
+ * have been assigned in decreasing order of a static (query-independent) score.</li>
+ * </ul>
+ * The documents of the pruned index are unchanged, and keep the same docids, such that the pruned index
+ * and the full index can be used interchangeably. The term statistics - the lexicon entries and the numbers
+ * of terms and pointers - are recomputed from the retained postings; terms with no retained postings are removed,
+ * and the termids are renumbered. The document statistics - the document and field lengths, and the numbers
+ * of documents and tokens - are kept from the full index, so that the length normalisation of weighting
+ * models is the same in both indices. Hence the number of tokens of the pruned index is not the sum of the
+ * term frequencies of its lexicon. The direct index, and any other structures, are not written.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class IndexPruner {
+
+	protected static final Logger logger = LoggerFactory.getLogger(IndexPruner.class);
+
+	/** Structures written to the pruned index */
+	static final String[] PRUNED_STRUCTURES = {"document", "meta", "inverted", "lexicon"};
+
+	/** How postings are selected for retention */
+	public enum Strategy {
+		/** retain the highest scored postings of each term */
+		TERM,
+		/** retain the highest scored postings of each document */
+		DOCUMENT,
+		/** retain the postings of the lowest docids */
+		DOCID
+	}
+
+	protected final IndexOnDisk source;
+	protected final Strategy strategy;
+	protected final double retention;
+	protected int minPostings = 1;
+	protected String wmodelName = "BM25";
+
+	/** Constructs an IndexPruner.
+	 * @param _source the index to prune
+	 * @param _strategy how postings are selected
+	 * @param _retention the fraction of postings (for TERM and DOCUMENT strategies) or documents (for
+	 * the DOCID strategy) to retain, in (0,1].
+	 */
+	public IndexPruner(IndexOnDisk _source, Strategy _strategy, double _retention)
+	{
+		if (_retention <= 0d || _retention > 1d)
+			throw new IllegalArgumentException("Retention must be in (0,1], got " + _retention);
+		this.source = _source;
+		this.strategy = _strategy;
+		this.retention = _retention;
+	}
+
+	/** Sets the minimum number of postings to retain for each term (TERM strategy) or
+	 * document (DOCUMENT strategy). Defaults to 1. */
+	public void setMinPostings(int _minPostings)
+	{
+		this.minPostings = _minPostings;
+	}
+
+	/** Sets the name of the weighting model used to score postings. Defaults to BM25. */
+	public void setWeightingModel(String _wmodelName)
+	{
+		this.wmodelName = _wmodelName;
+	}
+
+	/** Writes the pruned index at the specified location.
+	 * @return the pruned index */
+	public IndexOnDisk prune(String path, String prefix) throws IOException
+	{
+		final IndexOnDisk dest = Index.createNewIndex(path, prefix);
+		DocidReassigner.copyProperties(source, dest, PRUNED_STRUCTURES);
+		final WeightingModel wmodel = WeightingModelFactory.newInstance(wmodelName, source).clone();
+		wmodel.setCollectionStatistics(source.getCollectionStatistics());
+		wmodel.setKeyFrequency(1);
+		final float[] thresholds = strategy == Strategy.DOCUMENT
+			? getDocumentThresholds(wmodel)
+			: null;
+		writeDocuments(dest);
+		writeMeta(dest);
+		writeInvertedAndLexicon(dest, wmodel, thresholds);
+		dest.flush();
+		return dest;
+	}
+
+	/** Returns the number of postings to retain out of the specified number */
+	int getRetainedCount(int count)
+	{
+		return Math.min(count, Math.max(minPostings, (int) Math.ceil(retention * count)));
+	}
+
+	/** Computes, for each document, the lowest score of a posting that should be retained */
+	protected float[] getDocumentThresholds(WeightingModel wmodel) throws IOException
+	{
+		if (! source.hasIndexStructure("direct"))
+			throw new IllegalArgumentException("Document-centric pruning requires a direct index");
+		final DocumentIndex doi = source.getDocumentIndex();
+		final PostingIndex<?> direct = source.getDirectIndex();
+		final Lexicon<String> lex = source.getLexicon();
+		final int numDocs = doi.getNumberOfDocuments();
+		final float[] thresholds = new float[numDocs];
+		float[] scores = new float[0];
+		final TerrierTimer tt = new TerrierTimer("Computing document thresholds", numDocs);
+		tt.start();
+		for(int docid=0;docid<numDocs;docid++)
+		{
+			final DocumentIndexEntry die = doi.getDocumentEntry(docid);
+			final IterablePosting ip = direct.getPostings(die);
+			if (scores.length < die.getNumberOfEntries())
+				scores = new float[die.getNumberOfEntries()];
+			int count = 0;
+			while(ip.next() != IterablePosting.EOL)
+			{
+				final LexiconEntry le = lex.getLexiconEntry(ip.getId()).getValue();
+				wmodel.setEntryStatistics(le);
+				wmodel.prepare();
+				//score as the posting of the inverted index is scored when pruning
+				scores[count++] = (float) wmodel.score(asInvertedPosting(ip, docid, die));
+			}
+			ip.close();
+			if (count > 0)
+			{
+				Arrays.sort(scores, 0, count);
+				thresholds[docid] = scores[count - getRetainedCount(count)];
+			}
+			tt.increment();
+		}
+		tt.finished();
+		return thresholds;
+	}
+
+	/** Returns a posting of a document from the direct index in the form it would have in the inverted
+	 * index, i.e. with the docid, and the document and field lengths. */
+	static WritablePosting asInvertedPosting(IterablePosting directPosting, int docid, DocumentIndexEntry die)
+	{
+		final WritablePosting p;
+		if (directPosting instanceof FieldPosting && die instanceof FieldDocumentIndexEntry)
+		{
+			p = new FieldPostingImpl(docid, directPosting.getFrequency(), ((FieldPosting)directPosting).getFieldFrequencies().clone());
+			((FieldPosting)p).setFieldLengths(((FieldDocumentIndexEntry)die).getFieldLengths());
+		}
+		else
+		{
+			p = new BasicPostingImpl(docid, directPosting.getFrequency());
+		}
+		p.setDocumentLength(die.getDocumentLength());
+		return p;
+	}
+
+	protected void writeDocuments(IndexOnDisk dest) throws IOException
+	{
+		final DocumentIndex doi = source.getDocumentIndex();
+		final DocumentIndexBuilder docOut = new DocumentIndexBuilder(dest, "document");
+		for(int docid=0;docid<doi.getNumberOfDocuments();docid++)
+			docOut.addEntryToBuffer(doi.getDocumentEntry(docid));
+		docOut.finishedCollections();
+	}
+
+	protected void writeMeta(IndexOnDisk dest) throws IOException
+	{
+		final MetaIndex meta = source.getMetaIndex();
+		final MetaIndexBuilder metaOut = new CompressingMetaIndexBuilder(dest,
+			ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.meta.key-names", "docno")),
+			ArrayUtils.parseCommaDelimitedInts(source.getIndexProperty("index.meta.value-lengths", "20")),
+			ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.meta.reverse-key-names", "")));
+		try{
+			for(int docid=0;docid<source.getCollectionStatistics().getNumberOfDocuments();docid++)
+				metaOut.writeDocumentEntry(meta.getAllItems(docid));
+		} finally {
+			metaOut.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void writeInvertedAndLexicon(IndexOnDisk dest, WeightingModel wmodel, float[] thresholds) throws IOException
+	{
+		final CompressionConfiguration invertedConfig = CompressionFactory.getCompressionConfiguration("inverted",
+				ArrayUtils.parseCommaDelimitedString(source.getIndexProperty("index.inverted.fields.names", "")),
+				source.getIntIndexProperty("index.inverted.blocks", 0),
+				source.getIntIndexProperty("index.inverted.blocks.max", 0));
+		final AbstractPostingOutputStream invOut = invertedConfig.getPostingOutputStream(
+				dest.getPath() + ApplicationSetup.FILE_SEPARATOR + dest.getPrefix() + ".inverted" + invertedConfig.getStructureFileExtension());
+		final FixedSizeWriteableFactory<LexiconEntry> valueFactory = (FixedSizeWriteableFactory<LexiconEntry>)source.getIndexStructure("lexicon-valuefactory");
+		final LexiconOutputStream<String> lexOut = new FSOMapFileLexiconOutputStream(dest, "lexicon",
+				(Class<? extends FixedSizeWriteableFactory<LexiconEntry>>) valueFactory.getClass());
+		final Iterator<Entry<String, LexiconEntry>> lexIn = (Iterator<Entry<String, LexiconEntry>>) source.getIndexStructureInputStream("lexicon");
+		final PostingIndexInputStream invIn = (PostingIndexInputStream) source.getIndexStructureInputStream("inverted");
+		final int docidCutoff = (int) Math.ceil(retention * source.getCollectionStatistics().getNumberOfDocuments());
+
+		final List<WritablePosting> postings = new ArrayList<WritablePosting>();
+		double[] scores = new double[0];
+		int newTermId = 0;
+		long numberOfPointers = 0;
+		final TerrierTimer tt = new TerrierTimer("Pruning inverted structure", source.getCollectionStatistics().getNumberOfUniqueTerms());
+		tt.start();
+		try{
+			while(lexIn.hasNext())
+			{
+				final Entry<String, LexiconEntry> lee = lexIn.next();
+				final LexiconEntry le = lee.getValue();
+				final IterablePosting ip = invIn.next();
+				wmodel.setEntryStatistics(le);
+				wmodel.prepare();
+				if (scores.length < le.getDocumentFrequency())
+					scores = new double[le.getDocumentFrequency()];
+				postings.clear();
+				while(ip.next() != IterablePosting.EOL)
+				{
+					final double score = wmodel.score(ip);
+					switch (strategy) {
+					case TERM:
+						scores[postings.size()] = score;
+						postings.add(ip.asWritablePosting());
+						break;
+					case DOCUMENT:
+						if ((float) score >= thresholds[ip.getId()])
+							postings.add(ip.asWritablePosting());
+						break;
+					case DOCID:
+						if (ip.getId() < docidCutoff)
+							postings.add(ip.asWritablePosting());
+						break;
+					}
+				}
+				if (strategy == Strategy.TERM)
+					selectHighestScored(postings, scores);
+				if (postings.size() > 0)
+				{
+					setStatistics(le, postings);
+					le.setTermId(newTermId++);
+					le.setPointer(invOut.writePostings(new DocidReassigner.ListIterablePosting(postings)));
+					lexOut.writeNextEntry(lee.getKey(), le);
+					numberOfPointers += postings.size();
+				}
+				tt.increment();
+			}
+		} finally {
+			tt.finished();
+			invOut.close();
+			lexOut.close();
+			IndexUtil.close(lexIn);
+			IndexUtil.close(invIn);
+		}
+		logger.info("Retained " + numberOfPointers + " of " + source.getCollectionStatistics().getNumberOfPointers()
+			+ " postings, for " + newTermId + " of " + source.getCollectionStatistics().getNumberOfUniqueTerms() + " terms");
+		invertedConfig.writeIndexProperties(dest, "lexicon-entry-inputstream");
+		dest.setIndexProperty("num.Terms", String.valueOf(newTermId));
+		dest.setIndexProperty("num.Pointers", String.valueOf(numberOfPointers));
+		LexiconBuilder.optimise(dest, "lexicon");
+		//optimise() sums the tokens of the retained postings, but the numbers of tokens are kept
+		//from the full index, consistent with the document lengths
+		final long[] fieldTokens = source.getCollectionStatistics().getFieldTokens();
+		dest.setIndexProperty("num.Tokens", String.valueOf(source.getCollectionStatistics().getNumberOfTokens()));
+		for(int fi=0;fi<fieldTokens.length;fi++)
+			dest.setIndexProperty("num.field." + fi + ".Tokens", String.valueOf(fieldTokens[fi]));
+	}
+
+	/** Removes all but the highest scored postings, retaining the docid order of the remainder */
+	void selectHighestScored(List<WritablePosting> postings, double[] scores)
+	{
+		final int count = postings.size();
+		final int retained = getRetainedCount(count);
+		if (retained == count)
+			return;
+		final double[] sorted = Arrays.copyOf(scores, count);
+		Arrays.sort(sorted);
+		final double threshold = sorted[count - retained];
+		//postings scoring above the threshold are all retained; ties at the threshold are retained in docid order
+		int atThreshold = retained;
+		for(int i=0;i<count;i++)
+			if (scores[i] > threshold)
+				atThreshold--;
+		final List<WritablePosting> kept = new ArrayList<WritablePosting>(retained);
+		for(int i=0;i<count;i++)
+		{
+			if (scores[i] > threshold)
+				kept.add(postings.get(i));
+			else if (scores[i] == threshold && atThreshold > 0)
+			{
+				kept.add(postings.get(i));
+				atThreshold--;
+			}
+		}
+		postings.clear();
+		postings.addAll(kept);
+	}
+
+	/** Recomputes the statistics of a lexicon entry from its retained postings */
+	static void setStatistics(LexiconEntry le, List<WritablePosting> postings)
+	{
+		int TF = 0;
+		int maxtf = 0;
+		int[] fieldFrequencies = null;
+		for(WritablePosting p : postings)
+		{
+			TF += p.getFrequency();
+			maxtf = Math.max(maxtf, p.getFrequency());
+			if (p instanceof FieldPosting && le instanceof FieldLexiconEntry)
+			{
+				final int[] tff = ((FieldPosting)p).getFieldFrequencies();
+				if (fieldFrequencies == null)
+					fieldFrequencies = new int[tff.length];
+				for(int f=0;f<tff.length;f++)
+					fieldFrequencies[f] += tff[f];
+			}
+		}
+		le.setStatistics(postings.size(), TF);
+		if (le instanceof BasicLexiconEntry)
+			((BasicLexiconEntry)le).setMaxFrequencyInDocuments(maxtf);
+		if (fieldFrequencies != null)
+			((FieldLexiconEntry)le).setFieldFrequencies(fieldFrequencies);
+	}
+
+	/** Command to write a pruned copy of the default index */
+	public static class Command extends CLIParsedCLITool
+	{
+		@Override
+		public String commandname() {
+			return "prune";
+		}
+
+		@Override
+		public Set<String> commandaliases() {
+			return Sets.newHashSet("indexpruner");
+		}
+
+		@Override
+		public String helpsummary() {
+			return "writes a statically pruned copy of an index, for use as a first tier";
+		}
+
+		@Override
+		public String sourcepackage() {
+			return CLITool.PLATFORM_MODULE;
+		}
+
+		@Override
+		protected Options getOptions() {
+			Options options = super.getOptions();
+			options.addOption(Option.builder("s")
+					.argName("strategy")
+					.longOpt("strategy")
+					.hasArg()
+					.desc("which postings to retain: term (highest scored postings of each term, default), document (highest scored postings of each document) or docid (postings of the lowest docids)")
+					.build());
+			options.addOption(Option.builder("r")
+					.argName("retention")
+					.longOpt("retention")
+					.hasArg()
+					.desc("fraction of postings or documents to retain, default 0.1")
+					.build());
+			options.addOption(Option.builder("m")
+					.argName("min")
+					.longOpt("min")
+					.hasArg()
+					.desc("minimum number of postings to retain for each term or document, default 1")
+					.build());
+			options.addOption(Option.builder("w")
+					.argName("wmodel")
+					.longOpt("wmodel")
+					.hasArg()
+					.desc("weighting model used to score postings, default BM25")
+					.build());
+			options.addOption(Option.builder("p")
+					.argName("prefix")
+					.longOpt("prefix")
+					.hasArg()
+					.desc("prefix of the pruned index, written in the same directory. Default is the existing prefix followed by -pruned")
+					.build());
+			return options;
+		}
+
+		@Override
+		public int run(CommandLine line) throws Exception {
+			Index.setIndexLoadingProfileAsRetrieval(false);
+			IndexOnDisk index = Index.createIndex();
+			if (index == null)
+			{
+				System.err.println("Sorry, no index could be found in default location");
+				return 1;
+			}
+			IndexPruner pruner = new IndexPruner(index,
+				Strategy.valueOf(line.getOptionValue("s", "term").toUpperCase()),
+				Double.parseDouble(line.getOptionValue("r", "0.1")));
+			pruner.setMinPostings(Integer.parseInt(line.getOptionValue("m", "1")));
+			pruner.setWeightingModel(line.getOptionValue("w", "BM25"));
+			IndexOnDisk dest = pruner.prune(index.getPath(), line.getOptionValue("p", index.getPrefix() + "-pruned"));
+			dest.close();
+			index.close();
+			return 0;
+		}
+	}
+}
@@ -168,6 +168,17 @@ import com.google.common.collect.Sets;
  * <li><tt>trec.querying.resultscache</tt> - controls cache to use for query caching. 
  * Defaults to {@link NullQueryResultCache}</li> 
  * 
+ * <li><tt>trec.sweep.models</tt> - a grid of weighting model configurations, see {@link WeightingModelSweep}. If set,
+ * each query is retrieved once, and the captured postings are rescored for every configuration, with one results
+ * file written per configuration. The candidate documents are those retrieved by the weighting model of the run, so
+ * <tt>matching.retrieved_set_size</tt> should be larger than <tt>trec.output.format.length</tt>. Postfilters such as decorate are not applied. Not set by default.</li>
+ * 
+ * <li><tt>trec.sweep.matching</tt> - the matching class that captures the postings for a sweep.
+ * Defaults to org.terrier.matching.daat.FatFull.</li>
+ * 
+ * <li><tt>trec.sweep.scoring.matching</tt> - the matching class that rescores the captured postings for each configuration of 
+ * a sweep. Defaults to org.terrier.matching.FatScoringMatching.</li>
+ * 
  * </ul>
  * 
  * @author Gianni Amati, Vassilis Plachouras, Ben He, Craig Macdonald, Nut Limsopatham
@@ -335,6 +346,17 @@ public class TRECQuerying extends AbstractQuerying {
 	 * using property <tt>trec.querying.resultscache</tt>. Defaults to NullQueryResultCache (no caching). */
 	protected QueryResultCache resultsCache;
 
+	/** the grid of weighting model configurations scored for each query, if any. Configured by property
+	 * <tt>trec.sweep.models</tt>
+	 * @since 5.3 */
+	protected WeightingModelSweep sweep;
+
+	/** the results file of each configuration of the sweep, in the order of the configurations */
+	protected PrintWriter[] sweepResultFiles;
+
+	/** the results filename of each configuration of the sweep */
+	protected String[] sweepResultsFilenames;
+
 	/**
 	 * TRECQuerying default constructor initialises the inverted index, the
 	 * lexicon and the document index structures.
@@ -363,6 +385,15 @@ public class TRECQuerying extends AbstractQuerying {
 		this.querySource = getQueryParser(this.getTopicsParser());
 		this.printer = getOutputFormat();
 		this.resultsCache = getResultsCache();
+		final String grid = ApplicationSetup.getProperty("trec.sweep.models", "");
+		if (grid.trim().length() > 0)
+		{
+			if (printer instanceof RawOutputFormat)
+				throw new IllegalArgumentException(printer.getClass().getSimpleName() + " cannot be used with trec.sweep.models");
+			this.sweep = new WeightingModelSweep(grid, 
+					ApplicationSetup.getProperty("trec.sweep.scoring.matching", "org.terrier.matching.FatScoringMatching"));
+			logger.info("Sweeping " + sweep.getConfigurations().size() + " weighting model configurations");
+		}
 	}
 
 	/** Obtain the query cache. Loads the class specified by property <tt>trec.querying.resultscache</tt> */
@@ -590,6 +621,11 @@ public class TRECQuerying extends AbstractQuerying {
 			return;
 		}
 		SearchRequest srq = processQuery(queryId, query);
+		if (sweep != null)
+		{
+			writeSweep(srq);
+			return;
+		}
 
 		synchronized (this) {
 			if (resultFile == null) {
@@ -616,6 +652,76 @@ public class TRECQuerying extends AbstractQuerying {
 				+ (System.currentTimeMillis() - t));
 	}
 
+	/**
+	 * Rescores the postings captured for a query with each configuration of the sweep, 
+	 * and writes the results of each configuration to its own results file.
+	 * 
+	 * @param srq the search request that captured the postings
+	 * @since 5.3
+	 */
+	protected void writeSweep(SearchRequest srq) {
+		final Request rq = (Request)srq;
+		final ResultSet captured = rq.getResultSet();
+		synchronized (this) {
+			if (sweepResultFiles == null)
+				openSweepResultFiles();
+		}
+		int i = 0;
+		for(WeightingModelSweep.Configuration configuration : sweep.getConfigurations())
+		{
+			final PrintWriter pw = sweepResultFiles[i++];
+			try {
+				rq.setResultSet(sweep.score(configuration, rq, captured));
+				synchronized (pw) {
+					printer.printResults(pw, srq, configuration.getName(), ITERATION + "0", RESULTS_LENGTH);
+				}
+			} catch (IOException ioe) {
+				logger.error("Problem writing results file for "+configuration.getName()+":", ioe);
+			}
+		}
+		rq.setResultSet(captured);
+	}
+
+	/** Opens one results file for each configuration of the sweep. If <tt>trec.results.file</tt> is set, 
+	 * the name of each configuration is inserted into that filename, otherwise the filenames are generated
+	 * as for {@link #getResultFile(String)}, using a single query counter. */
+	protected void openSweepResultFiles() {
+		final int n = sweep.getConfigurations().size();
+		sweepResultFiles = new PrintWriter[n];
+		sweepResultsFilenames = new String[n];
+		String theFilename = ApplicationSetup.getProperty("trec.results.file", null);
+		String querycounter = null;
+		if (theFilename != null)
+			theFilename = ApplicationSetup.makeAbsolute(theFilename, ApplicationSetup.TREC_RESULTS);
+		else
+		{
+			final File fx = new File(ApplicationSetup.TREC_RESULTS);
+			if (!fx.exists() && !fx.mkdir())
+				logger.error("Could not create results directory ("
+						+ ApplicationSetup.TREC_RESULTS
+						+ ") - permissions problem?");
+			querycounter = getNextQueryCounter(ApplicationSetup.TREC_RESULTS);
+		}
+		for(int i=0;i<n;i++)
+		{
+			final String name = sweep.getConfigurations().get(i).getName();
+			sweepResultsFilenames[i] = theFilename != null
+				? (theFilename.matches(".*\\.res(\\.\\w+)?$")
+					? theFilename.replaceFirst("\\.res(\\.\\w+)?$", "_" + name + ".res$1")
+					: theFilename + "_" + name)
+				: ApplicationSetup.TREC_RESULTS + "/" + name + "_" + querycounter + ApplicationSetup.TREC_RESULTS_SUFFIX;
+			try {
+				sweepResultFiles[i] = new PrintWriter(new BufferedWriter(
+					new OutputStreamWriter(Files.writeFileStream(sweepResultsFilenames[i]))));
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not create the result file " + sweepResultsFilenames[i], e);
+			}
+			if (logger.isInfoEnabled())
+				logger.info("Writing results of "+name+" to " + sweepResultsFilenames[i]);
+		}
+		resultsFilename = sweepResultsFilenames[0];
+	}
+
 	/**
 	 * According to the given parameters, it sets up the correct matching class
 	 * and performs retrieval for the given query.
@@ -648,6 +754,12 @@ public class TRECQuerying extends AbstractQuerying {
 
 		if (mModel != null)
 			srq.setControl(CONTROL_MATCHING, mModel);
+		if (sweep != null)
+		{
+			//capture the postings of the candidate documents, and keep the whole result set
+			srq.setControl(CONTROL_MATCHING, ApplicationSetup.getProperty("trec.sweep.matching", "org.terrier.matching.daat.FatFull"));
+			srq.setControl("decorate", "off");
+		}
 		
 		if (srq.getControl("qe").equals("on")) {
 			srq.setControl("qemodel", defaultQEModel);
@@ -770,7 +882,16 @@ public class TRECQuerying extends AbstractQuerying {
 		// after finishing with a batch of queries, close the result
 		// file
 		doneSomeMethods = true;
-		if (DUMP_SETTINGS && doneSomeTopics)
+		if (DUMP_SETTINGS && doneSomeTopics && sweepResultsFilenames != null)
+		{
+			for(String filename : sweepResultsFilenames)
+			{
+				resultsFilename = filename;
+				printSettings(queryingManager.newSearchRequest(""), _qs.getInfo(), "# run started at: " + startTime
+					+ "\n# run finished at " + System.currentTimeMillis());
+			}
+		}
+		else if (DUMP_SETTINGS && doneSomeTopics)
 			printSettings(queryingManager.newSearchRequest(""),
 			_qs.getInfo(),
 					"# run started at: " + startTime
@@ -806,6 +927,10 @@ public class TRECQuerying extends AbstractQuerying {
 		if (resultFile != null)
 			resultFile.close();
 		resultFile = null;
+		if (sweepResultFiles != null)
+			for(PrintWriter pw : sweepResultFiles)
+				pw.close();
+		sweepResultFiles = null;
 	}
 
 	/**
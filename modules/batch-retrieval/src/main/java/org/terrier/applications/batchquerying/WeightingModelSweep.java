@@ -0,0 +1,214 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is WeightingModelSweep.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+
+package org.terrier.applications.batchquerying;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.terrier.matching.Matching;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.matching.models.WeightingModelFactory;
+import org.terrier.querying.Request;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.Index;
+import org.terrier.utility.ApplicationSetup;
+
+/** A grid of weighting model configurations, which are all scored from the postings captured by a single
+ * retrieval pass for each query. The grid is specified as a semicolon delimited list of entries. Each entry
+ * names a weighting model, optionally followed by <tt>%</tt> and a space delimited list of parameters, each
+ * with a comma delimited list of values. An entry denotes a configuration for every combination of the values of its
+ * parameters. The parameter <tt>c</tt> is passed to {@link WeightingModel#setParameter(double)}, while other parameters
+ * are set as properties when the weighting model is created. For example,
+ * <pre>
+ * BM25%c=0.25,0.5,0.75 bm25.k_1=1.0,1.2;PL2%c=1,5,10;DPH
+ * </pre>
+ * denotes six configurations of BM25, three of PL2 and one of DPH.
+ * <p>
+ * The captured result set is rescored for each configuration by a scoring matching class,
+ * which must have a constructor taking an {@link Index}, a parent {@link Matching} and a {@link WeightingModel}.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ * @see TRECQuerying
+ */
+public class WeightingModelSweep {
+
+	/** One configuration of the grid */
+	public static class Configuration
+	{
+		final String name;
+		final WeightingModel model;
+
+		Configuration(String _name, WeightingModel _model)
+		{
+			name = _name;
+			model = _model;
+		}
+
+		/** Returns the name of this configuration, which is used to name its run */
+		public String getName() {
+			return name;
+		}
+
+		/** Returns a new copy of the weighting model of this configuration */
+		public WeightingModel getWeightingModel() {
+			return (WeightingModel) model.clone();
+		}
+	}
+
+	/** A Matching that returns the result set captured for a query */
+	static class CapturedMatching implements Matching
+	{
+		final ResultSet captured;
+
+		CapturedMatching(ResultSet _captured)
+		{
+			captured = _captured;
+		}
+
+		@Override
+		public String getInfo() {
+			return "Captured";
+		}
+
+		@Override
+		public ResultSet match(String queryNumber, MatchingQueryTerms queryTerms) throws IOException {
+			return captured;
+		}
+
+		@Override
+		public void setCollectionStatistics(CollectionStatistics cs) {}
+	}
+
+	final List<Configuration> configurations = new ArrayList<>();
+	final String scoringMatching;
+
+	/** Creates a sweep over the specified grid.
+	 * @param grid specification of the grid of weighting model configurations
+	 * @param _scoringMatching name of the class used to rescore the captured result set for each configuration
+	 */
+	public WeightingModelSweep(String grid, String _scoringMatching)
+	{
+		scoringMatching = _scoringMatching;
+		for(String entry : grid.split("\\s*;\\s*"))
+		{
+			entry = entry.trim();
+			if (entry.length() == 0)
+				continue;
+			final String[] parts = entry.split("%", 2);
+			final Map<String,String[]> parameters = new LinkedHashMap<>();
+			if (parts.length > 1)
+				for(String kv : parts[1].trim().split("\\s+"))
+				{
+					final String[] kvParts = kv.split("=", 2);
+					if (kvParts.length != 2)
+						throw new IllegalArgumentException("Invalid parameter " + kv + " in sweep entry " + entry);
+					parameters.put(kvParts[0], kvParts[1].split(","));
+				}
+			addConfigurations(parts[0].trim(), new ArrayList<>(parameters.entrySet()), 0, new LinkedHashMap<String,String>());
+		}
+		if (configurations.size() == 0)
+			throw new IllegalArgumentException("No weighting model configurations found in sweep " + grid);
+	}
+
+	void addConfigurations(String modelName, List<Map.Entry<String,String[]>> parameters, int i, Map<String,String> chosen)
+	{
+		if (i < parameters.size())
+		{
+			for(String value : parameters.get(i).getValue())
+			{
+				chosen.put(parameters.get(i).getKey(), value);
+				addConfigurations(modelName, parameters, i+1, chosen);
+			}
+			chosen.remove(parameters.get(i).getKey());
+			return;
+		}
+		final StringBuilder name = new StringBuilder(modelName.replaceFirst("^.*\\.", ""));
+		final Map<String,String> oldProperties = new LinkedHashMap<>();
+		for(Map.Entry<String,String> kv : chosen.entrySet())
+		{
+			if (kv.getKey().equals("c"))
+			{
+				name.append("_c").append(kv.getValue());
+				continue;
+			}
+			name.append('_').append(kv.getKey()).append('-').append(kv.getValue());
+			oldProperties.put(kv.getKey(), ApplicationSetup.getProperty(kv.getKey(), null));
+			ApplicationSetup.setProperty(kv.getKey(), kv.getValue());
+		}
+		final WeightingModel model;
+		try{
+			//the factory caches models by name, so a new instance is needed for each configuration
+			WeightingModelFactory.clearCache();
+			final WeightingModel created = WeightingModelFactory.newInstance(modelName);
+			model = created == null ? null : (WeightingModel) created.clone();
+		} finally {
+			WeightingModelFactory.clearCache();
+			for(Map.Entry<String,String> kv : oldProperties.entrySet())
+			{
+				if (kv.getValue() == null)
+					ApplicationSetup.getProperties().remove(kv.getKey());
+				else
+					ApplicationSetup.setProperty(kv.getKey(), kv.getValue());
+			}
+		}
+		if (model == null)
+			throw new IllegalArgumentException("Could not create weighting model " + modelName);
+		if (chosen.containsKey("c"))
+			model.setParameter(Double.parseDouble(chosen.get("c")));
+		configurations.add(new Configuration(name.toString(), model));
+	}
+
+	/** Returns the configurations of the grid */
+	public List<Configuration> getConfigurations() {
+		return configurations;
+	}
+
+	/** Scores the result set captured for a query using the specified configuration.
+	 * @param configuration the configuration to score with
+	 * @param rq the request that captured the result set
+	 * @param captured the captured result set, e.g. a FatResultSet
+	 * @return the result set of the configuration, sorted by descending score
+	 */
+	public ResultSet score(Configuration configuration, Request rq, ResultSet captured) throws IOException
+	{
+		final Matching matching;
+		try {
+			matching = ApplicationSetup.getClass(scoringMatching).asSubclass(Matching.class)
+				.getConstructor(Index.class, Matching.class, WeightingModel.class)
+				.newInstance(rq.getIndex(), new CapturedMatching(captured), configuration.getWeightingModel());
+		} catch (Exception e) {
+			throw new IOException("Could not create scoring matching " + scoringMatching, e);
+		}
+		return matching.match(rq.getQueryID(), rq.getMatchingQueryTerms());
+	}
+}
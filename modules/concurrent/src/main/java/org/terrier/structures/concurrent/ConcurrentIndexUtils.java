@@ -25,10 +25,12 @@
  */
 package org.terrier.structures.concurrent;
 
+import org.terrier.realtime.multi.MultiIndex;
 import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.DocumentIndex;
 import org.terrier.structures.FieldDocumentIndex;
 import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.IndexUtil;
 import org.terrier.structures.Lexicon;
 import org.terrier.structures.MetaIndex;
@@ -44,10 +46,28 @@ public class ConcurrentIndexUtils {
 	};
 	public static Index makeConcurrentForRetrieval(Index index) {
 		
-		DocumentIndex newDoi = null;
+		if (index instanceof MultiIndex)
+		{
+			MultiIndex mindex = (MultiIndex) index;
+			//the structures of a MultiIndex are created afresh from its shards upon each request,
+			//so the shards are made concurrent instead. In-memory shards (e.g. the live shard of
+			//an IncrementalIndex) are written by the indexing thread and mutate on read, so 
+			//cannot be shared between retrieval threads.
+			for(int i=0;i<mindex.getNumberOfShards();i++)
+			{
+				Index shard = mindex.getIthShard(i);
+				if (! (shard instanceof IndexOnDisk))
+					throw new IllegalArgumentException("Cannot make a MultiIndex concurrent compatible, as shard " + i + " (" + shard + ") is not on disk");
+			}
+			for(int i=0;i<mindex.getNumberOfShards();i++)
+				makeConcurrentForRetrieval(mindex.getIthShard(i));
+			return index;
+		}
+		
 		if (index.hasIndexStructure("document") && ! index.getDocumentIndex().getClass().isAnnotationPresent(ConcurrentReadable.class) )
 		{
 			DocumentIndex oldDoi = index.getDocumentIndex();
+			DocumentIndex newDoi;
 			if (oldDoi instanceof FieldDocumentIndex)
 				newDoi = new ConcurrentFieldDocumentIndex((FieldDocumentIndex)oldDoi);
 			else
@@ -62,7 +82,8 @@ public class ConcurrentIndexUtils {
 			if (inv instanceof BitPostingIndex)
 			{
 				//NB: this does not add the @ConcurrentReadable annotation
-				ConcurrentBitPostingIndexUtilities.makeConcurrent((BitPostingIndex)inv, newDoi);
+				//the document index may already have been concurrent, so is obtained afresh
+				ConcurrentBitPostingIndexUtilities.makeConcurrent((BitPostingIndex)inv, index.getDocumentIndex());
 			}
 			else
 			{
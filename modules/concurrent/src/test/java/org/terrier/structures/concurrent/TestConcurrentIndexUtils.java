@@ -0,0 +1,128 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestConcurrentIndexUtils.java.
+ *
+ * The Original Code is Copyright (C) 2017-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *  Craig Macdonald
+ */
+package org.terrier.structures.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.realtime.memory.MemoryIndex;
+import org.terrier.realtime.multi.MultiIndex;
+import org.terrier.structures.ConcurrentReadable;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.indexing.classical.BasicIndexer;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestConcurrentIndexUtils extends ApplicationSetupBasedTest {
+
+	static final int NUM_THREADS = 8;
+
+	static Index makeShard(String prefix, int offset, int count) throws Exception
+	{
+		String[] docnos = new String[count];
+		String[] docs = new String[count];
+		for(int i=0;i<count;i++)
+		{
+			docnos[i] = "doc" + (offset + i);
+			docs[i] = "common term" + ((offset + i) % 7) + " " + prefix;
+		}
+		return IndexTestUtils.makeIndex(docnos, docs,
+				new BasicIndexer(ApplicationSetup.TERRIER_INDEX_PATH, prefix), ApplicationSetup.TERRIER_INDEX_PATH, prefix);
+	}
+
+	@Test public void testMultiIndex() throws Exception
+	{
+		final Index shard1 = makeShard("shard1", 0, 30);
+		final Index shard2 = makeShard("shard2", 30, 20);
+		final MultiIndex index = new MultiIndex(new Index[]{shard1, shard2}, false, false);
+
+		//previously, this threw an IllegalArgumentException
+		assertTrue(index == ConcurrentIndexUtils.makeConcurrentForRetrieval(index));
+		assertTrue(index.getLexicon().getClass().isAnnotationPresent(ConcurrentReadable.class));
+		assertTrue(index.getInvertedIndex().getClass().isAnnotationPresent(ConcurrentReadable.class));
+		assertTrue(index.getMetaIndex().getClass().isAnnotationPresent(ConcurrentReadable.class));
+		assertTrue(index.getDocumentIndex().getClass().isAnnotationPresent(ConcurrentReadable.class));
+		for(Index shard : new Index[]{shard1, shard2})
+			assertTrue(shard.getLexicon().getClass().isAnnotationPresent(ConcurrentReadable.class));
+
+		ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for(int t=0;t<NUM_THREADS;t++)
+		{
+			results.add(pool.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					for(int r=0;r<50;r++)
+					{
+						final PostingIndex<?> inv = index.getInvertedIndex();
+						LexiconEntry le = index.getLexicon().getLexiconEntry("common");
+						assertNotNull(le);
+						assertEquals(50, le.getDocumentFrequency());
+						IterablePosting ip = inv.getPostings(le);
+						int expected = 0;
+						while(ip.next() != IterablePosting.EOL)
+						{
+							assertEquals(expected, ip.getId());
+							assertEquals("doc" + expected, index.getMetaIndex().getItem("docno", expected));
+							assertEquals(3, index.getDocumentIndex().getDocumentLength(expected));
+							expected++;
+						}
+						ip.close();
+						assertEquals(50, expected);
+						le = index.getLexicon().getLexiconEntry("shard2");
+						assertEquals(20, le.getDocumentFrequency());
+					}
+					return true;
+				}
+			}));
+		}
+		for(Future<Boolean> f : results)
+			assertTrue(f.get());
+		pool.shutdown();
+		index.close();
+	}
+
+	@Test(expected=IllegalArgumentException.class) public void testMultiIndexWithMemoryShard() throws Exception
+	{
+		final Index shard1 = makeShard("shard1", 0, 30);
+		final MultiIndex index = new MultiIndex(new Index[]{shard1, new MemoryIndex()}, false, false);
+		//the memory shard cannot be safely read by several threads
+		ConcurrentIndexUtils.makeConcurrentForRetrieval(index);
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org 
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestConcurrentReadableStructures.java.
+ *
+ * The Original Code is Copyright (C) 2017-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *  Craig Macdonald
+ */
+package org.terrier.structures.concurrent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.structures.CompressingMetaIndex;
+import org.terrier.structures.ConcurrentReadable;
+import org.terrier.structures.DocumentIndex;
+import org.terrier.structures.FSOMapFileLexicon;
+import org.terrier.structures.Index;
+import org.terrier.structures.Lexicon;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.MetaIndex;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestConcurrentReadableStructures extends ApplicationSetupBasedTest {
+
+	static final String[] WORDS = new String[]{"quick", "brown", "fox", "jumps", "lazy", "dog", "terrier", "retrieval"};
+	
+	static final int NUM_DOCS = 200;
+	static final int NUM_THREADS = 8;
+	
+	@Test public void testNotWrapped() throws Exception
+	{
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "docno");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "20");
+		ApplicationSetup.setProperty("indexer.meta.reverse.keys", "docno");
+		Index index = makeIndex();
+		Lexicon<String> lex = index.getLexicon();
+		DocumentIndex doi = index.getDocumentIndex();
+		MetaIndex meta = index.getMetaIndex();
+		assertTrue(lex instanceof FSOMapFileLexicon);
+		assertTrue(doi.getClass().isAnnotationPresent(ConcurrentReadable.class));
+		assertTrue(meta instanceof CompressingMetaIndex);
+		
+		ConcurrentIndexUtils.makeConcurrentForRetrieval(index);
+		assertTrue(lex == index.getLexicon());
+		assertTrue(doi == index.getDocumentIndex());
+		assertTrue(meta == index.getMetaIndex());
+		assertFalse(index.getLexicon() instanceof ConcurrentLexicon);
+		
+		//the inverted index can still be iterated
+		LexiconEntry le = index.getLexicon().getLexiconEntry("terrier");
+		assertNotNull(le);
+		assertNotNull(index.getInvertedIndex().getPostings(le));
+		index.close();
+	}
+	
+	@Test public void testConcurrentLookups() throws Exception
+	{
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "docno");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "20");
+		ApplicationSetup.setProperty("indexer.meta.reverse.keys", "docno");
+		final Index index = ConcurrentIndexUtils.makeConcurrentForRetrieval(makeIndex());
+		final Lexicon<String> lex = index.getLexicon();
+		final DocumentIndex doi = index.getDocumentIndex();
+		final MetaIndex meta = index.getMetaIndex();
+		
+		//obtain the expected answers using a single thread
+		final int numTerms = lex.numberOfEntries();
+		final String[] terms = new String[numTerms];
+		final int[] termFreqs = new int[numTerms];
+		final int[] docLengths = new int[NUM_DOCS];
+		final String[] docnos = new String[NUM_DOCS];
+		for(int i=0;i<numTerms;i++)
+		{
+			Map.Entry<String,LexiconEntry> lee = lex.getLexiconEntry(i);
+			terms[i] = lee.getKey();
+			termFreqs[i] = lee.getValue().getFrequency();
+		}
+		for(int i=0;i<NUM_DOCS;i++)
+		{
+			docLengths[i] = doi.getDocumentEntry(i).getDocumentLength();
+			docnos[i] = meta.getItem("docno", i);
+		}
+		assertNull(lex.getLexiconEntry("notaterm"));
+		
+		ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for(int t=0;t<NUM_THREADS;t++)
+		{
+			final int offset = t;
+			results.add(pool.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					for(int r=0;r<20;r++)
+					{
+						for(int i=0;i<numTerms;i++)
+						{
+							final int termid = (i + offset) % numTerms;
+							assertEquals(termFreqs[termid], lex.getLexiconEntry(terms[termid]).getFrequency());
+							assertEquals(terms[termid], lex.getLexiconEntry(termid).getKey());
+						}
+						for(int i=0;i<NUM_DOCS;i++)
+						{
+							final int docid = (i * (offset+1)) % NUM_DOCS;
+							assertEquals(docLengths[docid], doi.getDocumentEntry(docid).getDocumentLength());
+							assertEquals(docnos[docid], meta.getItem("docno", docid));
+							assertEquals(docid, meta.getDocument("docno", docnos[docid]));
+						}
+						assertArrayEquals(docnos, meta.getItems("docno", range(NUM_DOCS)));
+					}
+					return true;
+				}
+			}));
+		}
+		for(Future<Boolean> f : results)
+			assertTrue(f.get());
+		pool.shutdown();
+		index.close();
+	}
+	
+	static int[] range(int n)
+	{
+		int[] rtr = new int[n];
+		for(int i=0;i<n;i++)
+			rtr[i] = i;
+		return rtr;
+	}
+	
+	static Index makeIndex() throws Exception
+	{
+		String[] docnos = new String[NUM_DOCS];
+		String[] docs = new String[NUM_DOCS];
+		for(int i=0;i<NUM_DOCS;i++)
+		{
+			docnos[i] = "doc" + i;
+			StringBuilder s = new StringBuilder();
+			for(int j=0;j<=i % 13;j++)
+				s.append(WORDS[(i+j*j) % WORDS.length]).append(' ').append("term").append(i % 37).append(' ');
+			docs[i] = s.toString();
+		}
+		return IndexTestUtils.makeIndex(docnos, docs);
+	}
+}
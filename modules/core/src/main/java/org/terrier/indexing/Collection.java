@@ -66,4 +66,16 @@ public interface Collection extends java.io.Closeable
 	 */
 	void reset();
 
+	/**
+	 * Requests that the documents subsequently returned by {@link #getDocument()} do not depend on the
+	 * state of this collection, such that they can be tokenised (e.g. by another thread) after the collection
+	 * has moved to its next document. Collections whose documents are read lazily from a shared stream
+	 * can support this by reading each document into memory.
+	 * @return true if the documents are now independent of this collection, false if this is not supported.
+	 * @since 5.3
+	 */
+	default boolean detachDocuments() {
+		return false;
+	}
+
 }
@@ -176,9 +176,11 @@ public class FileDocument implements Document {
 		@Override
 		public int read(char[] cbuf, int off, int len) throws IOException {
 			final int readChar = underlyingStream.read(cbuf,off,len);
-			if (abstractwritten<abstractlength) {
-				abstractText.append(cbuf, off, len);
-				abstractwritten++;
+			if (readChar > 0 && abstractwritten<abstractlength) {
+				//only the chars actually read, up to the remaining length of the abstract
+				final int toAppend = Math.min(readChar, abstractlength - abstractwritten);
+				abstractText.append(cbuf, off, toAppend);
+				abstractwritten += toAppend;
 			}
 			if (readChar==-1)
 			{	
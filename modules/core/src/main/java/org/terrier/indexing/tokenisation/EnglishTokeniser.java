@@ -75,8 +75,16 @@ public class EnglishTokeniser extends Tokeniser {
 	static final boolean LOWERCASE = Boolean.parseBoolean(ApplicationSetup.getProperty("lowercase", "true"));
 	static final int MAX_TERM_LENGTH = ApplicationSetup.MAX_TERM_LENGTH;
 	
+	/** Reads characters from the Reader in bulk, and builds each token in a reusable
+	 * char[] - only accepted tokens become Strings. */
 	static class EnglishTokenStream extends TokenStream
 	{
+		static final int BUFFER_SIZE = 8192;
+		final char[] buffer = new char[BUFFER_SIZE];
+		int bufferPosition = 0;
+		int bufferLength = 0;
+		final char[] token = new char[MAX_TERM_LENGTH];
+		
 		int ch;
 		boolean eos = false;
 		int counter = 0;
@@ -91,6 +99,28 @@ public class EnglishTokeniser extends Tokeniser {
 			}
 		}
 		
+		final int read() throws IOException
+		{
+			if (bufferPosition == bufferLength)
+			{
+				bufferLength = br.read(buffer, 0, BUFFER_SIZE);
+				bufferPosition = 0;
+				if (bufferLength <= 0)
+				{
+					bufferLength = 0;
+					return -1;
+				}
+			}
+			return buffer[bufferPosition++];
+		}
+		
+		static boolean isAlphaNumeric(final int ch)
+		{
+			return ((ch >= 'A') && (ch <= 'Z'))
+				|| ((ch >= 'a') && (ch <= 'z'))
+				|| ((ch >= '0') && (ch <= '9'));
+		}
+		
 		@Override
 		public boolean hasNext() {
 			return ! eos;
@@ -100,37 +130,35 @@ public class EnglishTokeniser extends Tokeniser {
 		public String next() 
 		{
 			try{
-				ch = this.br.read();
+				ch = read();
 				while(ch != -1)
 				{			
 					/* skip non-alphanumeric charaters */
-					while (ch != -1 && (ch < 'A' || ch > 'Z') && (ch < 'a' || ch > 'z')
-						&& (ch < '0' || ch > '9') 
+					while (ch != -1 && ! isAlphaNumeric(ch)
 						 /* removed by Craig: && ch != '<' && ch != '&' */
 					) 
 					{
-						ch = br.read();
+						ch = read();
 						counter++;
 					}
-					final StringBuilder sw = new StringBuilder(MAX_TERM_LENGTH);
+					int length = 0;
 					//now accept all alphanumeric charaters
-					while (ch != -1 && (
-						((ch >= 'A') && (ch <= 'Z'))
-						|| ((ch >= 'a') && (ch <= 'z'))
-						|| ((ch >= '0') && (ch <= '9'))))
+					while (ch != -1 && isAlphaNumeric(ch))
 					{
 						/* add character to word so far */
-						sw.append((char)ch);
-						ch = br.read();
+						if (length < MAX_TERM_LENGTH)
+							token[length] = (char)ch;
+						length++;
+						ch = read();
 						counter++;
 					}
-					if (sw.length() > MAX_TERM_LENGTH)
+					if (length > MAX_TERM_LENGTH)
 						if (DROP_LONG_TOKENS)
 							return null;
 						else
-							sw.setLength(MAX_TERM_LENGTH);
-					String s = check(sw.toString());
-					if (s.length() > 0)
+							length = MAX_TERM_LENGTH;
+					String s = check(token, length);
+					if (s != null)
 						return s;
 				}
 				eos = true;
@@ -181,5 +209,42 @@ public class EnglishTokeniser extends Tokeniser {
 		}
 		return LOWERCASE ? StringTools.toLowerCase(s) : s;
 	}
+	
+	/**
+	 * As {@link #check(String)}, but checks (and lowercases in place) the
+	 * specified alphanumeric characters.
+	 * @param chars the characters of the term
+	 * @param length the length of the term
+	 * @return String the term if it is valid, otherwise null.
+	 */
+	static String check(final char[] chars, final int length) {
+		if (length == 0)
+			return null;
+		int counter = 0;
+		int counterdigit = 0;
+		int ch = -1;
+		int chNew = -1;
+		for(int i=0;i<length;i++)
+		{
+			chNew = chars[i];
+			if (chNew >= 48 && chNew <= 57)//0 to 9
+				counterdigit++;
+			if (ch == chNew)
+				counter++;
+			else
+				counter = 1;
+			ch = chNew;
+			/* if it contains more than 3 consecutive same letters,
+			   or more than 4 digits, then discard the term. */
+			if (counter > maxNumOfSameConseqLettersPerTerm
+				|| counterdigit > maxNumOfDigitsPerTerm)
+				return null;
+		}
+		if (LOWERCASE)
+			for(int i=0;i<length;i++)
+				if (chars[i] >= 'A' && chars[i] <= 'Z')
+					chars[i] += 'a' - 'A';
+		return new String(chars, 0, length);
+	}
 
 }
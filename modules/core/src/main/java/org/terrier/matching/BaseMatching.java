@@ -35,10 +35,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.matching.dsms.DocumentScoreModifier;
 import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.FilterIndex;
 import org.terrier.structures.Index;
 import org.terrier.structures.Lexicon;
 import org.terrier.structures.Pointer;
 import org.terrier.structures.PostingIndex;
+import org.terrier.structures.collections.DocidBitmap;
 import org.terrier.utility.ApplicationSetup;
 
 
@@ -245,6 +247,27 @@ public abstract class BaseMatching implements Matching
 		this.numberOfRetrievedDocuments = 0;
 	}
 	
+	/** Removes the documents that do not pass the filter controls of the request (see {@link FilterIndex})
+	 * from the result set, after it has been initialised. This suits matching strategies that 
+	 * accumulate the scores of all documents, and cannot skip documents while matching.
+	 * @since 5.3 */
+	protected void applyFilter(MatchingQueryTerms queryTerms)
+	{
+		final DocidBitmap filter = FilterIndex.getFilter(index, queryTerms.getRequest());
+		if (filter == null)
+			return;
+		final int[] docids = resultSet.getDocids();
+		final double[] scores = resultSet.getScores();
+		for(int i=0;i<resultSet.getResultSize();i++)
+		{
+			if (scores[i] != Double.NEGATIVE_INFINITY && ! filter.contains(docids[i]))
+			{
+				scores[i] = Double.NEGATIVE_INFINITY;
+				numberOfRetrievedDocuments--;
+			}
+		}
+	}
+	
 	protected void finalise(MatchingQueryTerms queryTerms)
 	{
 		// resultSet.initialise();
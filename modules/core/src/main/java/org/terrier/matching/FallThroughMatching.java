@@ -0,0 +1,173 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FallThroughMatching.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.IndexUtil;
+import org.terrier.utility.ApplicationSetup;
+
+/** A two-tier matching strategy. Queries are first matched on a smaller first-tier index, such as one
+ * written by <tt>org.terrier.structures.merging.IndexPruner</tt>. If fewer than the required number of
+ * documents are retrieved from the first tier, the query is instead matched on the full index, using the parent matching.
+ * The first-tier index must have the same docids as the full index.
+ * <p>
+ * This matching strategy can be configured by naming it before the matching strategy for the full index, e.g.
+ * <tt>matching=FallThroughMatching,org.terrier.matching.daat.Full</tt>. The first tier is matched using a
+ * new instance of the same class as the parent matching.
+ * <p><b>Properties</b>:
+ * <ul>
+ * <li><tt>matching.fallthrough.path</tt> - path of the first-tier index. Defaults to the path of the full index.</li>
+ * <li><tt>matching.fallthrough.prefix</tt> - prefix of the first-tier index. Defaults to the prefix of the full index followed by <tt>-pruned</tt>.</li>
+ * <li><tt>matching.fallthrough.min.results</tt> - the minimum number of documents that must be retrieved from the first
+ * tier, otherwise the full index is used. Defaults to 10.</li>
+ * </ul>
+ * A first-tier index loaded from these properties is closed along with the full index, or when this matching is closed.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class FallThroughMatching implements Matching, Closeable {
+
+	protected static final Logger logger = LoggerFactory.getLogger(FallThroughMatching.class);
+
+	/** name of the structure of the full index under which a loaded first-tier index is held */
+	public static final String TIER_STRUCTURE = "fallthrough-tier";
+
+	protected final Matching tier;
+	protected final Matching parent;
+	/** the first-tier index, if loaded by this class */
+	protected Index tierIndex = null;
+	protected int minResults = Integer.parseInt(ApplicationSetup.getProperty("matching.fallthrough.min.results", "10"));
+	/** number of queries matched, and number that fell through to the full index */
+	protected int queries = 0;
+	protected int fallThroughs = 0;
+
+	/** Constructs a FallThroughMatching, which loads the first-tier index as configured by the properties.
+	 * @param index the full index
+	 * @param _parent the matching strategy for the full index
+	 */
+	public FallThroughMatching(Index index, Matching _parent) throws Exception
+	{
+		this(_parent, loadTierIndex(index));
+		//held as a structure of the full index, such that it is closed with the full index
+		if (index instanceof IndexOnDisk)
+			IndexUtil.forceStructure(index, TIER_STRUCTURE, tierIndex);
+	}
+
+	FallThroughMatching(Matching _parent, Index _tierIndex) throws Exception
+	{
+		this(newTierMatching(_parent, _tierIndex), _parent);
+		this.tierIndex = _tierIndex;
+	}
+
+	/** Constructs a FallThroughMatching using the specified matching strategies.
+	 * @param _tier the matching strategy for the first-tier index
+	 * @param _parent the matching strategy for the full index
+	 */
+	public FallThroughMatching(Matching _tier, Matching _parent)
+	{
+		this.tier = _tier;
+		this.parent = _parent;
+	}
+
+	static Matching newTierMatching(Matching parent, Index tierIndex) throws Exception
+	{
+		try{
+			return parent.getClass().getConstructor(Index.class).newInstance(tierIndex);
+		} catch (Exception e) {
+			tierIndex.close();
+			throw e;
+		}
+	}
+
+	static Index loadTierIndex(Index index) throws IOException
+	{
+		final String defaultPath = index instanceof IndexOnDisk ? ((IndexOnDisk)index).getPath() : ApplicationSetup.TERRIER_INDEX_PATH;
+		final String defaultPrefix = (index instanceof IndexOnDisk ? ((IndexOnDisk)index).getPrefix() : ApplicationSetup.TERRIER_INDEX_PREFIX) + "-pruned";
+		final String path = ApplicationSetup.getProperty("matching.fallthrough.path", defaultPath);
+		final String prefix = ApplicationSetup.getProperty("matching.fallthrough.prefix", defaultPrefix);
+		final Index tierIndex = IndexOnDisk.createIndex(path, prefix);
+		if (tierIndex == null)
+			throw new IOException("Could not load first-tier index at " + path + "/" + prefix + " : " + Index.getLastIndexLoadError());
+		if (tierIndex.getCollectionStatistics().getNumberOfDocuments() != index.getCollectionStatistics().getNumberOfDocuments())
+		{
+			tierIndex.close();
+			throw new IllegalArgumentException("First-tier index at " + path + "/" + prefix + " has a different number of documents to the full index");
+		}
+		return tierIndex;
+	}
+
+	/** Sets the minimum number of documents that must be retrieved from the first tier */
+	public void setMinResults(int _minResults)
+	{
+		this.minResults = _minResults;
+	}
+
+	/** Returns the number of queries that have been matched on the full index */
+	public int getFallThroughCount()
+	{
+		return fallThroughs;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getInfo() {
+		return "FallThrough(" + tier.getInfo() + "," + parent.getInfo() + ")";
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ResultSet match(String queryNumber, MatchingQueryTerms queryTerms) throws IOException {
+		queries++;
+		//matching records the statistics of the first tier in the query terms, so work on a copy
+		final ResultSet rs = tier.match(queryNumber, queryTerms.clone());
+		if (rs.getResultSize() >= minResults)
+			return rs;
+		fallThroughs++;
+		logger.debug("Query " + queryNumber + " retrieved " + rs.getResultSize() + " documents from the first tier, matching on the full index ("
+			+ fallThroughs + " of " + queries + " queries)");
+		return parent.match(queryNumber, queryTerms);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setCollectionStatistics(CollectionStatistics cs) {
+		parent.setCollectionStatistics(cs);
+	}
+
+	/** Closes the first-tier index, if it was loaded by this class */
+	@Override
+	public void close() throws IOException {
+		if (tierIndex != null)
+			tierIndex.close();
+	}
+}
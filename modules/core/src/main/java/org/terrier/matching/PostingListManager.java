@@ -258,6 +258,8 @@ public class PostingListManager implements Closeable
 	/** which terms are positively required to match in retrieved documents */
 	protected long requiredBitMask = 0;
 	protected long negRequiredBitMask = 0;
+	/** the terms whose positions should be captured for the retrieved documents, or null */
+	protected int[] positionTerms;
 
 	
 	/** Create a posting list manager for the given index and statistics */
@@ -447,6 +449,15 @@ public class PostingListManager implements Closeable
 	}
 	
 	
+	/** Returns the weighting model(s) used to score the specified term
+	 * @param i term to obtain the weighting model for
+	 * @return weighting model for this i-1th term
+	 */
+	public WeightingModel getWeightingModel(int i)
+	{
+		return termModels.get(i);
+	}
+	
 	/** Returns the score using all weighting models for the current posting of the
 	 * specified term
 	 * @param i Which term to score
@@ -481,6 +492,19 @@ public class PostingListManager implements Closeable
 		return this.negRequiredBitMask;
 	}
 
+	/** Returns the indices of the terms whose positions should be captured during matching for the 
+	 * retrieved documents, or null if positions are not captured. Usually set by {@link ProximityCapturePlugin}.
+	 * @since 5.3 */
+	public int[] getPositionTerms() {
+		return this.positionTerms;
+	}
+	
+	/** Sets the indices of the terms whose positions should be captured during matching, or null for none.
+	 * @since 5.3 */
+	public void setPositionTerms(int[] terms) {
+		this.positionTerms = terms;
+	}
+
 	public String getTerm(int i) {
 		return termStrings.get(i);
 	}
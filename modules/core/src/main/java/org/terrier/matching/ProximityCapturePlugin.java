@@ -0,0 +1,56 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is ProximityCapturePlugin.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching;
+
+import gnu.trove.TIntArrayList;
+
+import org.terrier.matching.PostingListManager.PostingListManagerPlugin;
+import org.terrier.structures.Index;
+import org.terrier.structures.postings.BlockPosting;
+
+/** A PostingListManager plugin that asks {@link org.terrier.matching.daat.Full} to capture the positions of
+ * the query terms for the documents retrieved in the first pass, such that the
+ * {@link org.terrier.matching.dsms.DependenceScoreModifier}s can score proximity without re-opening the posting lists.
+ * Only the terms with positions (i.e. a {@link BlockPosting}) are captured. As per DependenceScoreModifier,
+ * the proximity operators (#1, #uwN, #owN) are not captured.
+ * <p>
+ * Enable by adding <tt>ProximityCapturePlugin</tt> to the property <tt>matching.postinglist.manager.plugins</tt>.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class ProximityCapturePlugin implements PostingListManagerPlugin {
+
+	@Override
+	public void processQuery(MatchingQueryTerms mqt, Index index, PostingListManager plm) {
+		final TIntArrayList terms = new TIntArrayList();
+		for(int i=0;i<plm.termPostings.size();i++)
+		{
+			if (plm.getPosting(i) instanceof BlockPosting && ! plm.getTerm(i).matches("^.*#(\\d|uw\\d|ow\\d).*"))
+				terms.add(i);
+		}
+		plm.setPositionTerms(terms.size() > 1 ? terms.toNativeArray() : null);
+	}
+}
@@ -38,7 +38,10 @@ import org.terrier.matching.BaseMatching;
 import org.terrier.matching.MatchingQueryTerms;
 import org.terrier.matching.PostingListManager;
 import org.terrier.matching.ResultSet;
+import org.terrier.querying.QueryMetrics;
+import org.terrier.structures.FilterIndex;
 import org.terrier.structures.Index;
+import org.terrier.structures.collections.DocidBitmap;
 import org.terrier.structures.postings.IterablePosting;
 /**
  * Performs the matching of documents with a query, by first assigning scores to documents for each query term
@@ -49,8 +52,14 @@ import org.terrier.structures.postings.IterablePosting;
  * reduces the memory consumption during matching, as documents which will
  * not make the final retrieved set are discarded.
  * After matching, the document score modifiers are applied if necessary.
+ * If the request has filter controls that can be answered by the index's 
+ * {@link org.terrier.structures.FilterIndex}, then documents not passing 
+ * the filter are skipped without being scored.
  * This Matching strategy uses the PostingListManager for opening
- * and scoring postings.
+ * and scoring postings. If the PostingListManager names terms to have their
+ * positions captured (see {@link org.terrier.matching.ProximityCapturePlugin}),
+ * then their positions are retained for the documents in the top-k heap, and a 
+ * {@link PositionsCandidateResultSet} is returned.
  * 
  * @author Nicola Tonellotto and Craig Macdonald
  * @see org.terrier.matching.PostingListManager
@@ -66,6 +75,8 @@ public class Full extends BaseMatching
 	
 	/** posting list manager opens and scores postings */
 	PostingListManager plm;
+	/** captures positions for the documents in the heap, or null */
+	PositionsCapture capture;
 	
 	@Override
 	protected void initialisePostings(PostingListManager plm) {
@@ -93,6 +104,7 @@ public class Full extends BaseMatching
 		
 		//a hook for subclasses
 		initialisePostings(plm);
+		capture = plm.getPositionTerms() != null ? new PositionsCapture(plm, plm.getPositionTerms()) : null;
 		
 		//the number of documents with non-zero score.
 		numberOfRetrievedDocuments = 0;
@@ -118,19 +130,36 @@ public class Full extends BaseMatching
         double threshold = 0.0d;
         final long requiredBitPattern = plm.getRequiredBitMask();
         final long negRequiredBitPattern = plm.getNegRequiredBitMask();
+        final DocidBitmap filter = FilterIndex.getFilter(index, queryTerms.getRequest());
 		logger.debug("Requirement patterns: mustmatch="+ requiredBitPattern + " must not match="+negRequiredBitPattern);
-        //int scored = 0;
+        int scored = 0;
+        final int[] postingsScored = new int[plm.size()];
         
         while (currentDocId != -1)  {
+            //a hook for subclasses to end the traversal early
+            if (targetResultSetSizeReached && canTerminate(currentDocId, threshold))
+                break;
+            //skip the documents that do not pass the filter, without scoring them
+            if (filter != null && ! filter.contains(currentDocId)) {
+                final int target = filter.nextSetBit(currentDocId);
+                if (target == -1)
+                    break;
+                skipTo(postingHeap, target);
+                currentDocId = selectMinimumDocId(postingHeap);
+                continue;
+            }
             // We create a new candidate for the doc id considered
             CandidateResult currentCandidate = makeCandidateResult(currentDocId);
             
             int currentPostingListIndex = (int) (postingHeap.firstLong() & 0xFFFF), nextDocid;
             //System.err.println("currentDocid="+currentDocId+" currentPostingListIndex="+currentPostingListIndex + " postingHeap.size()= " + postingHeap.size());
             currentPosting = plm.getPosting(currentPostingListIndex); 
-            //scored++;
+            scored++;
             do {
             	assignScore(currentPostingListIndex, currentCandidate);
+            	postingsScored[currentPostingListIndex]++;
+            	if (capture != null)
+            		capture.record(currentPostingListIndex);
             	long newDocid = currentPosting.next();
             	postingHeap.dequeueLong();
                 if (newDocid != IterablePosting.EOL)
@@ -155,14 +184,22 @@ public class Full extends BaseMatching
             			//these are postings that we need to keep/score, but which wont change the threshold
             			//often these might be so FAT can score them later
             			if (plm.getPosting(i).next(currentDocId) == currentDocId)
+            			{
             				assignNotScore(i, currentCandidate);
+            				if (capture != null)
+            					capture.record(i);
+            			}
             		}
 	            	//System.err.println("New document " + currentCandidate.getDocId() + " with score " + currentCandidate.getScore() + " passes threshold of " + threshold);
 	        		candidateResultList.add(currentCandidate);
+	        		if (capture != null)
+	        			capture.keep(currentDocId);
 	        		if (RETRIEVED_SET_SIZE != 0 && candidateResultList.size() == RETRIEVED_SET_SIZE + 1)
 	        		{
 	        			targetResultSetSizeReached = true;
-	        			candidateResultList.poll();
+	        			final CandidateResult removed = candidateResultList.poll();
+	        			if (capture != null)
+	        				capture.discard(removed.getDocId());
 	        			//System.err.println("Removing document with score " + candidateResultList.poll().getScore());
 	        		}
 	        		//System.err.println("Now have " + candidateResultList.size() + " retrieved docs");
@@ -175,6 +212,7 @@ public class Full extends BaseMatching
         }
         
         // System.err.println("Scored " + scored + " documents");
+        recordMetrics(scored, postingsScored);
         plm.close();
         
         // Fifth, we build the result set
@@ -184,11 +222,40 @@ public class Full extends BaseMatching
 		return resultSet;
 	}
 
+	/** records the numbers of documents and postings scored, in total and for each term, using {@link QueryMetrics}
+	 * @since 5.3 */
+	protected void recordMetrics(int documents, int[] postings)
+	{
+		if (! QueryMetrics.ENABLED)
+			return;
+		long total = 0;
+		for(int i=0;i<postings.length;i++)
+		{
+			total += postings[i];
+			QueryMetrics.incrementRequest("matching.postings." + plm.getTerm(i), postings[i]);
+		}
+		QueryMetrics.increment("matching.documents", documents);
+		QueryMetrics.increment("matching.postings", total);
+	}
+
 	protected CandidateResultSet makeResultSet(
 			Queue<CandidateResult> candidateResultList) {
+		if (capture != null)
+			return new PositionsCandidateResultSet(candidateResultList, capture);
 		return new CandidateResultSet(candidateResultList);
 	}
 
+	/** Returns true if no document with a docid of at least the specified docid can enter
+	 * the retrieved set, such that the traversal of the posting lists can be terminated.
+	 * Only called once the retrieved set is full. Returns false by default.
+	 * @param currentDocId the next document to be scored
+	 * @param threshold the score of the lowest-ranked document in the retrieved set
+	 * @since 5.3
+	 */
+	protected boolean canTerminate(int currentDocId, double threshold) {
+		return false;
+	}
+
 	protected CandidateResult makeCandidateResult(int currentDocId) {
 		assert currentDocId != IterablePosting.EOL;
 		return new CandidateResult(currentDocId);
@@ -210,6 +277,18 @@ public class Full extends BaseMatching
         assignNotScore(i, cc);
     }
 	
+	/** moves all posting lists in the heap to the first posting with a docid of at least target */
+	protected final void skipTo(final LongPriorityQueue postingHeap, final int target) throws IOException
+	{
+		while (! postingHeap.isEmpty() && (int) (postingHeap.firstLong() >>> 32) < target)
+		{
+			final int i = (int) (postingHeap.dequeueLong() & 0xFFFF);
+			final long newDocid = plm.getPosting(i).next(target);
+			if (newDocid != IterablePosting.EOL)
+				postingHeap.enqueue((newDocid << 32) + i);
+		}
+	}
+	
 	/** returns the docid of the lowest posting */
 	protected final int selectMinimumDocId(final LongPriorityQueue postingHeap)
     {
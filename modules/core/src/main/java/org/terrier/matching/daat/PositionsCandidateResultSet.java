@@ -0,0 +1,74 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is PositionsCandidateResultSet.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching.daat;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.Collection;
+
+import org.terrier.structures.EntryStatistics;
+import org.terrier.structures.postings.BlockPosting;
+
+/** A {@link CandidateResultSet} that also holds the positions of some query terms in each retrieved
+ * document, as captured by {@link Full} during matching. These are used by
+ * {@link org.terrier.matching.dsms.DependenceScoreModifier} instead of re-opening the posting lists.
+ * The captured positions are looked up by docid, and hence are not affected by sorting.
+ * @author Craig Macdonald
+ * @since 5.3
+ * @see org.terrier.matching.ProximityCapturePlugin
+ */
+@SuppressWarnings("serial")
+public class PositionsCandidateResultSet extends CandidateResultSet {
+
+	protected final String[] terms;
+	protected final EntryStatistics[] statistics;
+	protected final transient TIntObjectHashMap<BlockPosting[]> postings;
+
+	/** Create a ResultSet from the specified queue of results, and the positions captured for them */
+	PositionsCandidateResultSet(Collection<CandidateResult> q, PositionsCapture capture)
+	{
+		super(q);
+		terms = capture.terms;
+		statistics = capture.statistics;
+		postings = capture.captured;
+	}
+
+	/** Returns the terms that had their positions captured */
+	public String[] getTerms() {
+		return terms;
+	}
+
+	/** Returns the statistics of the terms that had their positions captured */
+	public EntryStatistics[] getStatistics() {
+		return statistics;
+	}
+
+	/** Returns the postings of the captured terms for the specified document, or null if the document
+	 * was not retrieved. The posting of each term not occurring in the document is null. */
+	public BlockPosting[] getPostings(int docid) {
+		return postings.get(docid);
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is PositionsCapture.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching.daat;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.Arrays;
+
+import org.terrier.matching.PostingListManager;
+import org.terrier.structures.EntryStatistics;
+import org.terrier.structures.postings.BlockPosting;
+import org.terrier.structures.postings.BlockPostingImpl;
+import org.terrier.structures.postings.IterablePosting;
+
+/** Captures the positions of some query terms for the documents in the top-k heap of {@link Full}.
+ * The positions of the document being scored are copied into reusable buffers, and are only copied into
+ * new postings if the document enters the heap. They are discarded when the document leaves the heap.
+ * @author Craig Macdonald
+ * @since 5.3
+ * @see org.terrier.matching.ProximityCapturePlugin
+ */
+class PositionsCapture {
+
+	/** the captured slot of each posting list of the PostingListManager, or -1 */
+	final int[] slots;
+	final IterablePosting[] postings;
+	final String[] terms;
+	final EntryStatistics[] statistics;
+
+	/** the docid, frequency, document length and positions of the last posting recorded for each slot */
+	final int[] docids;
+	final int[] frequencies;
+	final int[] doclens;
+	final int[][] positions;
+	final int[] counts;
+
+	/** the captured postings of each document in the heap */
+	final TIntObjectHashMap<BlockPosting[]> captured = new TIntObjectHashMap<>();
+
+	PositionsCapture(PostingListManager plm, int[] termIndices)
+	{
+		slots = new int[plm.size()];
+		Arrays.fill(slots, -1);
+		final int n = termIndices.length;
+		postings = new IterablePosting[n];
+		terms = new String[n];
+		statistics = new EntryStatistics[n];
+		docids = new int[n];
+		frequencies = new int[n];
+		doclens = new int[n];
+		positions = new int[n][16];
+		counts = new int[n];
+		for(int s=0;s<n;s++)
+		{
+			final int i = termIndices[s];
+			slots[i] = s;
+			postings[s] = plm.getPosting(i);
+			terms[s] = plm.getTerm(i);
+			statistics[s] = plm.getStatistics(i);
+			docids[s] = -1;
+		}
+	}
+
+	/** copies the positions of the current posting of the ith posting list, if it is captured */
+	void record(final int i)
+	{
+		final int s = slots[i];
+		if (s == -1)
+			return;
+		final IterablePosting p = postings[s];
+		final int[] pos = ((BlockPosting) p).getPositions();
+		if (pos.length > positions[s].length)
+			positions[s] = new int[Math.max(pos.length, 2 * positions[s].length)];
+		System.arraycopy(pos, 0, positions[s], 0, pos.length);
+		counts[s] = pos.length;
+		frequencies[s] = p.getFrequency();
+		doclens[s] = p.getDocumentLength();
+		docids[s] = p.getId();
+	}
+
+	/** retains the recorded positions of the specified document, which has entered the heap */
+	void keep(final int docid)
+	{
+		final BlockPosting[] doc = new BlockPosting[terms.length];
+		for(int s=0;s<doc.length;s++)
+		{
+			if (docids[s] != docid)
+				continue;
+			final BlockPostingImpl p = new BlockPostingImpl(docid, frequencies[s], Arrays.copyOf(positions[s], counts[s]));
+			p.setDocumentLength(doclens[s]);
+			doc[s] = p;
+		}
+		captured.put(docid, doc);
+	}
+
+	/** forgets the positions of the specified document, which has left the heap */
+	void discard(final int docid)
+	{
+		captured.remove(docid);
+	}
+}
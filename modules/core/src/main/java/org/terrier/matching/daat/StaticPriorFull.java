@@ -0,0 +1,159 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is StaticPriorFull.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+package org.terrier.matching.daat;
+
+import java.io.IOException;
+
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.PostingListManager;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.dsms.SimpleStaticScoreModifier;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.structures.EntryStatistics;
+import org.terrier.structures.Index;
+import org.terrier.utility.ApplicationSetup;
+
+/**
+ * A document-at-a-time matching strategy that adds a static (query independent) document prior
+ * to the score of each document during matching, i.e. score(d) = score(d,Q) + w*prior(d).
+ * The priors are loaded in the same manner as {@link SimpleStaticScoreModifier}, using the
+ * <tt>ssa.input.file</tt>, <tt>ssa.input.type</tt> and <tt>ssa.w</tt> properties.
+ * <p>
+ * When the docids of the index have been assigned in decreasing order of prior, e.g. using
+ * the <tt>reassign-docids -s static</tt> command, the traversal of the posting lists is terminated
+ * once the retrieved set is full and no remaining document can exceed its threshold, given
+ * an upper bound on the query-dependent score. The upper bound of each term is obtained from the
+ * maximum term frequency of its statistics, assuming that the weighting model increases with term
+ * frequency and decreases with document length, as is the case for BM25 and the DFR models.
+ * If the priors are not in decreasing order, all documents are scored.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class StaticPriorFull extends Full {
+
+	/** weight of the prior */
+	protected final double w;
+	/** prior of each document */
+	protected final double[] priors;
+	/** whether the priors are in decreasing docid order */
+	protected final boolean priorsDecreasing;
+	/** upper bound of the query-dependent score of the current query */
+	protected double maxQueryScore;
+	/** number of documents considered for the last query */
+	protected int documentsScored;
+
+	/** Create a new Matching instance based on the specified index, loading the priors
+	 * as configured by the <tt>ssa.*</tt> properties */
+	public StaticPriorFull(Index index)
+	{
+		this(index, new SimpleStaticScoreModifier().getStaticScores(index),
+			Double.parseDouble(ApplicationSetup.getProperty("ssa.w", "1")));
+	}
+
+	/** Create a new Matching instance based on the specified index and priors
+	 * @param index the index
+	 * @param _priors the prior of each document, indexed by docid
+	 * @param _w the weight of the prior
+	 */
+	public StaticPriorFull(Index index, double[] _priors, double _w)
+	{
+		super(index);
+		if (_priors == null || _priors.length < index.getCollectionStatistics().getNumberOfDocuments())
+			throw new IllegalArgumentException("Priors were not loaded for all documents in the index");
+		this.priors = _priors;
+		this.w = _w;
+		this.priorsDecreasing = isDecreasing(priors, w);
+		if (! priorsDecreasing)
+			logger.warn("Docids are not in decreasing order of prior, early termination is disabled");
+	}
+
+	static boolean isDecreasing(double[] priors, double w)
+	{
+		for(int i=1;i<priors.length;i++)
+			if (w * priors[i] > w * priors[i-1])
+				return false;
+		return true;
+	}
+
+	/** Returns true if the docids of the index are in decreasing order of prior */
+	public boolean isEarlyTerminating()
+	{
+		return priorsDecreasing;
+	}
+
+	/** Returns the number of documents considered for the last query */
+	public int getDocumentsScored()
+	{
+		return documentsScored;
+	}
+
+	@Override
+	public ResultSet match(String queryNumber, MatchingQueryTerms queryTerms) throws IOException
+	{
+		documentsScored = 0;
+		return super.match(queryNumber, queryTerms);
+	}
+
+	@Override
+	protected void initialisePostings(PostingListManager plm) {
+		maxQueryScore = 0.0d;
+		for(int i : plm.getMatchingTerms())
+			maxQueryScore += upperBound(plm.getWeightingModel(i), plm.getStatistics(i));
+	}
+
+	/** Returns an upper bound on the score of any document for a term. As the length of a document
+	 * is at least its term frequency, the maximum over tf of score(tf,tf) is taken. If the maximum
+	 * term frequency is not known, no bound is available. */
+	static double upperBound(WeightingModel wmodel, EntryStatistics stats)
+	{
+		final int maxtf = stats.getMaxFrequencyInDocuments();
+		if (maxtf == Integer.MAX_VALUE)
+			return Double.POSITIVE_INFINITY;
+		double max = 0.0d;
+		for(int tf=1;tf<=maxtf;tf++)
+			max = Math.max(max, wmodel.score(tf, tf));
+		return max;
+	}
+
+	@Override
+	protected boolean canTerminate(int currentDocId, double threshold) {
+		return priorsDecreasing && maxQueryScore + w * priors[currentDocId] <= threshold;
+	}
+
+	@Override
+	protected CandidateResult makeCandidateResult(int currentDocId) {
+		documentsScored++;
+		final CandidateResult cc = super.makeCandidateResult(currentDocId);
+		cc.updateScore(w * priors[currentDocId]);
+		return cc;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getInfo() {
+		return "daat.StaticPriorFull";
+	}
+}
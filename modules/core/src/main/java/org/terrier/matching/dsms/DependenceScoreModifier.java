@@ -33,6 +33,7 @@ import java.util.stream.Collectors;
 import org.terrier.matching.MatchingQueryTerms;
 import org.terrier.matching.PostingListManager;
 import org.terrier.matching.ResultSet;
+import org.terrier.matching.daat.PositionsCandidateResultSet;
 import org.terrier.sorting.MultiSort;
 import org.terrier.structures.CollectionStatistics;
 import org.terrier.structures.EntryStatistics;
@@ -49,7 +50,10 @@ import org.terrier.utility.Distance;
 /** Base class for Dependence models. Document scores are modified using n-grams,
  * approximating the dependence of terms between documents. Implemented as a document 
  * score modifier, similarly to PhraseScoreModifier. Postings lists are traversed in a 
- * DAAT fashion.
+ * DAAT fashion. If the ResultSet is a {@link PositionsCandidateResultSet}, i.e. the positions of the 
+ * query terms were captured during matching by enabling {@link org.terrier.matching.ProximityCapturePlugin},
+ * then these are used instead of re-opening the posting lists. In this case, a synonym group is treated as
+ * a single term.
  * <p>
  * <b>Properties</b>
  * <ul>
@@ -144,6 +148,8 @@ public abstract class DependenceScoreModifier  implements DocumentScoreModifier
 			if (phraseQTWfnid < 1 || phraseQTWfnid > 4) {
 				System.err.println("ERROR: Wrong function id specified for " + this.getClass().getSimpleName());
 			}
+			if (set instanceof PositionsCandidateResultSet)
+				return modifyScores(index, terms, (PositionsCandidateResultSet) set);
 	
 			MatchingQueryTerms termsFiltered = terms.stream().filter(x -> ! x.getKey().toString().matches("^.*#(\\d|uw\\d|ow\\d).*")).collect(Collectors.toCollection(MatchingQueryTerms::new));
 			termsFiltered.setQueryId(terms.getQueryId());
@@ -210,6 +216,33 @@ public abstract class DependenceScoreModifier  implements DocumentScoreModifier
 		return true;
 	}
 	
+	/** Modifies the scores of documents using the positions captured during matching */
+	protected boolean modifyScores(Index index, MatchingQueryTerms terms, PositionsCandidateResultSet set) throws IOException {
+		phraseTerms = set.getTerms();
+		final int phraseLength = phraseTerms.length;
+		if (phraseLength == 1)
+			return false;
+		final double[] phraseTermWeights = new double[phraseLength];
+		for (int i = 0; i < phraseLength; i++) {
+			phraseTermWeights[i] = terms.getTermWeight(phraseTerms[i]);
+		}
+		w_t = Double.parseDouble(ApplicationSetup.getProperty(
+				"proximity.w_t", "1.0d"));
+		w_o = Double.parseDouble(ApplicationSetup.getProperty(
+				"proximity.w_o", "1.0d"));
+		w_u = Double.parseDouble(ApplicationSetup.getProperty(
+				"proximity.w_u", "1.0d"));
+		if (dependency.equals("FD")) {
+			doDependency(index, set.getStatistics(), set, phraseTermWeights, false);
+		} else if (dependency.equals("SD")) {
+			doDependency(index, set.getStatistics(), set, phraseTermWeights, true);
+		} else {
+			System.err.println("WARNING: proximity.dependency.type not set. Set it to either FD or SD");
+			return false;
+		}
+		return true;
+	}
+	
 	/** unused hook method */
 	protected void determineGlobalStatistics(String[] terms, EntryStatistics[] es, boolean SD) throws IOException
 	{}
@@ -323,6 +356,42 @@ public abstract class DependenceScoreModifier  implements DocumentScoreModifier
 	
 	}
     
+	/** Calculates dependence scores for all documents, using the positions captured during matching */
+	protected void doDependency(Index index, final EntryStatistics es[], PositionsCandidateResultSet rs, final double[] phraseTermWeights, boolean SD) throws IOException 
+	{
+		final int numPhraseTerms = phraseTerms.length;
+		this.setCollectionStatistics(index.getCollectionStatistics(), index);
+		determineGlobalStatistics(phraseTerms, es, SD);
+		
+		final int[] docids = rs.getDocids();
+		final double[] scores = rs.getScores();
+		
+		int altered = 0;
+		final int docidsLength = docids.length;
+		boolean allZero = true;
+		for (int i = 0; i < docidsLength; i++) {
+			if (scores[i] != 0.0d)
+				allZero = false;
+			scores[i] = w_t * scores[i];
+		}
+		
+		final boolean[] okToUse = new boolean[numPhraseTerms];
+		for (int k = 0; k < docidsLength; k++) {
+			if (! allZero && scores[k] <= 0.0d)
+				continue;
+			final Posting[] postings = rs.getPostings(docids[k]);
+			if (postings == null)
+				continue;
+			for(int i=0;i<numPhraseTerms;i++)
+				okToUse[i] = postings[i] != null;
+			if (countTrue(okToUse) < 2)
+				continue;
+			altered++;
+			scores[k] += calculateDependence(postings, okToUse, phraseTermWeights, SD);
+		}
+		System.err.println(this.getClass().getSimpleName() + " altered scores for " + altered + " documents");
+	}
+	
     /** calculates the dependence score for one document, using the IterablePostings available.
       * @param ips all of the IterablePostings
       * @param okToUse the IterablePostings that are set on the current document
@@ -126,6 +126,16 @@ public class SimpleStaticScoreModifier implements DocumentScoreModifier
 		System.out.println("Loading feature scores took "+ ((endTime -startTime) /1000.d)+" seconds"); 
 	}
 	
+	/** Returns the static scores, indexed by docid, loading them if necessary
+	 * @param index the index the static scores correspond to
+	 * @return array of static scores
+	 * @since 5.3
+	 */
+	public double[] getStaticScores(Index index) {
+		init(index);
+		return staticScores;
+	}
+	
 	protected void normalise(double[] scores)
 	{		
 		final boolean normaliseToMaxMin = ApplicationSetup.getProperty("ssa.normalise", "false").equals("maxmin");
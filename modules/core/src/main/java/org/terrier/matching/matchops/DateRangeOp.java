@@ -37,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.matching.MatchingQueryTerms.QueryTermProperties;
 import org.terrier.matching.models.WeightingModel;
+import org.terrier.structures.BasicLexiconEntry;
 import org.terrier.structures.BitIndexPointer;
 import org.terrier.structures.CollectionStatistics;
 import org.terrier.structures.EntryStatistics;
@@ -46,9 +47,16 @@ import org.terrier.structures.Lexicon;
 import org.terrier.structures.LexiconEntry;
 import org.terrier.structures.Pointer;
 import org.terrier.structures.PostingIndex;
+import org.terrier.structures.RangeIndex;
+import org.terrier.structures.collections.DocidBitmap;
+import org.terrier.structures.postings.BitmapIterablePosting;
 import org.terrier.structures.postings.IterablePosting;
 import org.terrier.structures.postings.ORIterablePosting;
 
+/** Matches documents with dates in a range. If the index has a "daterange" structure (a {@link RangeIndex}), 
+ * the range is answered at the granularity of days from its precomputed bitmaps. Otherwise, the posting lists
+ * of all dates in the range are obtained from the "datelexicon" and "dateinverted" structures, and merged.
+ */
 public class DateRangeOp extends Operator {
 
 	public static final String STRING_PREFIX = "#datebetween";
@@ -75,6 +83,20 @@ public class DateRangeOp extends Operator {
 	@Override
 	public Pair<EntryStatistics, IterablePosting> getPostingIterator(Index index)
 			throws IOException {
+		if (index.hasIndexStructure("daterange"))
+		{
+			//a handful of bitmap unions, rather than merging the posting list of every date in the range
+			final RangeIndex ranges = (RangeIndex) index.getIndexStructure("daterange");
+			final DocidBitmap docs = ranges.getDocuments(lowRange, hiRange);
+			if (docs.isEmpty())
+			{
+				logger.warn("No documents matched in "+this.toString());
+				return null;
+			}
+			final int n = (int) docs.cardinality();
+			return Pair.of(new BasicLexiconEntry(-1, n, n), 
+				(IterablePosting) new BitmapIterablePosting(docs, index.getDocumentIndex()));
+		}
 		Lexicon<Date> lexDate = (Lexicon<Date>) index.getIndexStructure("datelexicon");
 		PostingIndex<Pointer> invDate = (PostingIndex<Pointer>) index.getIndexStructure("dateinverted");
 		List<LexiconEntry> _le = new ArrayList<LexiconEntry>();
@@ -1,7 +1,13 @@
 package org.terrier.matching.matchops;
 
-import org.apache.commons.text.similarity.EditDistance;
-import org.apache.commons.text.similarity.LevenshteinDistance;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.terrier.structures.Lexicon;
+import org.terrier.structures.LexiconEntry;
 import org.terrier.utility.ArrayUtils;
 
 /** A synonym class that uses leveinsten distance to match terms.
@@ -9,8 +15,12 @@ import org.terrier.utility.ArrayUtils;
  * <ul>
  * <li>fuzziness - The maximum Levenshtein Edit Distance threshold (integer), or AUTO, or AUTO.lowT.highT. Default is AUTO.3.6. See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/common-options.html#fuzziness">Elastic option reference</a>.</li>
  * <li>prefix_length - The number of initial characters which must match to accept a term - See Elastic's <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-fuzzy-query.html">fuzzy documentation</a></li>
- * <li>max_expansions - The maximum number of terms to accept into the synonym group - See Elastic's <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-fuzzy-query.html">fuzzy documentation</a></li>
+ * <li>max_expansions - The maximum number of terms to accept into the synonym group - See Elastic's <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-fuzzy-query.html">fuzzy documentation</a>. 
+ * If more terms match, those with the highest document frequencies are accepted.</li>
  * </ul>
+ * Matching terms are found by stepping a {@link LevenshteinAutomaton} through the lexicon: once a prefix 
+ * of a term cannot match, the lexicon is advanced past all terms with that prefix. Hence the cost depends 
+ * on the number of terms close to the search string, rather than the size of the vocabulary.
  * @author Craig Macdonald
  * @since 5.0
  */
@@ -20,8 +30,17 @@ public class FuzzyTermOp extends PrefixTermOp {
 	
 	private static final long serialVersionUID = 1L;
 	
-	final EditDistance<Integer> lev = new LevenshteinDistance();
+	/** after this many consecutive terms with a prefix that cannot match, seek in the lexicon instead */
+	static final int SCAN_BEFORE_SEEK = 8;
+	
 	final int prefix_length;
+	final int maxEdits;
+	final DistancePredicate accept;
+	
+	interface DistancePredicate
+	{
+		boolean test(String term, int distance);
+	}
 	
 	public FuzzyTermOp(String searchString)
 	{
@@ -37,14 +56,13 @@ public class FuzzyTermOp extends PrefixTermOp {
 		} else {
 			prefix_length = 0;
 		}
-		if (prefix_length == 0)
-			logger.warn("prefix_length of 0 is expensive to match terms");
 		if (maxExpansions != null)
 		{
 			maxMatch = maxExpansions;
 		}
 		if (maxDist != null) {
-			super.predFunction = (t -> lev.apply(searchString, t) <= maxDist);
+			maxEdits = maxDist;
+			accept = (t, d) -> d <= maxDist;
 		}
 		else //maxDist == auto
 		{
@@ -58,19 +76,74 @@ public class FuzzyTermOp extends PrefixTermOp {
 			else
 				highT = _highT;
 			
-			super.predFunction = (t -> {
+			maxEdits = 2;
+			accept = (t, d) -> {
 				if (t.length() < lowT)
 				{
-					return t.equals(searchString);
+					return d == 0;
 				}
 				else if (t.length() < highT) {
-					return lev.apply(searchString, t) <= 1;
+					return d <= 1;
 				}
 				else {
-					return lev.apply(searchString, t) <= 2;
+					return d <= 2;
 				}
-			});
+			};
+		}
+	}
+	
+	@Override
+	protected List<LexiconEntry> getMatchingEntries(Lexicon<String> lex, String termLo, String termHi) throws IOException
+	{
+		final LevenshteinAutomaton automaton = new LevenshteinAutomaton(((SingleTermOp)terms[0]).queryTerm, maxEdits);
+		final List<LexiconEntry> matches = new ArrayList<LexiconEntry>();
+		Iterator<Map.Entry<String,LexiconEntry>> iterLex = lex.getLexiconEntryRange(termLo, termHi);
+		String deadPrefix = null;
+		int skipped = 0;
+		int considered = 0;
+		int seeks = 0;
+		while(iterLex.hasNext())
+		{
+			final Map.Entry<String,LexiconEntry> le = iterLex.next();
+			final String term = le.getKey();
+			if (deadPrefix != null && term.startsWith(deadPrefix))
+			{
+				//no term with this prefix can match, skip it, or seek past all such terms
+				if (++skipped >= SCAN_BEFORE_SEEK)
+				{
+					final String target = LevenshteinAutomaton.successor(deadPrefix);
+					if (target != null)
+					{
+						iterLex = lex.getLexiconEntryRange(target, termHi);
+						deadPrefix = null;
+						seeks++;
+					}
+				}
+				continue;
+			}
+			considered++;
+			final int deadLength = automaton.setTerm(term);
+			if (deadLength == -1)
+			{
+				deadPrefix = null;
+				if (accept.test(term, automaton.getDistance()))
+					matches.add(le.getValue());
+			}
+			else
+			{
+				deadPrefix = term.substring(0, deadLength);
+				skipped = 0;
+			}
+		}
+		logger.debug(this.toString() + " considered " + considered + " terms between " + termLo + " and " + termHi + " using " + seeks + " seeks");
+		if (maxMatch != null && matches.size() > maxMatch)
+		{
+			logger.warn("Exceeded max alternatives for " + this.toString() + ", keeping the " + maxMatch + " most frequent");
+			//stable, so ties are kept in lexicographical order
+			matches.sort((a,b) -> Integer.compare(b.getDocumentFrequency(), a.getDocumentFrequency()));
+			return new ArrayList<LexiconEntry>(matches.subList(0, maxMatch));
 		}
+		return matches;
 	}
 	
 	protected String getStartString(String search)
@@ -0,0 +1,104 @@
+package org.terrier.matching.matchops;
+
+/** A Levenshtein automaton for a query string, which is stepped through the terms of a
+ * sorted term dictionary. The automaton is simulated by the rows of the edit distance dynamic programme:
+ * the row for each prefix of the current term is retained, so that the rows shared with the previous
+ * term (i.e. its common prefix) need not be recomputed. Moreover, as soon as every cell of a row exceeds
+ * the maximum distance, no term with that prefix can match, and the dictionary can be advanced
+ * to {@link #successor(String)} of that prefix, skipping all such terms.
+ * <p>
+ * Distances are computed over Java chars, as per <tt>org.apache.commons.text.similarity.LevenshteinDistance</tt>.
+ * This class is not threadsafe.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class LevenshteinAutomaton {
+
+	final String query;
+	final int maxDistance;
+	final int n;
+	/** rows[i] is the row of edit distances for the first i chars of the current term */
+	int[][] rows;
+	/** the current term */
+	String current = "";
+	/** number of valid rows (after rows[0]) for the current term */
+	int validRows = 0;
+
+	/** Construct an automaton for the specified query string,
+	 * accepting terms within maxDistance edits. */
+	public LevenshteinAutomaton(String _query, int _maxDistance)
+	{
+		this.query = _query;
+		this.maxDistance = _maxDistance;
+		this.n = query.length();
+		this.rows = new int[16][];
+		rows[0] = new int[n+1];
+		for(int j=0;j<=n;j++)
+			rows[0][j] = j;
+	}
+
+	/** Advances the automaton to the specified term. Returns -1 if the term
+	 * may match, in which case {@link #getDistance()} provides its distance. Otherwise, returns the length of
+	 * the shortest prefix of the term for which no extension can be within the maximum distance.
+	 */
+	public int setTerm(final String term)
+	{
+		final int m = term.length();
+		//reuse the rows of the prefix shared with the previous term
+		int common = 0;
+		final int l = Math.min(validRows, m);
+		while(common < l && current.charAt(common) == term.charAt(common))
+			common++;
+		current = term;
+		validRows = common;
+		if (rows.length <= m)
+		{
+			final int[][] newRows = new int[Math.max(m+1, rows.length*2)][];
+			System.arraycopy(rows, 0, newRows, 0, rows.length);
+			rows = newRows;
+		}
+		for(int i=common+1;i<=m;i++)
+		{
+			if (rows[i] == null)
+				rows[i] = new int[n+1];
+			final int[] prev = rows[i-1];
+			final int[] row = rows[i];
+			final char c = term.charAt(i-1);
+			row[0] = i;
+			int min = i;
+			for(int j=1;j<=n;j++)
+			{
+				final int cost = query.charAt(j-1) == c ? 0 : 1;
+				row[j] = Math.min(Math.min(row[j-1] + 1, prev[j] + 1), prev[j-1] + cost);
+				if (row[j] < min)
+					min = row[j];
+			}
+			validRows = i;
+			if (min > maxDistance)
+				return i;
+		}
+		return -1;
+	}
+
+	/** Returns the edit distance between the query and the current term */
+	public int getDistance()
+	{
+		return rows[current.length()][n];
+	}
+
+	/** Returns the smallest string that is greater (in Unicode code point order, as used by the lexicon)
+	 * than every string with the specified prefix, or null if this cannot be safely determined. */
+	public static String successor(String prefix)
+	{
+		final int l = prefix.length();
+		if (l == 0)
+			return null;
+		final char c = prefix.charAt(l-1);
+		if (Character.isSurrogate(c) || c == Character.MAX_VALUE)
+			return null;
+		char next = (char)(c+1);
+		if (Character.isSurrogate(next))
+			next = (char)(Character.MAX_SURROGATE + 1);
+		return prefix.substring(0, l-1) + next;
+	}
+}
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.lang3.tuple.Pair;
 import org.terrier.structures.EntryStatistics;
 import org.terrier.structures.Index;
+import org.terrier.structures.Lexicon;
 import org.terrier.structures.LexiconEntry;
 import org.terrier.structures.PostingIndex;
 import org.terrier.structures.postings.IterablePosting;
@@ -59,15 +60,13 @@ public class PrefixTermOp extends SynonymOp {
 		return termLo + Character.MAX_VALUE;
 	}
 	
-	@Override
-	public Pair<EntryStatistics,IterablePosting> getPostingIterator(Index index) throws IOException
+	/** Returns the lexicon entries of the terms between termLo (inclusive) and termHi (exclusive) that
+	 * are accepted by this operator.
+	 */
+	protected List<LexiconEntry> getMatchingEntries(Lexicon<String> lex, String termLo, String termHi) throws IOException
 	{
-		List<EntryStatistics> _le = new ArrayList<EntryStatistics>();
-		List<IterablePosting> _joinedPostings = new ArrayList<IterablePosting>();
-		String termLo = getStartString(((SingleTermOp)terms[0]).queryTerm);
-		String termHi = getEndString(termLo);
-		PostingIndex<?> inv = index.getInvertedIndex();
-		Iterator<Map.Entry<String,LexiconEntry>> iterLex = index.getLexicon().getLexiconEntryRange(termLo, termHi);
+		List<LexiconEntry> _le = new ArrayList<LexiconEntry>();
+		Iterator<Map.Entry<String,LexiconEntry>> iterLex = lex.getLexiconEntryRange(termLo, termHi);
 		int considered = 0;
 		while(iterLex.hasNext())
 		{
@@ -78,27 +77,38 @@ public class PrefixTermOp extends SynonymOp {
 			if (! predFunction.test(le.getKey()))
 				continue;
 			
-			LexiconEntry lee = le.getValue();
-			IterablePosting ip = inv.getPostings(lee);
-			_le.add(lee);
-			_joinedPostings.add(ip);
+			_le.add(le.getValue());
 			if (maxMatch != null && _le.size() == maxMatch)
 			{
 				logger.warn("Exceeded max alternatives for " + this.toString());
 				break;
 			}
 		}
+		logger.debug(this.toString() + " considered " + considered + " terms between " + termLo + " and " + termHi);
+		return _le;
+	}
+	
+	@Override
+	public Pair<EntryStatistics,IterablePosting> getPostingIterator(Index index) throws IOException
+	{
+		String termLo = getStartString(((SingleTermOp)terms[0]).queryTerm);
+		String termHi = getEndString(termLo);
+		PostingIndex<?> inv = index.getInvertedIndex();
+		List<LexiconEntry> _le = getMatchingEntries(index.getLexicon(), termLo, termHi);
 		
 		if (_le.size() == 0)
 		{
 			//TODO consider if we should return an empty posting list iterator instead
-			logger.warn("No alternatives matched in " + Arrays.toString(terms) + " out of "+considered+" considered terms between " + termLo + " and " + termHi);
+			logger.warn("No alternatives matched in " + Arrays.toString(terms) + " between " + termLo + " and " + termHi);
 			return null;
 		}
-		logger.info(this.toString() + " matched " + _le.size() + " out of "+considered+" considered terms between " + termLo + " and " + termHi);
+		logger.info(this.toString() + " matched " + _le.size() + " terms between " + termLo + " and " + termHi);
+		List<IterablePosting> _joinedPostings = new ArrayList<IterablePosting>(_le.size());
+		for(LexiconEntry lee : _le)
+			_joinedPostings.add(inv.getPostings(lee));
 		EntryStatistics entryStats = mergeStatistics(_le.toArray(new EntryStatistics[_le.size()]), null);
 		
-		IterablePosting ip = createFinalPostingIterator(_joinedPostings, _le);
+		IterablePosting ip = createFinalPostingIterator(_joinedPostings, new ArrayList<EntryStatistics>(_le));
 		return Pair.of(entryStats, ip);
 	}
 
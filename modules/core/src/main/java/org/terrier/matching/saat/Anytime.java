@@ -0,0 +1,215 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is Anytime.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching.saat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.terrier.matching.AccumulatorResultSet;
+import org.terrier.matching.BaseMatching;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.matchops.Operator;
+import org.terrier.matching.matchops.SingleTermOp;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.bit.ImpactOrderedPostingIndex;
+import org.terrier.structures.bit.ImpactOrderedPostingIndex.ImpactSegments;
+import org.terrier.utility.ApplicationSetup;
+
+/** A score-at-a-time (SAAT) matching strategy, which uses an {@link ImpactOrderedPostingIndex}.
+ * The segments of all query terms are processed in decreasing order of their impact multiplied by the
+ * query term weight, adding the impact to the score of each document in the segment. Once the
+ * budget of postings has been exhausted, matching stops, and the documents scored so far are returned. As
+ * the highest impact postings are processed first, the budget provides a tunable trade-off between
+ * efficiency and effectiveness (anytime ranking).
+ * <p>
+ * The impacts were computed by the weighting model chosen when the impact-ordered index was built, hence any weighting
+ * models set on the query terms are ignored. Only single terms are supported - complex operators
+ * such as phrases and synonyms are ignored. The filter controls of a {@link org.terrier.structures.FilterIndex} are
+ * applied once matching stops.
+ * <p><b>Properties</b>:
+ * <ul>
+ * <li><tt>matching.saat.structure</tt> - name of the impact-ordered structure. Defaults to <tt>impact</tt>.</li>
+ * <li><tt>matching.saat.postings.budget</tt> - the maximum number of postings to process for each query. A segment is
+ * always processed in full. Defaults to 0, which means that all postings are processed.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class Anytime extends BaseMatching
+{
+	protected final ImpactOrderedPostingIndex impactIndex;
+
+	/** the number of postings processed for the last query */
+	protected long postingsProcessed;
+
+	/** Create a new Matching instance based on the specified index */
+	public Anytime(Index index)
+	{
+		super(index);
+		final String structureName = ApplicationSetup.getProperty("matching.saat.structure", "impact");
+		if (! index.hasIndexStructure(structureName))
+			throw new IllegalArgumentException("Index " + index + " has no impact-ordered structure " + structureName);
+		impactIndex = (ImpactOrderedPostingIndex) index.getIndexStructure(structureName);
+		logger.info("Impacts were computed using " + impactIndex.getWeightingModel());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getInfo()
+	{
+		return "saat.Anytime";
+	}
+
+	/** Returns the number of postings processed for the last query */
+	public long getPostingsProcessed()
+	{
+		return postingsProcessed;
+	}
+
+	/** the current segment of one query term */
+	static class TermSegments implements Comparable<TermSegments>
+	{
+		final ImpactSegments segments;
+		final double weight;
+		final short mask;
+
+		TermSegments(ImpactSegments _segments, double _weight, short _mask)
+		{
+			segments = _segments;
+			weight = _weight;
+			mask = _mask;
+		}
+
+		double score()
+		{
+			return segments.getImpact() * weight;
+		}
+
+		@Override
+		public int compareTo(TermSegments o) {
+			return Double.compare(o.score(), score());
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ResultSet match(String queryNumber, MatchingQueryTerms queryTerms) throws IOException
+	{
+		final long starttime = System.currentTimeMillis();
+		initialise(queryTerms);
+		final long budget = Long.parseLong(ApplicationSetup.getProperty("matching.saat.postings.budget", "0"));
+		final AccumulatorResultSet rs = new AccumulatorResultSet(collectionStatistics.getNumberOfDocuments());
+		resultSet = rs;
+
+		final PriorityQueue<TermSegments> queue = new PriorityQueue<TermSegments>();
+		final List<TermSegments> terms = new ArrayList<TermSegments>();
+		long requiredBitPattern = 0;
+		long requiredNegBitPattern = 0;
+		int termIndex = -1;
+		for(Map.Entry<Operator, MatchingQueryTerms.QueryTermProperties> entry : queryTerms)
+		{
+			termIndex++;
+			final Operator term = entry.getKey();
+			final MatchingQueryTerms.QueryTermProperties props = entry.getValue();
+			if (! (term instanceof SingleTermOp))
+			{
+				logger.warn("Query term " + term + " is not supported by " + getInfo() + " and will be ignored");
+				continue;
+			}
+			if (props.getTags().size() > 0 && ! props.getTags().contains(BASE_MATCHING_TAG))
+				continue;
+			final LexiconEntry le = lexicon.getLexiconEntry(((SingleTermOp)term).getTerm());
+			if (le == null)
+				continue;
+			final short mask = termIndex < 16 ? (short)(1 << termIndex) : 0;
+			if (props.getRequired() != null)
+			{
+				if (props.getRequired())
+					requiredBitPattern |= mask;
+				else
+					requiredNegBitPattern |= mask;
+			}
+			final ImpactSegments segments = impactIndex.getSegments(le.getTermId());
+			if (segments == null)
+				continue;
+			final TermSegments ts = new TermSegments(segments, props.getWeight(), mask);
+			terms.add(ts);
+			if (segments.nextSegment())
+				queue.add(ts);
+		}
+
+		postingsProcessed = 0;
+		int[] docids = null;
+		while(! queue.isEmpty())
+		{
+			if (budget > 0 && postingsProcessed >= budget)
+				break;
+			final TermSegments ts = queue.poll();
+			final double score = ts.score();
+			final int length = ts.segments.getLength();
+			docids = ts.segments.readDocids(docids);
+			for(int i=0;i<length;i++)
+			{
+				final int docid = docids[i];
+				if (! rs.scoresMap.contains(docid))
+					numberOfRetrievedDocuments++;
+				rs.scoresMap.adjustOrPutValue(docid, score, score);
+				rs.occurrencesMap.put(docid, (short)(rs.occurrencesMap.get(docid) | ts.mask));
+			}
+			postingsProcessed += length;
+			if (ts.segments.nextSegment())
+				queue.add(ts);
+		}
+		for(TermSegments ts : terms)
+			ts.segments.close();
+
+		rs.initialise();
+		applyFilter(queryTerms);
+		if (requiredBitPattern > 0 || requiredNegBitPattern > 0)
+		{
+			final short[] masks = rs.getOccurrences();
+			final double[] scores = rs.getScores();
+			for(int i=0;i<rs.getResultSize();i++)
+			{
+				if ((requiredBitPattern > 0 && (masks[i] & requiredBitPattern) != requiredBitPattern)
+					|| (requiredNegBitPattern > 0 && (masks[i] & requiredNegBitPattern) > 0))
+				{
+					scores[i] = Double.NEGATIVE_INFINITY;
+				}
+			}
+		}
+		finalise(queryTerms);
+		if (logger.isDebugEnabled())
+			logger.debug("Time to match "+numberOfRetrievedDocuments+" results from " + postingsProcessed
+				+ " postings: " + (System.currentTimeMillis() - starttime) + "ms");
+		return resultSet;
+	}
+}
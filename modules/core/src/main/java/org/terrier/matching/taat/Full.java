@@ -40,7 +40,8 @@ import org.terrier.structures.postings.IterablePosting;
 
 /** An exhaustive TAAT approach for matching documents to a query.
  * This Matching strategy uses the PostingListManager for opening
- * and scoring postings.
+ * and scoring postings. The documents that do not pass the filter controls of a 
+ * {@link org.terrier.structures.FilterIndex} are removed once all postings are scored.
  * @author Nicola Tonellotto, Craig Macdonald
  * @since 3.0
  * @see org.terrier.matching.PostingListManager
@@ -101,6 +102,7 @@ public class Full extends BaseMatching
 		resultSet.initialise();
 		plm.close();
 		this.numberOfRetrievedDocuments = resultSet.getExactResultSize();
+		applyFilter(queryTerms);
 		final long requiredBitPattern = plm.getRequiredBitMask();
 		final long requiredNegBitPattern = plm.getNegRequiredBitMask();
 		if (requiredBitPattern > 0 || requiredNegBitPattern > 0)
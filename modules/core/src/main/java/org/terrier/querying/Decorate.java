@@ -27,24 +27,32 @@
  */
 package org.terrier.querying;
 
+import gnu.trove.TIntArrayList;
 import gnu.trove.TObjectIntHashMap;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.matching.ResultSet;
 import org.terrier.querying.summarisation.Summariser;
+import org.terrier.querying.summarisation.TokenSummariser;
 import org.terrier.structures.Index;
 import org.terrier.structures.IndexFactory;
 import org.terrier.structures.MetaIndex;
 import org.terrier.structures.collections.LRUMap;
+import org.terrier.structures.collections.StripedLRUMap;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.ArrayUtils;
 import org.terrier.utility.StringTools;
@@ -53,10 +61,18 @@ import org.terrier.utility.StringTools.ESCAPE;
 /** This class decorates a result set with metadata. This metadata can be highlighted, 
  * can have a query biased summary created, and
  * also be escaped for display in another format.
+ * <p>Only the metadata keys that are needed are obtained from the {@link MetaIndex}, and these are cached
+ * in a bounded cache that is shared by all Decorate instances using the same MetaIndex, such that
+ * concurrent queries do not contend on a single lock.
  * <b>Controls:</b>
  * <ul>
+ * <li><tt>decorateKeys</tt> - comma or semicolon delimited list of the key names that should be
+ * decorated at the postfilter stage. Defaults to all keys of the MetaIndex. Keys named in 
+ * <tt>summaries</tt> or <tt>emphasis</tt> are always decorated.</li>
  * <li><tt>summaries</tt> - comma or semicolon delimited list of the key names for 
- * which a query biased summary should be created. e.g. <tt>summaries:snippet</tt></li>
+ * which a query biased summary should be created. e.g. <tt>summaries:snippet</tt>. If property
+ * <tt>decorate.summaries.tokens</tt> is set and the index has a "tokens" structure, the summaries are instead created
+ * by a {@link TokenSummariser} from the stored tokens of each document, and the summary keys need not be in the MetaIndex.</li>
  * <li><tt>emphasis</tt> - comma or semicolon delimited list of they key names that
  *  should have boldened for occurrences of the query terms. 
  *  e.g. <tt>emphasis:title;snippet</tt></li>
@@ -71,6 +87,12 @@ import org.terrier.utility.StringTools.ESCAPE;
  * <ul>
  * <li><tt>decorate.escape</tt> - default escape type for metadata. Default is HTML. 
  * Possible escape types include XML, JAVASCRIPT, and URL. See utility.StringTools.ESCAPE
+ * <li><tt>decorate.metacache.size</tt> - maximum number of documents whose metadata is cached for each MetaIndex. Default is 10000.
+ * An index structure named <tt>metacache</tt> of type {@link StripedLRUMap} or {@link LRUMap} is used instead, if present.
+ * An {@link LRUMap} is used as a single stripe, such that all lookups contend on one lock.</li>
+ * <li><tt>decorate.summaries.tokens</tt> - set to true to create summaries from the "tokens" structure of the index,
+ * if present, rather than from the text in the MetaIndex. These summaries show the indexed forms of the terms, e.g. stemmed and
+ * without stopwords, and the indexed forms of the query terms are also emphasised. Default is false.</li>
  * </ul>
  * 
  * @author Craig Macdonald, Vassilis Plachouras, Ben He
@@ -86,8 +108,21 @@ public class Decorate implements Process, PostFilter {
 		
 	/** The cache used for the meta data. Implements a 
 	 * Least-Recently-Used policy for retaining the most 
-	 * recently accessed metadata. */ 
-	protected LRUMap<Integer,String[]> metaCache = null;
+	 * recently accessed metadata. Each entry has one value per key
+	 * of the MetaIndex, which is null if that key has not yet been obtained.
+	 * Entries are replaced rather than modified once cached. */ 
+	protected StripedLRUMap<Integer,String[]> metaCache = null;
+	
+	/** the caches shared by all Decorate instances, for each MetaIndex */
+	protected static final Map<MetaIndex,StripedLRUMap<Integer,String[]>> SHARED_CACHES = 
+		Collections.synchronizedMap(new WeakHashMap<MetaIndex,StripedLRUMap<Integer,String[]>>());
+	
+	/** the token summarisers shared by all Decorate instances, for each Index */
+	protected static final Map<Index,TokenSummariser> SHARED_SUMMARISERS = 
+		Collections.synchronizedMap(new WeakHashMap<Index,TokenSummariser>());
+	
+	/** maximum size of each shared cache */
+	protected static final int METACACHE_SIZE = Integer.parseInt(ApplicationSetup.getProperty("decorate.metacache.size", "10000"));
 	
 	/** The meta index server. It is provided by the manager. */
 	protected MetaIndex metaIndex = null;
@@ -112,7 +147,7 @@ public class Decorate implements Process, PostFilter {
 	/** query terms of the current query */
 	protected String[] qTerms;
 	
-	//the metadata keys
+	//the offset of each key of the MetaIndex
 	protected TObjectIntHashMap<String> keys = new TObjectIntHashMap<String>();
 	//the keys which should be summarised
 	protected Set<String> summaryKeys = new HashSet<String>();
@@ -124,6 +159,11 @@ public class Decorate implements Process, PostFilter {
 	protected Set<String> earlyKeys = new HashSet<String>();
 	
 	protected Summariser summariser;
+	//creates summaries from the stored tokens of documents, if the index has them
+	protected TokenSummariser tokenSummariser;
+	//keys which should be summarised by the tokenSummariser
+	protected String[] tokenSummaryKeys = new String[0];
+	//keys which should be decorated at the postfilter stage
 	protected String[] metaKeys;
 	
 	/** 
@@ -163,9 +203,40 @@ public class Decorate implements Process, PostFilter {
 		}
 		
 		if (index.hasIndexStructure("metacache"))
-			metaCache = (LRUMap<Integer,String[]>) index.getIndexStructure("metacache");
+		{
+			Object cache = index.getIndexStructure("metacache");
+			metaCache = cache instanceof LRUMap
+				? new StripedLRUMap<Integer,String[]>((LRUMap<Integer,String[]>) cache)
+				: (StripedLRUMap<Integer,String[]>) cache;
+		}
 		else
-			metaCache = new LRUMap<Integer,String[]>(1000);
+			metaCache = SHARED_CACHES.computeIfAbsent(metaIndex, mi -> new StripedLRUMap<Integer,String[]>(METACACHE_SIZE));
+		
+		Set<String> decorateKeys = new LinkedHashSet<String>();
+		String decorateKeysControl = q.getControl("decorateKeys");
+		if (decorateKeysControl.length() == 0)
+		{
+			Collections.addAll(decorateKeys, metaIndex.getKeys());
+		} else {
+			Collections.addAll(decorateKeys, ArrayUtils.parseDelimitedString(decorateKeysControl, CONTROL_VALUE_DELIMS));
+			decorateKeys.addAll(summaryKeys);
+			decorateKeys.addAll(emphasisKeys);
+		}
+		if (summaryKeys.size() > 0 && Boolean.parseBoolean(ApplicationSetup.getProperty("decorate.summaries.tokens", "false")))
+		{
+			if (TokenSummariser.canSummarise(index))
+			{
+				tokenSummariser = SHARED_SUMMARISERS.computeIfAbsent(index, TokenSummariser::new);
+				tokenSummaryKeys = summaryKeys.toArray(new String[summaryKeys.size()]);
+				//summaries do not need the text of documents
+				decorateKeys.removeAll(summaryKeys);
+			}
+			else
+			{
+				logger.warn("decorate.summaries.tokens is set, but the index cannot be summarised from its tokens, using the MetaIndex instead");
+			}
+		}
+		metaKeys = knownKeys(decorateKeys);
 
 		//preparing the query terms for highlighting
 		String original_q = q.getOriginalQuery();
@@ -173,14 +244,28 @@ public class Decorate implements Process, PostFilter {
 		{
 			return;
 		}
-		highlight = generateEmphasisPattern(original_q.trim().toLowerCase().split("\\s+"));
+		String[] emphasisTerms = original_q.trim().toLowerCase().split("\\s+");
 		summariser = Summariser.getSummariser();
-		metaKeys = keys.keys(new String[keys.size()]);
 		
 		qTerms = cleanQuery.matcher(q.getOriginalQuery()).replaceAll(" ").toLowerCase().split(" ");
 		for(int p = 0; p < qTerms.length; p++)
 			if(qTerms[p].contains(":"))
 				qTerms[p] = qTerms[p].substring(qTerms[p].indexOf(':')+1);
+		//token summaries show the indexed forms of the terms, which are also emphasised
+		if (tokenSummariser != null)
+			emphasisTerms = Stream.concat(Arrays.stream(emphasisTerms), Arrays.stream(tokenSummariser.getIndexedTerms(qTerms))).toArray(String[]::new);
+		highlight = generateEmphasisPattern(emphasisTerms);
+	}
+	
+	/** returns those of the specified keys that are in the MetaIndex */
+	protected String[] knownKeys(Set<String> requested)
+	{
+		return requested.stream().filter(k -> {
+			if (keys.containsKey(k))
+				return true;
+			logger.warn("Cannot decorate with key " + k + " that is not in the MetaIndex");
+			return false;
+		}).toArray(String[]::new);
 	}
 	
 	/** 
@@ -190,6 +275,8 @@ public class Decorate implements Process, PostFilter {
 	public byte filter(Manager m, SearchRequest q, ResultSet rs, int rank, int docid)
 	{		
 		String[] metadata = getMetadata(metaKeys, docid);
+		if (metadata == null)
+			return FILTER_OK;
 		int keyID = 0;
 		for(String key : metaKeys)
 		{
@@ -200,28 +287,44 @@ public class Decorate implements Process, PostFilter {
 			{
 				value =  summariser.generateSummary(value, qTerms);
 			}
-			//do some cleaning of the snippet
-			controlNonVisibleCharactersMatcher.reset(value);
-			value = controlNonVisibleCharactersMatcher.replaceAll("");
-			//is escaping needed?
-			StringTools.ESCAPE e = escapeKeys.get(key);
-			if (e != null)
-			{
-				value = StringTools.escape(e, value);
-			}
-			//add to the result set
-			rs.addMetaItem(key, rank, value);
-			
-			//should it be highlighted?
-			if (emphasisKeys.contains(key))
-			{
-				String value_highlight = highlight.matcher(value).replaceAll("$1<b>$2</b>$3");
-				rs.addMetaItem(key+ "_emph", rank, value_highlight);
-			}
+			addMetaItem(rs, rank, key, value);
 			keyID++;
 		}
+		for(String key : tokenSummaryKeys)
+		{
+			String value = "";
+			try{
+				value = tokenSummariser.generateSummary(docid, qTerms == null ? new String[0] : qTerms);
+			} catch (IOException ioe) {
+				logger.warn("Problem summarising docid " + docid, ioe);
+			}
+			addMetaItem(rs, rank, key, value);
+		}
 		return FILTER_OK;
 	}
+	
+	/** cleans, escapes and emphasises the specified value, then adds it to the result set */
+	protected void addMetaItem(ResultSet rs, int rank, String key, String value)
+	{
+		//do some cleaning of the snippet
+		controlNonVisibleCharactersMatcher.reset(value);
+		value = controlNonVisibleCharactersMatcher.replaceAll("");
+		//is escaping needed?
+		StringTools.ESCAPE e = escapeKeys.get(key);
+		if (e != null)
+		{
+			value = StringTools.escape(e, value);
+		}
+		//add to the result set
+		rs.addMetaItem(key, rank, value);
+		
+		//should it be highlighted?
+		if (emphasisKeys.contains(key))
+		{
+			String value_highlight = highlight.matcher(value).replaceAll("$1<b>$2</b>$3");
+			rs.addMetaItem(key+ "_emph", rank, value_highlight);
+		}
+	}
 
 	/** decoration at the postprocess stage. only decorate if required for future postfilter or postprocesses.
 	  * @param manager The manager instance handling this search session.
@@ -242,56 +345,84 @@ public class Decorate implements Process, PostFilter {
 		int resultsetsize = docids.length;
 		logger.info("Early decorating resultset with metadata for " + resultsetsize + " documents");
 		
-		String[] earlykeys = earlyKeys.toArray(new String[earlyKeys.size()]);
-		String[] allKeys = metaIndex.getKeys();
-		String[][] metadata = getMetadata(allKeys, docids);
-		int keyId = 0;
-		for(String k : allKeys)
-		{
-			keys.put(k, keyId++);
-		}
-		for(String k : earlykeys)
+		String[] earlykeys = knownKeys(earlyKeys);
+		String[][] metadata = getMetadata(earlykeys, docids);
+		if (metadata == null)
+			return;
+		for(int k=0;k<earlykeys.length;k++)
 		{
 			for (int i = 0; i<docids.length; i++) {
-				rs.addMetaItem(k, i, metadata[i][keys.get(k)]);
+				rs.addMetaItem(earlykeys[k], i, metadata[i][k]);
 			}
 		}
 	}
 	
+	/** Returns the values of the specified keys for one document, using the cache where possible.
+	 * @return values in the order of the keys, or null if the metadata could not be obtained */
 	protected String[] getMetadata(String[] metaKeys, int docid)
 	{
-		String[] metadata = null;
-		synchronized(metaCache) {
-			try {
-				Integer docidObject = Integer.valueOf(docid);
-				if (metaCache.containsKey(docidObject))
-						metadata = metaCache.get(docidObject);
-				else {
-					metadata = metaIndex.getItems(metaKeys, docid);
-					metaCache.put(docidObject,metadata);
-				}
-			} catch(IOException ioe) {
-				logger.error("Problem getting metadata for docid " + docid);
-			} 
-		}
-		return metadata;
+		String[][] metadata = getMetadata(metaKeys, new int[]{docid});
+		return metadata == null ? null : metadata[0];
 	}
 	
+	/** Returns the values of the specified keys for the specified documents. Only the keys that
+	 * are not already cached for a document are obtained from the MetaIndex, in a single batch.
+	 * @return values for each document in the order of the keys, or null if the metadata could not be obtained */
 	protected String[][] getMetadata(String[] metaKeys, int[] docids)
 	{
-		String[][] metadata = null;
-		try{
-			metadata = metaIndex.getItems(metaKeys, docids);
-			synchronized (metaCache) {
-				for(int i=0;i<docids.length;i++)
-				{
-					metaCache.put(Integer.valueOf(docids[i]), metadata[i]);
-				}
+		final int[] offsets = new int[metaKeys.length];
+		for(int k=0;k<metaKeys.length;k++)
+			offsets[k] = keys.get(metaKeys[k]);
+		
+		final String[][] entries = new String[docids.length][];
+		final TIntArrayList missing = new TIntArrayList();
+		for(int i=0;i<docids.length;i++)
+		{
+			entries[i] = metaCache.get(docids[i]);
+			if (! isCached(entries[i], offsets))
+				missing.add(i);
+		}
+		QueryMetrics.increment("decorate.metacache.hits", docids.length - missing.size());
+		QueryMetrics.increment("decorate.metacache.misses", missing.size());
+		if (missing.size() > 0)
+		{
+			final int[] missingDocids = new int[missing.size()];
+			for(int j=0;j<missingDocids.length;j++)
+				missingDocids[j] = docids[missing.get(j)];
+			final String[][] fetched;
+			try{
+				fetched = metaIndex.getItems(metaKeys, missingDocids);
+			} catch (IOException ioe) {
+				logger.error("Problem getting metadata for " + missingDocids.length + " documents", ioe);
+				return null;
+			}
+			for(int j=0;j<missingDocids.length;j++)
+			{
+				final int i = missing.get(j);
+				final String[] entry = entries[i] == null 
+					? new String[keys.size()] 
+					: entries[i].clone();
+				for(int k=0;k<offsets.length;k++)
+					entry[offsets[k]] = fetched[j][k];
+				metaCache.put(docids[i], entry);
+				entries[i] = entry;
 			}
-		} catch (IOException ioe) {
-			logger.error("Problem getting metadata for " + docids.length + " documents");
 		}
-		return metadata;
+		final String[][] rtr = new String[docids.length][metaKeys.length];
+		for(int i=0;i<docids.length;i++)
+			for(int k=0;k<offsets.length;k++)
+				rtr[i][k] = entries[i][offsets[k]];
+		return rtr;
+	}
+	
+	static boolean isCached(String[] entry, int[] offsets)
+	{
+		if (entry == null)
+			return false;
+		for(int offset : offsets)
+			if (entry[offset] == null)
+				return false;
+		return true;
 	}
 	
 	/** Creates a regular expression pattern to highlight query terms metadata.
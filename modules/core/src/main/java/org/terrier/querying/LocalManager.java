@@ -801,10 +801,24 @@ public class LocalManager implements Manager
 	}
 	
 	
+	/** {@inheritDoc}. The time spent in each process is recorded by {@link QueryMetrics}. */
 	public void runSearchRequest(SearchRequest srq)
+	{
+		final Request rq = (Request)srq;
+		final long start = System.nanoTime();
+		final Map<String,Long> previousMetrics = QueryMetrics.begin(rq);
+		try{
+			runProcesses(rq);
+		} finally {
+			QueryMetrics.recordTime("query", System.nanoTime() - start);
+			QueryMetrics.end(previousMetrics);
+		}
+	}
+	
+	/** Runs the processes that are active for the specified request, in order */
+	protected void runProcesses(Request rq)
 	{	
-		Request rq = (Request)srq;		
-		logger.info("Starting to execute query " + srq.getQueryID());
+		logger.info("Starting to execute query " + rq.getQueryID());
 		boolean mqtObtained = rq.getMatchingQueryTerms() != null;
 		boolean hasRawQuery = rq.getOriginalQuery() != null;
 		boolean hasTerrierQLquery = rq.getQuery() != null;
@@ -838,7 +852,9 @@ public class LocalManager implements Manager
 			
 			
 			logger.info("running process " + p.getInfo());
+			final long processStart = System.nanoTime();
 			p.process(this, rq);
+			QueryMetrics.recordTime("process." + p.getClass().getSimpleName(), System.nanoTime() - processStart);
 			hasTerrierQLquery = rq.getQuery() != null;
 			mqtObtained = rq.getMatchingQueryTerms() != null;
 			hasRawQuery = rq.getOriginalQuery() != null;
@@ -860,7 +876,7 @@ public class LocalManager implements Manager
 		} else {
 			logger.warn("After running " + ran + " processes, no ResultSet was obtained. Controls were: " + rq.getControls().toString());
 		}
-		logger.info("Finished executing query " + srq.getQueryID() + msg);
+		logger.info("Finished executing query " + rq.getQueryID() + msg);
 	 }
 	
 	/*-------------------------------- helper methods -----------------------------------*/
@@ -0,0 +1,184 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is QueryMetrics.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.querying;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.LatencyHistogram;
+
+/** An in-process registry of metrics about the processing of queries, for finding regressions
+ * and the causes of tail latencies. Two kinds of metric are recorded:
+ * <ul>
+ * <li>for all requests in this JVM: counters, and {@link LatencyHistogram}s of durations. These can be exported
+ * using {@link #write(PrintWriter)} in the Prometheus text format, e.g. by the <tt>/metrics</tt> endpoint of the REST server.</li>
+ * <li>for each request: the values recorded while the request is run by {@link LocalManager#runSearchRequest(SearchRequest)}.
+ * These are available as a map in the context object named {@value #CONTEXT_METRICS} of the request.</li>
+ * </ul>
+ * The metrics recorded by Terrier include:
+ * <ul>
+ * <li><tt>process.<i>name</i></tt> - nanoseconds spent in each {@link Process} of the query pipeline, and <tt>query</tt> for the whole request;</li>
+ * <li><tt>matching.documents</tt> and <tt>matching.postings</tt> - documents and postings scored by DAAT matching, as well as
+ * <tt>matching.postings.<i>term</i></tt> for each query term (for each request only);</li>
+ * <li><tt>decorate.metacache.hits</tt> and <tt>decorate.metacache.misses</tt> - lookups of the metadata cache of {@link Decorate}.</li>
+ * </ul>
+ * Recording uses {@link LongAdder}s and lock-free histograms, and can be disabled by setting
+ * property <tt>querying.metrics</tt> to false.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class QueryMetrics {
+
+	/** name of the context object of a request holding its metrics */
+	public static final String CONTEXT_METRICS = "metrics";
+
+	/** are metrics recorded? Set by property <tt>querying.metrics</tt>, defaults to true. */
+	public static boolean ENABLED = Boolean.parseBoolean(ApplicationSetup.getProperty("querying.metrics", "true"));
+
+	static final double[] QUANTILES = {0.5d, 0.9d, 0.99d, 0.999d};
+
+	static final Map<String,LongAdder> COUNTERS = new ConcurrentHashMap<>();
+	static final Map<String,LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+	/** the metrics of the request being run by the current thread, if any */
+	static final ThreadLocal<Map<String,Long>> CURRENT = new ThreadLocal<>();
+
+	/** Starts recording the metrics of the specified request in the current thread.
+	 * @return the metrics of any request that was previously being recorded, to be passed to {@link #end(Map)}
+	 */
+	public static Map<String,Long> begin(Request rq)
+	{
+		final Map<String,Long> previous = CURRENT.get();
+		if (! ENABLED)
+			return previous;
+		final Map<String,Long> metrics = new LinkedHashMap<>();
+		rq.setContextObject(CONTEXT_METRICS, metrics);
+		CURRENT.set(metrics);
+		return previous;
+	}
+
+	/** Stops recording the metrics of the current request, resuming any previous request */
+	public static void end(Map<String,Long> previous)
+	{
+		if (previous == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(previous);
+	}
+
+	/** Returns the metrics recorded for the specified request, or null if none were recorded */
+	@SuppressWarnings("unchecked")
+	public static Map<String,Long> getMetrics(SearchRequest srq)
+	{
+		return (Map<String,Long>) ((Request)srq).getContextObject(CONTEXT_METRICS);
+	}
+
+	/** Adds delta to the named counter, and to the metrics of the current request */
+	public static void increment(String name, long delta)
+	{
+		if (! ENABLED)
+			return;
+		COUNTERS.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+		incrementRequest(name, delta);
+	}
+
+	/** Adds delta to the named metric of the current request only. This is suitable for metrics with
+	 * many possible names, such as those of each query term. */
+	public static void incrementRequest(String name, long delta)
+	{
+		final Map<String,Long> metrics = CURRENT.get();
+		if (metrics != null)
+			metrics.merge(name, delta, Long::sum);
+	}
+
+	/** Records a duration in the named histogram, and adds it to the metrics of the current request */
+	public static void recordTime(String name, long nanos)
+	{
+		if (! ENABLED)
+			return;
+		HISTOGRAMS.computeIfAbsent(name, k -> new LatencyHistogram()).record(nanos);
+		incrementRequest(name, nanos);
+	}
+
+	/** Returns the value of the named counter */
+	public static long getCounter(String name)
+	{
+		final LongAdder counter = COUNTERS.get(name);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/** Returns the named histogram, or null if no durations have been recorded */
+	public static LatencyHistogram getHistogram(String name)
+	{
+		return HISTOGRAMS.get(name);
+	}
+
+	/** Forgets all counters and histograms */
+	public static void reset()
+	{
+		COUNTERS.clear();
+		HISTOGRAMS.clear();
+	}
+
+	/** converts a metric name to a Prometheus metric name */
+	static String exportName(String name)
+	{
+		return "terrier_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
+	}
+
+	/** Writes all counters and histograms in the Prometheus text exposition format.
+	 * Histograms are written as summaries in seconds. */
+	public static void write(PrintWriter pw)
+	{
+		for(Map.Entry<String,LongAdder> kv : new TreeMap<>(COUNTERS).entrySet())
+		{
+			final String name = exportName(kv.getKey()) + "_total";
+			pw.println("# TYPE " + name + " counter");
+			pw.println(name + " " + kv.getValue().sum());
+		}
+		for(Map.Entry<String,LatencyHistogram> kv : new TreeMap<>(HISTOGRAMS).entrySet())
+		{
+			final String name = exportName(kv.getKey()) + "_seconds";
+			final LatencyHistogram h = kv.getValue();
+			pw.println("# TYPE " + name + " summary");
+			for(double q : QUANTILES)
+				pw.println(name + "{quantile=\"" + q + "\"} " + seconds(h.getValueAtPercentile(q * 100d)));
+			pw.println(name + "_sum " + seconds(h.getSum()));
+			pw.println(name + "_count " + h.getCount());
+		}
+		pw.flush();
+	}
+
+	static double seconds(long nanos)
+	{
+		return (double) nanos / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+}
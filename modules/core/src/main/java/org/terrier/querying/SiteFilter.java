@@ -28,25 +28,35 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 import org.terrier.matching.ResultSet;
+import org.terrier.structures.FilterIndex;
 /** Filter that removes hosts which dont match an appropriate site: constraint, as specified in a control.
  * E.g. site:uk will remove any documents which do not have a hostname ending in uk
  * Assumes that the metadata set has already been decorated with the url.
+ * If the constraint was applied during matching using a {@link FilterIndex}, all documents are kept.
+ * NB: the two differ for constraints that are not whole labels of the hostname: this filter keeps any
+ * hostname ending in the constraint, e.g. site:la.ac.uk keeps www.gla.ac.uk, while a FilterIndex only
+ * matches whole dot-delimited labels, so site:la.ac.uk keeps www.la.ac.uk but not www.gla.ac.uk.
  * @author Craig Macdonald
  * @since 3.0
  */
 public class SiteFilter implements PostFilter
 {
 	protected String site = "";
+	protected boolean applied = false;
 	
 	/** {@inheritDoc} */
 	public void new_query(Manager m, SearchRequest srq, ResultSet rs)
 	{
 		site = srq.getControl("site").toLowerCase();
+		applied = srq instanceof Request && ((Request)srq).getContextObject(FilterIndex.CONTEXT_SITE_APPLIED) != null;
 	}
 	
 	/** {@inheritDoc} */
 	public byte filter(Manager m, SearchRequest srq, ResultSet rs, int rank, int docid)
 	{
+		//the constraint was already applied during matching
+		if (applied)
+			return FILTER_OK;
 		try{
 			URL url = new URL("http://" + rs.getMetaItem("url", docid));
 			if(!url.getHost().toLowerCase().endsWith(site))
@@ -0,0 +1,219 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org 
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original is in 'TokenSummariser.java'
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk>
+ */
+package org.terrier.querying.summarisation;
+
+import gnu.trove.TIntIntHashMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.terrier.structures.DocumentTokensIndex;
+import org.terrier.structures.DocumentTokensIndex.DocumentTokens;
+import org.terrier.structures.Index;
+import org.terrier.structures.Lexicon;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.terms.BaseTermPipelineAccessor;
+import org.terrier.utility.ApplicationSetup;
+
+/** Creates query biased summaries from the stored termids of each document (the "tokens" structure, 
+ * see {@link DocumentTokensIndex}), rather than from document text stored in the meta index. 
+ * The summary is the window of consecutive tokens containing the most distinct query terms, 
+ * then the most query term occurrences. If the sentences of the document are known, each window is 
+ * the start of a sentence; otherwise windows are positioned shortly before each query term occurrence.
+ * The summary consists of the indexed forms of the terms (i.e. after the term pipeline has been applied),
+ * so words may be stemmed and stopwords are omitted; {@link #getIndexedTerms(String[])} gives the corresponding
+ * forms of the query terms, e.g. for emphasis. {@link org.terrier.querying.Decorate} only uses this summariser
+ * if property <tt>decorate.summaries.tokens</tt> is set.
+ * An instance may be shared by concurrent queries on the same index.
+ * <p><b>Properties:</b>
+ * <ul>
+ * <li><tt>summariser.tokens.window</tt> - maximum number of tokens in a summary. Default is 30.</li>
+ * </ul>
+ * @since 5.3
+ * @author Craig Macdonald
+ */
+public class TokenSummariser {
+
+	/** maximum number of tokens in a summary */
+	protected static final int WINDOW = Integer.parseInt(ApplicationSetup.getProperty("summariser.tokens.window", "30"));
+
+	protected final DocumentTokensIndex tokens;
+	protected final Lexicon<String> lexicon;
+	protected final BaseTermPipelineAccessor pipeline;
+
+	/** Make a summariser using the "tokens" structure of the specified index */
+	public TokenSummariser(Index index)
+	{
+		tokens = (DocumentTokensIndex) index.getIndexStructure("tokens");
+		lexicon = index.getLexicon();
+		pipeline = new BaseTermPipelineAccessor(
+			index.getIndexProperty("termpipelines", ApplicationSetup.getProperty("termpipelines", "Stopwords,PorterStemmer")).split("\\s*,\\s*"));
+	}
+
+	/** Returns true if the specified index has the structures needed by this summariser. As well as
+	 * the "tokens" structure, the lexicon must support lookups by termid. */
+	public static boolean canSummarise(Index index)
+	{
+		return index.hasIndexStructure("tokens")
+			&& ! "disabled".equals(index.getIndexProperty("index.lexicon.termids", "aligned"));
+	}
+
+	/** Returns the forms of the specified query terms after applying the term pipeline, as they appear in
+	 * summaries. Terms removed by the pipeline, such as stopwords, are omitted. */
+	public String[] getIndexedTerms(String[] queryTerms)
+	{
+		final List<String> rtr = new ArrayList<String>(queryTerms.length);
+		for(String t : queryTerms)
+		{
+			if (t == null)
+				continue;
+			final String term;
+			//the term pipeline is not thread-safe
+			synchronized (pipeline) {
+				term = pipeline.pipelineTerm(t);
+			}
+			if (term != null)
+				rtr.add(term);
+		}
+		return rtr.toArray(new String[rtr.size()]);
+	}
+
+	/** Returns the offset of each query term's termid, after applying the term pipeline */
+	protected TIntIntHashMap getTermids(String[] queryTerms)
+	{
+		final TIntIntHashMap termids = new TIntIntHashMap();
+		for(String term : getIndexedTerms(queryTerms))
+		{
+			final LexiconEntry le = lexicon.getLexiconEntry(term);
+			if (le != null && ! termids.containsKey(le.getTermId()))
+				termids.put(le.getTermId(), termids.size());
+		}
+		return termids;
+	}
+
+	/** Returns the query biased summary of the specified document.
+	 * @param docid the document to summarise
+	 * @param queryTerms the terms of the query, before applying the term pipeline
+	 * @return Query biased summary.
+	 */
+	public String generateSummary(int docid, String[] queryTerms) throws IOException
+	{
+		final DocumentTokens doc = tokens.getDocument(docid);
+		final int[] termids = doc.termids;
+		final int[] sentences = doc.sentences;
+		final int n = termids.length;
+		if (n == 0)
+			return "";
+		final TIntIntHashMap qids = getTermids(queryTerms);
+		final boolean[] seen = new boolean[qids.size()];
+		
+		int bestStart = 0;
+		int bestEnd = Math.min(n, WINDOW);
+		long bestScore = -1;
+		if (sentences.length > 0)
+		{
+			for(int k=0;k<=sentences.length;k++)
+			{
+				final int start = k == 0 ? 0 : sentences[k-1];
+				final int end = Math.min(k == sentences.length ? n : sentences[k], start + WINDOW);
+				final long score = score(termids, start, end, qids, seen);
+				if (score > bestScore)
+				{
+					bestScore = score;
+					bestStart = start;
+					bestEnd = end;
+				}
+			}
+		}
+		else if (qids.size() > 0)
+		{
+			int lastStart = -1;
+			for(int p=0;p<n;p++)
+			{
+				if (! qids.containsKey(termids[p]))
+					continue;
+				final int start = Math.max(0, Math.min(p - WINDOW/4, n - WINDOW));
+				if (start == lastStart)
+					continue;
+				lastStart = start;
+				final int end = Math.min(n, start + WINDOW);
+				final long score = score(termids, start, end, qids, seen);
+				if (score > bestScore)
+				{
+					bestScore = score;
+					bestStart = start;
+					bestEnd = end;
+				}
+			}
+		}
+		return render(termids, bestStart, bestEnd, sentences.length == 0 && bestStart > 0);
+	}
+
+	/** scores the window [start,end) by the number of distinct query terms, then by the number of query term occurrences */
+	static long score(int[] termids, int start, int end, TIntIntHashMap qids, boolean[] seen)
+	{
+		if (seen.length == 0)
+			return 0;
+		Arrays.fill(seen, false);
+		int distinct = 0;
+		int total = 0;
+		for(int p=start;p<end;p++)
+		{
+			if (! qids.containsKey(termids[p]))
+				continue;
+			total++;
+			final int q = qids.get(termids[p]);
+			if (! seen[q])
+			{
+				seen[q] = true;
+				distinct++;
+			}
+		}
+		return (long)distinct * (WINDOW + 1) + total;
+	}
+
+	protected String render(int[] termids, int start, int end, boolean truncatedStart)
+	{
+		final StringBuilder s = new StringBuilder();
+		if (truncatedStart)
+			s.append("...");
+		for(int p=start;p<end;p++)
+		{
+			final Map.Entry<String,LexiconEntry> le = lexicon.getLexiconEntry(termids[p]);
+			if (le == null)
+				continue;
+			if (s.length() > 0 && p > start)
+				s.append(' ');
+			s.append(le.getKey());
+		}
+		if (end < termids.length)
+			s.append("...");
+		return s.toString();
+	}
+}
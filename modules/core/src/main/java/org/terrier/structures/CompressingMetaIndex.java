@@ -53,6 +53,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.sorting.HeapSortInt;
 import org.terrier.structures.collections.FSOrderedMapFile;
+import org.terrier.structures.collections.FingerprintHashFile;
 import org.terrier.structures.collections.OrderedMap;
 import org.terrier.structures.seralization.FixedSizeIntWritableFactory;
 import org.terrier.structures.seralization.FixedSizeTextFactory;
@@ -61,6 +62,7 @@ import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.ArrayUtils;
 import org.terrier.utility.Files;
 import org.terrier.utility.TerrierTimer;
+import org.terrier.utility.io.PositionalRandomDataInput;
 import org.terrier.utility.io.RandomDataInput;
 import org.terrier.utility.io.RandomDataInputMemory;
 
@@ -69,9 +71,13 @@ import com.jakewharton.byteunits.BinaryByteUnit;
 /** A {@link MetaIndex} implementation that compresses contents. 
  * Values have maximum lengths, but overall value blobs are 
  * compressed using java.util.zip.Inflater.
+ * Reverse lookups use a {@link FingerprintHashFile} where one was written at indexing time 
+ * (index property <tt>index.meta.reverse.KEY.fphash</tt>), otherwise the ordered map file is binary searched.
+ * Like the forward lookups, fingerprint hash lookups ignore surrounding whitespace in values.
  * @author Craig Macdonald &amp; Vassilis Plachouras
  * @since 3.0
  */
+@ConcurrentReadable
 public class CompressingMetaIndex implements MetaIndex {
 	
 	private final static Pattern SPLIT_SPACE = Pattern.compile("\\s+");
@@ -91,6 +97,7 @@ public class CompressingMetaIndex implements MetaIndex {
 		byte[] read(long offset, int bytes) throws IOException;
 	}
 	
+	@ConcurrentReadable
 	static class RandomDataInputAccessor implements ByteAccessor
 	{
 		final RandomDataInput dataSource;
@@ -102,8 +109,7 @@ public class CompressingMetaIndex implements MetaIndex {
 		public final byte[] read(long offset, int bytes) throws IOException
 		{
 			byte[] out = new byte[bytes];
-			dataSource.seek(offset);
-			dataSource.readFully(out);
+			PositionalRandomDataInput.readFully(dataSource, offset, out, 0, bytes);
 			return out;
 		}
 		
@@ -225,13 +231,11 @@ public class CompressingMetaIndex implements MetaIndex {
 		}		
 	}
 	
+	@ConcurrentReadable
 	static class OnDiskDocid2OffsetLookup implements Docid2OffsetLookup
     {
 		private static final int SIZE_OF_LONG = Long.SIZE / 8;
 		final ByteAccessor b;
-        int lastDocid = -1;
-        long lastOffset = -1;
-        int lastLength = -1;
         
         protected final long fileLength;
         protected final int docidCount;
@@ -245,58 +249,27 @@ public class CompressingMetaIndex implements MetaIndex {
 
         public final long getOffset(final int docid) throws IOException
         {
-        	readOffset(docid);
-        	//logger.info("Offset for docid "+ docid + " is " + lastOffset);
-            return lastOffset;
+        	return readLong(b.read((long)docid * SIZE_OF_LONG, SIZE_OF_LONG), 0);
         }
 
         public final int getLength(final int docid) throws IOException
         {
-        	readOffset(docid);
-        	//logger.info("length for docid "+ docid + " is " + lastLength);
-            return lastLength;
+        	if (docid +1 == docidCount )
+        		return (int)(fileLength - getOffset(docid));
+        	final byte[] readBuffer = b.read((long)docid * SIZE_OF_LONG, SIZE_OF_LONG*2);
+        	return (int)(readLong(readBuffer, SIZE_OF_LONG) - readLong(readBuffer, 0));
         }
         
-        protected final void readOffset(int docid) throws IOException
+        static long readLong(final byte[] readBuffer, final int off)
         {
-        	if (docid == lastDocid)
-        		return;
-        	if (docid +1 == docidCount )
-        	{
-        		final byte[] readBuffer = b.read((long)docid * SIZE_OF_LONG, SIZE_OF_LONG);
-            	lastOffset = (((long)readBuffer[0] << 56) +
-                         ((long)(readBuffer[1] & 255) << 48) +
-                         ((long)(readBuffer[2] & 255) << 40) +
-                         ((long)(readBuffer[3] & 255) << 32) +
-                         ((long)(readBuffer[4] & 255) << 24) +
-                         ((readBuffer[5] & 255) << 16) +
-                         ((readBuffer[6] & 255) <<  8) +
-                         ((readBuffer[7] & 255) <<  0));
-            	lastLength = (int)(fileLength - lastOffset);
-        	}
-        	else
-        	{
-        		final byte[] readBuffer = b.read((long)docid * SIZE_OF_LONG, SIZE_OF_LONG*2);
-            	lastOffset = (((long)readBuffer[0] << 56) +
-                         ((long)(readBuffer[1] & 255) << 48) +
-                         ((long)(readBuffer[2] & 255) << 40) +
-                         ((long)(readBuffer[3] & 255) << 32) +
-                         ((long)(readBuffer[4] & 255) << 24) +
-                         ((readBuffer[5] & 255) << 16) +
-                         ((readBuffer[6] & 255) <<  8) +
-                         ((readBuffer[7] & 255) <<  0));
-            	final long tmpLong = (((long)readBuffer[8+0] << 56) +
-                        ((long)(readBuffer[8+1] & 255) << 48) +
-                        ((long)(readBuffer[8+2] & 255) << 40) +
-                        ((long)(readBuffer[8+3] & 255) << 32) +
-                        ((long)(readBuffer[8+4] & 255) << 24) +
-                        ((readBuffer[8+5] & 255) << 16) +
-                        ((readBuffer[8+6] & 255) <<  8) +
-                        ((readBuffer[8+7] & 255) <<  0));
-            	lastLength = (int)(tmpLong - lastOffset);
-        	}
-        	        	
-        	lastDocid = docid;
+        	return (((long)readBuffer[off+0] << 56) +
+                    ((long)(readBuffer[off+1] & 255) << 48) +
+                    ((long)(readBuffer[off+2] & 255) << 40) +
+                    ((long)(readBuffer[off+3] & 255) << 32) +
+                    ((long)(readBuffer[off+4] & 255) << 24) +
+                    ((readBuffer[off+5] & 255) << 16) +
+                    ((readBuffer[off+6] & 255) <<  8) +
+                    ((readBuffer[off+7] & 255) <<  0));
         }
 
         public void close() throws IOException
@@ -620,6 +593,8 @@ public class CompressingMetaIndex implements MetaIndex {
 	
 	protected final ByteAccessor dataSource;
 	protected Map<Text,IntWritable>[] forwardMetaMaps;
+	/** fingerprint hash tables for reverse lookups, if available. Entries are null where no hash table is used */
+	protected FingerprintHashFile[] forwardMetaHashes;
 	protected FixedSizeWriteableFactory<Text>[] keyFactories;
 	
 	/**
@@ -691,6 +666,10 @@ public class CompressingMetaIndex implements MetaIndex {
 		{
 			IndexUtil.close(m);
 		}
+		for (FingerprintHashFile h : forwardMetaHashes)
+		{
+			IndexUtil.close(h);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -704,6 +683,12 @@ public class CompressingMetaIndex implements MetaIndex {
 		final int forwardId = key2forwardOffset.get(key) -1;
 		if (forwardId == -1)
 			throw new NoSuchElementException("No reverse lookup for key " + key + " is supported");
+		if (forwardMetaHashes[forwardId] != null)
+		{
+			//the hash holds the trimmed values; verify the candidate docid by decoding its value
+			final String trimmedValue = value.trim();
+			return forwardMetaHashes[forwardId].get(trimmedValue, docid -> trimmedValue.equals(getItem(key, docid)));
+		}
 		final Text wKey = keyFactories[forwardId].newInstance();
 		wKey.set(value);
 		assert forwardMetaMaps[forwardId].size() > 0;
@@ -955,6 +940,7 @@ public class CompressingMetaIndex implements MetaIndex {
 		key2forwardOffset = new TObjectIntHashMap<String>(2);
 		final String[] forwardKeys = index.getIndexProperty("index."+structureName+".reverse-key-names", "").split("\\s*,\\s*");
 		forwardMetaMaps = (Map<Text,IntWritable>[])new Map[forwardKeys.length];
+		forwardMetaHashes = new FingerprintHashFile[forwardKeys.length];
 		keyFactories = (FixedSizeWriteableFactory<Text>[])new FixedSizeWriteableFactory[forwardKeys.length];
 		i=0; 
 		final FixedSizeIntWritableFactory valueFactory = new FixedSizeIntWritableFactory();
@@ -967,6 +953,15 @@ public class CompressingMetaIndex implements MetaIndex {
 			keyFactories[i] = new FixedSizeTextFactory(key2stringlength.get(keyName));
 			String filename = path+ApplicationSetup.FILE_SEPARATOR+prefix+"."+structureName+"-"+i+FSOrderedMapFile.USUAL_EXTENSION;
 			String loadFormat = index.getIndexProperty("index."+structureName+".reverse."+keyName+".in-mem", "false");
+			String hashFilename = path+ApplicationSetup.FILE_SEPARATOR+prefix+"."+structureName+"-"+i+FingerprintHashFile.USUAL_EXTENSION;
+			if (Boolean.parseBoolean(index.getIndexProperty("index."+structureName+".reverse."+keyName+".fphash", "false"))
+				&& Files.exists(hashFilename))
+			{
+				logger.info("Structure "+ structureName + " using fingerprint hash table for reverse map for key "+ keyName);
+				forwardMetaHashes[i] = new FingerprintHashFile(hashFilename);
+				loadFormat = "none";
+			}
+			
 			if (loadFormat.equals("hashmap"))
 			{
 				logger.info("Structure "+ structureName + " reading reverse map for key "+ keyName + " into memory as hashmap");
@@ -25,6 +25,16 @@
  */
 package org.terrier.structures;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/** Marks an index structure class whose read methods may be safely invoked by several threads
+ * at once, such that it need not be wrapped when an index is made concurrent for retrieval.
+ * The annotation is not inherited - each subclass must be separately marked. */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
 public @interface ConcurrentReadable {
 
 }
@@ -0,0 +1,122 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is DocumentTokensIndex.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+import org.terrier.utility.io.PositionalRandomDataInput;
+import org.terrier.utility.io.RandomDataInput;
+
+/** Stores the sequence of termids of each document, in order of position, along with the positions
+ * at which its sentences start. This allows query biased summaries to be created by
+ * {@link org.terrier.querying.summarisation.TokenSummariser} without storing the text of the documents in the
+ * {@link MetaIndex}. The "tokens" structure is written by the BlockIndexer when property <tt>block.tokens.store</tt>
+ * is set, and the positions are the same as those of blocks having a size of 1. Sentences are only known if markered
+ * blocks are used, i.e. when <tt>block.delimiters.enabled</tt> is set; otherwise each document is a single sentence.
+ * <p>
+ * Files: <tt>.bf</tt> has for each document the number of tokens and the number of sentences, the termids, then
+ * the gaps between the starts of sentences, each as a variable-length integer; <tt>.offsets</tt> has the
+ * (long) offset in the .bf file of each document, followed by the length of the .bf file.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class DocumentTokensIndex implements Closeable {
+
+	/** extension of the file containing the tokens */
+	public static final String DATA_EXTENSION = ".bf";
+	/** extension of the file containing the offset of each document */
+	public static final String OFFSETS_EXTENSION = ".offsets";
+
+	/** The tokens of one document */
+	public static class DocumentTokens
+	{
+		/** termids of the document, in order of position */
+		public final int[] termids;
+		/** positions at which the sentences after the first sentence start, ascending */
+		public final int[] sentences;
+
+		public DocumentTokens(int[] _termids, int[] _sentences)
+		{
+			termids = _termids;
+			sentences = _sentences;
+		}
+	}
+
+	protected final RandomDataInput data;
+	protected final long[] offsets;
+
+	/** Loads the tokens structure of the specified index */
+	public DocumentTokensIndex(IndexOnDisk index, String structureName) throws IOException
+	{
+		this(index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix() + "." + structureName);
+	}
+
+	/** Loads the tokens structure from the files with the specified path and prefix, e.g. /path/to/data.tokens */
+	public DocumentTokensIndex(String filenamePrefix) throws IOException
+	{
+		final long length = Files.length(filenamePrefix + OFFSETS_EXTENSION);
+		offsets = new long[(int)(length / Long.BYTES)];
+		try(DataInputStream dis = new DataInputStream(Files.openFileStream(filenamePrefix + OFFSETS_EXTENSION)))
+		{
+			for(int i=0;i<offsets.length;i++)
+				offsets[i] = dis.readLong();
+		}
+		data = Files.openFileRandom(filenamePrefix + DATA_EXTENSION);
+	}
+
+	/** Returns the number of documents in this structure */
+	public int getNumberOfDocuments()
+	{
+		return offsets.length - 1;
+	}
+
+	/** Returns the tokens of the specified document. May be called concurrently. */
+	public DocumentTokens getDocument(int docid) throws IOException
+	{
+		final byte[] bytes = new byte[(int)(offsets[docid+1] - offsets[docid])];
+		PositionalRandomDataInput.readFully(data, offsets[docid], bytes, 0, bytes.length);
+		final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+		final int[] termids = new int[WritableUtils.readVInt(dis)];
+		final int[] sentences = new int[WritableUtils.readVInt(dis)];
+		for(int i=0;i<termids.length;i++)
+			termids[i] = WritableUtils.readVInt(dis);
+		int last = 0;
+		for(int i=0;i<sentences.length;i++)
+			sentences[i] = last += WritableUtils.readVInt(dis);
+		return new DocumentTokens(termids, sentences);
+	}
+
+	@Override
+	public void close() throws IOException {
+		data.close();
+	}
+}
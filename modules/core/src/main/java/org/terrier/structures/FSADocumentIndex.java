@@ -32,16 +32,24 @@ import java.util.NoSuchElementException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terrier.structures.collections.FSArrayFile;
+import org.terrier.structures.collections.IntColumnFile;
 import org.terrier.structures.seralization.FixedSizeWriteableFactory;
 import org.terrier.utility.TerrierTimer;
 /** 
- * Document Index saved as a fixed size array
+ * Document Index saved as a fixed size array. Document lengths are held in memory, while
+ * document entries are read from disk using positional reads, such that an instance can be 
+ * shared by several retrieval threads without synchronisation.
+ * The document lengths are loaded in bulk from the <tt>.lengths.col</tt> column file written
+ * alongside the array file (see {@link IntColumnFile}) if present. For indices
+ * without a column file, they are obtained by iterating through all document entries.
  */
+@ConcurrentReadable
 public class FSADocumentIndex extends FSArrayFile<DocumentIndexEntry> implements DocumentIndex {
 	protected static final Logger logger = LoggerFactory.getLogger(FSADocumentIndex.class);
 	
-	protected int lastDocid = -1;
-	protected DocumentIndexEntry lastEntry = null;
+	/** suffix of the column file holding the document lengths */
+	public static final String LENGTHS_COLUMN = ".lengths" + IntColumnFile.USUAL_EXTENSION;
+	
 	protected int[] docLengths;
 
 	static long freeMem()
@@ -95,6 +103,12 @@ public class FSADocumentIndex extends FSArrayFile<DocumentIndexEntry> implements
 			logger.warn("Insufficient memory to load document index - use TERRIER_HEAP_MEM env var to increase available stack space");
 		}
 		docLengths = new int[numEntries];
+		final String columnFilename = getColumnFilename(index, structureName, LENGTHS_COLUMN);
+		if (IntColumnFile.size(columnFilename) == numEntries)
+		{
+			IntColumnFile.read(columnFilename, docLengths);
+			return;
+		}
 		int i=0;
 		Iterator<DocumentIndexEntry> iter = new FSADocumentIndexIterator(index, structureName);
 		TerrierTimer tt = new TerrierTimer("Loading "+structureName+ " document lengths", numEntries);tt.start();
@@ -106,6 +120,12 @@ public class FSADocumentIndex extends FSArrayFile<DocumentIndexEntry> implements
 		tt.finished();
 		IndexUtil.close(iter);
 	}
+	/** Returns the filename of the specified column file of a document index structure */
+	public static String getColumnFilename(IndexOnDisk index, String structureName, String column)
+	{
+		return index.getPath() + "/" + index.getPrefix() + "."+ structureName + column;
+	}
+	
 	/** 
 	 * {@inheritDoc} 
 	 */
@@ -118,13 +138,8 @@ public class FSADocumentIndex extends FSArrayFile<DocumentIndexEntry> implements
 	 */
 	public final DocumentIndexEntry getDocumentEntry(int docid) throws IOException 
 	{
-		if (docid == lastDocid)
-		{
-			return lastEntry;
-		}
 		try{
-			lastEntry = null;
-			return lastEntry = get(lastDocid = docid);
+			return get(docid);
 		} catch (NoSuchElementException nsee) {
 			return null;
 		}
@@ -32,10 +32,9 @@ import org.terrier.structures.collections.FSArrayFile;
 import org.terrier.structures.collections.FSArrayFileInMem;
 import org.terrier.structures.seralization.FixedSizeWriteableFactory;
 
+@ConcurrentReadable
 class FSADocumentIndexInMem extends FSArrayFileInMem<DocumentIndexEntry> implements DocumentIndex 
 {
-	protected int lastDocid = -1;
-	protected DocumentIndexEntry lastEntry = null;
 	protected int[] docLengths;
 	@SuppressWarnings("unchecked")
 	public FSADocumentIndexInMem(IndexOnDisk index, String structureName) throws IOException
@@ -57,13 +56,8 @@ class FSADocumentIndexInMem extends FSArrayFileInMem<DocumentIndexEntry> impleme
 	}
 
 	public DocumentIndexEntry getDocumentEntry(int docid) throws IOException {
-		if (docid == lastDocid)
-		{
-			return lastEntry;
-		}
 		try{
-			lastEntry = null;
-			return lastEntry = get(lastDocid = docid);
+			return get(docid);
 		} catch (NoSuchElementException nsee) {
 			return null;
 		}
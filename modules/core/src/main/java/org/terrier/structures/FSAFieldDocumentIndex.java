@@ -28,15 +28,29 @@ package org.terrier.structures;
 import java.io.IOException;
 import java.util.Iterator;
 
+import org.terrier.structures.collections.IntColumnFile;
 import org.terrier.utility.TerrierTimer;
 /** 
- * Fields document index stored as a fixed size array
+ * Fields document index stored as a fixed size array. As well as the document lengths,
+ * the lengths of each field are held in memory, in a single array of <tt>numDocs * numFields</tt>
+ * entries. These are loaded in bulk from the <tt>.fieldlengths.col</tt> column file if present.
+ * The array returned by {@link #getFieldLengths(int)} is reused by each thread, and is only valid
+ * until the next call by that thread; use {@link #getFieldLength(int, int)} to avoid the copy.
  */
+@ConcurrentReadable
 public class FSAFieldDocumentIndex
 	extends FSADocumentIndex
 	implements FieldDocumentIndex
 {
-	int[][] fieldLengths;
+	/** suffix of the column file holding the field lengths, one row per document */
+	public static final String FIELD_LENGTHS_COLUMN = ".fieldlengths" + IntColumnFile.USUAL_EXTENSION;
+	
+	/** lengths of each field, at offset docid * fieldCount + field */
+	int[] fieldLengths;
+	/** number of fields of each document */
+	int fieldCount;
+	/** row returned by getFieldLengths(), one for each thread */
+	ThreadLocal<int[]> fieldLengthsRow;
 	/**
 	 * Construct an instance of the class with
 	 * @param index
@@ -54,17 +68,32 @@ public class FSAFieldDocumentIndex
 			throws IOException 
 	{
 		logger.debug("Loading document + field lengths for " + structureName + " structure into memory. NB: The following stacktrace IS NOT AN Exception", new Exception("THIS IS **NOT** AN EXCEPTION"));
-		final long fieldCount = index.getCollectionStatistics().getNumberOfFields();
+		fieldCount = index.getCollectionStatistics().getNumberOfFields();
 		final int numEntries = this.size();
+		final long numFieldLengths = (long) numEntries * (long) fieldCount;
+		if (numFieldLengths > Integer.MAX_VALUE - 8)
+			throw new IOException("Cannot hold " + numFieldLengths + " field lengths of " + structureName + " structure in memory");
 		final long size = ( (long) numEntries * (long) Integer.BYTES)
-			+ (numEntries * (12l + ((long) Integer.BYTES * fieldCount)));
+			+ (numFieldLengths * (long) Integer.BYTES);
 		logger.info("Document index requires "+ size +" remaining stack is " + freeMem());
 		if (freeMem() < size)
 		{
 			logger.warn("Insufficient memory to load document index - use TERRIER_HEAP_MEM env var to increase available stack space");
 		}
 		docLengths = new int[numEntries];
-		fieldLengths = new int[numEntries][];
+		fieldLengths = new int[(int) numFieldLengths];
+		final int rowLength = fieldCount;
+		fieldLengthsRow = ThreadLocal.withInitial(() -> new int[rowLength]);
+		final String lengthsFilename = getColumnFilename(index, structureName, LENGTHS_COLUMN);
+		final String fieldLengthsFilename = getColumnFilename(index, structureName, FIELD_LENGTHS_COLUMN);
+		if (IntColumnFile.size(lengthsFilename) == numEntries 
+			&& IntColumnFile.size(fieldLengthsFilename) == numFieldLengths)
+		{
+			IntColumnFile.read(lengthsFilename, docLengths);
+			//the column file is written row by row, so can be read directly into the strided array
+			IntColumnFile.read(fieldLengthsFilename, fieldLengths);
+			return;
+		}
 		int i=0;
 		Iterator<DocumentIndexEntry> iter = new FSADocumentIndexIterator(index, structureName);
 		TerrierTimer tt = new TerrierTimer("Loading "+structureName+ " document + field lengths", numEntries);tt.start();
@@ -72,7 +101,7 @@ public class FSAFieldDocumentIndex
 		{
 			FieldDocumentIndexEntry fdie = (FieldDocumentIndexEntry)iter.next();
 			docLengths[i] = fdie.getDocumentLength();
-			fieldLengths[i] = fdie.getFieldLengths();
+			System.arraycopy(fdie.getFieldLengths(), 0, fieldLengths, i * fieldCount, fieldCount);
 			i++;
 			tt.increment();
 		}
@@ -80,10 +109,20 @@ public class FSAFieldDocumentIndex
 		IndexUtil.close(iter);
 	}
 	/** 
-	 * {@inheritDoc} 
+	 * {@inheritDoc} The returned array is reused by subsequent calls from the same thread.
 	 */
 	public int[] getFieldLengths(int docid) throws IOException {
-		return fieldLengths[docid];
+		final int[] row = fieldLengthsRow.get();
+		System.arraycopy(fieldLengths, docid * fieldCount, row, 0, fieldCount);
+		return row;
+	}
+	
+	/** 
+	 * {@inheritDoc} 
+	 */
+	@Override
+	public int getFieldLength(int docid, int field) throws IOException {
+		return fieldLengths[docid * fieldCount + field];
 	}
 
 }
@@ -26,17 +26,19 @@
 package org.terrier.structures;
 
 import java.io.Closeable;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteOrder;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.hadoop.io.WritableComparable;
 import org.terrier.structures.collections.FSOrderedMapFile;
+import org.terrier.structures.collections.IntColumnFile;
 import org.terrier.structures.seralization.FixedSizeWriteableFactory;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.Files;
+import org.terrier.utility.io.PositionalReadBuffer;
 import org.terrier.utility.io.RandomDataInput;
 import org.terrier.utility.io.RandomDataInputMemory;
 import org.terrier.utility.io.WrappedIOException;
@@ -51,6 +53,7 @@ public abstract class FSOMapFileLexiconGeneric<K1,K2 extends WritableComparable>
     {
         final RandomDataInput lexIdFile;
         protected static final long SIZE_OF_INT = 4;
+        final ThreadLocal<PositionalReadBuffer> buffer = ThreadLocal.withInitial(() -> new PositionalReadBuffer((int)SIZE_OF_INT));
         public OnDiskLookup(String path, String prefix, String structureName) throws IOException
         {
             lexIdFile = Files.openFileRandom(
@@ -59,8 +62,7 @@ public abstract class FSOMapFileLexiconGeneric<K1,K2 extends WritableComparable>
         
         public int getIndex(int termid) throws IOException
         {
-            lexIdFile.seek(SIZE_OF_INT * (long)termid);
-            return lexIdFile.readInt();
+            return buffer.get().read(lexIdFile, SIZE_OF_INT * (long)termid).readInt();
         }
         
         public void close() throws IOException
@@ -77,13 +79,9 @@ public abstract class FSOMapFileLexiconGeneric<K1,K2 extends WritableComparable>
         {
         	String filename = constructFilename(structureName, path, prefix, ID_EXT);
             size = (int)(Files.length(filename) / (long)4);
-        	DataInputStream lexIdFile = new DataInputStream(Files.openFileStream(filename));
             id2index = new int[size];
-            for(int i=0;i<size;i++)
-            {
-                id2index[i] = lexIdFile.readInt();
-            }
-            lexIdFile.close();
+            //the lookup file is a flat file of big-endian integers, which can be read in bulk
+            IntColumnFile.read(filename, ByteOrder.BIG_ENDIAN, id2index);
         }
         
         public int getIndex(int termid)
@@ -178,6 +176,29 @@ public abstract class FSOMapFileLexiconGeneric<K1,K2 extends WritableComparable>
 		
 	}
 	
+	/* The backing FSOrderedMapFile and term id lookups are read-only and use positional reads,
+	 * so lookups need not obtain the modification lock. */
+	
+	@Override
+	public LexiconEntry getLexiconEntry(K1 term) {
+		return lookupLexiconEntry(term);
+	}
+
+	@Override
+	public Map.Entry<K1,LexiconEntry> getIthLexiconEntry(int index) {
+		return lookupIthLexiconEntry(index);
+	}
+
+	@Override
+	public Iterator<Map.Entry<K1,LexiconEntry>> getLexiconEntryRange(K1 from, K1 to) {
+		return lookupLexiconEntryRange(from, to);
+	}
+
+	@Override
+	public Map.Entry<K1,LexiconEntry> getLexiconEntry(int termid) {
+		return lookupLexiconEntry(termid);
+	}
+	
 	/** 
 	 * Constructs a filename
 	 * @param structureName
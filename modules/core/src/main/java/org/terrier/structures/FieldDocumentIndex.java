@@ -34,4 +34,11 @@ public interface FieldDocumentIndex extends DocumentIndex {
 	 * Get the length of each field
 	 */
 	int[] getFieldLengths(int docid) throws IOException;
+	
+	/** 
+	 * Get the length of the specified field of a document
+	 */
+	default int getFieldLength(int docid, int field) throws IOException {
+		return getFieldLengths(docid)[field];
+	}
 }
@@ -0,0 +1,178 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FilterIndex.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.querying.Request;
+import org.terrier.structures.collections.DocidBitmap;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/** Maps the values of selected metadata keys to the {@link DocidBitmap} of the documents having each value.
+ * This allows filters to be applied during matching, by skipping the documents that do not pass the filter,
+ * rather than removing documents from the retrieved set afterwards using a {@link org.terrier.querying.PostFilter}.
+ * {@link org.terrier.matching.daat.Full} skips the documents that do not pass the filter, while 
+ * {@link org.terrier.matching.taat.Full} and {@link org.terrier.matching.saat.Anytime} remove them from their accumulators.
+ * The structure is written at indexing time for the meta keys named by property <tt>indexer.meta.filter.keys</tt>.
+ * At most one key can also be named in <tt>indexer.meta.filter.site.keys</tt>. It is assumed to contain URLs, and each document is
+ * recorded under every dot-delimited suffix of its (lowercased) hostname, e.g. www.gla.ac.uk, gla.ac.uk, ac.uk and uk.
+ * <p>
+ * Filters are requested using the following controls:
+ * <ul>
+ * <li><tt>filter</tt> - a semicolon delimited list of constraints, each of the form key=value1|value2. A document must
+ * have one of the values for every key. E.g. <tt>filter:genre=news|sport;lang=en</tt>.</li>
+ * <li><tt>site</tt> - the site constraint of {@link org.terrier.querying.SiteFilter}. This is applied during matching
+ * if a site key was indexed, in which case the SiteFilter is bypassed. The constraint then matches whole labels of the
+ * hostname, e.g. <tt>site:gla.ac.uk</tt> matches www.gla.ac.uk but <tt>site:la.ac.uk</tt> does not.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class FilterIndex implements Closeable {
+
+	/** name of the control that specifies filter constraints */
+	public static final String CONTROL_FILTER = "filter";
+	/** name of the control used by {@link org.terrier.querying.SiteFilter} */
+	public static final String CONTROL_SITE = "site";
+	/** name of the context object recorded on a request when its site constraint was applied during matching */
+	public static final String CONTEXT_SITE_APPLIED = "filterindex.site.applied";
+	/** usual extension of the file for each key */
+	public static final String USUAL_EXTENSION = ".bitmaps";
+
+	protected static final Logger logger = LoggerFactory.getLogger(FilterIndex.class);
+
+	protected final Map<String,Map<String,DocidBitmap>> bitmaps = new HashMap<>();
+	/** the key containing URLs, or null if none was indexed */
+	protected final String siteKey;
+
+	/** Loads the filter index structure of the specified index */
+	public FilterIndex(IndexOnDisk index, String structureName) throws IOException
+	{
+		final String[] keys = index.getIndexProperty("index."+structureName+".key-names", "").split("\\s*,\\s*");
+		final String siteKeyNames = index.getIndexProperty("index."+structureName+".site-key-names", "").trim();
+		if (siteKeyNames.contains(","))
+			throw new IOException("Structure " + structureName + " has more than one site key (" + siteKeyNames + "), but the site control can only be applied to one");
+		siteKey = siteKeyNames.length() > 0 ? siteKeyNames : null;
+		for(int i=0;i<keys.length;i++)
+		{
+			if (keys[i].length() == 0)
+				continue;
+			final String filename = index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix()
+				+ "." + structureName + "-" + i + USUAL_EXTENSION;
+			final Map<String,DocidBitmap> values = new HashMap<>();
+			try(DataInputStream dis = new DataInputStream(Files.openFileStream(filename)))
+			{
+				final int count = dis.readInt();
+				for(int j=0;j<count;j++)
+				{
+					final String value = dis.readUTF();
+					values.put(value, DocidBitmap.read(dis));
+				}
+			}
+			bitmaps.put(keys[i], values);
+			logger.debug("Structure " + structureName + " loaded " + values.size() + " values for key " + keys[i]);
+		}
+	}
+
+	/** Returns true if the specified key has been indexed */
+	public boolean hasKey(String key)
+	{
+		return bitmaps.containsKey(key);
+	}
+
+	/** Returns the documents having the specified value for the specified key */
+	public DocidBitmap getDocuments(String key, String value)
+	{
+		final Map<String,DocidBitmap> values = bitmaps.get(key);
+		if (values == null)
+			throw new IllegalArgumentException("Key " + key + " was not indexed in the filter index, add it to indexer.meta.filter.keys");
+		final DocidBitmap rtr = values.get(key.equals(siteKey) ? value.toLowerCase() : value);
+		return rtr == null ? DocidBitmap.EMPTY : rtr;
+	}
+
+	/** Returns the documents having any of the specified values for the specified key */
+	public DocidBitmap getDocuments(String key, String[] values)
+	{
+		DocidBitmap rtr = DocidBitmap.EMPTY;
+		for(String value : values)
+			rtr = rtr.or(getDocuments(key, value));
+		return rtr;
+	}
+
+	/** Returns the documents passing the filter controls of the specified request, or null if no filter
+	 * control can be applied using this structure. If the site control is applied, then the
+	 * {@link #CONTEXT_SITE_APPLIED} context object is set on the request. */
+	public DocidBitmap getFilter(Request rq)
+	{
+		DocidBitmap rtr = null;
+		final String filter = rq.getControl(CONTROL_FILTER).trim();
+		if (filter.length() > 0 && ! filter.equals("off"))
+		{
+			for(String constraint : filter.split("\\s*;\\s*"))
+			{
+				final String[] kv = constraint.split("=", 2);
+				if (kv.length != 2)
+					throw new IllegalArgumentException("Invalid filter constraint " + constraint + ", expected key=value1|value2");
+				final DocidBitmap docs = getDocuments(kv[0].trim(), kv[1].trim().split("\\s*\\|\\s*"));
+				rtr = rtr == null ? docs : rtr.and(docs);
+			}
+		}
+		final String site = rq.getControl(CONTROL_SITE).trim();
+		if (site.length() > 0 && siteKey != null && ! site.equals("off"))
+		{
+			final DocidBitmap docs = getDocuments(siteKey, site);
+			rtr = rtr == null ? docs : rtr.and(docs);
+			rq.setContextObject(CONTEXT_SITE_APPLIED, Boolean.TRUE);
+		}
+		return rtr;
+	}
+
+	/** Returns the documents passing the filter controls of the specified request, using the filter structure
+	 * of the specified index, or null if there are no filter controls. Throws an IllegalArgumentException if
+	 * the <tt>filter</tt> control is set but the index has no filter structure. As the site constraint is
+	 * then recorded as applied, this should only be called by a matching strategy that applies the returned filter.*/
+	public static DocidBitmap getFilter(Index index, Request rq)
+	{
+		if (rq == null)
+			return null;
+		if (index.hasIndexStructure("filter"))
+			return ((FilterIndex)index.getIndexStructure("filter")).getFilter(rq);
+		final String filter = rq.getControl(CONTROL_FILTER).trim();
+		if (filter.length() > 0 && ! filter.equals("off"))
+			throw new IllegalArgumentException("Control " + CONTROL_FILTER + " requires a filter structure in the index, see indexer.meta.filter.keys");
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {}
+}
@@ -0,0 +1,492 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FrontCodedLexicon.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *  Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import gnu.trove.TIntArrayList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.structures.seralization.FixedSizeWriteableFactory;
+import org.terrier.utility.Files;
+import org.terrier.utility.io.PositionalReadBuffer;
+import org.terrier.utility.io.RandomDataInput;
+import org.terrier.utility.io.RandomDataInputMemory;
+
+/** A Lexicon&lt;String&gt; where the terms are held in memory in a front-coded
+ * block dictionary, while the {@link LexiconEntry} values are held in a parallel file of
+ * fixed-size records. Terms are sorted in the same (UTF-8 byte) order as
+ * {@link FSOMapFileLexicon}, and split into blocks of <tt>blocksize</tt> terms. The first term of each block
+ * is stored in full, while each subsequent term is stored as the length of the prefix shared with the previous
+ * term, followed by the remaining suffix. A lookup is a binary search over the first terms of the
+ * blocks, followed by a sequential scan of a single block, all in memory. Only the value is read from the
+ * values file. Unlike an {@link FSOMapFileLexicon}, terms are not padded to <tt>max.term.length</tt>, so
+ * large vocabularies fit in memory. Range lookups, as used by {@link org.terrier.matching.matchops.PrefixTermOp},
+ * decode the terms sequentially. Values are read using positional reads, so lookups can be made
+ * concurrently.
+ * <p>
+ * The files of this lexicon are written by {@link #write(String, String, String, Iterator, FixedSizeWriteableFactory, int)},
+ * or from an existing FSOMapFileLexicon using {@link #convert(IndexOnDisk, String, int)}.
+ * <p><b>Index Properties</b>:
+ * <ul>
+ * <li><tt>index.STRUCTURENAME.termids</tt> - how termids are mapped to entries. Same as for {@link FSOMapFileLexicon}. 
+ * If <tt>disabled</tt>, then {@link #getLexiconEntry(int)} throws an UnsupportedOperationException.</li>
+ * <li><tt>index.STRUCTURENAME.data-source</tt> - whether the values file is read from disk (<tt>file</tt>, default), or is loaded
+ * into memory (<tt>fileinmem</tt>).</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+@ConcurrentReadable
+public class FrontCodedLexicon extends Lexicon<String>
+{
+	static final Logger logger = LoggerFactory.getLogger(FrontCodedLexicon.class);
+
+	/** extension of the file containing the front-coded terms */
+	public static final String DICT_EXT = ".fcdict";
+	/** extension of the file containing the fixed-size lexicon entries */
+	public static final String VALUES_EXT = ".fcvalues";
+	/** default number of terms in each block */
+	public static final int DEFAULT_BLOCK_SIZE = 16;
+
+	static final int VERSION = 1;
+
+	final int numberOfEntries;
+	final int blockSize;
+	final int maxTermLength;
+	final int[] blockOffsets;
+	final byte[] data;
+
+	final FixedSizeWriteableFactory<LexiconEntry> valueFactory;
+	final int valueSize;
+	final RandomDataInput values;
+	/** buffer for reading values, one per thread */
+	final ThreadLocal<PositionalReadBuffer> valueBuffer;
+	final MapLexicon.Id2EntryIndexLookup idlookup;
+
+	/** Construct a new FrontCodedLexicon */
+	@SuppressWarnings("unchecked")
+	public FrontCodedLexicon(String structureName, IndexOnDisk index) throws IOException
+	{
+		this(
+			structureName,
+			index.getPath(),
+			index.getPrefix(),
+			(FixedSizeWriteableFactory<LexiconEntry>)index.getIndexStructure(structureName+"-valuefactory"),
+			index.getIndexProperty("index."+structureName+".termids", "aligned"),
+			index.getIndexProperty("index."+structureName+".data-source", "file")
+			);
+	}
+
+	/** Construct a new FrontCodedLexicon */
+	public FrontCodedLexicon(String structureName, String path, String prefix,
+			FixedSizeWriteableFactory<LexiconEntry> _valueFactory,
+			String termIdLookup, String dataSource) throws IOException
+	{
+		final String dictFilename = FSOMapFileLexicon.constructFilename(structureName, path, prefix, DICT_EXT);
+		final DataInputStream dis = new DataInputStream(Files.openFileStream(dictFilename));
+		final int version = dis.readInt();
+		if (version != VERSION)
+		{
+			dis.close();
+			throw new IOException("Unsupported FrontCodedLexicon version " + version + " in " + dictFilename);
+		}
+		numberOfEntries = dis.readInt();
+		blockSize = dis.readInt();
+		maxTermLength = dis.readInt();
+		final int numberOfBlocks = dis.readInt();
+		final int dataLength = dis.readInt();
+		blockOffsets = new int[numberOfBlocks];
+		for(int i=0;i<numberOfBlocks;i++)
+			blockOffsets[i] = dis.readInt();
+		data = new byte[dataLength];
+		dis.readFully(data);
+		dis.close();
+
+		this.valueFactory = _valueFactory;
+		this.valueSize = valueFactory.getSize();
+		this.valueBuffer = ThreadLocal.withInitial(() -> new PositionalReadBuffer(valueSize));
+		final String valuesFilename = FSOMapFileLexicon.constructFilename(structureName, path, prefix, VALUES_EXT);
+		if (dataSource.equals("fileinmem"))
+			values = new RandomDataInputMemory(valuesFilename);
+		else if (dataSource.equals("file"))
+			values = Files.openFileRandom(valuesFilename);
+		else
+			throw new IOException("Unrecognised value ("+dataSource+") for data-source for structure "+structureName);
+
+		if ("aligned".equals(termIdLookup))
+			idlookup = new MapLexicon.IdIsIndex();
+		else if ("file".equals(termIdLookup))
+			idlookup = new FSOMapFileLexiconGeneric.OnDiskLookup(path, prefix, structureName);
+		else if ("fileinmem".equals(termIdLookup))
+			idlookup = new FSOMapFileLexiconGeneric.InMemoryLookup(path, prefix, structureName, numberOfEntries);
+		else if ("disabled".equals(termIdLookup))
+			idlookup = null;
+		else
+			throw new IOException("Unrecognised value ("+termIdLookup+") for termIdlookup for structure "+structureName);
+	}
+
+	/** Compares the key to the term bytes in buf, unsigned, as per {@link Text#compareTo(org.apache.hadoop.io.BinaryComparable)} */
+	static int compare(final byte[] key, final byte[] buf, final int offset, final int length)
+	{
+		final int l = Math.min(key.length, length);
+		for(int i=0;i<l;i++)
+		{
+			final int a = key[i] & 0xff;
+			final int b = buf[offset + i] & 0xff;
+			if (a != b)
+				return a - b;
+		}
+		return key.length - length;
+	}
+
+	/** Sequential decoder of the terms in the dictionary, starting from the start of a block.
+	 * Not threadsafe, a new one is used for each lookup. */
+	final class TermDecoder
+	{
+		final byte[] term = new byte[maxTermLength];
+		int termLength;
+		int pos;
+		int index;
+
+		TermDecoder(int block)
+		{
+			seekBlock(block);
+		}
+
+		void seekBlock(int block)
+		{
+			pos = blockOffsets[block];
+			index = block * blockSize -1;
+		}
+
+		int readVInt()
+		{
+			int b = data[pos++];
+			int rtr = b & 0x7f;
+			for(int shift = 7; (b & 0x80) != 0; shift += 7)
+			{
+				b = data[pos++];
+				rtr |= (b & 0x7f) << shift;
+			}
+			return rtr;
+		}
+
+		/** decodes the next term into term[], and returns its index */
+		int next()
+		{
+			index++;
+			final int prefixLength = (index % blockSize) == 0 ? 0 : readVInt();
+			final int suffixLength = readVInt();
+			System.arraycopy(data, pos, term, prefixLength, suffixLength);
+			pos += suffixLength;
+			termLength = prefixLength + suffixLength;
+			return index;
+		}
+
+		String getTerm()
+		{
+			return new String(term, 0, termLength, StandardCharsets.UTF_8);
+		}
+	}
+
+	/** Returns the index of the specified term, or (-(insertion point) - 1) if the term does not exist */
+	int find(final byte[] key)
+	{
+		if (numberOfEntries == 0)
+			return -1;
+		final TermDecoder decoder = new TermDecoder(0);
+		//find the last block whose first term is not greater than the key
+		int lo = 0; int hi = blockOffsets.length -1;
+		while(lo <= hi)
+		{
+			final int mid = (lo + hi) >>> 1;
+			decoder.seekBlock(mid);
+			decoder.next();
+			final int cmp = compare(key, decoder.term, 0, decoder.termLength);
+			if (cmp == 0)
+				return decoder.index;
+			if (cmp < 0)
+				hi = mid -1;
+			else
+				lo = mid +1;
+		}
+		if (hi < 0)
+			return -1;
+		//then scan that block
+		decoder.seekBlock(hi);
+		final int blockEnd = Math.min((hi+1) * blockSize, numberOfEntries);
+		decoder.next();
+		while(decoder.index +1 < blockEnd)
+		{
+			decoder.next();
+			final int cmp = compare(key, decoder.term, 0, decoder.termLength);
+			if (cmp == 0)
+				return decoder.index;
+			if (cmp < 0)
+				return -decoder.index -1;
+		}
+		return -blockEnd -1;
+	}
+
+	LexiconEntry getValue(final int index) throws IOException
+	{
+		final LexiconEntry le = valueFactory.newInstance();
+		le.readFields(valueBuffer.get().read(values, (long)index * (long)valueSize));
+		return le;
+	}
+
+	@Override
+	public int numberOfEntries() {
+		return numberOfEntries;
+	}
+
+	@Override
+	public LexiconEntry getLexiconEntry(String term) {
+		final int index = find(term.getBytes(StandardCharsets.UTF_8));
+		if (index < 0)
+			return null;
+		try{
+			return getValue(index);
+		} catch (IOException ioe) {
+			logger.error("Could not read lexicon entry for " + term, ioe);
+			return null;
+		}
+	}
+
+	@Override
+	public Entry<String, LexiconEntry> getLexiconEntry(int termid) {
+		if (idlookup == null)
+			throw new UnsupportedOperationException("Lookup by termid is not supported, as the termids of this lexicon are disabled");
+		final int index;
+		try{
+			index = idlookup.getIndex(termid);
+		} catch (IOException ioe) {
+			return null;
+		}
+		if (index == -1)
+			return null;
+		return getIthLexiconEntry(index);
+	}
+
+	@Override
+	public Entry<String, LexiconEntry> getIthLexiconEntry(int index) {
+		if (index < 0 || index >= numberOfEntries)
+			throw new NoSuchElementException("No lexicon entry at index " + index);
+		final int block = index / blockSize;
+		final TermDecoder decoder = new TermDecoder(block);
+		while(decoder.next() < index);
+		try{
+			return new LexiconFileEntry<String>(decoder.getTerm(), getValue(index));
+		} catch (IOException ioe) {
+			throw new NoSuchElementException(ioe.getMessage());
+		}
+	}
+
+	/** Iterates over a range of entries, decoding the terms sequentially */
+	class RangeIterator implements Iterator<Map.Entry<String,LexiconEntry>>
+	{
+		final TermDecoder decoder;
+		final int end;
+
+		RangeIterator(int start, int _end)
+		{
+			this.end = _end;
+			if (start < _end)
+			{
+				decoder = new TermDecoder(start / blockSize);
+				while(decoder.index +1 < start)
+					decoder.next();
+			}
+			else
+			{
+				decoder = null;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return decoder != null && decoder.index +1 < end;
+		}
+
+		@Override
+		public Entry<String, LexiconEntry> next() {
+			if (! hasNext())
+				throw new NoSuchElementException();
+			final int index = decoder.next();
+			try{
+				return new LexiconFileEntry<String>(decoder.getTerm(), getValue(index));
+			} catch (IOException ioe) {
+				throw new NoSuchElementException(ioe.getMessage());
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Override
+	public Iterator<Entry<String, LexiconEntry>> getLexiconEntryRange(String from, String to) {
+		int start = find(from.getBytes(StandardCharsets.UTF_8));
+		if (start < 0)
+			start = -start -1;
+		int end = find(to.getBytes(StandardCharsets.UTF_8));
+		if (end < 0)
+			end = -end -1;
+		return new RangeIterator(start, end);
+	}
+
+	@Override
+	public Iterator<Entry<String, LexiconEntry>> iterator() {
+		return new RangeIterator(0, numberOfEntries);
+	}
+
+	@Override
+	public void close() throws IOException {
+		values.close();
+		if (idlookup instanceof java.io.Closeable)
+			((java.io.Closeable)idlookup).close();
+	}
+
+	static void writeVInt(ByteArrayOutputStream out, int value)
+	{
+		while((value & ~0x7f) != 0)
+		{
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/** Writes the files of a FrontCodedLexicon.
+	 * @param structureName name of the lexicon structure
+	 * @param path path of the index
+	 * @param prefix prefix of the index
+	 * @param entries the entries of the lexicon, in ascending order of the terms' UTF-8 bytes, as per {@link Text}
+	 * @param valueFactory factory for the values of the lexicon
+	 * @param blockSize number of terms in each front-coded block
+	 * @return the number of entries written
+	 * @throws IOException if the entries are not sorted, or any IO problem occurs
+	 */
+	public static int write(String structureName, String path, String prefix,
+			Iterator<Map.Entry<String,LexiconEntry>> entries,
+			FixedSizeWriteableFactory<LexiconEntry> valueFactory,
+			int blockSize) throws IOException
+	{
+		final DataOutputStream valuesOut = new DataOutputStream(Files.writeFileStream(
+				FSOMapFileLexicon.constructFilename(structureName, path, prefix, VALUES_EXT)));
+		final ByteArrayOutputStream dictData = new ByteArrayOutputStream();
+		final TIntArrayList offsets = new TIntArrayList();
+		final int valueSize = valueFactory.getSize();
+		byte[] previous = new byte[0];
+		int count = 0;
+		int maxTermLength = 0;
+		while(entries.hasNext())
+		{
+			final Map.Entry<String,LexiconEntry> lee = entries.next();
+			final byte[] term = lee.getKey().getBytes(StandardCharsets.UTF_8);
+			if (count > 0 && compare(term, previous, 0, previous.length) <= 0)
+			{
+				valuesOut.close();
+				throw new IOException("Lexicon terms are not in ascending order: '" + lee.getKey() + "' follows '"
+						+ new String(previous, StandardCharsets.UTF_8) + "'");
+			}
+			if (count % blockSize == 0)
+			{
+				offsets.add(dictData.size());
+				writeVInt(dictData, term.length);
+				dictData.write(term, 0, term.length);
+			}
+			else
+			{
+				int prefixLength = 0;
+				final int l = Math.min(term.length, previous.length);
+				while(prefixLength < l && term[prefixLength] == previous[prefixLength])
+					prefixLength++;
+				writeVInt(dictData, prefixLength);
+				writeVInt(dictData, term.length - prefixLength);
+				dictData.write(term, prefixLength, term.length - prefixLength);
+			}
+			maxTermLength = Math.max(maxTermLength, term.length);
+			lee.getValue().write(valuesOut);
+			previous = term;
+			count++;
+		}
+		valuesOut.close();
+
+		final DataOutputStream dictOut = new DataOutputStream(Files.writeFileStream(
+				FSOMapFileLexicon.constructFilename(structureName, path, prefix, DICT_EXT)));
+		dictOut.writeInt(VERSION);
+		dictOut.writeInt(count);
+		dictOut.writeInt(blockSize);
+		dictOut.writeInt(maxTermLength);
+		dictOut.writeInt(offsets.size());
+		dictOut.writeInt(dictData.size());
+		for(int offset : offsets.toNativeArray())
+			dictOut.writeInt(offset);
+		dictData.writeTo(dictOut);
+		dictOut.close();
+		logger.info("Wrote FrontCodedLexicon " + structureName + " with " + count + " entries: "
+				+ dictData.size() + " bytes of terms, " + ((long)count * valueSize) + " bytes of entries");
+		return count;
+	}
+
+	/** Converts the named FSOMapFileLexicon structure of the specified index into a
+	 * FrontCodedLexicon. The original mapfile is retained, as it is still used by the
+	 * lexicon's input streams.
+	 * @param index the index containing the lexicon
+	 * @param structureName name of the lexicon structure, e.g. "lexicon"
+	 * @param blockSize number of terms in each front-coded block
+	 * @throws IOException if a problem occurs
+	 */
+	@SuppressWarnings("unchecked")
+	public static void convert(IndexOnDisk index, String structureName, int blockSize) throws IOException
+	{
+		final FSOMapFileLexicon.MapFileLexiconIterator iter = new FSOMapFileLexicon.MapFileLexiconIterator(structureName, index);
+		write(structureName, index.getPath(), index.getPrefix(), iter,
+				(FixedSizeWriteableFactory<LexiconEntry>)index.getIndexStructure(structureName+"-valuefactory"),
+				blockSize);
+		iter.close();
+		index.addIndexStructure(
+				structureName,
+				FrontCodedLexicon.class.getName(),
+				"java.lang.String,org.terrier.structures.IndexOnDisk",
+				"structureName,index");
+		index.flush();
+	}
+}
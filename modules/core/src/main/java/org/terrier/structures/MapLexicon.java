@@ -108,11 +108,7 @@ public abstract class MapLexicon<K1,K2 extends WritableComparable> extends Lexic
     public LexiconEntry getLexiconEntry(K1 term)
     {
     	synchronized(modificationLock) {
-    	
-    	K2 key = keyFactory.newInstance();
-    	setK2(term, key);
-    	if (!map.containsKey(key)) return null;
-        return map.get(key);
+    		return lookupLexiconEntry(term);
     	}
     }
 	/** 
@@ -121,10 +117,7 @@ public abstract class MapLexicon<K1,K2 extends WritableComparable> extends Lexic
     public Map.Entry<K1,LexiconEntry> getIthLexiconEntry(int index) 
     {
     	synchronized(modificationLock) {
-    	
-        if (! (map instanceof OrderedMap))
-            throw new UnsupportedOperationException();
-        return toStringEntry(((OrderedMap<K2, LexiconEntry>)map).get(index));
+    		return lookupIthLexiconEntry(index);
     	}
     }
     
@@ -134,6 +127,40 @@ public abstract class MapLexicon<K1,K2 extends WritableComparable> extends Lexic
     public Iterator<Map.Entry<K1,LexiconEntry>> getLexiconEntryRange(K1 from, K1 to)
     {
     	synchronized(modificationLock) {
+    		return lookupLexiconEntryRange(from, to);
+    	}
+    }
+    
+	/** 
+	 * {@inheritDoc} 
+	 */
+    public Map.Entry<K1,LexiconEntry> getLexiconEntry(int termid)
+    {
+    	synchronized(modificationLock) {
+    		return lookupLexiconEntry(termid);
+    	}
+    }
+    
+    /** Looks up the entry for the specified term, without obtaining the modification lock.
+     * Subclasses whose map cannot be modified may call this directly. */
+    protected LexiconEntry lookupLexiconEntry(K1 term)
+    {
+    	K2 key = keyFactory.newInstance();
+    	setK2(term, key);
+    	return map.get(key);
+    }
+    
+    /** Looks up the entry at the specified index, without obtaining the modification lock. */
+    protected Map.Entry<K1,LexiconEntry> lookupIthLexiconEntry(int index)
+    {
+        if (! (map instanceof OrderedMap))
+            throw new UnsupportedOperationException();
+        return toStringEntry(((OrderedMap<K2, LexiconEntry>)map).get(index));
+    }
+    
+    /** Obtains an iterator over the specified range of terms, without obtaining the modification lock. */
+    protected Iterator<Map.Entry<K1,LexiconEntry>> lookupLexiconEntryRange(K1 from, K1 to)
+    {
     	if (! (map instanceof SortedMap))
     		throw new UnsupportedOperationException();
     	K2 key1 = keyFactory.newInstance();
@@ -158,15 +185,11 @@ public abstract class MapLexicon<K1,K2 extends WritableComparable> extends Lexic
 				throw new UnsupportedOperationException();
 			}
 		};
-    	}
     }
     
-	/** 
-	 * {@inheritDoc} 
-	 */
-    public Map.Entry<K1,LexiconEntry> getLexiconEntry(int termid)
+    /** Looks up the entry for the specified termid, without obtaining the modification lock. */
+    protected Map.Entry<K1,LexiconEntry> lookupLexiconEntry(int termid)
     {
-    	synchronized(modificationLock) {
     	int id;
     	try{
     		id = idlookup.getIndex(termid);
@@ -175,9 +198,7 @@ public abstract class MapLexicon<K1,K2 extends WritableComparable> extends Lexic
     	}
     	if (id == -1)
     		return null;
-
-        return getIthLexiconEntry(id);
-    	}
+        return lookupIthLexiconEntry(id);
     }
 	/** 
 	 * {@inheritDoc} 
@@ -0,0 +1,186 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is RangeIndex.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.terrier.structures.collections.DocidBitmap;
+import org.terrier.structures.postings.BitmapIterablePosting;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/** Answers range queries over an integer value of each document, such as a date, using hierarchical
+ * precomputed {@link DocidBitmap}s. Level 0 has one bitmap for each distinct value, while each bucket of level l
+ * holds the documents of fanout<sup>l</sup> consecutive values. Hence a range is answered by the union of at most
+ * 2(fanout-1) bitmaps per level, regardless of how many distinct values it spans.
+ * <p>
+ * For dates, the value is the number of days since the epoch (UTC), and the "daterange" structure is used by
+ * {@link org.terrier.matching.matchops.DateRangeOp} when present. It is written at indexing time from the meta key named
+ * by property <tt>indexer.meta.daterange.key</tt>.
+ * <p>
+ * File format: int fanout, int number of levels, then for each level: int number of buckets, and for each bucket, the
+ * int bucket number followed by its bitmap.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class RangeIndex implements Closeable {
+
+	/** usual extension of the file of the structure */
+	public static final String USUAL_EXTENSION = ".ranges";
+
+	static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+	protected final int fanout;
+	/** bucket numbers of each level, ascending */
+	protected final int[][] buckets;
+	/** bitmap of each bucket of each level */
+	protected final DocidBitmap[][] bitmaps;
+	protected final DocumentIndex doi;
+	protected final int numberOfDocuments;
+
+	/** Loads the range structure of the specified index */
+	public RangeIndex(IndexOnDisk index, String structureName) throws IOException
+	{
+		this(index.getPath() + ApplicationSetup.FILE_SEPARATOR + index.getPrefix() + "." + structureName + USUAL_EXTENSION,
+			index.getDocumentIndex());
+	}
+
+	/** Loads the range structure from the specified file
+	 * @param filename the file written by a RangeIndexBuilder
+	 * @param _doi document index used for the document lengths of postings, may be null
+	 */
+	public RangeIndex(String filename, DocumentIndex _doi) throws IOException
+	{
+		doi = _doi;
+		try(DataInputStream dis = new DataInputStream(Files.openFileStream(filename)))
+		{
+			fanout = dis.readInt();
+			final int levels = dis.readInt();
+			buckets = new int[levels][];
+			bitmaps = new DocidBitmap[levels][];
+			for(int l=0;l<levels;l++)
+			{
+				final int count = dis.readInt();
+				buckets[l] = new int[count];
+				bitmaps[l] = new DocidBitmap[count];
+				for(int b=0;b<count;b++)
+				{
+					buckets[l][b] = dis.readInt();
+					bitmaps[l][b] = DocidBitmap.read(dis);
+				}
+			}
+		}
+		int n = 0;
+		if (bitmaps.length > 0)
+			for(DocidBitmap b : bitmaps[0])
+				n += b.cardinality();
+		numberOfDocuments = n;
+	}
+
+	/** Returns the number of days since the epoch of the specified date, in UTC */
+	public static int toDays(Date date)
+	{
+		return (int) Math.floorDiv(date.getTime(), MILLIS_PER_DAY);
+	}
+
+	/** Returns the number of documents that have a value */
+	public int getNumberOfDocuments()
+	{
+		return numberOfDocuments;
+	}
+
+	/** Returns the documents with values between lo and hi, inclusive */
+	public DocidBitmap getDocuments(int lo, int hi)
+	{
+		DocidBitmap rtr = DocidBitmap.EMPTY;
+		if (lo > hi)
+			return rtr;
+		long from = lo;
+		long to = hi;
+		long width = 1;
+		for(int l=0;l<buckets.length;l++)
+		{
+			//the range of buckets at this level; the values not covered by whole buckets at the next level are taken here
+			final long bucketLo = Math.floorDiv(from, width);
+			final long bucketHi = Math.floorDiv(to, width);
+			final boolean last = l == buckets.length -1;
+			final long parentLo = last ? bucketHi + 1 : ceilDiv(bucketLo, fanout);
+			final long parentHi = last ? bucketHi : Math.floorDiv(bucketHi + 1, fanout) - 1;
+			if (parentLo > parentHi)
+			{
+				//no whole parent bucket, so take all buckets at this level
+				rtr = rtr.or(union(l, bucketLo, bucketHi));
+				return rtr;
+			}
+			rtr = rtr.or(union(l, bucketLo, parentLo * fanout - 1));
+			rtr = rtr.or(union(l, (parentHi + 1) * fanout, bucketHi));
+			from = parentLo * fanout * width;
+			to = (parentHi + 1) * fanout * width - 1;
+			width *= fanout;
+		}
+		return rtr;
+	}
+
+	static long ceilDiv(long a, long b)
+	{
+		return -Math.floorDiv(-a, b);
+	}
+
+	/** Returns the union of the bitmaps of level l with bucket numbers between lo and hi, inclusive */
+	DocidBitmap union(int l, long lo, long hi)
+	{
+		DocidBitmap rtr = DocidBitmap.EMPTY;
+		if (lo > hi)
+			return rtr;
+		int i = Arrays.binarySearch(buckets[l], (int) Math.max(lo, Integer.MIN_VALUE));
+		if (i < 0)
+			i = -i - 1;
+		for(;i < buckets[l].length && buckets[l][i] <= hi; i++)
+			rtr = rtr.or(bitmaps[l][i]);
+		return rtr;
+	}
+
+	/** Returns the documents with dates between lo and hi, inclusive, at the granularity of days */
+	public DocidBitmap getDocuments(Date lo, Date hi)
+	{
+		return getDocuments(toDays(lo), toDays(hi));
+	}
+
+	/** Returns a posting list of the documents with values between lo and hi, inclusive */
+	public IterablePosting getPostings(int lo, int hi)
+	{
+		return new BitmapIterablePosting(getDocuments(lo, hi), doi);
+	}
+
+	@Override
+	public void close() throws IOException {}
+}
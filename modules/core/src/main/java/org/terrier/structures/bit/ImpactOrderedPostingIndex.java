@@ -0,0 +1,206 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is ImpactOrderedPostingIndex.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.bit;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.terrier.compression.bit.BitFileBuffered;
+import org.terrier.compression.bit.BitFileInMemoryLarge;
+import org.terrier.compression.bit.BitIn;
+import org.terrier.compression.bit.BitInSeekable;
+import org.terrier.compression.bit.BitOut;
+import org.terrier.structures.BitIndexPointer;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.SimpleBitIndexPointer;
+import org.terrier.structures.collections.FSArrayFile;
+
+/** An inverted index in which the postings of each term are ordered by decreasing impact, rather than
+ * by docid. An impact is the score of a posting given by a weighting model, quantised to a small integer.
+ * The postings of each term are a sequence of segments, each holding the ascending docids
+ * of all postings of the term having the same impact. Segments can be processed in decreasing
+ * order of impact across all query terms, allowing matching to stop early once a budget of postings
+ * has been processed (score-at-a-time retrieval), as implemented by {@link org.terrier.matching.saat.Anytime}.
+ * <p>
+ * The segments are gamma-encoded in the <tt>STRUCTURENAME.bf</tt> file, while the pointer for
+ * each term (indexed by termid) is held in the <tt>STRUCTURENAME-pointers.fsarrayfile</tt> file. The number
+ * of entries of each pointer is the number of segments of that term. Each segment comprises the impact, the number of docids,
+ * and the gaps between the docids.
+ * <p>
+ * <b>Index properties</b>:
+ * <ul>
+ * <li><tt>index.STRUCTURENAME.data-source</tt> - one of {file,fileinmem}.</li>
+ * <li><tt>index.STRUCTURENAME.weighting-model</tt> - the weighting model used to compute the impacts.</li>
+ * <li><tt>index.STRUCTURENAME.quantization-levels</tt> - the maximum impact.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class ImpactOrderedPostingIndex implements Closeable {
+
+	/** suffix of the structure holding the pointer for each term */
+	public static final String POINTERS_SUFFIX = "-pointers";
+
+	protected final BitInSeekable file;
+	protected final FSArrayFile<SimpleBitIndexPointer> pointers;
+	protected final String weightingModel;
+	protected final int levels;
+
+	/** Opens the named impact-ordered structure of the specified index */
+	public ImpactOrderedPostingIndex(IndexOnDisk index, String structureName) throws IOException
+	{
+		final String prefix = index.getPath() + "/" + index.getPrefix() + "." + structureName;
+		file = index.getIndexProperty("index."+structureName+".data-source", "file").equals("fileinmem")
+			? new BitFileInMemoryLarge(prefix + BitIn.USUAL_EXTENSION)
+			: new BitFileBuffered(prefix + BitIn.USUAL_EXTENSION);
+		pointers = new FSArrayFile<SimpleBitIndexPointer>(
+			index.getPath() + "/" + index.getPrefix() + "." + structureName + POINTERS_SUFFIX + FSArrayFile.USUAL_EXTENSION,
+			false, new SimpleBitIndexPointer.Factory());
+		weightingModel = index.getIndexProperty("index."+structureName+".weighting-model", null);
+		levels = index.getIntIndexProperty("index."+structureName+".quantization-levels", 255);
+	}
+
+	/** Returns the name of the weighting model used to compute the impacts */
+	public String getWeightingModel()
+	{
+		return weightingModel;
+	}
+
+	/** Returns the maximum impact of any posting */
+	public int getQuantizationLevels()
+	{
+		return levels;
+	}
+
+	/** Returns the segments of the specified term, or null if the term has no postings */
+	public ImpactSegments getSegments(int termid) throws IOException
+	{
+		if (termid < 0 || termid >= pointers.size())
+			return null;
+		final BitIndexPointer pointer = pointers.get(termid);
+		if (pointer.getNumberOfEntries() == 0)
+			return null;
+		return new ImpactSegments(file.readReset(pointer.getOffset(), pointer.getOffsetBits()), pointer.getNumberOfEntries());
+	}
+
+	/** Writes the specified postings as segments.
+	 * @param out where to write the segments
+	 * @param impacts impact of each posting, in decreasing order
+	 * @param docids docid of each posting, ascending for postings with the same impact
+	 * @param count number of postings
+	 * @return the number of segments written
+	 */
+	public static int writeSegments(BitOut out, int[] impacts, int[] docids, int count) throws IOException
+	{
+		int segments = 0;
+		int start = 0;
+		while(start < count)
+		{
+			int end = start+1;
+			while(end < count && impacts[end] == impacts[start])
+				end++;
+			out.writeGamma(impacts[start]);
+			out.writeGamma(end - start);
+			int last = -1;
+			for(int i=start;i<end;i++)
+			{
+				out.writeGamma(docids[i] - last);
+				last = docids[i];
+			}
+			segments++;
+			start = end;
+		}
+		return segments;
+	}
+
+	/** Iterates over the segments of one term, in decreasing order of impact. */
+	public static class ImpactSegments implements Closeable
+	{
+		final BitIn in;
+		int remainingSegments;
+		int impact;
+		int length;
+		boolean docidsRead = true;
+
+		ImpactSegments(BitIn _in, int numSegments)
+		{
+			in = _in;
+			remainingSegments = numSegments;
+		}
+
+		/** Moves to the next segment. Returns false if there are no more segments. */
+		public boolean nextSegment() throws IOException
+		{
+			if (! docidsRead)
+				for(int i=0;i<length;i++)
+					in.readGamma();
+			if (remainingSegments == 0)
+				return false;
+			remainingSegments--;
+			impact = in.readGamma();
+			length = in.readGamma();
+			docidsRead = false;
+			return true;
+		}
+
+		/** Returns the impact of each posting of the current segment */
+		public int getImpact()
+		{
+			return impact;
+		}
+
+		/** Returns the number of postings of the current segment */
+		public int getLength()
+		{
+			return length;
+		}
+
+		/** Decodes the docids of the current segment into the specified buffer,
+		 * which is grown if necessary.
+		 * @return the buffer containing the docids */
+		public int[] readDocids(int[] buffer) throws IOException
+		{
+			if (buffer == null || buffer.length < length)
+				buffer = new int[length];
+			int docid = -1;
+			for(int i=0;i<length;i++)
+				buffer[i] = docid += in.readGamma();
+			docidsRead = true;
+			return buffer;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+		pointers.close();
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is DocidBitmap.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.collections;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/** An immutable, compressed set of docids, in the style of a Roaring bitmap. The docid space is divided
+ * into chunks of 65536 docids, keyed by the upper 16 bits of the docid. Each non-empty chunk is held
+ * either as a sorted array of the lower 16 bits (when it has at most 4096 docids), or as a
+ * bitmap of 1024 longs. Bitmaps are created using a {@link Builder}, and can be combined using
+ * {@link #and(DocidBitmap)} and {@link #or(DocidBitmap)}.
+ * {@link #nextSetBit(int)} allows a posting list traversal to skip directly to the next docid in the set.
+ * <p>
+ * Serialised format: int number of chunks, then for each chunk: int key, int cardinality, followed by
+ * the cardinality chars (array chunks) or 1024 longs (bitmap chunks).
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class DocidBitmap {
+
+	/** maximum cardinality of a chunk that is held as an array */
+	static final int MAX_ARRAY_SIZE = 4096;
+	static final int BITMAP_LONGS = 1 << 10;
+
+	/** An empty bitmap */
+	public static final DocidBitmap EMPTY = new DocidBitmap(new int[0], new int[0], new char[0][], new long[0][]);
+
+	/** Creates a bitmap by adding docids in ascending order */
+	public static class Builder
+	{
+		int[] keys = new int[4];
+		int[] cards = new int[4];
+		char[][] arrays = new char[4][];
+		long[][] bitmaps = new long[4][];
+		int chunks = 0;
+		int last = -1;
+
+		/** Adds a docid, which must be larger than the docid previously added. Duplicate docids are ignored. */
+		public void add(int docid)
+		{
+			if (docid < 0)
+				throw new IllegalArgumentException("Negative docid " + docid);
+			if (docid <= last)
+			{
+				if (docid == last)
+					return;
+				throw new IllegalArgumentException("Docid " + docid + " added after " + last);
+			}
+			last = docid;
+			final int key = docid >>> 16;
+			final char low = (char)(docid & 0xFFFF);
+			if (chunks == 0 || keys[chunks-1] != key)
+			{
+				if (chunks == keys.length)
+				{
+					keys = Arrays.copyOf(keys, chunks * 2);
+					cards = Arrays.copyOf(cards, chunks * 2);
+					arrays = Arrays.copyOf(arrays, chunks * 2);
+					bitmaps = Arrays.copyOf(bitmaps, chunks * 2);
+				}
+				keys[chunks] = key;
+				arrays[chunks] = new char[8];
+				chunks++;
+			}
+			final int c = chunks-1;
+			if (bitmaps[c] != null)
+				bitmaps[c][low >>> 6] |= 1L << low;
+			else if (cards[c] == MAX_ARRAY_SIZE)
+			{
+				bitmaps[c] = toBitmap(arrays[c], cards[c]);
+				arrays[c] = null;
+				bitmaps[c][low >>> 6] |= 1L << low;
+			}
+			else
+			{
+				if (cards[c] == arrays[c].length)
+					arrays[c] = Arrays.copyOf(arrays[c], Math.min(MAX_ARRAY_SIZE, cards[c] * 2));
+				arrays[c][cards[c]] = low;
+			}
+			cards[c]++;
+		}
+
+		/** Returns the bitmap of the docids added so far */
+		public DocidBitmap build()
+		{
+			final char[][] a = new char[chunks][];
+			for(int c=0;c<chunks;c++)
+				if (arrays[c] != null)
+					a[c] = Arrays.copyOf(arrays[c], cards[c]);
+			return new DocidBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(cards, chunks), a, Arrays.copyOf(bitmaps, chunks));
+		}
+	}
+
+	/** upper 16 bits of the docids of each chunk, ascending */
+	final int[] keys;
+	/** number of docids in each chunk */
+	final int[] cards;
+	/** the lower 16 bits of the docids of each array chunk, ascending, or null for a bitmap chunk */
+	final char[][] arrays;
+	/** the bitmap of each bitmap chunk, or null for an array chunk */
+	final long[][] bitmaps;
+
+	DocidBitmap(int[] _keys, int[] _cards, char[][] _arrays, long[][] _bitmaps)
+	{
+		keys = _keys;
+		cards = _cards;
+		arrays = _arrays;
+		bitmaps = _bitmaps;
+	}
+
+	static long[] toBitmap(char[] array, int card)
+	{
+		final long[] bitmap = new long[BITMAP_LONGS];
+		for(int i=0;i<card;i++)
+			bitmap[array[i] >>> 6] |= 1L << array[i];
+		return bitmap;
+	}
+
+	static char[] toArray(long[] bitmap, int card)
+	{
+		final char[] array = new char[card];
+		int j = 0;
+		for(int w=0;w<BITMAP_LONGS;w++)
+		{
+			long word = bitmap[w];
+			while(word != 0)
+			{
+				array[j++] = (char)((w << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return array;
+	}
+
+	/** Returns the number of docids in this set */
+	public long cardinality()
+	{
+		long sum = 0;
+		for(int c : cards)
+			sum += c;
+		return sum;
+	}
+
+	/** Returns true if this set contains no docids */
+	public boolean isEmpty()
+	{
+		return keys.length == 0;
+	}
+
+	/** Returns true if the specified docid is in this set */
+	public boolean contains(int docid)
+	{
+		final int c = Arrays.binarySearch(keys, docid >>> 16);
+		if (c < 0)
+			return false;
+		final char low = (char)(docid & 0xFFFF);
+		if (bitmaps[c] != null)
+			return (bitmaps[c][low >>> 6] & (1L << low)) != 0;
+		return Arrays.binarySearch(arrays[c], low) >= 0;
+	}
+
+	/** Returns the smallest docid in this set that is at least the specified docid, or -1 if there is none */
+	public int nextSetBit(int docid)
+	{
+		if (docid < 0)
+			docid = 0;
+		int c = Arrays.binarySearch(keys, docid >>> 16);
+		int low;
+		if (c < 0)
+		{
+			c = -c - 1;
+			low = 0;
+		}
+		else
+			low = docid & 0xFFFF;
+		for(;c < keys.length; c++, low = 0)
+		{
+			final int found = nextInChunk(c, low);
+			if (found >= 0)
+				return (keys[c] << 16) | found;
+		}
+		return -1;
+	}
+
+	/** Returns the lower bits of the smallest docid of chunk c that is at least low, or -1 */
+	int nextInChunk(int c, int low)
+	{
+		if (bitmaps[c] != null)
+		{
+			int w = low >>> 6;
+			long word = bitmaps[c][w] & (-1L << low);
+			while(true)
+			{
+				if (word != 0)
+					return (w << 6) + Long.numberOfTrailingZeros(word);
+				if (++w == BITMAP_LONGS)
+					return -1;
+				word = bitmaps[c][w];
+			}
+		}
+		int i = Arrays.binarySearch(arrays[c], (char)low);
+		if (i < 0)
+			i = -i - 1;
+		return i < arrays[c].length ? arrays[c][i] : -1;
+	}
+
+	/** Returns the docids in this set, in ascending order */
+	public int[] toArray()
+	{
+		final int[] rtr = new int[(int)cardinality()];
+		int j = 0;
+		for(int c=0;c<keys.length;c++)
+		{
+			final char[] a = arrays[c] != null ? arrays[c] : toArray(bitmaps[c], cards[c]);
+			for(char low : a)
+				rtr[j++] = (keys[c] << 16) | low;
+		}
+		return rtr;
+	}
+
+	/** Returns the intersection of this set with the specified set */
+	public DocidBitmap and(DocidBitmap other)
+	{
+		final int n = Math.min(keys.length, other.keys.length);
+		final int[] k = new int[n];
+		final int[] card = new int[n];
+		final char[][] a = new char[n][];
+		final long[][] b = new long[n][];
+		int chunks = 0;
+		int i = 0, j = 0;
+		while(i < keys.length && j < other.keys.length)
+		{
+			if (keys[i] < other.keys[j])
+				i++;
+			else if (keys[i] > other.keys[j])
+				j++;
+			else
+			{
+				if (bitmaps[i] != null && other.bitmaps[j] != null)
+				{
+					final long[] words = new long[BITMAP_LONGS];
+					int count = 0;
+					for(int w=0;w<BITMAP_LONGS;w++)
+						count += Long.bitCount(words[w] = bitmaps[i][w] & other.bitmaps[j][w]);
+					if (count > MAX_ARRAY_SIZE)
+						b[chunks] = words;
+					else
+						a[chunks] = toArray(words, count);
+					card[chunks] = count;
+				}
+				else
+				{
+					//at least one is an array: probe each of its values in the other chunk
+					final boolean thisArray = bitmaps[i] == null;
+					final char[] probe = thisArray ? arrays[i] : other.arrays[j];
+					final DocidBitmap target = thisArray ? other : this;
+					final int tc = thisArray ? j : i;
+					final char[] out = new char[probe.length];
+					int count = 0;
+					for(char low : probe)
+						if (target.nextInChunk(tc, low) == low)
+							out[count++] = low;
+					a[chunks] = Arrays.copyOf(out, count);
+					card[chunks] = count;
+				}
+				if (card[chunks] > 0)
+					k[chunks++] = keys[i];
+				else
+					a[chunks] = null;
+				i++; j++;
+			}
+		}
+		return new DocidBitmap(Arrays.copyOf(k, chunks), Arrays.copyOf(card, chunks), Arrays.copyOf(a, chunks), Arrays.copyOf(b, chunks));
+	}
+
+	/** Returns the union of this set with the specified set */
+	public DocidBitmap or(DocidBitmap other)
+	{
+		final int n = keys.length + other.keys.length;
+		final int[] k = new int[n];
+		final int[] card = new int[n];
+		final char[][] a = new char[n][];
+		final long[][] b = new long[n][];
+		int chunks = 0;
+		int i = 0, j = 0;
+		while(i < keys.length || j < other.keys.length)
+		{
+			if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j]))
+			{
+				k[chunks] = keys[i]; card[chunks] = cards[i]; a[chunks] = arrays[i]; b[chunks] = bitmaps[i];
+				i++;
+			}
+			else if (i == keys.length || keys[i] > other.keys[j])
+			{
+				k[chunks] = other.keys[j]; card[chunks] = other.cards[j]; a[chunks] = other.arrays[j]; b[chunks] = other.bitmaps[j];
+				j++;
+			}
+			else
+			{
+				k[chunks] = keys[i];
+				final long[] words = bitmaps[i] != null ? bitmaps[i].clone() : toBitmap(arrays[i], cards[i]);
+				if (other.bitmaps[j] != null)
+					for(int w=0;w<BITMAP_LONGS;w++)
+						words[w] |= other.bitmaps[j][w];
+				else
+					for(char low : other.arrays[j])
+						words[low >>> 6] |= 1L << low;
+				int count = 0;
+				for(long word : words)
+					count += Long.bitCount(word);
+				card[chunks] = count;
+				if (count > MAX_ARRAY_SIZE)
+					b[chunks] = words;
+				else
+					a[chunks] = toArray(words, count);
+				i++; j++;
+			}
+			chunks++;
+		}
+		return new DocidBitmap(Arrays.copyOf(k, chunks), Arrays.copyOf(card, chunks), Arrays.copyOf(a, chunks), Arrays.copyOf(b, chunks));
+	}
+
+	/** Writes this bitmap to the specified output */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(keys.length);
+		for(int c=0;c<keys.length;c++)
+		{
+			out.writeInt(keys[c]);
+			out.writeInt(cards[c]);
+			if (bitmaps[c] != null)
+				for(long word : bitmaps[c])
+					out.writeLong(word);
+			else
+				for(char low : arrays[c])
+					out.writeChar(low);
+		}
+	}
+
+	/** Reads a bitmap written by {@link #write(DataOutput)} */
+	public static DocidBitmap read(DataInput in) throws IOException
+	{
+		final int n = in.readInt();
+		final int[] k = new int[n];
+		final int[] card = new int[n];
+		final char[][] a = new char[n][];
+		final long[][] b = new long[n][];
+		for(int c=0;c<n;c++)
+		{
+			k[c] = in.readInt();
+			card[c] = in.readInt();
+			if (card[c] > MAX_ARRAY_SIZE)
+			{
+				b[c] = new long[BITMAP_LONGS];
+				for(int w=0;w<BITMAP_LONGS;w++)
+					b[c][w] = in.readLong();
+			}
+			else
+			{
+				a[c] = new char[card[c]];
+				for(int i=0;i<card[c];i++)
+					a[c][i] = in.readChar();
+			}
+		}
+		return new DocidBitmap(k, card, a, b);
+	}
+
+	@Override
+	public String toString() {
+		return "DocidBitmap(" + cardinality() + " docids in " + keys.length + " chunks)";
+	}
+}
@@ -38,10 +38,12 @@ import org.terrier.structures.IndexOnDisk;
 import org.terrier.structures.Skipable;
 import org.terrier.structures.seralization.FixedSizeWriteableFactory;
 import org.terrier.utility.Files;
+import org.terrier.utility.io.PositionalReadBuffer;
 import org.terrier.utility.io.RandomDataInput;
 
 /** A file for accessing Writable classes written on disk. These must be of fixed size.
- * This implementation is read-only, but does implement the List interface.
+ * This implementation is read-only, but does implement the List interface. {@link #get(int)} may
+ * be called concurrently by several threads.
  * @author Craig Macdonald
  * @since 3.0
  * @param <V> Type of Writable
@@ -56,6 +58,8 @@ public class FSArrayFile<V extends Writable> extends AbstractList<V> implements
 	protected int numberOfEntries;
 	/** total size of one key,value pair */
 	protected int entrySize;
+	/** buffer for reading entries, one per thread */
+	protected final ThreadLocal<PositionalReadBuffer> entryBuffer = ThreadLocal.withInitial(() -> new PositionalReadBuffer(entrySize));
 	/** actual underlying data file */
 	protected RandomDataInput dataFile = null;
 	/** filename of the underlying file */
@@ -111,8 +115,8 @@ public class FSArrayFile<V extends Writable> extends AbstractList<V> implements
 			V value = valueFactory.newInstance();
 			if (entryNumber > numberOfEntries)
 			  throw new NoSuchElementException("Entry too big : " + entryNumber + " > " + numberOfEntries);
-			dataFile.seek((long)entryNumber * entrySize);
-			value.readFields(dataFile);
+			//a positional read does not alter the state of dataFile, so concurrent gets are safe
+			value.readFields(entryBuffer.get().read(dataFile, (long)entryNumber * entrySize));
 			return value;
 		} catch (NoSuchElementException nsee) {
 			throw nsee;
@@ -54,13 +54,15 @@ import org.terrier.structures.Skipable;
 import org.terrier.structures.seralization.FixedSizeWriteableFactory;
 import org.terrier.structures.seralization.WriteableFactory;
 import org.terrier.utility.Files;
+import org.terrier.utility.io.PositionalReadBuffer;
 import org.terrier.utility.io.RandomDataInput;
 import org.terrier.utility.io.RandomDataOutput;
 
 /** An implementation of java.util.Map that can be accessed from disk.
  * Key and value types are assumed to have a fixed size. Their factories
  * must be passed to the constructor. In the name, FSOrderedMapFile,
- * FS stands for Fixed Size.
+ * FS stands for Fixed Size. Lookups use positional reads of the underlying file, and
+ * hence may be made concurrently by several threads.
  * @author Craig Macdonald
  * @since 3.0
  * @param <K> Type of the keys
@@ -80,8 +82,6 @@ public class FSOrderedMapFile<
     /** The logger used for this class */
 	protected static final Logger logger = LoggerFactory.getLogger(FSOrderedMapFile.class);
 	
-	/** This is a file lock used to stop multiple threads from attempting to traverse the underlying file at once */
-	Object fileAccessLock = new Object();
 
 	/** interface FSOMapFileBSearchShortcut */
     public interface FSOMapFileBSearchShortcut<KEY>
@@ -763,6 +763,8 @@ public class FSOrderedMapFile<
 	protected int numberOfEntries;
 	/** total size of one key,value pair */
 	protected int entrySize;
+	/** buffer for reading entries, one per thread */
+	protected final ThreadLocal<PositionalReadBuffer> entryBuffer = ThreadLocal.withInitial(() -> new PositionalReadBuffer(entrySize));
 	
 	protected FSOMapFileBSearchShortcut<K> shortcut;
 	
@@ -957,8 +959,6 @@ public class FSOrderedMapFile<
     @SuppressWarnings("unchecked")
 	protected MapFileEntry<K,V> getEntry(K key)
     {
-    	synchronized(fileAccessLock) {
-    	
     	int[] bounds;
     	try{
     		bounds = shortcut.searchBounds(key);
@@ -973,16 +973,14 @@ public class FSOrderedMapFile<
 		
 		K testKey = keyFactory.newInstance();
 		V value = valueFactory.newInstance();	
+		DataInput entry;
 		
 		try{
 		
 			while (low < high) {
-			    //System.err.println("high="+high + " low="+low);
 			    i = (low + high) >>> 1;
-                //System.err.println("i="+i);
-                dataFile.seek((long)i * entrySize);
-                testKey.readFields(dataFile);
-                //System.err.println("Checking "+testKey.toString() + " cmp="+key.compareTo(testKey));
+                entry = readEntry(i);
+                testKey.readFields(entry);
                 if ((compareEntry = testKey.compareTo(key))< 0)
                 	low = i + 1;
                 else if (compareEntry > 0)
@@ -990,24 +988,18 @@ public class FSOrderedMapFile<
                 else 
                 {
                     //read the rest and return the data
-                    value.readFields(dataFile);
+                    value.readFields(entry);
                     return new MapFileEntry<K,V>(testKey, value, i);
                 }
-                //System.err.println("high="+high + " low="+low);
             }
         
             if (high == numberOfEntries)
                 return new MapFileEntry<K,V>(testKey, null, -(numberOfEntries) -1);
             
-            if (high == 0) {
-                i = 0;
-                dataFile.seek(0);
-            } else {
-                i = high;
-                dataFile.seek((long)high * entrySize);
-            }
-            testKey.readFields(dataFile);
-            value.readFields(dataFile);
+            i = high;
+            entry = readEntry(i);
+            testKey.readFields(entry);
+            value.readFields(entry);
         
             if (key.compareTo(testKey) == 0) {
                 return new MapFileEntry<K,V>(testKey, value, i);
@@ -1017,10 +1009,15 @@ public class FSOrderedMapFile<
 		  logger.error("IOException reading FSOrderedMapFile", ioe);
 		  return new MapFileEntry<K,V>(testKey, null, Integer.MIN_VALUE);
 		}
-    	}
-		
     }
     
+    /** Reads the specified entry using a positional read, which does not alter the state of the
+     * underlying file, such that lookups can be made concurrently without synchronisation. The entry
+     * is read into the buffer of the current thread, so must be consumed before the next call. */
+    protected DataInput readEntry(int entryNumber) throws IOException
+    {
+    	return entryBuffer.get().read(dataFile, (long)entryNumber * entrySize);
+    }
     
     /** 
 	 * {@inheritDoc}
@@ -1091,24 +1088,20 @@ public class FSOrderedMapFile<
 	 */
     public Entry<K,V> get(int entryNumber)
     {
-    	synchronized(fileAccessLock) {
-    	
         K key = keyFactory.newInstance();
 		V value = valueFactory.newInstance();
 		if (entryNumber >= numberOfEntries)
 		  throw new NoSuchElementException("Entry number "+ entryNumber + " is larger than map size of "+ numberOfEntries);
 		
 		try{
-            dataFile.seek((long)entryNumber * entrySize);
-            key.readFields(dataFile);
-            value.readFields(dataFile);
+            final DataInput entry = readEntry(entryNumber);
+            key.readFields(entry);
+            value.readFields(entry);
         } catch (IOException ioe) {
             throw new NoSuchElementException(
                 "IOException reading FSOrderedMapFile for entry number "+ entryNumber +" : "+ioe);
         }
         return new MapFileEntry<K,V>(key, value, entryNumber);
-        
-    	}
     }
 	/** 
 	 * {@inheritDoc} 
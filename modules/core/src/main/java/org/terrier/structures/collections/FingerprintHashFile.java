@@ -0,0 +1,246 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FingerprintHashFile.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.collections;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.structures.ConcurrentReadable;
+import org.terrier.utility.Files;
+import org.terrier.utility.io.RandomDataInput;
+
+/** A compact, open-addressing hash table that maps String values to integer ids,
+ * persisted to disk and accessed memory-mapped where possible. The table does not store the
+ * values themselves: each slot holds a 32-bit fingerprint of the value and the id. Hence,
+ * a lookup costs one hash computation and (usually) one probe, but the caller must verify that the
+ * candidate id really has the sought value, using a {@link Verifier}. This makes the structure
+ * suitable for reverse lookups in a {@link org.terrier.structures.MetaIndex}, where the
+ * forward lookup (docid to value) is already available.
+ * <p>
+ * File format: int version, int number of entries, long capacity (a power of two), followed by capacity
+ * longs. A zero slot is empty; otherwise the upper 32 bits are the fingerprint and the lower 32 bits are id+1.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+@ConcurrentReadable
+public class FingerprintHashFile implements Closeable {
+
+	/** USUAL_EXTENSION */
+	public static final String USUAL_EXTENSION = ".fphash";
+
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	/** number of slots in each memory-mapped region */
+	static final int SLOTS_PER_REGION_BITS = 27;
+	static final long REGION_MASK = (1L << SLOTS_PER_REGION_BITS) -1;
+
+	protected static final Logger logger = LoggerFactory.getLogger(FingerprintHashFile.class);
+
+	/** Checks whether a candidate id has the value being looked up */
+	public interface Verifier
+	{
+		/** Returns true if the specified id has the value being looked up */
+		boolean matches(int id) throws IOException;
+	}
+
+	/** Returns a 64-bit hash of the specified value. The low bits determine the slot,
+	 * the high 32 bits form the fingerprint. */
+	public static long hash(final String value)
+	{
+		//64-bit FNV-1a over the characters, then finalised with the murmur3 mixer
+		long h = 0xcbf29ce484222325L;
+		final int l = value.length();
+		for(int i=0;i<l;i++)
+		{
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+
+	static long makeSlot(long hash, int id)
+	{
+		return (hash & 0xffffffff00000000L) | ((id + 1L) & 0xffffffffL);
+	}
+
+	/** Returns the smallest power-of-two capacity that holds the specified number of entries at a
+	 * load factor of at most 0.5 */
+	static long capacityFor(int entries)
+	{
+		long capacity = 16;
+		while(capacity < 2L * entries)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/** Builds a FingerprintHashFile in memory, before writing it to disk. */
+	public static class Builder
+	{
+		final long[] table;
+		final int mask;
+		int entries = 0;
+
+		/** Create a builder for the specified number of entries */
+		public Builder(int expectedEntries)
+		{
+			final long capacity = capacityFor(expectedEntries);
+			if (capacity > (1L << 30))
+				throw new IllegalArgumentException("Too many entries for a FingerprintHashFile: " + expectedEntries);
+			table = new long[(int)capacity];
+			mask = (int)(capacity-1);
+		}
+
+		/** Adds the id for the specified value. If the value is repeated, lookups will
+		 * find the first id added for that value. */
+		public void add(String value, int id)
+		{
+			if (entries +1 > (table.length >>> 1))
+				throw new IllegalStateException("FingerprintHashFile is full, expected at most "+ (table.length >>> 1) + " entries");
+			final long h = hash(value);
+			int pos = (int)h & mask;
+			while(table[pos] != 0)
+				pos = (pos+1) & mask;
+			table[pos] = makeSlot(h, id);
+			entries++;
+		}
+
+		/** Writes the table to the specified file */
+		public void write(String filename) throws IOException
+		{
+			final DataOutputStream dos = new DataOutputStream(Files.writeFileStream(filename));
+			dos.writeInt(VERSION);
+			dos.writeInt(entries);
+			dos.writeLong(table.length);
+			for(long slot : table)
+				dos.writeLong(slot);
+			dos.close();
+		}
+	}
+
+	final int numberOfEntries;
+	final long mask;
+	/** used when the file is memory-mapped */
+	final LongBuffer[] regions;
+	/** used when the file is loaded into memory */
+	final long[] table;
+	final RandomAccessFile raf;
+
+	/** Opens the specified file. Local files are memory-mapped, while
+	 * files on other filesystems are read into memory. */
+	public FingerprintHashFile(String filename) throws IOException
+	{
+		final RandomDataInput rdi = Files.openFileRandom(filename);
+		final int version = rdi.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported FingerprintHashFile version " + version + " in " + filename);
+		numberOfEntries = rdi.readInt();
+		final long capacity = rdi.readLong();
+		mask = capacity -1;
+		if (rdi instanceof RandomAccessFile)
+		{
+			raf = (RandomAccessFile)rdi;
+			final FileChannel channel = raf.getChannel();
+			final int regionCount = (int)((capacity + REGION_MASK) >>> SLOTS_PER_REGION_BITS);
+			regions = new LongBuffer[regionCount];
+			for(int i=0;i<regionCount;i++)
+			{
+				final long firstSlot = (long)i << SLOTS_PER_REGION_BITS;
+				final long slots = Math.min(capacity - firstSlot, 1L << SLOTS_PER_REGION_BITS);
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstSlot * 8L, slots * 8L).asLongBuffer();
+			}
+			table = null;
+		}
+		else
+		{
+			rdi.close();
+			raf = null;
+			regions = null;
+			if (capacity > Integer.MAX_VALUE)
+				throw new IOException("FingerprintHashFile " + filename + " is too large to be read into memory");
+			logger.info("Reading " + filename + " into memory");
+			table = new long[(int)capacity];
+			final DataInputStream dis = new DataInputStream(Files.openFileStream(filename));
+			dis.skipBytes(HEADER_SIZE);
+			for(int i=0;i<capacity;i++)
+				table[i] = dis.readLong();
+			dis.close();
+		}
+	}
+
+	final long getSlot(final long pos)
+	{
+		if (table != null)
+			return table[(int)pos];
+		return regions[(int)(pos >>> SLOTS_PER_REGION_BITS)].get((int)(pos & REGION_MASK));
+	}
+
+	/** Returns the id for the specified value, or -1 if the value is not found.
+	 * @param value the value to lookup
+	 * @param verifier used to check that candidate ids have the sought value
+	 */
+	public int get(final String value, final Verifier verifier) throws IOException
+	{
+		final long h = hash(value);
+		final long fingerprint = h & 0xffffffff00000000L;
+		long pos = h & mask;
+		long slot;
+		while((slot = getSlot(pos)) != 0)
+		{
+			if ((slot & 0xffffffff00000000L) == fingerprint)
+			{
+				final int id = (int)(slot & 0xffffffffL) -1;
+				if (verifier.matches(id))
+					return id;
+			}
+			pos = (pos+1) & mask;
+		}
+		return -1;
+	}
+
+	/** Returns the number of entries in this table */
+	public int size()
+	{
+		return numberOfEntries;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (raf != null)
+			raf.close();
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is IntColumnFile.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.collections;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import org.terrier.utility.Files;
+
+/** A flat file of fixed-width integers, without any header. Several columns may be
+ * interleaved in the one file, such that the file holds one row of <i>k</i> integers
+ * for each entry. Columns are written in little-endian order, and are read back in
+ * bulk, with no per-entry decoding. They allow a structure holding per-entry
+ * statistics (e.g. document lengths) to be loaded into memory quickly.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class IntColumnFile {
+
+	/** USUAL_EXTENSION */
+	public static final String USUAL_EXTENSION = ".col";
+	/** The byte order in which columns are written */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Returns the number of integers contained in the specified file, or -1 if it does not exist */
+	public static long size(String filename)
+	{
+		if (! Files.exists(filename))
+			return -1;
+		return Files.length(filename) / (long)Integer.BYTES;
+	}
+
+	/** Reads a file of little-endian integers into the specified array, which must
+	 * be of the same length as the file.
+	 * @param filename file to read
+	 * @param column destination array
+	 * @throws IOException if the file is shorter than the array
+	 */
+	public static void read(String filename, int[] column) throws IOException
+	{
+		read(filename, ORDER, column);
+	}
+
+	/** Reads a file of integers into the specified arrays. The integers of the file are
+	 * taken to be interleaved, such that the ith integer is written to
+	 * columns[i % columns.length][i / columns.length]. All arrays must have the same length.
+	 * @param filename file to read
+	 * @param order byte order of the file
+	 * @param columns destination arrays
+	 * @throws IOException if the file is shorter than the arrays
+	 */
+	public static void read(String filename, ByteOrder order, int[]... columns) throws IOException
+	{
+		final int k = columns.length;
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final IntBuffer ints = ByteBuffer.wrap(buffer).order(order).asIntBuffer();
+		final long total = (long) columns[0].length * (long) k;
+		try(DataInputStream dis = new DataInputStream(Files.openFileStream(filename)))
+		{
+			long done = 0;
+			while(done < total)
+			{
+				final int count = (int) Math.min(BUFFER_SIZE / Integer.BYTES, total - done);
+				dis.readFully(buffer, 0, count * Integer.BYTES);
+				ints.clear();
+				if (k == 1)
+				{
+					ints.get(columns[0], (int)done, count);
+				}
+				else
+				{
+					for(int i=0;i<count;i++)
+					{
+						final long j = done + i;
+						columns[(int)(j % k)][(int)(j / k)] = ints.get();
+					}
+				}
+				done += count;
+			}
+		} catch (EOFException eofe) {
+			throw new IOException("Column file " + filename + " is shorter than expected", eofe);
+		}
+	}
+
+	/** Reads a file of integers into the specified rows, such that the ith integer is written to
+	 * rows[i / k][i % k], where k is the length of each row. All rows must have the same length.
+	 * @param filename file to read
+	 * @param order byte order of the file
+	 * @param rows destination arrays, one for each entry
+	 * @throws IOException if the file is shorter than the rows
+	 */
+	public static void readRows(String filename, ByteOrder order, int[][] rows) throws IOException
+	{
+		if (rows.length == 0)
+			return;
+		final int k = rows[0].length;
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		final IntBuffer ints = ByteBuffer.wrap(buffer).order(order).asIntBuffer();
+		final long total = (long) rows.length * (long) k;
+		try(DataInputStream dis = new DataInputStream(Files.openFileStream(filename)))
+		{
+			long done = 0;
+			int row = 0, offset = 0;
+			while(done < total)
+			{
+				final int count = (int) Math.min(BUFFER_SIZE / Integer.BYTES, total - done);
+				dis.readFully(buffer, 0, count * Integer.BYTES);
+				ints.clear();
+				int remaining = count;
+				while(remaining > 0)
+				{
+					final int n = Math.min(remaining, k - offset);
+					ints.get(rows[row], offset, n);
+					remaining -= n;
+					offset += n;
+					if (offset == k)
+					{
+						offset = 0;
+						row++;
+					}
+				}
+				done += count;
+			}
+		} catch (EOFException eofe) {
+			throw new IOException("Column file " + filename + " is shorter than expected", eofe);
+		}
+	}
+
+	/** Writes integers to a column file. Rows of interleaved columns are written by
+	 * calling {@link #write(int)} for each column in turn. */
+	public static class Writer implements Closeable
+	{
+		final OutputStream out;
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ORDER);
+		long count = 0;
+
+		/** Opens the named file for writing */
+		public Writer(String filename) throws IOException
+		{
+			out = Files.writeFileStream(filename);
+		}
+
+		/** Writes the next integer */
+		public void write(int value) throws IOException
+		{
+			if (buffer.remaining() < Integer.BYTES)
+				flushBuffer();
+			buffer.putInt(value);
+			count++;
+		}
+
+		/** Writes each of the specified integers */
+		public void write(int[] values) throws IOException
+		{
+			for(int value : values)
+				write(value);
+		}
+
+		/** Returns the number of integers written so far */
+		public long getCount()
+		{
+			return count;
+		}
+
+		void flushBuffer() throws IOException
+		{
+			out.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flushBuffer();
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is StripedLRUMap.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.collections;
+
+/** A bounded Least-Recently-Used cache that is safe for use by many threads. The keys are
+ * partitioned across a number of {@link LRUMap} stripes, each with its own lock, such that
+ * concurrent lookups of different keys rarely contend. The eviction order is maintained
+ * separately within each stripe.
+ * @author Craig Macdonald
+ *
+ * @param <K> type of the key
+ * @param <V> type of the value
+ * @since 5.3
+ */
+public class StripedLRUMap<K, V> {
+
+	/** default number of stripes */
+	public static final int DEFAULT_STRIPES = 16;
+
+	protected final LRUMap<K,V>[] stripes;
+
+	/**
+	 * constructor
+	 * @param sMaxSize
+	 */
+	public StripedLRUMap(String sMaxSize) {
+		this(Integer.parseInt(sMaxSize));
+	}
+
+	/**
+	 * constructor
+	 * @param maxSize maximum number of entries
+	 */
+	public StripedLRUMap(int maxSize) {
+		this(maxSize, DEFAULT_STRIPES);
+	}
+
+	/**
+	 * constructor
+	 * @param maxSize maximum number of entries
+	 * @param numStripes number of independently locked stripes
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedLRUMap(int maxSize, int numStripes) {
+		stripes = new LRUMap[numStripes];
+		final int stripeSize = Math.max(1, (maxSize + numStripes - 1) / numStripes);
+		for(int i=0;i<numStripes;i++)
+			stripes[i] = new LRUMap<K,V>(stripeSize);
+	}
+
+	/**
+	 * constructor that uses an existing map as the only stripe, e.g. an {@link LRUMap} configured
+	 * as an index structure. All access is synchronized on that map, as previously.
+	 * @param map the map to use
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedLRUMap(LRUMap<K,V> map) {
+		stripes = new LRUMap[]{map};
+	}
+
+	protected LRUMap<K,V> stripe(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return stripes[(h & Integer.MAX_VALUE) % stripes.length];
+	}
+
+	/** Returns the value of the specified key, or null if it is not cached */
+	public V get(K key) {
+		final LRUMap<K,V> s = stripe(key);
+		synchronized (s) {
+			return s.get(key);
+		}
+	}
+
+	/** Caches the specified value for the specified key */
+	public void put(K key, V value) {
+		final LRUMap<K,V> s = stripe(key);
+		synchronized (s) {
+			s.put(key, value);
+		}
+	}
+
+	/** Returns the number of cached entries */
+	public int size() {
+		int size = 0;
+		for(LRUMap<K,V> s : stripes)
+			synchronized (s) {
+				size += s.size();
+			}
+		return size;
+	}
+
+	/** Removes all cached entries */
+	public void clear() {
+		for(LRUMap<K,V> s : stripes)
+			synchronized (s) {
+				s.clear();
+			}
+	}
+}
@@ -34,14 +34,20 @@ import org.terrier.structures.Pointer;
 
 /**
  * An instance of IterablePostings that works with passed arrays of ids and frequencies.
- * The document must contain all of the terms in the query to be matched (AND)
+ * The document must contain all of the terms in the query to be matched (AND).
+ * The posting lists are intersected starting from the rarest term, and the other posting lists
+ * are moved using next(target) to the candidate docid, such that they can skip. Subclasses checking
+ * positions in {@link #calculateFrequency()} are only called once all posting lists are at the same docid.
  * @author Richard McCreadie
  *
  */
 public class ANDIterablePosting extends IterablePostingImpl {
 
 	protected int currentId = -1;
+	/** the posting lists, in the order specified */
 	protected IterablePosting[] ips;
+	/** the posting lists, in ascending order of document frequency, as used for intersection */
+	protected IterablePosting[] rarestFirst;
 	protected final int termCount;
 	protected int frequency = 0;
 	
@@ -54,7 +60,7 @@ public class ANDIterablePosting extends IterablePostingImpl {
 			@Override
 			public int compareTo(PL other) 
 			{	
-				return other.p.getDocumentFrequency() - this.p.getDocumentFrequency();
+				return Integer.compare(this.p.getDocumentFrequency(), other.p.getDocumentFrequency());
 			}
 		}			
 		assert _ips.length == _p.length;
@@ -71,13 +77,13 @@ public class ANDIterablePosting extends IterablePostingImpl {
 		
 		Arrays.sort(lists);			
 		
-		ips = new IterablePosting[termCount];
+		ips = _ips;
+		rarestFirst = new IterablePosting[termCount];
 		int i=0;
 		for(PL list : lists)
 		{
-			ips[i] = list.ip;
-			if (i != 0)
-				ips[i].next();
+			rarestFirst[i] = list.ip;
+			rarestFirst[i].next();
 			i++;
 		}
 	}
@@ -91,7 +97,7 @@ public class ANDIterablePosting extends IterablePostingImpl {
 			@Override
 			public int compareTo(PL other) 
 			{	
-				return other.p.getNumberOfEntries() - this.p.getNumberOfEntries();
+				return Integer.compare(this.p.getNumberOfEntries(), other.p.getNumberOfEntries());
 			}
 		}			
 		assert _ips.length == _p.length;
@@ -108,13 +114,13 @@ public class ANDIterablePosting extends IterablePostingImpl {
 		
 		Arrays.sort(lists);			
 		
-		ips = new IterablePosting[termCount];
+		ips = _ips;
+		rarestFirst = new IterablePosting[termCount];
 		int i=0;
 		for(PL list : lists)
 		{
-			ips[i] = list.ip;
-			if (i != 0)
-				ips[i].next();
+			rarestFirst[i] = list.ip;
+			rarestFirst[i].next();
 			i++;
 		}
 	}
@@ -141,48 +147,37 @@ public class ANDIterablePosting extends IterablePostingImpl {
 	
 	@Override
 	public int next(int targetID) throws IOException {
-		
-		ITERATION: do
-		{
-			targetID = ips[0].next(targetID);
-			if (targetID == EOL)
-				return currentId = EOL;
-			for(int i=1;i<ips.length;i++)
-			{
-				int foundID = ips[i].getId();
-				if (foundID < targetID)
-					foundID = ips[i].next(targetID);
-				if (foundID > targetID)
-					continue ITERATION;
-				assert foundID == targetID;
-			}
-			
-			if (calculateFrequency())
-			{
-				currentId = targetID;
-				return targetID;
-			}
-			
-		}while(true);
-		
+		if (currentId >= targetID)
+			return currentId;
+		return align(targetID);
 	}
 
 	@Override
 	public int next() throws IOException {
-		
+		if (currentId == EOL)
+			return EOL;
+		return align(currentId+1);
+	}
+	
+	/** Moves to the first matching document with docid at least targetID. The rarest posting list
+	 * proposes a candidate; if another posting list skips past it, that docid becomes the next candidate. */
+	protected int align(int targetID) throws IOException {
 		ITERATION: do
 		{
-			int targetID = ips[0].next();
-			if (targetID == EOL)
-				return currentId = EOL;
-			for(int i=1;i<ips.length;i++)
+			for(int i=0;i<rarestFirst.length;i++)
 			{
-				int foundID = ips[i].getId();
+				int foundID = rarestFirst[i].getId();
 				if (foundID < targetID)
-					foundID = ips[i].next(targetID);
+					foundID = rarestFirst[i].next(targetID);
+				if (foundID == EOL)
+					return currentId = EOL;
 				if (foundID > targetID)
-					continue ITERATION;
-				assert foundID == targetID;
+				{
+					targetID = foundID;
+					//the rarest posting list sets the first candidate, otherwise restart from it
+					if (i > 0)
+						continue ITERATION;
+				}
 			}
 			
 			if (calculateFrequency())
@@ -190,9 +185,8 @@ public class ANDIterablePosting extends IterablePostingImpl {
 				currentId = targetID;
 				return targetID;
 			}
-			
+			targetID++;
 		}while(true);
-		
 	}
 	
 	/** returns true if the document matches */
@@ -204,7 +198,7 @@ public class ANDIterablePosting extends IterablePostingImpl {
 
 	@Override
 	public boolean endOfPostings() {
-		return currentId != EOL;
+		return currentId == EOL;
 	}
 
 	@Override
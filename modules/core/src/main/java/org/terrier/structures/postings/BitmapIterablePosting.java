@@ -0,0 +1,120 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is BitmapIterablePosting.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.postings;
+
+import java.io.IOException;
+
+import org.terrier.structures.DocumentIndex;
+import org.terrier.structures.collections.DocidBitmap;
+
+/** An IterablePosting over the docids of a {@link DocidBitmap}. Each posting has a frequency of 1,
+ * and the document length is obtained from the document index, if one is specified.
+ * {@link #next(int)} skips directly to the target using {@link DocidBitmap#nextSetBit(int)}.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class BitmapIterablePosting extends IterablePostingImpl {
+
+	protected final DocidBitmap bitmap;
+	protected final DocumentIndex doi;
+	protected int id = -1;
+
+	/** Make a new IterablePosting over the specified bitmap
+	 * @param _bitmap the docids of the postings
+	 * @param _doi document index used for document lengths, or null for lengths of 0
+	 */
+	public BitmapIterablePosting(DocidBitmap _bitmap, DocumentIndex _doi)
+	{
+		bitmap = _bitmap;
+		doi = _doi;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int next() throws IOException {
+		if (id == EOL)
+			return EOL;
+		final int next = bitmap.nextSetBit(id+1);
+		return id = next == -1 ? EOL : next;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int next(int target) throws IOException {
+		if (id == EOL || id >= target)
+			return id;
+		final int next = bitmap.nextSetBit(target);
+		return id = next == -1 ? EOL : next;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean endOfPostings() {
+		return id == EOL || bitmap.nextSetBit(id+1) == -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	/** {@inheritDoc} Returns 1. */
+	@Override
+	public int getFrequency() {
+		return 1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getDocumentLength() {
+		if (doi == null)
+			return 0;
+		try{
+			return doi.getDocumentLength(id);
+		} catch (IOException ioe) {
+			throw new RuntimeException(ioe);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setId(int _id) {
+		id = _id;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public WritablePosting asWritablePosting() {
+		final BasicPostingImpl p = new BasicPostingImpl(id, 1);
+		p.setDocumentLength(getDocumentLength());
+		return p;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void close() throws IOException {}
+}
@@ -0,0 +1,123 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org 
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is MaterialisedORIterablePosting.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ *   
+ */
+package org.terrier.structures.postings;
+
+import gnu.trove.TIntArrayList;
+
+import java.io.IOException;
+
+/** An ORIterablePosting that merges all of its posting lists when it is constructed, into parallel arrays of
+ * docids, frequencies and document lengths. Iterating is then a simple array scan, and next(target) gallops
+ * through the docids, which avoids maintaining many posting lists for very wide expansions (e.g. wildcard or
+ * synonym expansions with hundreds of terms). Field and block postings are not supported.
+ * @since 5.3
+ * @author Craig Macdonald
+ * @see ORIterablePosting#materialise(IterablePosting[])
+ */
+public class MaterialisedORIterablePosting extends ORIterablePosting {
+
+	final int[] docids;
+	final int[] freqs;
+	final int[] doclens;
+	/** the index of the current posting */
+	int cursor = -1;
+
+	/** Merges the specified postings */
+	public MaterialisedORIterablePosting(IterablePosting[] ips) throws IOException
+	{
+		super(ips);
+		final TIntArrayList _docids = new TIntArrayList();
+		final TIntArrayList _freqs = new TIntArrayList();
+		final TIntArrayList _doclens = new TIntArrayList();
+		while(nextMinimum() != IterablePosting.EOL)
+		{
+			_docids.add(id);
+			_freqs.add(frequency);
+			_doclens.add(doclen);
+		}
+		docids = _docids.toNativeArray();
+		freqs = _freqs.toNativeArray();
+		doclens = _doclens.toNativeArray();
+		id = -1;
+		frequency = 0;
+		doclen = 0;
+	}
+
+	/** Returns the number of postings in the merged posting list */
+	public int size()
+	{
+		return docids.length;
+	}
+
+	private int moveTo(final int i)
+	{
+		cursor = i;
+		if (i >= docids.length)
+			return id = IterablePosting.EOL;
+		frequency = freqs[i];
+		doclen = doclens[i];
+		return id = docids[i];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int next() throws IOException {
+		if (id == IterablePosting.EOL)
+			return id;
+		return moveTo(cursor+1);
+	}
+
+	/** {@inheritDoc}. The target is found by galloping, then binary searching, from the current posting. */
+	@Override
+	public int next(int target) throws IOException {
+		if (id >= target)
+			return id;
+		final int from = cursor+1;
+		final int n = docids.length;
+		int bound = 1;
+		while(from + bound < n && docids[from + bound] < target)
+			bound <<= 1;
+		int lo = from + (bound >>> 1);
+		int hi = Math.min(from + bound, n);
+		//first posting in [lo,hi) with docid >= target, or hi
+		while(lo < hi)
+		{
+			final int mid = (lo + hi) >>> 1;
+			if (docids[mid] < target)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return moveTo(lo);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean endOfPostings() {
+		return cursor + 1 >= docids.length;
+	}
+}
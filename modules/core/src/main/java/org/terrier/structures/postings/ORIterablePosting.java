@@ -26,13 +26,15 @@
  */
 package org.terrier.structures.postings;
 
-import java.io.Serializable;
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+
+import org.terrier.utility.ApplicationSetup;
 
 /** An IterablePosting that combines more than one IterablePosting into a single IterablePosting.
  * By doing so, multiple term's posting lists can appear as a singe posting list.
+ * The posting lists are merged using a tournament tree keyed on their current docids, such that
+ * each advance costs log(k) integer comparisons for k posting lists, and next(target) only moves the
+ * posting lists that are behind the target.
  * @since 3.5
  * @author Craig Macdonald
  * @see FieldORIterablePosting
@@ -41,6 +43,10 @@ import java.util.PriorityQueue;
  */
 public class ORIterablePosting extends IterablePostingImpl {
 
+	/** the number of (basic) posting lists at which {@link #mergePostings(IterablePosting[])} materialises the merged posting list.
+	 * Set by property <tt>postings.or.materialise.threshold</tt>. Defaults to 0, which is disabled. */
+	static final int MATERIALISE_THRESHOLD = Integer.parseInt(ApplicationSetup.getProperty("postings.or.materialise.threshold", "0"));
+
 	/** Factory method to create an appropriate ORIterablePosting from the specified IterablePostings.
 	 * Four types of ORIterablePosting maybe returned, based on the lowest common denominator type 
 	 * of the specified IterablePosting classes:
@@ -48,7 +54,8 @@ public class ORIterablePosting extends IterablePostingImpl {
 	 * <li>BlockFieldORIterablePosting - if the all posting lists are both a BlockPosting and FieldPosting</li>
 	 * <li>BlockORIterablePosting - if the all posting lists are a BlockPosting but not all a FieldPosting</li>
 	 * <li>FieldORIterablePosting - if the all posting lists are a FieldPosting but not all a BlockPosing</li>
-	 * <li>ORIterablePosting - otherwise</li>
+	 * <li>ORIterablePosting - otherwise. If there are at least <tt>postings.or.materialise.threshold</tt> posting lists,
+	 * then these are merged into a {@link MaterialisedORIterablePosting}.</li>
 	 * </ul>
 	 */
 	public static ORIterablePosting mergePostings(IterablePosting[] ips) throws IOException
@@ -77,19 +84,29 @@ public class ORIterablePosting extends IterablePostingImpl {
 			return new BlockORIterablePosting(ips);
 		if (fields)
 			return new FieldORIterablePosting(ips);
+		if (MATERIALISE_THRESHOLD > 0 && ips.length >= MATERIALISE_THRESHOLD)
+			return materialise(ips);
 		return new ORIterablePosting(ips);
 	}
 	
-	final static class IterablePostingIdComparator implements Comparator<IterablePosting>, Serializable
+	/** Creates a materialised ORIterablePosting, which merges all of the specified postings at construction time
+	 * into arrays of docids, frequencies and document lengths. This is faster to iterate and skip for very wide
+	 * expansions, but does not support field or block postings.
+	 * @since 5.3
+	 */
+	public static ORIterablePosting materialise(IterablePosting[] ips) throws IOException
 	{
-		private static final long serialVersionUID = 1L;
-		@Override
-		public int compare(IterablePosting o1, IterablePosting o2) {
-			return o1.getId() - o2.getId();
-		}		
+		return new MaterialisedORIterablePosting(ips);
 	}
 	
-	final PriorityQueue<IterablePosting> postingQueue;
+	/** the posting lists being merged */
+	final IterablePosting[] children;
+	/** the current docid of each posting list (padded to a power of two), EOL if exhausted */
+	final int[] keys;
+	/** tournament tree: tree[1] is the index of the posting list with the smallest docid, 
+	 * the leaves tree[size+i] are the posting lists */
+	final int[] tree;
+	final int size;
 	
 	int frequency = 0;
 	int id = -1;
@@ -98,18 +115,38 @@ public class ORIterablePosting extends IterablePostingImpl {
 	/** Create a Basic ORIterablePosting from the specified postings */
 	public ORIterablePosting(IterablePosting[] ips) throws IOException
 	{
-		postingQueue = new PriorityQueue<IterablePosting>(ips.length, new IterablePostingIdComparator());
-		for(IterablePosting ip : ips)
+		children = ips;
+		int s = 1;
+		while(s < ips.length)
+			s <<= 1;
+		size = s;
+		keys = new int[size];
+		tree = new int[2*size];
+		for(int i=0;i<size;i++)
 		{
-			if (ip.next() != IterablePosting.EOL)
-				postingQueue.add(ip);
+			keys[i] = i < ips.length ? ips[i].next() : IterablePosting.EOL;
+			tree[size + i] = i;
 		}
+		for(int pos=size-1;pos>=1;pos--)
+			tree[pos] = minOf(tree[2*pos], tree[2*pos+1]);
+	}
+	
+	private int minOf(final int l, final int r)
+	{
+		return keys[l] <= keys[r] ? l : r;
+	}
+	
+	/** replays the tournament from the leaf of the ith posting list to the root */
+	private void update(final int i)
+	{
+		for(int pos = (size + i) >>> 1; pos >= 1; pos >>>= 1)
+			tree[pos] = minOf(tree[2*pos], tree[2*pos+1]);
 	}
 	
 	/** {@inheritDoc} */
 	@Override
 	public boolean endOfPostings() {
-		return postingQueue.size() > 0;
+		return keys[tree[1]] == IterablePosting.EOL;
 	}
 	
 	
@@ -124,56 +161,43 @@ public class ORIterablePosting extends IterablePostingImpl {
 		frequency += p.getFrequency();
 	}
 
-	/** {@inheritDoc} */
-	@Override
-	public int next() throws IOException {
-		IterablePosting ip = postingQueue.poll();
-		if (ip == null)
+	/** combines the postings of all posting lists at the smallest docid */
+	final int nextMinimum() throws IOException
+	{
+		int w = tree[1];
+		if (keys[w] == IterablePosting.EOL)
 			return id = IterablePosting.EOL;
-		id = ip.getId();
-		firstPosting(ip);
-		if (ip.next() != IterablePosting.EOL)
-			postingQueue.add(ip);
-		while(postingQueue.size() > 0 && postingQueue.peek().getId() == id)
+		id = keys[w];
+		firstPosting(children[w]);
+		keys[w] = children[w].next();
+		update(w);
+		while(keys[w = tree[1]] == id)
 		{
-			ip = postingQueue.poll();
-			addPosting(ip);
-			if (ip.next() != IterablePosting.EOL)
-				postingQueue.add(ip);
+			addPosting(children[w]);
+			keys[w] = children[w].next();
+			update(w);
 		}
 		return id;
 	}
 	
-	
+	/** {@inheritDoc} */
+	@Override
+	public int next() throws IOException {
+		return nextMinimum();
+	}
 
+	/** {@inheritDoc}. Only the posting lists behind the target are moved, each using its own next(target). */
 	@Override
 	public int next(int target) throws IOException {
-		final IterablePosting ips[] = postingQueue.toArray(new IterablePosting[postingQueue.size()]);
-		postingQueue.clear(); boolean OK = false;
-		for(IterablePosting ip : ips)
+		if (id >= target)
+			return id;
+		int w;
+		while(keys[w = tree[1]] < target)
 		{
-			if (ip.getId() >= target || (ip.next(target) != IterablePosting.EOL))
-			{
-				postingQueue.add(ip);
-				OK = true;
-			}
-		}
-		if (! OK)
-			return id = IterablePosting.EOL;
-		IterablePosting ip = postingQueue.poll();
-		id = ip.getId();
-		firstPosting(ip);
-		if (ip.next() != IterablePosting.EOL)
-			postingQueue.add(ip);
-		
-		while(postingQueue.size() > 0 && postingQueue.peek().getId() == id)
-		{
-			ip = postingQueue.poll();
-			addPosting(ip);
-			if (ip.next() != IterablePosting.EOL)
-				postingQueue.add(ip);
+			keys[w] = children[w].next(target);
+			update(w);
 		}
-		return id;
+		return nextMinimum();
 	}
 
 	/** {@inheritDoc} */
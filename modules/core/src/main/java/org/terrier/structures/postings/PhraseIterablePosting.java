@@ -115,6 +115,8 @@ public class PhraseIterablePosting extends ANDIterablePosting implements BlockPo
 		assert posSmall != Integer.MAX_VALUE;
 		
 		frequency = 0;
+		if (positions != null)
+			positions.clear();
 		
 		
 		int[] seed = pos[smallestIndex];			
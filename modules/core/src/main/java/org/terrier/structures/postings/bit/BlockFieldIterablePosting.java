@@ -49,6 +49,9 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 {
 	
 	int[] positions;
+	/** number of positions of the current posting that have not yet been read from the bit file. 
+	 * Positions are only decoded when requested by {@link #getPositions()}, and are otherwise skipped by the following next(). */
+	int pendingPositions = 0;
 	final int fieldCount;
 	final int[] fieldFrequencies;
 	final boolean doiIsFieldDocumentIndex;
@@ -84,6 +87,7 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 	
 	/** {@inheritDoc} */
 	public int next() throws IOException {
+		skipPositions();
 		if (numEntries-- <= 0)
 			return id = EOL;
 		id = bitFileReader.readGamma() + id;
@@ -92,18 +96,41 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 		{
 			fieldFrequencies[i] = bitFileReader.readUnary()-1;
 		}
-		//TODO: this has a memory allocation for every posting in the posting list. can we reuse an array?
-		positions = new int[bitFileReader.readUnary() -1];
+		pendingPositions = bitFileReader.readUnary() -1;
+		positions = null;
+		//the positions of the last posting are read now, such that the bit file is left at the end of the posting list
+		if (numEntries == 0)
+			readPositions();
+		return id;
+	}
+	
+	/** skips over the positions of the current posting, if they were not decoded */
+	protected final void skipPositions() throws IOException {
+		for(;pendingPositions > 0;pendingPositions--)
+			bitFileReader.readGamma();
+	}
+	
+	/** decodes the positions of the current posting */
+	protected final void readPositions() throws IOException {
+		positions = new int[pendingPositions];
+		pendingPositions = 0;
 		if (positions.length == 0)
-			return id;
+			return;
 		positions[0] = bitFileReader.readGamma() -1;
 		for(int i=1;i<positions.length;i++)
 			positions[i] = positions[i-1] + bitFileReader.readGamma();
-		return id;
 	}
 	
-	/** {@inheritDoc} */
+	/** {@inheritDoc}. The positions are decoded on the first call for each posting. */
 	public int[] getPositions() {
+		if (positions == null)
+		{
+			try{
+				readPositions();
+			} catch (IOException ioe) {
+				throw new RuntimeException(ioe);
+			}
+		}
 		return positions;
 	}
 	
@@ -154,6 +181,7 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 		final int l = in.readInt();
 		for(int i=0;i<l;i++)
 			fieldFrequencies[i] = in.readInt();
+		pendingPositions = 0;
 		positions = new int[blockCount]; 
 		for(int i=0;i<blockCount;i++)
 			positions[i] = WritableUtils.readVInt(in);
@@ -166,6 +194,7 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 		out.writeInt(fieldFrequencies.length);
 		for(int field_f : fieldFrequencies)
 			out.writeInt(field_f);
+		final int[] positions = getPositions();
 		WritableUtils.writeVInt(out, positions.length);
 		for(int pos : positions)
 			WritableUtils.writeVInt(out, pos);
@@ -174,7 +203,7 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 	/** {@inheritDoc} */
 	@Override
 	public WritablePosting asWritablePosting() {
-		BlockFieldPostingImpl bfpi = new BlockFieldPostingImpl(id, tf, positions, fieldCount);
+		BlockFieldPostingImpl bfpi = new BlockFieldPostingImpl(id, tf, getPositions(), fieldCount);
 		System.arraycopy(fieldFrequencies, 0, bfpi.getFieldFrequencies(), 0, fieldCount);
 		return bfpi;
 	}
@@ -184,6 +213,6 @@ public class BlockFieldIterablePosting extends BasicIterablePosting implements B
 	public String toString()
 	{
 		return "(" + id + "," + tf + ",F[" + ArrayUtils.join(fieldFrequencies, ",")
-			+ "],B[" + ArrayUtils.join(positions, ",") + "])";
+			+ "],B[" + ArrayUtils.join(getPositions(), ",") + "])";
 	}
 }
\ No newline at end of file
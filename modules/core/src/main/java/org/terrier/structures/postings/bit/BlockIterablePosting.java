@@ -47,6 +47,9 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 {
 	private static final long serialVersionUID = 1L;
 	int[] positions;
+	/** number of positions of the current posting that have not yet been read from the bit file. 
+	 * Positions are only decoded when requested by {@link #getPositions()}, and are otherwise skipped by the following next(). */
+	int pendingPositions = 0;
 	/**
 	 * Constructs an instance of the BlockIterablePosting.
 	 */
@@ -65,22 +68,46 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 	 * {@inheritDoc} 
 	 */
 	public int next() throws IOException {
+		skipPositions();
 		if (numEntries-- <= 0)
 			return id = EOL;
 		id = bitFileReader.readGamma() + id;
 		tf = bitFileReader.readUnary();
-		//TODO: this has a memory allocation for every posting in the posting list. can we reuse an array?
-		positions = new int[bitFileReader.readUnary() -1];
+		pendingPositions = bitFileReader.readUnary() -1;
+		positions = null;
+		//the positions of the last posting are read now, such that the bit file is left at the end of the posting list
+		if (numEntries == 0)
+			readPositions();
+		return id;
+	}
+	
+	/** skips over the positions of the current posting, if they were not decoded */
+	protected final void skipPositions() throws IOException {
+		for(;pendingPositions > 0;pendingPositions--)
+			bitFileReader.readGamma();
+	}
+	
+	/** decodes the positions of the current posting */
+	protected final void readPositions() throws IOException {
+		positions = new int[pendingPositions];
+		pendingPositions = 0;
 		if (positions.length == 0)
-			return id;
+			return;
 		positions[0] = bitFileReader.readGamma() -1;
 		for(int i=1;i<positions.length;i++)
 			positions[i] = positions[i-1] + bitFileReader.readGamma();
-		return id;
 	}
 	
-	/** {@inheritDoc} */
+	/** {@inheritDoc}. The positions are decoded on the first call for each posting. */
 	public int[] getPositions() {
+		if (positions == null)
+		{
+			try{
+				readPositions();
+			} catch (IOException ioe) {
+				throw new RuntimeException(ioe);
+			}
+		}
 		return positions;
 	}
 
@@ -88,6 +115,7 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 	public void readFields(DataInput in) throws IOException {
 		super.readFields(in);
 		final int blockCount = WritableUtils.readVInt(in);
+		pendingPositions = 0;
 		positions = new int[blockCount]; 
 		for(int i=0;i<blockCount;i++)
 			positions[i] = WritableUtils.readVInt(in);
@@ -96,6 +124,7 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 	@Override
 	public void write(DataOutput out) throws IOException {
 		super.write(out);
+		final int[] positions = getPositions();
 		WritableUtils.writeVInt(out, positions.length);
 		for(int pos : positions)
 			WritableUtils.writeVInt(out, pos);
@@ -103,6 +132,7 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 
 	@Override
 	public WritablePosting asWritablePosting() {
+		final int[] positions = getPositions();
 		int[] newPositions = new int[positions.length];
 		System.arraycopy(positions, 0, newPositions, 0, positions.length);
 		return new BlockPostingImpl(getId(), getFrequency(), newPositions);
@@ -111,6 +141,6 @@ public class BlockIterablePosting extends BasicIterablePosting implements BlockP
 	@Override
 	public String toString()
 	{
-		return "(" + id + "," + tf + ",B[" + ArrayUtils.join(positions, ",") + "])";
+		return "(" + id + "," + tf + ",B[" + ArrayUtils.join(getPositions(), ",") + "])";
 	}
 }
\ No newline at end of file
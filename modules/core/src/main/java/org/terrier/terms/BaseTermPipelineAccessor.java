@@ -43,6 +43,9 @@ implements TermPipeline, TermPipelineAccessor
 	
 	TermPipeline pipeline_first;
 	
+	/** memo of the pipeline output for each term, or null if not cacheable */
+	final TermPipelineCache cache;
+	
 	/** This class is used as a TermPipelineAccessor, and this variable stores
 	  * the result of the TermPipeline run for that term. */
 	protected String pipelineOutput = null;
@@ -71,6 +74,7 @@ implements TermPipeline, TermPipelineAccessor
 				logger.error("TermPipeline object "+NAMESPACE_PIPELINE+pipes[i]+" not found",e);
 			}
 		}
+		cache = TermPipelineCache.create(pipes, NAMESPACE_PIPELINE);
 		String skipTerms = null;
 		//add SkipTermPipeline as the first pipeline step to allow for special terms to skip the pipeline processing sequence
 		if ((skipTerms = ApplicationSetup.getProperty("termpipelines.skip", null)) != null && skipTerms.trim().length() > 0)
@@ -98,8 +102,16 @@ implements TermPipeline, TermPipelineAccessor
 	/** A term pipeline accessor */
 	public String pipelineTerm(String t)
 	{
+		if (cache != null && t != null)
+		{
+			final String cached = cache.get(t);
+			if (cached != null)
+				return cached == TermPipelineCache.DISCARDED ? null : cached;
+		}
 		pipelineOutput = null;
 		pipeline_first.processTerm(t);
+		if (cache != null && t != null)
+			cache.put(t, pipelineOutput);
 		return pipelineOutput;
 	}
 	
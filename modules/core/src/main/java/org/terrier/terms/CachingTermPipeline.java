@@ -0,0 +1,111 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.uk
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is CachingTermPipeline.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ *
+ */
+package org.terrier.terms;
+
+/** The first stage of a term pipeline, which consults a {@link TermPipelineCache} before
+ * passing each term through the remaining stages. On a cache hit, the cached output is passed
+ * directly to the final stage of the pipeline. Usage: the other stages of the pipeline should be
+ * constructed to end with {@link #getCaptureStage()}, and the first of them passed to {@link #setPipeline(TermPipeline)}.
+ * Instances are not threadsafe, but their cache may be shared.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class CachingTermPipeline implements TermPipeline {
+
+	final TermPipeline last;
+	final TermPipelineCache cache;
+	TermPipeline pipeline;
+	String output;
+
+	final TermPipeline capture = new TermPipeline()
+	{
+		@Override
+		public void processTerm(String t) {
+			output = t;
+		}
+
+		@Override
+		public boolean reset() {
+			return last.reset();
+		}
+	};
+
+	/** Construct a new CachingTermPipeline
+	 * @param _last the final stage of the pipeline, which receives the processed terms
+	 * @param _cache the cache to use
+	 */
+	public CachingTermPipeline(TermPipeline _last, TermPipelineCache _cache)
+	{
+		this.last = _last;
+		this.cache = _cache;
+		this.pipeline = capture;
+	}
+
+	/** Returns the stage that the cached stages of the pipeline should pass their output to */
+	public TermPipeline getCaptureStage()
+	{
+		return capture;
+	}
+
+	/** Sets the first of the stages of the pipeline to be cached */
+	public void setPipeline(TermPipeline first)
+	{
+		this.pipeline = first;
+	}
+
+	/** Returns the cache in use */
+	public TermPipelineCache getCache()
+	{
+		return cache;
+	}
+
+	@Override
+	public void processTerm(String t) {
+		if (t == null)
+			return;
+		String out = cache.get(t);
+		if (out == null)
+		{
+			output = null;
+			pipeline.processTerm(t);
+			out = output;
+			cache.put(t, out);
+			if (out == null)
+				return;
+		}
+		else if (out == TermPipelineCache.DISCARDED)
+		{
+			return;
+		}
+		last.processTerm(out);
+	}
+
+	@Override
+	public boolean reset() {
+		return pipeline.reset();
+	}
+}
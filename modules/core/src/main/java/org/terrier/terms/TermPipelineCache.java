@@ -0,0 +1,121 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.uk
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TermPipelineCache.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ *
+ */
+package org.terrier.terms;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.utility.ApplicationSetup;
+
+/** A bounded, concurrent memo of the output of a term pipeline for each input term,
+ * such that the stopword lookups and stemming of frequent terms are only performed once.
+ * Terms discarded by the pipeline (e.g. stopwords) are also remembered.
+ * Once the cache is full, no further terms are added - as term frequencies are Zipfian,
+ * the frequent terms are usually seen (and cached) early. A cache can be shared by several threads.
+ * <p>
+ * Caching is only applied to pipelines whose stages are known to depend only on the term itself, namely
+ * {@link Stopwords}, {@link StemmerTermPipeline}s, {@link RemoveDiacritics}, {@link CropTerm} and {@link NoOp}.
+ * <p><b>Properties</b>
+ * <ul><li><tt>termpipelines.cache.size</tt> - maximum number of terms to cache. Defaults to 100000. 0 disables caching.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class TermPipelineCache {
+
+	protected static final Logger logger = LoggerFactory.getLogger(TermPipelineCache.class);
+
+	/** Returned by {@link #get(String)} for terms which the pipeline discards */
+	public static final String DISCARDED = new String("");
+
+	static final Class<?>[] CACHEABLE_STAGES = new Class<?>[]{
+		Stopwords.class, StemmerTermPipeline.class, RemoveDiacritics.class, CropTerm.class, NoOp.class
+	};
+
+	final ConcurrentHashMap<String,String> cache;
+	final int maxSize;
+
+	/** Create a cache holding at most maxSize terms */
+	public TermPipelineCache(int _maxSize)
+	{
+		this.maxSize = _maxSize;
+		this.cache = new ConcurrentHashMap<String,String>(Math.min(maxSize, 1024));
+	}
+
+	/** Returns the pipeline output for the specified term, {@link #DISCARDED} if the
+	 * pipeline discards it, or null if it has not been cached. */
+	public String get(String term)
+	{
+		return cache.get(term);
+	}
+
+	/** Records the pipeline output for the specified term. A null output denotes a discarded term. */
+	public void put(String term, String output)
+	{
+		if (cache.size() >= maxSize)
+			return;
+		cache.putIfAbsent(term, output == null ? DISCARDED : output);
+	}
+
+	/** Returns the number of terms cached */
+	public int size()
+	{
+		return cache.size();
+	}
+
+	/** Returns a cache for a pipeline consisting of the named stages, or null if caching is
+	 * disabled or any of the stages may not be safely cached. */
+	public static TermPipelineCache create(String[] pipes, String namespace)
+	{
+		final int size = Integer.parseInt(ApplicationSetup.getProperty("termpipelines.cache.size", "100000"));
+		if (size <= 0)
+			return null;
+		for(String className : pipes)
+		{
+			if (className.length() == 0)
+				continue;
+			if (className.indexOf(".") < 0 )
+				className = namespace + className;
+			try{
+				final Class<?> pipeClass = ApplicationSetup.getClass(className, false);
+				boolean cacheable = false;
+				for(Class<?> c : CACHEABLE_STAGES)
+					if (c.isAssignableFrom(pipeClass))
+						cacheable = true;
+				if (! cacheable)
+				{
+					logger.debug("Not caching term pipeline, as " + className + " may not be cacheable");
+					return null;
+				}
+			} catch (Exception e) {
+				return null;
+			}
+		}
+		return new TermPipelineCache(size);
+	}
+}
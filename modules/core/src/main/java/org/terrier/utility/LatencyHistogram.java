@@ -0,0 +1,135 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is LatencyHistogram.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A histogram of non-negative long values, such as latencies in nanoseconds, that can be recorded
+ * concurrently without locking. Like an HDR histogram, the buckets are log-linear: each power of two
+ * is divided into 32 equal sub-buckets, such that any percentile is reported with a relative error of
+ * at most 1/32 (about 3%), using a fixed number of buckets regardless of the range of the values.
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	/** enough buckets for any non-negative long */
+	static final int NUM_BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+	protected final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	protected final LongAdder count = new LongAdder();
+	protected final LongAdder sum = new LongAdder();
+	protected final AtomicLong max = new AtomicLong();
+
+	/** returns the bucket of the specified value */
+	static int index(long value)
+	{
+		if (value < SUB_BUCKETS)
+			return (int) Math.max(0, value);
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/** returns the largest value that is recorded in the specified bucket */
+	static long highestValue(int index)
+	{
+		if (index < SUB_BUCKETS)
+			return index;
+		final int shift = (index >>> SUB_BITS) - 1;
+		final long subBucket = (index & (SUB_BUCKETS - 1)) | SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/** Records one occurrence of the specified value. Negative values are recorded as 0. */
+	public void record(long value)
+	{
+		value = Math.max(0, value);
+		counts.incrementAndGet(index(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/** Returns the number of values recorded */
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/** Returns the sum of the values recorded */
+	public long getSum()
+	{
+		return sum.sum();
+	}
+
+	/** Returns the largest value recorded, or 0 if none */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	/** Returns the mean of the values recorded, or 0 if none */
+	public double getMean()
+	{
+		final long n = getCount();
+		return n == 0 ? 0 : (double) getSum() / (double) n;
+	}
+
+	/** Returns a value such that the specified percentage of recorded values are no larger than it,
+	 * subject to the precision of the buckets.
+	 * @param percentile between 0 and 100
+	 * @return the value at the percentile, or 0 if no values were recorded
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		final long n = getCount();
+		if (n == 0)
+			return 0;
+		final long target = Math.max(1, (long) Math.ceil(percentile / 100.0d * n));
+		long seen = 0;
+		for(int i=0;i<NUM_BUCKETS;i++)
+		{
+			seen += counts.get(i);
+			if (seen >= target)
+				return Math.min(highestValue(i), getMax());
+		}
+		return getMax();
+	}
+
+	/** Forgets all recorded values */
+	public void reset()
+	{
+		for(int i=0;i<NUM_BUCKETS;i++)
+			counts.set(i, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+}
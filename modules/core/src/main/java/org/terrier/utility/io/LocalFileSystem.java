@@ -24,6 +24,7 @@
  *   Craig Macdonald (craigm{at}dcs.gla.ac.uk)
  */
 package org.terrier.utility.io;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -32,6 +33,8 @@ import java.io.FileNotFoundException;
 import java.io.RandomAccessFile;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import org.terrier.utility.Files.FSCapability;
 
 /** This is a Terrier File Abstraction Layer implementation of the local file system. The file system implementation for the 
@@ -53,12 +56,27 @@ public class LocalFileSystem implements FileSystem, FSCapability
 	 */
 	protected static class LocalRandomAccessFile 
 		extends RandomAccessFile 
-		implements RandomDataOutput
+		implements RandomDataOutput, PositionalRandomDataInput
 	{
 		public LocalRandomAccessFile(String name, String mode) throws FileNotFoundException
 		{
 			super(name,mode);
 		}
+
+		/** Reads using the positional read of the file's channel, which does not alter the file pointer */
+		@Override
+		public void readFully(long pos, byte[] b, int off, int len) throws IOException
+		{
+			final FileChannel channel = getChannel();
+			final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+			while(bb.hasRemaining())
+			{
+				final int read = channel.read(bb, pos);
+				if (read < 0)
+					throw new EOFException();
+				pos += read;
+			}
+		}
 	}
 
 	protected String normalise(String filename)
@@ -0,0 +1,55 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is PositionalRandomDataInput.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.utility.io;
+
+import java.io.IOException;
+
+/** A RandomDataInput that can also read bytes at a given position of the file, without using
+ * or altering its file pointer. Such positional reads may be made concurrently by several threads.
+ * @since 5.3
+ * @author Craig Macdonald
+ */
+public interface PositionalRandomDataInput extends RandomDataInput
+{
+	/** Reads exactly len bytes starting at the specified position of the file into b. 
+	 * @throws java.io.EOFException if the end of the file is reached first */
+	void readFully(long pos, byte[] b, int off, int len) throws IOException;
+
+	/** Reads exactly len bytes starting at the specified position of the specified file into b.
+	 * If the file does not implement PositionalRandomDataInput, the read is synchronized on the file. */
+	static void readFully(RandomDataInput in, long pos, byte[] b, int off, int len) throws IOException
+	{
+		if (in instanceof PositionalRandomDataInput)
+		{
+			((PositionalRandomDataInput)in).readFully(pos, b, off, len);
+			return;
+		}
+		synchronized (in) {
+			in.seek(pos);
+			in.readFully(b, off, len);
+		}
+	}
+}
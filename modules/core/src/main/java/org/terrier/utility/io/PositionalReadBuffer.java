@@ -0,0 +1,60 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is PositionalReadBuffer.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.utility.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+
+/** A reusable buffer for fixed-size positional reads of a {@link RandomDataInput}. The bytes read are 
+ * decoded through the buffer itself, such that repeated reads, e.g. the probes of a binary search,
+ * allocate no arrays or streams. A buffer must only be used by one thread at a time; structures that
+ * are read concurrently keep one buffer per thread, in a {@link ThreadLocal}.
+ * @since 5.3
+ * @author Craig Macdonald
+ */
+public class PositionalReadBuffer extends DataInputBuffer
+{
+	protected final byte[] bytes;
+
+	/** Makes a buffer for reads of the specified number of bytes */
+	public PositionalReadBuffer(int size)
+	{
+		bytes = new byte[size];
+	}
+
+	/** Reads the bytes at the specified position of the file into this buffer, using
+	 * {@link PositionalRandomDataInput#readFully(RandomDataInput, long, byte[], int, int)}.
+	 * @return this buffer, positioned at the first byte read
+	 */
+	public DataInput read(RandomDataInput in, long pos) throws IOException
+	{
+		PositionalRandomDataInput.readFully(in, pos, bytes, 0, bytes.length);
+		reset(bytes, bytes.length);
+		return this;
+	}
+}
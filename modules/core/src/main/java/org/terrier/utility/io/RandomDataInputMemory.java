@@ -28,6 +28,7 @@ package org.terrier.utility.io;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
  
@@ -37,7 +38,7 @@ import org.terrier.utility.Files;
  * @since 3.0
  * @author Craig Macdonald 
  */
-public class RandomDataInputMemory extends DataInputStream implements RandomDataInput, Cloneable  {
+public class RandomDataInputMemory extends DataInputStream implements PositionalRandomDataInput, Cloneable  {
      
     static int MAX_INDIVIDUAL_BUFFER_SIZE = Integer.MAX_VALUE - 8;
     //static int MAX_INDIVIDUAL_BUFFER_SIZE = 8;
@@ -47,6 +48,8 @@ public class RandomDataInputMemory extends DataInputStream implements RandomData
         void seek(long _pos);       
         long getFilePointer();              
         long length();
+        /** copies bytes at the specified position, without altering the file pointer */
+        void readFully(long _pos, byte[] b, int off, int len) throws IOException;
     }
      
     /** seekable implementation which uses multiple byte arrays */
@@ -174,6 +177,22 @@ public class RandomDataInputMemory extends DataInputStream implements RandomData
             return n;
         }
  
+        public final void readFully(long _pos, final byte[] b, int off, int len) throws IOException
+        {
+            if (_pos + len > length)
+                throw new EOFException();
+            while(len > 0)
+            {
+                final byte[] sector = data[(int)(_pos / individual_buffer_size)];
+                final int sectorOff = (int)(_pos % individual_buffer_size);
+                final int read = Math.min(sector.length - sectorOff, len);
+                System.arraycopy(sector, sectorOff, b, off, read);
+                _pos += read;
+                off += read;
+                len -= read;
+            }
+        }
+
         @Override
         public void close() throws IOException { }
          
@@ -205,6 +224,13 @@ public class RandomDataInputMemory extends DataInputStream implements RandomData
         {
             return super.buf;
         }
+
+        public void readFully(long _pos, byte[] b, int off, int len) throws IOException
+        {
+            if (_pos + len > count)
+                throw new EOFException();
+            System.arraycopy(super.buf, (int)_pos, b, off, len);
+        }
     }
      
     /** input stream to use */
@@ -270,6 +296,11 @@ public class RandomDataInputMemory extends DataInputStream implements RandomData
     public void close() throws IOException {
         buf.close();
     }
+
+    /** {@inheritDoc} */
+    public void readFully(long _pos, byte[] b, int off, int len) throws IOException {
+        buf.readFully(_pos, b, off, len);
+    }
      
     @Override
     public Object clone() throws CloneNotSupportedException
@@ -40,7 +40,8 @@ import org.terrier.utility.io.RandomDataInput;
  * 
  * The bytewise counterpart of {@link BitFileBuffered}
  * 
- * This class uses a "file pool", so pay attention to close unused resources
+ * This class uses a "file pool", so pay attention to close unused resources.
+ * The pool is synchronized, such that several threads may read from the same file.
  * 
  * @author Matteo Catena
  * @since 4.0
@@ -98,7 +99,7 @@ public class ByteFileBuffered implements ByteInSeekable {
 	}
 
 	@Override
-	public void close() {
+	public synchronized void close() {
 
 		try {
 
@@ -113,7 +114,7 @@ public class ByteFileBuffered implements ByteInSeekable {
 
 	}
 
-	private RandomDataInput getFile() throws IOException {
+	private synchronized RandomDataInput getFile() throws IOException {
 		
 		if (filePool.isEmpty()) filePool.push(Files.openFileRandom(filename));
 		
@@ -136,7 +137,7 @@ public class ByteFileBuffered implements ByteInSeekable {
 		return readReset(startByteOffset, startByteOffset + bufferSize);
 	}
 	
-	public void reclaim(RandomDataInput file) {
+	public synchronized void reclaim(RandomDataInput file) {
 		
 		if (file != null) filePool.push(file);
 	}
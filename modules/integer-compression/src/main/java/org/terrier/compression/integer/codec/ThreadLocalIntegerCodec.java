@@ -0,0 +1,79 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is ThreadLocalIntegerCodec.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *  Craig Macdonald
+ *
+ */
+
+package org.terrier.compression.integer.codec;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.terrier.compression.integer.ByteIn;
+import org.terrier.compression.integer.ByteOut;
+
+/**
+ * IntegerCodec implementation that delegates to a separate instance of another codec
+ * for each thread. Codecs typically keep buffers between calls, and so cannot be
+ * shared by postings being read by different threads. This allows a single
+ * codec to be shared by all postings of a posting index.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public final class ThreadLocalIntegerCodec extends IntegerCodec {
+
+	private final ThreadLocal<IntegerCodec> codecs;
+	private final String name;
+
+	/** Constructs a new ThreadLocalIntegerCodec
+	 * @param factory creates a new instance of the underlying codec for each thread
+	 */
+	public ThreadLocalIntegerCodec(Supplier<IntegerCodec> factory) {
+		final IntegerCodec first = factory.get();
+		this.name = first.toString();
+		this.codecs = ThreadLocal.withInitial(factory);
+		this.codecs.set(first);
+	}
+
+	@Override
+	public final void compress(final int[] in, final int len, final ByteOut out) throws IOException {
+		codecs.get().compress(in, len, out);
+	}
+
+	@Override
+	public final void decompress(final ByteIn in, final int[] out, final int num) throws IOException {
+		codecs.get().decompress(in, out, num);
+	}
+
+	@Override
+	public final void skip(final ByteIn in) throws IOException {
+		codecs.get().skip(in);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -36,7 +36,9 @@ import org.terrier.compression.integer.ByteFileInMemory;
 import org.terrier.compression.integer.ByteIn;
 import org.terrier.compression.integer.ByteInSeekable;
 import org.terrier.compression.integer.codec.IntegerCodec;
+import org.terrier.compression.integer.codec.ThreadLocalIntegerCodec;
 import org.terrier.structures.BitIndexPointer;
+import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.DocumentIndex;
 import org.terrier.structures.DocumentIndexEntry;
 import org.terrier.structures.IndexOnDisk;
@@ -65,9 +67,14 @@ import org.terrier.utility.io.WrappedIOException;
  * index.structureName.compression.integer.fields.codec=the {@link IntegerCodec} implementation to use for fields (optional)
  * index.structureName.compression.integer.blocks.codec=the {@link IntegerCodec} implementation to use for blocks (optional)
  * 
+ * Each thread decompresses using its own instance of each codec (see {@link ThreadLocalIntegerCodec}),
+ * and each posting list reads from its own view of the underlying file, such that postings
+ * can be obtained and iterated by several threads concurrently.
+ * 
  * @author Matteo Catena, Craig Macdonald
  * @since 4.0
  */
+@ConcurrentReadable
 public class IntegerCodingPostingIndex implements PostingIndex<BitIndexPointer> {
 	
 	Logger log = LoggerFactory.getLogger(IntegerCodingPostingIndex.class);
@@ -112,23 +119,23 @@ public class IntegerCodingPostingIndex implements PostingIndex<BitIndexPointer>
 
 			String idsPrefix = compressionPrefix + ".ids";
 			String idsCodecName = index.getIndexProperty(idsPrefix + ".codec", "");
-			this.idsCodec = IntegerCodecCompressionConfiguration.loadCodec(idsCodecName);
+			this.idsCodec = loadConcurrentCodec(idsCodecName);
 
 			String tfsPrefix = compressionPrefix + ".tfs";
 			String tfsCodecName = index.getIndexProperty(tfsPrefix + ".codec", "");
-			this.tfsCodec = IntegerCodecCompressionConfiguration.loadCodec(tfsCodecName);
+			this.tfsCodec = loadConcurrentCodec(tfsCodecName);
 			
 			if (fieldsCount > 0) {
 				String fieldsPrefix = compressionPrefix + ".fields";
 				String fieldsCodecName = index.getIndexProperty(
 						fieldsPrefix + ".codec", "");
-				this.fieldsCodec =  IntegerCodecCompressionConfiguration.loadCodec(fieldsCodecName);
+				this.fieldsCodec =  loadConcurrentCodec(fieldsCodecName);
 			}
 
 			if (hasBlocks > 0) {
 				String blocksPrefix = compressionPrefix + ".blocks";
 				String blocksCodecName = index.getIndexProperty(blocksPrefix + ".codec", "");
-				this.blocksCodec = IntegerCodecCompressionConfiguration.loadCodec(blocksCodecName);
+				this.blocksCodec = loadConcurrentCodec(blocksCodecName);
 			}
 
 		} catch (Exception e) {
@@ -137,6 +144,17 @@ public class IntegerCodingPostingIndex implements PostingIndex<BitIndexPointer>
 
 	}
 
+	/** Loads the named codec, such that each thread uses a separate instance */
+	static IntegerCodec loadConcurrentCodec(final String codecName) throws Exception {
+		return new ThreadLocalIntegerCodec(() -> {
+			try{
+				return IntegerCodecCompressionConfiguration.loadCodec(codecName);
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Could not load codec " + codecName, e);
+			}
+		});
+	}
+
 	protected void openFile(String structureName) throws IOException {
 		
 		IndexOnDisk _index = index;
@@ -29,6 +29,7 @@ package org.terrier.integer;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.terrier.integer.structure.TestConcurrentIntegerCodingPostingIndex;
 import org.terrier.integer.structure.TestIntegerCoding;
 import org.terrier.integer.structure.TestIntegerCoding2;
 import org.terrier.integer.structure.TestNext;
@@ -52,6 +53,7 @@ import org.terrier.integer.tests.BlockShakSmallMaxBlockSize;
 	TestIntegerCoding.class,
 	TestIntegerCoding2.class,
 	TestNext.class,
+	TestConcurrentIntegerCodingPostingIndex.class,
 	BasicShak.class,
 	BasicShakFastPFORRecompress.class,
 	BasicShakNullRecompress.class,
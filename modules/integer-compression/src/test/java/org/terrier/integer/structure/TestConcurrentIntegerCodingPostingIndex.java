@@ -0,0 +1,137 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestConcurrentIntegerCodingPostingIndex.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+
+package org.terrier.integer.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.terrier.compression.integer.codec.LemireFastPFORVBCodec;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.structures.ConcurrentReadable;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.integer.IntegerCodecCompressionConfiguration;
+import org.terrier.structures.integer.IntegerCodingPostingIndex;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestConcurrentIntegerCodingPostingIndex extends ApplicationSetupBasedTest {
+
+	static final int NUM_DOCS = 300;
+	static final int NUM_THREADS = 8;
+
+	@Test public void testConcurrentPostings() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.inverted.compression.configuration", IntegerCodecCompressionConfiguration.class.getName());
+		ApplicationSetup.setProperty("compression.inverted.integer.ids.codec", LemireFastPFORVBCodec.class.getName());
+		ApplicationSetup.setProperty("compression.inverted.integer.tfs.codec", LemireFastPFORVBCodec.class.getName());
+		//small chunks, such that each posting list is decompressed by several codec invocations
+		ApplicationSetup.setProperty("compression.integer.chunk.size", "16");
+
+		String[] docnos = new String[NUM_DOCS];
+		String[] docs = new String[NUM_DOCS];
+		for(int i=0;i<NUM_DOCS;i++)
+		{
+			docnos[i] = "doc" + i;
+			StringBuilder s = new StringBuilder();
+			for(int j=1;j<=20;j++)
+				if (i % j == 0)
+					for(int k=0;k<=i%j;k++)
+						s.append("term").append(j).append(' ');
+			docs[i] = s.toString();
+		}
+		final Index index = IndexTestUtils.makeIndex(docnos, docs);
+		final PostingIndex<?> inv = index.getInvertedIndex();
+		assertTrue(inv instanceof IntegerCodingPostingIndex);
+		assertTrue(inv.getClass().isAnnotationPresent(ConcurrentReadable.class));
+
+		//obtain the expected postings using a single thread
+		final List<LexiconEntry> entries = new ArrayList<>();
+		final List<int[][]> expected = new ArrayList<>();
+		for(Map.Entry<String,LexiconEntry> lee : index.getLexicon())
+		{
+			entries.add(lee.getValue());
+			expected.add(readPostings(inv, lee.getValue()));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for(int t=0;t<NUM_THREADS;t++)
+		{
+			final int offset = t;
+			results.add(pool.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					for(int r=0;r<20;r++)
+						for(int i=0;i<entries.size();i++)
+						{
+							final int e = (i + offset) % entries.size();
+							final int[][] actual = readPostings(inv, entries.get(e));
+							assertEquals(expected.get(e)[0].length, actual[0].length);
+							for(int p=0;p<actual[0].length;p++)
+							{
+								assertEquals(expected.get(e)[0][p], actual[0][p]);
+								assertEquals(expected.get(e)[1][p], actual[1][p]);
+							}
+						}
+					return true;
+				}
+			}));
+		}
+		for(Future<Boolean> f : results)
+			assertTrue(f.get());
+		pool.shutdown();
+		index.close();
+	}
+
+	static int[][] readPostings(PostingIndex<?> inv, LexiconEntry le) throws Exception
+	{
+		final int[][] rtr = new int[2][le.getDocumentFrequency()];
+		IterablePosting ip = inv.getPostings(le);
+		int i = 0;
+		while(ip.next() != IterablePosting.EOL)
+		{
+			rtr[0][i] = ip.getId();
+			rtr[1][i] = ip.getFrequency();
+			i++;
+		}
+		ip.close();
+		assertEquals(rtr[0].length, i);
+		return rtr;
+	}
+}
@@ -27,7 +27,10 @@
 package org.terrier.matching;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.terrier.learning.FeaturedQueryResultSet;
 import org.terrier.learning.FeaturedResultSet;
@@ -58,6 +61,11 @@ import org.terrier.structures.postings.WritablePosting;
  * <li><tt>fat.featured.scoring.matching.features</tt> - a semicolon delimited list of features OR the word <tt>FILE</tt> 
  * to load the feature list from a file.</li>
  * <li><tt>fat.featured.scoring.matching.features.file</tt> - a filename containing a newline delimited list of feature.</li>
+ * <li><tt>fat.featured.scoring.matching.threads</tt> - number of threads used to compute the features of each query. Features
+ * are computed in parallel on a pool shared by all instances, and added to the {@link FeaturedResultSet} in the same order as
+ * when computed sequentially. Defaults to 1, i.e. sequential; -1 uses the common pool.</li>
+ * <li><tt>fat.featured.scoring.matching.block.size</tt> - if greater than 0, each QI feature is computed in blocks of this many 
+ * documents, which can be scored in parallel. Defaults to 0.</li>
  * </ul>
  * <p>
  * <b>See also:</b> "About Learning Models with Multiple Query Dependent Features. Craig Macdonald, Rodrygo L.T. Santos, Iadh Ounis and Ben He. Transactions on Information Systems. 31(3). 2013. <a href="http://www.dcs.gla.ac.uk/~craigm/publications/macdonald13multquerydf.pdf">[PDF]</a>
@@ -77,7 +85,7 @@ public class FatFeaturedScoringMatching extends FeaturedScoringMatching {
 		super(_index, _parent, FatScoringMatching.class);
 	}
 	
-	public ResultSet doMatch(String queryNumber, MatchingQueryTerms queryTerms, final ResultSet res)
+	public ResultSet doMatch(final String queryNumber, final MatchingQueryTerms queryTerms, final ResultSet res)
 		throws IOException
 	{
 		final FatResultSet fat = (FatResultSet)res;
@@ -98,38 +106,57 @@ public class FatFeaturedScoringMatching extends FeaturedScoringMatching {
 			featureCount++;
 		}
 		
+		//the features are computed by a list of tasks, which fill the score arrays of the features
+		final List<Callable<Object>> tasks = new ArrayList<>();
+		final int[] docids = fat.getDocids();
+		
 		//for each WMODEL feature
-		for(int fid=0;fid<wModels.length;fid++)
+		final double[][] wModelScores = new double[wModels.length][];
+		if (wModels.length > 0)
+			fat.getPostingColumns(); //convert the postings before the features share them
+		for(int i=0;i<wModels.length;i++)
 		{
-			final ResultSet thinChild = wModels[fid].doMatch(queryNumber, queryTerms, fat);
-			rtr.putFeatureScores(wModelNames[fid], thinChild.getScores());
-			featureCount++;
+			final int fid = i;
+			tasks.add(() -> {
+				final ResultSet thinChild = wModels[fid].doMatch(queryNumber, queryTerms, fat);
+				wModelScores[fid] = thinChild.getScores();
+				return null;
+			});
 		}
 		
-		//for each QI features
+		//for each QI features, optionally split into blocks of documents
+		final double[][] qiScores = new double[qiFeatures.length][numResults];
 		if (qiFeatures.length > 0)
 		{
-			WritablePosting[][] postings = fat.getPostings();
-			int[] docids = fat.getDocids();
-			for(int fid=0;fid<qiFeatures.length;fid++)
+			final WritablePosting[][] postings = fat.getPostings();
+			final int step = blockSize > 0 ? blockSize : numResults;
+			for(int i=0;i<qiFeatures.length;i++)
 			{
-				WeightingModel wm = qiFeatures[fid];
-				double[] scores = new double[numResults];
-				for(int di=0;di<numResults;di++)
+				final int fid = i;
+				for(int start=0;start<numResults;start+=step)
 				{
-					WritablePosting p = FatUtils.firstPosting(postings[di]);
-					if (p == null){
-						p = new BlockFieldPostingImpl(docids[di], 0, new int[0], new int[4]);//hack
-						((FieldPosting)p).setFieldLengths(new int[4]);
-					}
-					scores[di] = wm.score(p);
+					final int from = start;
+					final int to = Math.min(numResults, start + step);
+					//each block uses its own copy of the weighting model
+					final WeightingModel wm = from == 0 ? qiFeatures[fid] : (WeightingModel) qiFeatures[fid].clone();
+					tasks.add(() -> {
+						for(int di=from;di<to;di++)
+						{
+							WritablePosting p = FatUtils.firstPosting(postings[di]);
+							if (p == null){
+								p = new BlockFieldPostingImpl(docids[di], 0, new int[0], new int[4]);//hack
+								((FieldPosting)p).setFieldLengths(new int[4]);
+							}
+							qiScores[fid][di] = wm.score(p);
+						}
+						return null;
+					});
 				}
-				rtr.putFeatureScores(qiFeatureNames[fid], scores);
-				featureCount++;
 			}
 		}
 		
 		//for each DSM feature
+		final double[][] dsmScores = new double[dsms.length][numResults];
 		if (dsms.length > 0)
 		{
 			final Index fatIndex = FatUtils.makeIndex(fat);
@@ -143,7 +170,27 @@ public class FatFeaturedScoringMatching extends FeaturedScoringMatching {
 				mqtLocal.setTermProperty(t, fat.getEntryStatistics()[ti]);
 				ti++;
 			}
-			featureCount += applyDSMs(fatIndex, queryNumber, mqtLocal, numResults, fat.getDocids(), fat.getOccurrences(), rtr);
+			addDSMTasks(tasks, fatIndex, mqtLocal, numResults, docids, fat.getOccurrences(), dsmScores);
+		}
+		
+		execute(tasks);
+		
+		//add the features in a deterministic order
+		for(int fid=0;fid<wModels.length;fid++)
+		{
+			rtr.putFeatureScores(wModelNames[fid], wModelScores[fid]);
+			featureCount++;
+		}
+		for(int fid=0;fid<qiFeatures.length;fid++)
+		{
+			rtr.putFeatureScores(qiFeatureNames[fid], qiScores[fid]);
+			featureCount++;
+		}
+		for(int fid=0;fid<dsms.length;fid++)
+		{
+			//add the feature, regardless of whether it has scores or not
+			rtr.putFeatureScores(dsmNames[fid], dsmScores[fid]);
+			featureCount++;
 		}
 		
 		//labels
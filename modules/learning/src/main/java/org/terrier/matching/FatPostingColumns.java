@@ -0,0 +1,482 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is FatPostingColumns.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+
+package org.terrier.matching;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.terrier.structures.postings.BasicPostingImpl;
+import org.terrier.structures.postings.BlockFieldPostingImpl;
+import org.terrier.structures.postings.BlockPosting;
+import org.terrier.structures.postings.BlockPostingImpl;
+import org.terrier.structures.postings.FieldPosting;
+import org.terrier.structures.postings.FieldPostingImpl;
+import org.terrier.structures.postings.Posting;
+import org.terrier.structures.postings.WritablePosting;
+
+/** A columnar representation of the postings of a {@link FatResultSet}. Instead of a
+ * posting object for each document and term, the frequencies, document lengths, field frequencies,
+ * field lengths and positions are held in arrays of primitives. Cell (d,t) denotes the
+ * posting of the t-th query term for the document at rank d; a frequency of 0 denotes no posting.
+ * The positions of all cells are held in a single array, indexed by offsets.
+ * <p>
+ * {@link #getPosting(int, int[])} provides a reusable {@link Posting} view over a term's column, such
+ * that postings can be scored without creating posting objects. {@link #toPostings(int[])} and
+ * {@link #fromPostings(WritablePosting[][], int, int)} convert to and from the 2D array of posting objects.
+ * Only the standard posting implementations (basic, block, field and block-field) can be represented.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class FatPostingColumns {
+
+	final int numDocs;
+	final int numTerms;
+	final int fieldCount;
+	final boolean[] fields;
+	final boolean[] blocks;
+	/** length of each document */
+	final int[] docLengths;
+	/** length of each field of each document, indexed by d * fieldCount + f */
+	final int[] fieldLengths;
+	/** frequency of each cell, indexed by d * numTerms + t */
+	final int[] frequencies;
+	/** field frequencies of each cell, indexed by (d * numTerms + t) * fieldCount + f */
+	final int[] fieldFrequencies;
+	/** start of the positions of each cell, with one extra entry */
+	final int[] positionOffsets;
+	/** positions of all cells */
+	final int[] positions;
+
+	FatPostingColumns(int _numDocs, int _numTerms, int _fieldCount, boolean[] _fields, boolean[] _blocks, int[] _docLengths, int[] _fieldLengths,
+			int[] _frequencies, int[] _fieldFrequencies, int[] _positionOffsets, int[] _positions)
+	{
+		numDocs = _numDocs;
+		numTerms = _numTerms;
+		fieldCount = _fieldCount;
+		fields = _fields;
+		blocks = _blocks;
+		docLengths = _docLengths;
+		fieldLengths = _fieldLengths;
+		frequencies = _frequencies;
+		fieldFrequencies = _fieldFrequencies;
+		positionOffsets = _positionOffsets;
+		positions = _positions;
+	}
+
+	/** Returns true if the all of the postings can be represented in columns */
+	public static boolean isSupported(WritablePosting[][] postings)
+	{
+		for(WritablePosting[] row : postings)
+		{
+			if (row == null)
+				continue;
+			for(WritablePosting p : row)
+			{
+				if (p == null)
+					continue;
+				final Class<?> c = p.getClass();
+				if (c != BasicPostingImpl.class && c != BlockPostingImpl.class && c != FieldPostingImpl.class && c != BlockFieldPostingImpl.class)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/** Converts a 2D array of postings, indexed by document then by term, into columns.
+	 * @param postings postings of the result set
+	 * @param numTerms number of query terms
+	 * @param fieldCount number of fields in the collection
+	 */
+	public static FatPostingColumns fromPostings(WritablePosting[][] postings, int numTerms, int fieldCount)
+	{
+		final int numDocs = postings.length;
+		final boolean[] fields = new boolean[numTerms];
+		final boolean[] blocks = new boolean[numTerms];
+		for(int t=0;t<numTerms;t++)
+		{
+			final WritablePosting first = FatUtils.firstPosting(postings, t);
+			fields[t] = first instanceof FieldPosting;
+			blocks[t] = first instanceof BlockPosting;
+		}
+		final boolean anyFields = contains(fields);
+		final boolean anyBlocks = contains(blocks);
+		final int[] docLengths = new int[numDocs];
+		final int[] fieldLengths = fieldCount > 0 ? new int[numDocs * fieldCount] : null;
+		final int[] frequencies = new int[numDocs * numTerms];
+		final int[] fieldFrequencies = anyFields ? new int[numDocs * numTerms * fieldCount] : null;
+		final int[] positionOffsets = anyBlocks ? new int[numDocs * numTerms + 1] : null;
+		int positionCount = 0;
+		if (anyBlocks)
+			for(WritablePosting[] row : postings)
+				if (row != null)
+					for(int t=0;t<numTerms;t++)
+						if (row[t] != null && blocks[t])
+							positionCount += ((BlockPosting)row[t]).getPositions().length;
+		final int[] positions = anyBlocks ? new int[positionCount] : null;
+
+		positionCount = 0;
+		for(int d=0;d<numDocs;d++)
+		{
+			final WritablePosting[] row = postings[d];
+			boolean lengthsSet = false;
+			boolean fieldLengthsSet = false;
+			for(int t=0;t<numTerms;t++)
+			{
+				final int cell = d * numTerms + t;
+				if (anyBlocks)
+					positionOffsets[cell] = positionCount;
+				final WritablePosting p = row != null ? row[t] : null;
+				if (p == null)
+					continue;
+				frequencies[cell] = p.getFrequency();
+				if (! lengthsSet)
+				{
+					docLengths[d] = p.getDocumentLength();
+					lengthsSet = true;
+				}
+				if (! fieldLengthsSet && fieldCount > 0 && p instanceof FieldPosting && ((FieldPosting)p).getFieldLengths() != null)
+				{
+					System.arraycopy(((FieldPosting)p).getFieldLengths(), 0, fieldLengths, d * fieldCount, fieldCount);
+					fieldLengthsSet = true;
+				}
+				if (fields[t])
+					System.arraycopy(((FieldPosting)p).getFieldFrequencies(), 0, fieldFrequencies, cell * fieldCount, fieldCount);
+				if (blocks[t])
+				{
+					final int[] pos = ((BlockPosting)p).getPositions();
+					System.arraycopy(pos, 0, positions, positionCount, pos.length);
+					positionCount += pos.length;
+				}
+			}
+		}
+		if (anyBlocks)
+			positionOffsets[numDocs * numTerms] = positionCount;
+		return new FatPostingColumns(numDocs, numTerms, fieldCount, fields, blocks, docLengths, fieldLengths,
+			frequencies, fieldFrequencies, positionOffsets, positions);
+	}
+
+	static boolean contains(boolean[] ar)
+	{
+		for(boolean b : ar)
+			if (b)
+				return true;
+		return false;
+	}
+
+	/** Creates posting objects for every non-empty cell, indexed by document then by term.
+	 * The postings of each document share an array of field lengths. */
+	public WritablePosting[][] toPostings(int[] docids)
+	{
+		final WritablePosting[][] rtr = new WritablePosting[numDocs][numTerms];
+		for(int d=0;d<numDocs;d++)
+		{
+			final int[] lf = fieldCount > 0 ? getFieldLengths(d) : null;
+			for(int t=0;t<numTerms;t++)
+				if (frequencies[d * numTerms + t] > 0)
+					rtr[d][t] = makePosting(docids[d], d, t, lf);
+		}
+		return rtr;
+	}
+
+	WritablePosting makePosting(int docid, int d, int t, int[] lf)
+	{
+		final int cell = d * numTerms + t;
+		final WritablePosting p;
+		if (blocks[t] && fields[t])
+			p = new BlockFieldPostingImpl(docid, frequencies[cell], getPositions(cell), getFieldFrequencies(cell));
+		else if (blocks[t])
+			p = new BlockPostingImpl(docid, frequencies[cell], getPositions(cell));
+		else if (fields[t])
+			p = new FieldPostingImpl(docid, frequencies[cell], getFieldFrequencies(cell));
+		else
+			p = new BasicPostingImpl(docid, frequencies[cell]);
+		p.setDocumentLength(docLengths[d]);
+		if (fields[t])
+			((FieldPosting)p).setFieldLengths(lf);
+		return p;
+	}
+
+	int[] getPositions(int cell)
+	{
+		return Arrays.copyOfRange(positions, positionOffsets[cell], positionOffsets[cell+1]);
+	}
+
+	int[] getFieldFrequencies(int cell)
+	{
+		return Arrays.copyOfRange(fieldFrequencies, cell * fieldCount, (cell+1) * fieldCount);
+	}
+
+	int[] getFieldLengths(int d)
+	{
+		return Arrays.copyOfRange(fieldLengths, d * fieldCount, (d+1) * fieldCount);
+	}
+
+	/** Returns the number of documents */
+	public int getNumberOfDocuments()
+	{
+		return numDocs;
+	}
+
+	/** Returns the number of query terms */
+	public int getNumberOfTerms()
+	{
+		return numTerms;
+	}
+
+	/** Returns the frequency of the specified term in the document at the specified rank, or 0 if it does not occur */
+	public int getFrequency(int d, int t)
+	{
+		return frequencies[d * numTerms + t];
+	}
+
+	/** Returns the length of the document at the specified rank */
+	public int getDocumentLength(int d)
+	{
+		return docLengths[d];
+	}
+
+	/** Returns true if the postings of the specified term record field frequencies */
+	public boolean hasFields(int t)
+	{
+		return fields[t];
+	}
+
+	/** Returns true if the postings of the specified term record positions */
+	public boolean hasBlocks(int t)
+	{
+		return blocks[t];
+	}
+
+	/** Returns a view of the postings of the specified term. The view is positioned on a document
+	 * using {@link ColumnPosting#moveTo(int)}, and is a {@link FieldPosting} if the term has field frequencies.
+	 * @param t the query term
+	 * @param docids the docids of the result set
+	 */
+	public ColumnPosting getPosting(int t, int[] docids)
+	{
+		return fields[t] ? new FieldColumnPosting(t, docids) : new ColumnPosting(t, docids);
+	}
+
+	/** A reusable view of a column of postings */
+	public class ColumnPosting implements Posting
+	{
+		final int term;
+		final int[] docids;
+		int doc = -1;
+		int cell = -1;
+
+		ColumnPosting(int _term, int[] _docids)
+		{
+			term = _term;
+			docids = _docids;
+		}
+
+		/** Positions this posting on the document at the specified rank */
+		public ColumnPosting moveTo(int d)
+		{
+			doc = d;
+			cell = d * numTerms + term;
+			return this;
+		}
+
+		@Override
+		public int getId() {
+			return docids[doc];
+		}
+
+		@Override
+		public int getFrequency() {
+			return frequencies[cell];
+		}
+
+		@Override
+		public int getDocumentLength() {
+			return docLengths[doc];
+		}
+
+		@Override
+		public void setId(int id) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public WritablePosting asWritablePosting() {
+			return makePosting(getId(), doc, term, fieldCount > 0 ? getFieldLengths(doc) : null);
+		}
+	}
+
+	/** A reusable view of a column of postings with field frequencies */
+	public class FieldColumnPosting extends ColumnPosting implements FieldPosting
+	{
+		final int[] ff = new int[fieldCount];
+		final int[] lf = new int[fieldCount];
+
+		FieldColumnPosting(int _term, int[] _docids)
+		{
+			super(_term, _docids);
+		}
+
+		@Override
+		public FieldColumnPosting moveTo(int d)
+		{
+			super.moveTo(d);
+			if (fieldCount > 0)
+			{
+				System.arraycopy(fieldFrequencies, cell * fieldCount, ff, 0, fieldCount);
+				System.arraycopy(fieldLengths, d * fieldCount, lf, 0, fieldCount);
+			}
+			return this;
+		}
+
+		@Override
+		public int[] getFieldFrequencies() {
+			return ff;
+		}
+
+		@Override
+		public int[] getFieldLengths() {
+			return lf;
+		}
+
+		@Override
+		public void setFieldLengths(int[] newLengths) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/** Writes the columns. Each column is written in turn, using variable-length integers.
+	 * The positions follow all columns, in the order in which they are held: the total number of positions
+	 * is written first, then for each non-empty cell of a term with positions, document by document, the number
+	 * of positions of the cell and its gap-encoded positions. */
+	public void write(DataOutput out) throws IOException
+	{
+		WritableUtils.writeVInt(out, numDocs);
+		WritableUtils.writeVInt(out, numTerms);
+		WritableUtils.writeVInt(out, fieldCount);
+		for(int t=0;t<numTerms;t++)
+		{
+			out.writeBoolean(fields[t]);
+			out.writeBoolean(blocks[t]);
+		}
+		for(int d=0;d<numDocs;d++)
+			WritableUtils.writeVInt(out, docLengths[d]);
+		if (fieldCount > 0)
+			for(int i=0;i<numDocs * fieldCount;i++)
+				WritableUtils.writeVInt(out, fieldLengths[i]);
+		for(int t=0;t<numTerms;t++)
+		{
+			for(int d=0;d<numDocs;d++)
+				WritableUtils.writeVInt(out, frequencies[d * numTerms + t]);
+			if (fields[t])
+				for(int d=0;d<numDocs;d++)
+				{
+					final int cell = d * numTerms + t;
+					if (frequencies[cell] > 0)
+						for(int f=0;f<fieldCount;f++)
+							WritableUtils.writeVInt(out, fieldFrequencies[cell * fieldCount + f]);
+				}
+		}
+		if (! contains(blocks))
+			return;
+		WritableUtils.writeVInt(out, positions.length);
+		for(int cell=0;cell<numDocs * numTerms;cell++)
+		{
+			if (! blocks[cell % numTerms] || frequencies[cell] == 0)
+				continue;
+			WritableUtils.writeVInt(out, positionOffsets[cell+1] - positionOffsets[cell]);
+			int last = 0;
+			for(int i=positionOffsets[cell];i<positionOffsets[cell+1];i++)
+			{
+				WritableUtils.writeVInt(out, positions[i] - last);
+				last = positions[i];
+			}
+		}
+	}
+
+	/** Reads columns written by {@link #write(DataOutput)} */
+	public static FatPostingColumns read(DataInput in) throws IOException
+	{
+		final int numDocs = WritableUtils.readVInt(in);
+		final int numTerms = WritableUtils.readVInt(in);
+		final int fieldCount = WritableUtils.readVInt(in);
+		final boolean[] fields = new boolean[numTerms];
+		final boolean[] blocks = new boolean[numTerms];
+		for(int t=0;t<numTerms;t++)
+		{
+			fields[t] = in.readBoolean();
+			blocks[t] = in.readBoolean();
+		}
+		final int[] docLengths = new int[numDocs];
+		for(int d=0;d<numDocs;d++)
+			docLengths[d] = WritableUtils.readVInt(in);
+		final int[] fieldLengths = fieldCount > 0 ? new int[numDocs * fieldCount] : null;
+		if (fieldCount > 0)
+			for(int i=0;i<numDocs * fieldCount;i++)
+				fieldLengths[i] = WritableUtils.readVInt(in);
+		final int[] frequencies = new int[numDocs * numTerms];
+		final int[] fieldFrequencies = contains(fields) ? new int[numDocs * numTerms * fieldCount] : null;
+		for(int t=0;t<numTerms;t++)
+		{
+			for(int d=0;d<numDocs;d++)
+				frequencies[d * numTerms + t] = WritableUtils.readVInt(in);
+			if (fields[t])
+				for(int d=0;d<numDocs;d++)
+				{
+					final int cell = d * numTerms + t;
+					if (frequencies[cell] > 0)
+						for(int f=0;f<fieldCount;f++)
+							fieldFrequencies[cell * fieldCount + f] = WritableUtils.readVInt(in);
+				}
+		}
+		int[] positionOffsets = null;
+		int[] positions = null;
+		if (contains(blocks))
+		{
+			//positions are written in the order in which they are held, so are read directly
+			positionOffsets = new int[numDocs * numTerms + 1];
+			positions = new int[WritableUtils.readVInt(in)];
+			int positionCount = 0;
+			for(int cell=0;cell<numDocs * numTerms;cell++)
+			{
+				positionOffsets[cell] = positionCount;
+				if (! blocks[cell % numTerms] || frequencies[cell] == 0)
+					continue;
+				final int end = positionCount + WritableUtils.readVInt(in);
+				int last = 0;
+				while(positionCount < end)
+					last = positions[positionCount++] = last + WritableUtils.readVInt(in);
+			}
+			positionOffsets[numDocs * numTerms] = positionCount;
+		}
+		return new FatPostingColumns(numDocs, numTerms, fieldCount, fields, blocks, docLengths, fieldLengths,
+			frequencies, fieldFrequencies, positionOffsets, positions);
+	}
+}
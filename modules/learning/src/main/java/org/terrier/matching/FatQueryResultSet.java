@@ -48,6 +48,7 @@ public class FatQueryResultSet extends QueryResultSet implements FatResultSet {
 	
 	CollectionStatistics collStats;
 	WritablePosting[][] postings;
+	FatPostingColumns columns;
 	String[] queryTerms;
 	double[] keyFrequency;
 	EntryStatistics[] entryStats;
@@ -75,10 +76,21 @@ public class FatQueryResultSet extends QueryResultSet implements FatResultSet {
 
 	/** {@inheritDoc} */
 	@Override
-	public WritablePosting[][] getPostings() {
+	public synchronized WritablePosting[][] getPostings() {
+		//postings read in columnar form are only created when required
+		if (postings == null && columns != null)
+			postings = columns.toPostings(docids);
 		return postings;
 	}
 	
+	/** {@inheritDoc} */
+	@Override
+	public synchronized FatPostingColumns getPostingColumns() {
+		if (columns == null && postings != null && FatPostingColumns.isSupported(postings))
+			columns = FatPostingColumns.fromPostings(postings, queryTerms.length, collStats.getNumberOfFields());
+		return columns;
+	}
+	
 	/** {@inheritDoc} */
 	@Override
 	public double[] getKeyFrequencies() {
@@ -131,7 +143,7 @@ public class FatQueryResultSet extends QueryResultSet implements FatResultSet {
 		System.arraycopy(docids, start, resultSet.getDocids(), 0, length);
 		System.arraycopy(scores, start, resultSet.getScores(), 0, length);
 		System.arraycopy(occurrences, start, resultSet.getOccurrences(), 0, length);
-		System.arraycopy(postings, start, resultSet.getPostings(), 0, length);
+		System.arraycopy(getPostings(), start, resultSet.getPostings(), 0, length);
 		resultSet.metadata = new String[this.metadata.length][];
 		resultSet.metaMap = this.metaMap.clone();
 		for(int i=0;i<this.metadata.length;i++)
@@ -149,6 +161,9 @@ public class FatQueryResultSet extends QueryResultSet implements FatResultSet {
 	/** {@inheritDoc} */
 	@Override
 	public void sort(int topDocs) {
+		//materialise any columnar postings before the docids are reordered
+		getPostings();
+		columns = null;
 		int[] oldDocids = new int[getDocids().length];
 		System.arraycopy(getDocids(), 0, oldDocids, 0, getDocids().length);
 		HeapSort.descendingHeapSort(getScores(), getDocids(), getOccurrences(), topDocs);
@@ -177,8 +192,16 @@ public class FatQueryResultSet extends QueryResultSet implements FatResultSet {
 	
 	/** {@inheritDoc} */
 	@Override
-	public void setPostings(WritablePosting[][] wp) {
+	public synchronized void setPostings(WritablePosting[][] wp) {
 		postings = wp;
+		columns = null;
+	}
+	
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void setPostingColumns(FatPostingColumns c) {
+		columns = c;
+		postings = null;
 	}
 
 	/** {@inheritDoc} */
@@ -47,6 +47,16 @@ public interface FatResultSet extends ResultSet, Writable {
 	 */
 	public WritablePosting[][] getPostings();	
 	void setPostings(WritablePosting[][] wp);
+	
+	/** Returns the postings of this result set in columnar form, in the same order as
+	 * {@link #getPostings()}. This avoids creating a posting object for each document and term.
+	 * Returns null if the postings are not of types that can be represented in columns.
+	 * Each form is converted from the other when first required, and then retained. Implementations
+	 * must make this conversion safe for concurrent calls.
+	 * @since 5.3
+	 */
+	public FatPostingColumns getPostingColumns();
+	void setPostingColumns(FatPostingColumns columns);
 
 	/** Return the frequencies of each of the query terms in the query */	
 	public double[] getKeyFrequencies();
@@ -42,6 +42,7 @@ import org.terrier.structures.CollectionStatistics;
 import org.terrier.structures.EntryStatistics;
 import org.terrier.structures.Index;
 import org.terrier.structures.postings.FieldPosting;
+import org.terrier.structures.postings.Posting;
 import org.terrier.structures.postings.WritablePosting;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.HeapSort;
@@ -105,8 +106,10 @@ public class FatScoringMatching extends AbstractScoringMatching {
 	@Override
 	public ResultSet doMatch(String queryNumber, MatchingQueryTerms queryTerms, ResultSet inputRS) throws IOException
 	{
-		final int[] docids = inputRS.getDocids()/*.clone()*/; //cloning is unnecessary, as sort is usually disabled when called from FatScoringMatching
-		final short[] occurs = inputRS.getOccurrences()/*.clone()*/;
+		//when sorting, the input result set must not be reordered, as its postings are not sorted with it,
+		//and it may be rescored again, e.g. by WeightingModelSweep
+		final int[] docids = sort ? inputRS.getDocids().clone() : inputRS.getDocids();
+		final short[] occurs = sort ? inputRS.getOccurrences().clone() : inputRS.getOccurrences();
 		//final double[] scores = inputRS.getScores();\
 		//UNABLE to produce this bug using a junit
 		final double[] scores = new double[inputRS.getResultSize()];
@@ -132,7 +135,9 @@ public class FatScoringMatching extends AbstractScoringMatching {
 			? queryTerms.size()
 			: fInputRS.getQueryTerms().length;
 
-		final WritablePosting[][] postings = fInputRS.getPostings();
+		//score from the columnar postings where possible, to avoid creating posting objects
+		final FatPostingColumns columns = fInputRS.getPostingColumns();
+		final WritablePosting[][] postings = columns == null ? fInputRS.getPostings() : null;
 		final EntryStatistics[] entryStats = fInputRS.getEntryStatistics();
 		final CollectionStatistics collStats = fInputRS.getCollectionStatistics();
 		final double[] keyFreqs = fInputRS.getKeyFrequencies();
@@ -172,7 +177,33 @@ public class FatScoringMatching extends AbstractScoringMatching {
 		//rescore the documents
 		int gt0 = 0;
 		
-		for(int di=0;di<numDocs;di++)
+		final FatPostingColumns.ColumnPosting[] cursors = new FatPostingColumns.ColumnPosting[numTerms];
+		if (columns != null)
+			for(int ti=0;ti<numTerms;ti++)
+				cursors[ti] = columns.getPosting(ti, docids);
+		for(int di=0;di<numDocs && columns != null;di++)
+		{
+			double score = 0.0d;
+			for(int ti=0;ti<numTerms;ti++)
+			{
+				if (columns.getFrequency(di, ti) > 0 && okToScore[ti]) //check if scoring
+				{
+					final Posting p = cursors[ti].moveTo(di);
+					final double s = wms[ti].score(p);
+					if (logger.isDebugEnabled() && (Double.isNaN(s) || Double.isInfinite(s)))
+					{
+						logger.debug(wms[ti].getInfo() + " was "+s+": posting=(" +  p.toString() + ") for term " + ti + " ks=" + keyFreqs[ti] + " es="+ entryStats[ti] + " l=" + p.getDocumentLength());
+						if (p instanceof FieldPosting)
+							logger.debug("lf="+ Arrays.toString(((FieldPosting)p).getFieldLengths()));
+					}
+					score += s;
+				}
+			}
+			scores[di] = score;
+			if (score > 0.0d)
+				gt0++;
+		}
+		for(int di=0;di<numDocs && columns == null;di++)
 		{
 			double score = 0.0d;
 			if (postings[di] == null)
@@ -83,7 +83,7 @@ import org.terrier.utility.io.WrappedIOException;
  */
 public class FatUtils {
 
-	private static final byte VERSION = 5;
+	private static final byte VERSION = 6;
 	private static final boolean DEBUG = false;
 	
 	static Logger logger = LoggerFactory.getLogger(FatUtils.class);
@@ -110,6 +110,7 @@ public class FatUtils {
 				case 3: readFieldsV3(frs, in); break;
 				case 4: readFieldsV4(frs, in); break;
 				case 5: readFieldsV5(frs, in); break;
+				case 6: readFieldsV6(frs, in); break;
 				default: throw new IOException("Version mismatch, version " + version +" is not supported");
 			}			
 		}catch (EOFException eofe) {
@@ -326,23 +327,7 @@ public class FatUtils {
 					? statisticsClass.getConstructor(Integer.TYPE).newInstance(fieldCount)
 					: statisticsClass.newInstance();
 				((Writable)le).readFields(in);
-				if (queryTerms[j].contains("#uw") || queryTerms[j].contains("#1"))
-				{
-					if (queryTerms[j].contains("#uw12")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(12);
-                    }else if (queryTerms[j].contains("#uw8")){
-						le = new SimpleNgramEntryStatistics(le);
-						((SimpleNgramEntryStatistics)le).setWindowSize(8);
-					}else if (queryTerms[j].contains("#uw4")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(8);
-                    }else if (queryTerms[j].contains("#1")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(2);
-                    }
-				}
-				entryStats[j] = le;
+				entryStats[j] = ngramStatistics(queryTerms[j], le);
 			}
 			
 			frs.setEntryStatistics(entryStats);
@@ -485,23 +470,7 @@ public class FatUtils {
 					? statisticsClass.getConstructor(Integer.TYPE).newInstance(fieldCount)
 					: statisticsClass.newInstance();
 				((Writable)le).readFields(in);
-				if (queryTerms[j].contains("#uw") || queryTerms[j].contains("#1"))
-				{
-					if (queryTerms[j].contains("#uw12")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(12);
-                    }else if (queryTerms[j].contains("#uw8")){
-						le = new SimpleNgramEntryStatistics(le);
-						((SimpleNgramEntryStatistics)le).setWindowSize(8);
-					}else if (queryTerms[j].contains("#uw4")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(8);
-                    }else if (queryTerms[j].contains("#1")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(2);
-                    }
-				}
-				entryStats[j] = le;
+				entryStats[j] = ngramStatistics(queryTerms[j], le);
 			}
 			
 			frs.setEntryStatistics(entryStats);
@@ -659,23 +628,7 @@ public class FatUtils {
 					? statisticsClass.getConstructor(Integer.TYPE).newInstance(fieldCount)
 					: statisticsClass.newInstance();
 				((Writable)le).readFields(in);
-				if (queryTerms[j].contains("#uw") || queryTerms[j].contains("#1"))
-				{
-					if (queryTerms[j].contains("#uw12")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(12);
-                    }else if (queryTerms[j].contains("#uw8")){
-						le = new SimpleNgramEntryStatistics(le);
-						((SimpleNgramEntryStatistics)le).setWindowSize(8);
-					}else if (queryTerms[j].contains("#uw4")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(8);
-                    }else if (queryTerms[j].contains("#1")){
-                        le = new SimpleNgramEntryStatistics(le);
-                        ((SimpleNgramEntryStatistics)le).setWindowSize(2);
-                    }
-				}
-				entryStats[j] = le;
+				entryStats[j] = ngramStatistics(queryTerms[j], le);
 			}
 			
 			frs.setEntryStatistics(entryStats);
@@ -748,16 +701,148 @@ public class FatUtils {
 	}
 	
 	
+	/** Reads the columnar format written by {@link #writeV6(FatResultSet, DataOutput)}. The postings
+	 * are retained as {@link FatPostingColumns}, and posting objects are only created if requested. */
+	protected static void readFieldsV6(FatResultSet frs, DataInput in)
+			throws IOException 
+	{
+		int j = -1;
+		int termCount = -1;
+		int resultSize = -1;
+		try{
+			CollectionStatistics collStats = new CollectionStatistics();
+			collStats.readFields(in);
+			frs.setCollectionStatistics(collStats);
+			final int fieldCount = collStats.getNumberOfFields();
+			
+			termCount = in.readInt();
+			final EntryStatistics[] entryStats = new EntryStatistics[termCount];
+			final String[] queryTerms = new String[termCount];
+			@SuppressWarnings("unchecked")
+			final Set<String>[] tags = new Set[termCount];
+			final double[] keyFrequencies = new double[termCount];
+			for(j=0;j<termCount;j++)
+			{
+				queryTerms[j] = in.readUTF();
+				if (in.readBoolean())
+				{
+					int tagCount = in.readInt();
+					tags[j] = new HashSet<String>();
+					for(int ti=0;ti<tagCount;ti++)
+						tags[j].add(in.readUTF());
+				}
+				final boolean fields = in.readBoolean();
+				Class<? extends EntryStatistics> statisticsClass = ApplicationSetup.getClass(in.readUTF()).asSubclass(EntryStatistics.class);
+				keyFrequencies[j] = in.readDouble();
+				EntryStatistics le = fields || FieldEntryStatistics.class.isAssignableFrom(statisticsClass)
+					? statisticsClass.getConstructor(Integer.TYPE).newInstance(fieldCount)
+					: statisticsClass.newInstance();
+				((Writable)le).readFields(in);
+				entryStats[j] = ngramStatistics(queryTerms[j], le);
+			}
+			frs.setEntryStatistics(entryStats);
+			frs.setKeyFrequencies(keyFrequencies);
+			frs.setQueryTerms(queryTerms);
+			frs.setTags(tags);
+			
+			resultSize = in.readInt();
+			final int[] docids = new int[resultSize];
+			final double[] scores = new double[resultSize];
+			final short[] occurrences = new short[resultSize];
+			for(int i=0;i<resultSize;i++)
+				docids[i] = in.readInt();
+			for(int i=0;i<resultSize;i++)
+				scores[i] = in.readDouble();
+			for(int i=0;i<resultSize;i++)
+				occurrences[i] = in.readShort();
+			frs.setScores(scores);
+			frs.setDocids(docids);
+			frs.setOccurrences(occurrences);
+			frs.setPostingColumns(FatPostingColumns.read(in));
+		} catch (IOException ioe) {
+			throw new WrappedIOException("IOException (reset to start perhaps?), was reading term " + j + " of " + termCount + ", " + resultSize + " documents", ioe);
+		} catch (Exception e) {
+			throw new WrappedIOException("Problem reading term " + j + " of " + termCount + ", " + resultSize + " documents", e);
+		}
+	}
+	
+	/** Obtains the statistics to use for a proximity term */
+	static EntryStatistics ngramStatistics(String queryTerm, EntryStatistics le)
+	{
+		if (queryTerm.contains("#uw12")){
+			le = new SimpleNgramEntryStatistics(le);
+			((SimpleNgramEntryStatistics)le).setWindowSize(12);
+		}else if (queryTerm.contains("#uw8") || queryTerm.contains("#uw4")){
+			le = new SimpleNgramEntryStatistics(le);
+			((SimpleNgramEntryStatistics)le).setWindowSize(8);
+		}else if (queryTerm.contains("#1")){
+			le = new SimpleNgramEntryStatistics(le);
+			((SimpleNgramEntryStatistics)le).setWindowSize(2);
+		}
+		return le;
+	}
+	
+	/** Writes the result set, in the columnar format if all of its postings can be represented as columns */
 	public static void write(FatResultSet frs, DataOutput out) throws IOException
 	{
-		writeV5(frs,out);
+		//getPostingColumns() only inspects the postings if the result set does not already have columns
+		if (frs.getQueryTerms().length > 0 && frs.getPostingColumns() != null)
+			writeV6(frs,out);
+		else
+			writeV5(frs,out);
+	}
+	
+	/** Writes the result set in a compact columnar format: the docids, scores and occurrences
+	 * are followed by the {@link FatPostingColumns} of the result set. */
+	public static void writeV6(FatResultSet frs, DataOutput out) throws IOException
+	{
+		if (DEBUG)
+			out = new DebuggingDataOutput(out);
+		out.writeByte(6);
+		
+		final CollectionStatistics collStats = frs.getCollectionStatistics();
+		final EntryStatistics[] entryStats = frs.getEntryStatistics();
+		final String[] queryTerms = frs.getQueryTerms();
+		final Set<String>[] tags = frs.getTags();
+		final double[] keyFrequency = frs.getKeyFrequencies();
+		final FatPostingColumns columns = frs.getPostingColumns();
+		final int[] docids = frs.getDocids();
+		final double[] scores = frs.getScores();
+		final short[] occurrences = frs.getOccurrences();
+		
+		collStats.write(out);
+		final int queryTermCount = queryTerms.length;
+		out.writeInt(queryTermCount);
+		for (int i = 0; i < queryTermCount; i++){
+			out.writeUTF(queryTerms[i]);
+			out.writeBoolean(tags[i] != null);
+			if (tags[i] != null)
+			{
+				out.writeInt(tags[i].size());
+				for(String t : tags[i])
+					out.writeUTF(t);
+			}
+			out.writeBoolean(columns.hasFields(i));
+			out.writeUTF(entryStats[i].getClass().getName());
+			out.writeDouble(keyFrequency[i]);
+			((Writable)entryStats[i]).write(out);
+		}
+		final int resultSize = docids.length;
+		out.writeInt(resultSize);
+		for(int i=0;i<resultSize;i++)
+			out.writeInt(docids[i]);
+		for(int i=0;i<resultSize;i++)
+			out.writeDouble(scores[i]);
+		for(int i=0;i<resultSize;i++)
+			out.writeShort(occurrences[i]);
+		columns.write(out);
 	}
 	
 	public static void writeV3(FatResultSet frs, DataOutput out) throws IOException
 	{
 		if (DEBUG)
 			out = new DebuggingDataOutput(out);
-		out.writeByte(VERSION);
+		out.writeByte(3);
 		
 		final CollectionStatistics collStats = frs.getCollectionStatistics();
 		final EntryStatistics[] entryStats = frs.getEntryStatistics();
@@ -856,7 +941,7 @@ public class FatUtils {
 	{
 		if (DEBUG)
 			out = new DebuggingDataOutput(out);
-		out.writeByte(VERSION);
+		out.writeByte(5);
 		
 		final CollectionStatistics collStats = frs.getCollectionStatistics();
 		final EntryStatistics[] entryStats = frs.getEntryStatistics();
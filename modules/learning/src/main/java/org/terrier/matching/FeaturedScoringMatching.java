@@ -3,9 +3,16 @@ package org.terrier.matching;
 import gnu.trove.TIntIntHashMap;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -34,6 +41,13 @@ public abstract class FeaturedScoringMatching extends FilterMatching {
 	protected WeightingModel[] qiFeatures;
 	protected String[] qiFeatureNames;
 	protected boolean sampleFeature = false;
+	/** number of threads used to compute features, see <tt>fat.featured.scoring.matching.threads</tt> */
+	protected int threads = Integer.parseInt(ApplicationSetup.getProperty("fat.featured.scoring.matching.threads", "1"));
+	/** number of documents in each block when computing a feature in parallel, see <tt>fat.featured.scoring.matching.block.size</tt> */
+	protected int blockSize = Integer.parseInt(ApplicationSetup.getProperty("fat.featured.scoring.matching.block.size", "0"));
+	
+	/** pools shared by all instances, keyed by number of threads */
+	static final Map<Integer,ForkJoinPool> POOLS = new ConcurrentHashMap<>();
 	
 	protected Class<? extends AbstractScoringMatching> scoringMatchingImpl;
 
@@ -199,41 +213,98 @@ public abstract class FeaturedScoringMatching extends FilterMatching {
 	}
 	
 	protected int applyDSMs(Index localIndex,  String queryNumber, MatchingQueryTerms mqtLocal, int numResults,  int[] inputDocids, short[] inputOccurrences, FeaturedResultSet rtr)
+		throws IOException
 	{
-		int featureCount = 0;
-		TIntIntHashMap docidMap = new TIntIntHashMap(numResults);
+		final double[][] scoresFinal = new double[dsms.length][numResults];
+		final List<Callable<Object>> tasks = new ArrayList<>();
+		addDSMTasks(tasks, localIndex, mqtLocal, numResults, inputDocids, inputOccurrences, scoresFinal);
+		execute(tasks);
+		for(int fid=0;fid<dsms.length;fid++)
+		{
+			//add the feature, regardless of whether it has scores or not
+			rtr.putFeatureScores(dsmNames[fid], scoresFinal[fid]);
+		}
+		return dsms.length;
+	}
+	
+	/** Adds a task for each DSM feature, which writes the scores of the feature into scoresFinal, in the order of inputDocids. */
+	protected void addDSMTasks(List<Callable<Object>> tasks, final Index localIndex, final MatchingQueryTerms mqtLocal, final int numResults, 
+			final int[] inputDocids, final short[] inputOccurrences, final double[][] scoresFinal)
+	{
+		final TIntIntHashMap docidMap = new TIntIntHashMap(numResults);
 		int position = 0;
 		for(int docid : inputDocids)
 		{
 			docidMap.put(docid, position++);
 		}
-		for(int fid=0;fid<dsms.length;fid++)
+		for(int i=0;i<dsms.length;i++)
 		{
-			final double[] scores = new double[numResults];
-			final int[] docids = new int[numResults];
-			final short[] occurrences = new short[numResults];
-			System.arraycopy(inputDocids, 0, docids, 0, numResults);
-			System.arraycopy(inputOccurrences, 0, occurrences, 0, numResults);
-			
-			// Sort by docid so that term postings we have a recoverable score ordering
-			MultiSort.ascendingHeapSort(docids, scores, occurrences, docids.length);
-			
-			final ResultSet thinChild = new QueryResultSet(docids, scores, occurrences);
-			
-			//apply the dsm on the temporary resultset
-			dsms[fid].modifyScores(localIndex, mqtLocal, thinChild);						
-			
-			//map scores back into original ordering
-			double[] scoresFinal = new double[numResults];
-			for(int i=0;i<numResults;i++)
+			final int fid = i;
+			tasks.add(() -> {
+				final double[] scores = new double[numResults];
+				final int[] docids = new int[numResults];
+				final short[] occurrences = new short[numResults];
+				System.arraycopy(inputDocids, 0, docids, 0, numResults);
+				System.arraycopy(inputOccurrences, 0, occurrences, 0, numResults);
+				
+				// Sort by docid so that term postings we have a recoverable score ordering
+				MultiSort.ascendingHeapSort(docids, scores, occurrences, docids.length);
+				
+				final ResultSet thinChild = new QueryResultSet(docids, scores, occurrences);
+				
+				//apply the dsm on the temporary resultset, using a copy of the query, as DSMs may alter it
+				dsms[fid].modifyScores(localIndex, mqtLocal.clone(), thinChild);
+				
+				//map scores back into original ordering
+				for(int j=0;j<numResults;j++)
+				{
+					scoresFinal[fid][ docidMap.get(docids[j])] = scores[j];
+				}
+				return null;
+			});
+		}
+	}
+	
+	/** Returns the pool used to compute features in parallel, or null if features should be computed 
+	 * by the calling thread. A value of -1 for <tt>fat.featured.scoring.matching.threads</tt> uses the common pool. */
+	protected ForkJoinPool getPool()
+	{
+		if (threads == 1)
+			return null;
+		if (threads <= 0)
+			return ForkJoinPool.commonPool();
+		return POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+	}
+	
+	/** Runs the specified tasks, in parallel if a pool is configured, and waits for all of them to complete.
+	 * Any exception thrown by a task is rethrown. */
+	protected void execute(List<Callable<Object>> tasks) throws IOException
+	{
+		final ForkJoinPool pool = getPool();
+		try{
+			if (pool == null || tasks.size() < 2)
 			{
-				scoresFinal[ docidMap.get(docids[i])] = scores[i];
+				for(Callable<Object> task : tasks)
+					task.call();
+				return;
 			}
-			//add the feature, regardless of whether it has scores or not			
-			rtr.putFeatureScores(dsmNames[fid], scoresFinal);
-			featureCount++;
+			final List<ForkJoinTask<Object>> futures = new ArrayList<>(tasks.size());
+			for(Callable<Object> task : tasks)
+				futures.add(pool.submit(task));
+			for(ForkJoinTask<Object> future : futures)
+				future.get();
+		} catch (ExecutionException ee) {
+			final Throwable cause = ee.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
 		}
-		return featureCount;
 	}
 
 	public static final Predicate<Pair<String,Set<String>>> filterUW = queryTerm -> queryTerm.getLeft().contains(UnorderedWindowOp.STRING_PREFIX);
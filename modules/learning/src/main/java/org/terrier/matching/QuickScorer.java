@@ -0,0 +1,308 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is QuickScorer.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+
+package org.terrier.matching;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.terrier.utility.Files;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/** Scores documents using an ensemble of regression trees, by compiling the trees into the
+ * bitvector-based representation of QuickScorer. Each tree with at most 64 leaves is represented by a bitvector
+ * of its leaves, in left-to-right order. The internal nodes of all trees are grouped by feature, and sorted by threshold.
+ * For each document, the nodes of each feature whose test is false are found by a scan of the sorted thresholds, and their masks
+ * remove the leaves of their left subtrees from the bitvector of their tree. The exit leaf of each tree is then the
+ * lowest remaining bit. Trees with more than 64 leaves are traversed.
+ * <p>
+ * Feature values are scaled and rounded to integers as by Jforests, and compared with the integer thresholds of the ensemble,
+ * i.e. a document goes to the left child of a node if its scaled value is not greater than the node's threshold.
+ * The output of each tree is added to the score of each document in the order of the trees in the ensemble, such
+ * that the scores are identical to those computed by Jforests.
+ * <p>
+ * <b>References:</b> "QuickScorer: A Fast Algorithm to Rank Documents with Additive Ensembles of Regression Trees".
+ * Claudio Lucchese, Franco Maria Nardini, Salvatore Orlando, Raffaele Perego, Nicola Tonellotto, Rossano Venturini. SIGIR 2015.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class QuickScorer {
+
+	static final int MAX_LEAVES = Long.SIZE;
+
+	final int numTrees;
+	final double[] weights;
+	final double[][] leafOutputs;
+
+	/** for each feature, the thresholds of its nodes in ascending order */
+	final int[][] featureThresholds;
+	/** for each feature, the tree of each of its nodes */
+	final int[][] featureTrees;
+	/** for each feature, the mask of each of its nodes */
+	final long[][] featureMasks;
+	/** features used by trees represented by bitvectors */
+	final int[] usedFeatures;
+
+	/** trees that are traversed, as they have too many leaves; null for other trees */
+	final int[][] splitFeatures;
+	final int[][] thresholds;
+	final int[][] leftChildren;
+	final int[][] rightChildren;
+
+	/** feature scaling, as recorded by the Jforests FeatureAnalyzer */
+	final double[] min;
+	final double[] factor;
+	final boolean[] onLogScale;
+
+	/** Compiles an ensemble of trees. Each tree is described by arrays indexed by node, in which a negative child
+	 * <tt>c</tt> denotes leaf <tt>~c</tt>.
+	 * @param _splitFeatures feature tested at each node of each tree
+	 * @param _thresholds threshold of each node of each tree
+	 * @param _leftChildren left child of each node of each tree
+	 * @param _rightChildren right child of each node of each tree
+	 * @param _leafOutputs output of each leaf of each tree
+	 * @param _weights weight of each tree
+	 * @param _min minimum value of each feature
+	 * @param _factor scaling factor of each feature
+	 * @param _onLogScale whether each feature is scaled logarithmically
+	 */
+	public QuickScorer(int[][] _splitFeatures, int[][] _thresholds, int[][] _leftChildren, int[][] _rightChildren,
+			double[][] _leafOutputs, double[] _weights, double[] _min, double[] _factor, boolean[] _onLogScale)
+	{
+		numTrees = _weights.length;
+		weights = _weights;
+		leafOutputs = new double[numTrees][];
+		min = _min;
+		factor = _factor;
+		onLogScale = _onLogScale;
+		splitFeatures = new int[numTrees][];
+		thresholds = new int[numTrees][];
+		leftChildren = new int[numTrees][];
+		rightChildren = new int[numTrees][];
+
+		final int numFeatures = _min.length;
+		final List<List<long[]>> nodes = new ArrayList<>(numFeatures);
+		for(int f=0;f<numFeatures;f++)
+			nodes.add(new ArrayList<long[]>());
+		for(int t=0;t<numTrees;t++)
+		{
+			final int numLeaves = _leafOutputs[t].length;
+			if (numLeaves > MAX_LEAVES)
+			{
+				splitFeatures[t] = _splitFeatures[t];
+				thresholds[t] = _thresholds[t];
+				leftChildren[t] = _leftChildren[t];
+				rightChildren[t] = _rightChildren[t];
+				leafOutputs[t] = _leafOutputs[t];
+				continue;
+			}
+			//number the leaves from left to right
+			final int[] leafOrder = new int[numLeaves];
+			leafOutputs[t] = new double[numLeaves];
+			if (numLeaves > 1)
+				numberLeaves(_leftChildren[t], _rightChildren[t], 0, leafOrder, new int[1]);
+			for(int l=0;l<numLeaves;l++)
+				leafOutputs[t][leafOrder[l]] = _leafOutputs[t][l];
+			for(int n=0;n<numLeaves-1;n++)
+			{
+				//a false test at this node excludes the leaves of the left subtree
+				final long leftLeaves = leaves(_leftChildren[t], _rightChildren[t], _leftChildren[t][n], leafOrder);
+				nodes.get(_splitFeatures[t][n]).add(new long[]{_thresholds[t][n], t, ~leftLeaves});
+			}
+		}
+
+		featureThresholds = new int[numFeatures][];
+		featureTrees = new int[numFeatures][];
+		featureMasks = new long[numFeatures][];
+		final List<Integer> used = new ArrayList<>();
+		for(int f=0;f<numFeatures;f++)
+		{
+			final List<long[]> fNodes = nodes.get(f);
+			//stable, so nodes of the same threshold retain the order of their trees
+			fNodes.sort((a,b) -> Long.compare(a[0], b[0]));
+			featureThresholds[f] = new int[fNodes.size()];
+			featureTrees[f] = new int[fNodes.size()];
+			featureMasks[f] = new long[fNodes.size()];
+			for(int i=0;i<fNodes.size();i++)
+			{
+				featureThresholds[f][i] = (int) fNodes.get(i)[0];
+				featureTrees[f][i] = (int) fNodes.get(i)[1];
+				featureMasks[f][i] = fNodes.get(i)[2];
+			}
+			if (fNodes.size() > 0)
+				used.add(f);
+		}
+		usedFeatures = used.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	static void numberLeaves(int[] left, int[] right, int node, int[] leafOrder, int[] next)
+	{
+		for(int child : new int[]{left[node], right[node]})
+		{
+			if (child < 0)
+				leafOrder[~child] = next[0]++;
+			else
+				numberLeaves(left, right, child, leafOrder, next);
+		}
+	}
+
+	static long leaves(int[] left, int[] right, int node, int[] leafOrder)
+	{
+		if (node < 0)
+			return 1L << leafOrder[~node];
+		return leaves(left, right, left[node], leafOrder) | leaves(left, right, right[node], leafOrder);
+	}
+
+	/** Returns the number of trees in the ensemble */
+	public int getNumberOfTrees()
+	{
+		return numTrees;
+	}
+
+	/** Returns the value of a feature, scaled and rounded as by Jforests */
+	final int scale(int f, double value)
+	{
+		if (onLogScale[f])
+			value = (Math.log(value - min[f] + 1) * factor[f]);
+		else
+			value = (value - min[f]) * factor[f];
+		return (int)Math.round(value);
+	}
+
+	/** Adds the score of each document to scores.
+	 * @param N number of documents
+	 * @param features feature values, indexed by feature then by document
+	 * @param scores scores of each document, to which the output of the ensemble is added
+	 */
+	public void score(final int N, final double[][] features, final double[] scores)
+	{
+		final long[] leafBits = new long[numTrees];
+		for(int d=0;d<N;d++)
+		{
+			Arrays.fill(leafBits, -1L);
+			for(int f : usedFeatures)
+			{
+				final int value = scale(f, features[f][d]);
+				final int[] fThresholds = featureThresholds[f];
+				final int[] fTrees = featureTrees[f];
+				final long[] fMasks = featureMasks[f];
+				for(int i=0;i<fThresholds.length && value > fThresholds[i];i++)
+					leafBits[fTrees[i]] &= fMasks[i];
+			}
+			for(int t=0;t<numTrees;t++)
+			{
+				final int leaf = splitFeatures[t] == null
+					? Long.numberOfTrailingZeros(leafBits[t])
+					: traverse(t, features, d);
+				scores[d] += weights[t] * leafOutputs[t][leaf];
+			}
+		}
+	}
+
+	/** Returns the exit leaf of a tree that is not represented by a bitvector */
+	final int traverse(int t, double[][] features, int d)
+	{
+		int node = 0;
+		while(node >= 0)
+		{
+			final int f = splitFeatures[t][node];
+			node = scale(f, features[f][d]) <= thresholds[t][node]
+				? leftChildren[t][node]
+				: rightChildren[t][node];
+		}
+		return ~node;
+	}
+
+	/** Compiles an ensemble of regression trees saved by Jforests.
+	 * @param modelFilename filename of the ensemble
+	 * @param _min minimum value of each feature
+	 * @param _factor scaling factor of each feature
+	 * @param _onLogScale whether each feature is scaled logarithmically
+	 */
+	public static QuickScorer load(String modelFilename, double[] _min, double[] _factor, boolean[] _onLogScale) throws IOException
+	{
+		final Document doc;
+		try(InputStream is = Files.openFileStream(modelFilename))
+		{
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is);
+		} catch (IOException ioe) {
+			throw ioe;
+		} catch (Exception e) {
+			throw new IOException("Could not parse ensemble " + modelFilename, e);
+		}
+		final NodeList trees = doc.getDocumentElement().getElementsByTagName("Tree");
+		final int T = trees.getLength();
+		final int[][] splitFeatures = new int[T][];
+		final int[][] thresholds = new int[T][];
+		final int[][] leftChildren = new int[T][];
+		final int[][] rightChildren = new int[T][];
+		final double[][] leafOutputs = new double[T][];
+		final double[] weights = new double[T];
+		for(int t=0;t<T;t++)
+		{
+			final Element tree = (Element) trees.item(t);
+			final int numLeaves = Integer.parseInt(tree.getAttribute("leaves"));
+			weights[t] = Double.parseDouble(tree.getAttribute("weight"));
+			leafOutputs[t] = parseDoubles(tree, "LeafOutputs", numLeaves);
+			splitFeatures[t] = parseInts(tree, "SplitFeatures", numLeaves-1);
+			thresholds[t] = parseInts(tree, "Thresholds", numLeaves-1);
+			leftChildren[t] = parseInts(tree, "LeftChildren", numLeaves-1);
+			rightChildren[t] = parseInts(tree, "RightChildren", numLeaves-1);
+			for(int f : splitFeatures[t])
+				if (f >= _min.length)
+					throw new IOException("Tree " + t + " of ensemble " + modelFilename + " uses feature " + f + " but only " + _min.length + " features are known");
+		}
+		return new QuickScorer(splitFeatures, thresholds, leftChildren, rightChildren, leafOutputs, weights, _min, _factor, _onLogScale);
+	}
+
+	static String[] parseValues(Element tree, String name, int expected) throws IOException
+	{
+		final NodeList elements = tree.getElementsByTagName(name);
+		final String text = elements.getLength() == 0 ? "" : elements.item(0).getTextContent().trim();
+		final String[] values = text.length() == 0 ? new String[0] : text.split("[\\s,]+");
+		if (values.length != expected)
+			throw new IOException("Expected " + expected + " values for " + name + ", found " + values.length);
+		return values;
+	}
+
+	static int[] parseInts(Element tree, String name, int expected) throws IOException
+	{
+		return Arrays.stream(parseValues(tree, name, expected)).mapToInt(Integer::parseInt).toArray();
+	}
+
+	static double[] parseDoubles(Element tree, String name, int expected) throws IOException
+	{
+		return Arrays.stream(parseValues(tree, name, expected)).mapToDouble(Double::parseDouble).toArray();
+	}
+}
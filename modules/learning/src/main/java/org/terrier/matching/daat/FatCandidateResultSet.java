@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.hadoop.io.Writable;
+import org.terrier.matching.FatPostingColumns;
 import org.terrier.matching.FatQueryResultSet;
 import org.terrier.matching.FatResultSet;
 import org.terrier.matching.FatUtils;
@@ -56,6 +57,7 @@ public class FatCandidateResultSet extends CandidateResultSet implements Writabl
 	
 	CollectionStatistics collStats;
 	protected WritablePosting[][] postings;
+	protected FatPostingColumns columns;
 	String[] queryTerms;
 	double[] keyFrequency;
 	Set<String>[] tags;
@@ -101,10 +103,20 @@ public class FatCandidateResultSet extends CandidateResultSet implements Writabl
 	}
 	
 	@Override
-	public WritablePosting[][] getPostings() {
+	public synchronized WritablePosting[][] getPostings() {
+		//postings read in columnar form are only created when required
+		if (postings == null && columns != null)
+			postings = columns.toPostings(docids);
 		return postings;
 	}
 	
+	@Override
+	public synchronized FatPostingColumns getPostingColumns() {
+		if (columns == null && postings != null && FatPostingColumns.isSupported(postings))
+			columns = FatPostingColumns.fromPostings(postings, queryTerms.length, collStats.getNumberOfFields());
+		return columns;
+	}
+	
 	@Override
 	public double[] getKeyFrequencies() {
 		return keyFrequency;
@@ -150,12 +162,15 @@ public class FatCandidateResultSet extends CandidateResultSet implements Writabl
 		System.arraycopy(docids, start, resultSet.getDocids(), 0, length);
 		System.arraycopy(scores, start, resultSet.getScores(), 0, length);
 		System.arraycopy(occurrences, start, resultSet.getOccurrences(), 0, length);
-		System.arraycopy(postings, start, resultSet.getPostings(), 0, length);
+		System.arraycopy(getPostings(), start, resultSet.getPostings(), 0, length);
 		return resultSet;
 	}
 
 	@Override
-	public void sort(int topDocs) {		
+	public void sort(int topDocs) {
+		//materialise any columnar postings before the docids are reordered
+		getPostings();
+		columns = null;
 		HeapSort.descendingHeapSort(getScores(), getDocids(), getOccurrences(), topDocs);
 		TIntIntHashMap sortedOrder = new TIntIntHashMap(postings.length);
 		for(int i=0;i<docids.length;i++)
@@ -179,8 +194,15 @@ public class FatCandidateResultSet extends CandidateResultSet implements Writabl
 	}
 
 	@Override
-	public void setPostings(WritablePosting[][] wp) {
+	public synchronized void setPostings(WritablePosting[][] wp) {
 		postings = wp;
+		columns = null;
+	}
+	
+	@Override
+	public synchronized void setPostingColumns(FatPostingColumns c) {
+		columns = c;
+		postings = null;
 	}
 
 	@Override
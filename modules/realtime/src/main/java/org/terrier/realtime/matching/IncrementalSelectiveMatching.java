@@ -28,6 +28,7 @@ package org.terrier.realtime.matching;
 
 import java.util.List;
 
+import org.terrier.matching.MatchingQueryTerms;
 import org.terrier.structures.Index;
 
 /**
@@ -53,11 +54,13 @@ public class IncrementalSelectiveMatching {
 	/**
 	 * Get an new IncrementalSelectiveMatching policy object of the
 	 * specified type.
-	 * @param policy a string describing the policy to be applied. "mostrecent" results in {@link IncrementalSelectiveMostRecent}
-	 * @return {@link IncrementalSelectiveMostRecent} unless policy is "mostrecent"
+	 * @param policy a string describing the policy to be applied. "mostrecent" results in {@link IncrementalSelectiveMostRecent},
+	 * "topical" in {@link IncrementalSelectiveTopical}
+	 * @return {@link IncrementalSelectiveMostRecent} or {@link IncrementalSelectiveTopical}, otherwise a policy that selects all indices
 	 */
 	public static IncrementalSelectiveMatching get(String policy) {
 		if (policy.equalsIgnoreCase("mostrecent")) return new IncrementalSelectiveMostRecent();
+		if (policy.equalsIgnoreCase("topical")) return new IncrementalSelectiveTopical();
 		return new IncrementalSelectiveMatching();
 	}
 	
@@ -69,5 +72,17 @@ public class IncrementalSelectiveMatching {
 	public List<Index> getSelectedIndices(List<Index> indices) {
 		return indices;
 	}
+	
+	/**
+	 * Return the indices to be used for the specified query. By default, the query is
+	 * not considered.
+	 * @param indices the list of indices to be filtered.
+	 * @param queryTerms the query being matched
+	 * @return the selected indices
+	 * @since 5.3
+	 */
+	public List<Index> getSelectedIndices(List<Index> indices, MatchingQueryTerms queryTerms) {
+		return getSelectedIndices(indices);
+	}
 
 }
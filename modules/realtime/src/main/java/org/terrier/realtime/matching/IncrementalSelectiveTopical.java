@@ -0,0 +1,193 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is IncrementalSelectiveTopical.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.realtime.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.matchops.Operator;
+import org.terrier.matching.matchops.SingleTermOp;
+import org.terrier.structures.Index;
+import org.terrier.utility.ApplicationSetup;
+
+/**
+ * This class selects the shards that are most likely to contain documents relevant to
+ * a query, such that the query need only be matched on those shards (selective search).
+ * Each shard is described by a {@link ShardSummary}, which is built when the shard is first
+ * seen. As building a summary scans the lexicon of the shard, the summary of a shard that is still
+ * growing, such as the in-memory shard of an IncrementalIndex, is only rebuilt once its number of documents
+ * has grown by a given fraction since it was last summarised. The shards are ranked using the CORI
+ * resource selection algorithm, which scores each shard by the beliefs
+ * b + (1-b) * T * I of the query terms, where T is based on the document frequency of the term in the shard,
+ * and I on the number of shards containing the term. The top-ranked shards that contain at least one query term
+ * are selected, retaining their original order. Shards are not selected when no query is available.
+ * <p>
+ * {@link #selectShards(ShardSummary[], String[], int)} can also be used to route queries to remote shards, given
+ * their summaries.
+ *
+ * <p><b>Properties</b></p>
+ * <ul>
+ * <li><tt>incremental.selectivematch.topical.shards</tt> - number of shards to select, defaults to 3</li>
+ * <li><tt>incremental.selectivematch.topical.min.df</tt> - minimum document frequency of the terms retained in the summary of each shard, defaults to 1</li>
+ * <li><tt>incremental.selectivematch.topical.b</tt> - the default belief of CORI, defaults to 0.4</li>
+ * <li><tt>incremental.selectivematch.topical.rebuild.growth</tt> - the fraction by which the number of documents of a shard must
+ * grow before its summary is rebuilt, defaults to 0.1. 0 rebuilds the summary whenever a document is added.</li>
+ * </ul>
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class IncrementalSelectiveTopical extends IncrementalSelectiveMatching {
+
+	/** summaries of the shards seen, which are discarded once a shard is no longer referenced */
+	protected final Map<Index, ShardSummary> summaries = Collections.synchronizedMap(new WeakHashMap<Index, ShardSummary>());
+
+	/**
+	 * Selects shards according to the query. <tt>incremental.selectivematch.topical.shards</tt> is checked
+	 * during each call such that it can be updated on the fly.
+	 */
+	public IncrementalSelectiveTopical() {
+		super();
+	}
+
+	/**
+	 * Returns the summary of the specified shard, building it if necessary
+	 * @param shard the index shard
+	 * @return a summary of the shard
+	 */
+	public ShardSummary getSummary(Index shard) {
+		ShardSummary summary = summaries.get(shard);
+		if (summary == null || needsRebuild(summary, shard.getCollectionStatistics().getNumberOfDocuments())) {
+			summary = ShardSummary.build(shard, Integer.parseInt(ApplicationSetup.getProperty("incremental.selectivematch.topical.min.df", "1")));
+			summaries.put(shard, summary);
+		}
+		return summary;
+	}
+
+	/** Returns true if a summary should be rebuilt for a shard now having the specified number of documents */
+	static boolean needsRebuild(ShardSummary summary, int numberOfDocuments) {
+		final double growth = Double.parseDouble(ApplicationSetup.getProperty("incremental.selectivematch.topical.rebuild.growth", "0.1"));
+		final int summarised = summary.getNumberOfDocuments();
+		if (numberOfDocuments < summarised)
+			return true;
+		return numberOfDocuments > summarised && numberOfDocuments - summarised >= growth * summarised;
+	}
+
+	/**
+	 * Returns the shards that best match the query, as defined by the <tt>incremental.selectivematch.topical.shards</tt> property
+	 * @param indices the list of indices to be filtered
+	 * @param queryTerms the query
+	 * @return the selected shards, in their original order
+	 */
+	@Override
+	public List<Index> getSelectedIndices(List<Index> indices, MatchingQueryTerms queryTerms) {
+		final int k = Integer.parseInt(ApplicationSetup.getProperty("incremental.selectivematch.topical.shards", "3"));
+		final ShardSummary[] shardSummaries = new ShardSummary[indices.size()];
+		for (int i = 0; i < shardSummaries.length; i++)
+			shardSummaries[i] = getSummary(indices.get(i));
+		final List<Index> selected = new ArrayList<Index>();
+		for (int i : selectShards(shardSummaries, getQueryTerms(queryTerms), k))
+			selected.add(indices.get(i));
+		return selected;
+	}
+
+	/** Returns the single terms of the query, i.e. those that can be looked up in a summary */
+	static String[] getQueryTerms(MatchingQueryTerms queryTerms) {
+		final List<String> terms = new ArrayList<String>();
+		for (Operator op : queryTerms.getMatchingTerms()) {
+			if (op instanceof SingleTermOp) {
+				final SingleTermOp single = (SingleTermOp) op;
+				//terms restricted to a field are not distinguished by the summaries
+				if (!terms.contains(single.getTerm()))
+					terms.add(single.getTerm());
+			}
+		}
+		return terms.toArray(new String[terms.size()]);
+	}
+
+	/**
+	 * Ranks shards for a query using CORI, and returns the positions of the top-ranked shards
+	 * that contain at least one of the query terms.
+	 * @param shardSummaries summaries of the shards
+	 * @param terms the query terms
+	 * @param k the maximum number of shards to select
+	 * @return positions of the selected shards, in increasing order
+	 */
+	public static int[] selectShards(ShardSummary[] shardSummaries, String[] terms, int k) {
+		final double b = Double.parseDouble(ApplicationSetup.getProperty("incremental.selectivematch.topical.b", "0.4"));
+		final int numShards = shardSummaries.length;
+		if (numShards == 0)
+			return new int[0];
+		double averageTokens = 0;
+		for (ShardSummary s : shardSummaries)
+			averageTokens += s.getNumberOfTokens();
+		averageTokens = Math.max(1.0d, averageTokens / numShards);
+
+		final double[] scores = new double[numShards];
+		final boolean[] matched = new boolean[numShards];
+		for (String term : terms) {
+			int cf = 0;
+			for (ShardSummary s : shardSummaries)
+				if (s.getDocumentFrequency(term) > 0)
+					cf++;
+			if (cf == 0)
+				continue;
+			final double I = Math.log((numShards + 0.5d) / cf) / Math.log(numShards + 1.0d);
+			for (int i = 0; i < numShards; i++) {
+				final int df = shardSummaries[i].getDocumentFrequency(term);
+				final double T = df / (df + 50.0d + 150.0d * shardSummaries[i].getNumberOfTokens() / averageTokens);
+				scores[i] += b + (1.0d - b) * T * I;
+				if (df > 0)
+					matched[i] = true;
+			}
+		}
+
+		final List<Integer> candidates = new ArrayList<Integer>();
+		for (int i = 0; i < numShards; i++)
+			if (matched[i])
+				candidates.add(i);
+		//highest score first, then the most recent shard
+		Collections.sort(candidates, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				final int cmp = Double.compare(scores[o2], scores[o1]);
+				return cmp != 0 ? cmp : Integer.compare(o2, o1);
+			}
+		});
+		final int[] rtr = new int[Math.min(k, candidates.size())];
+		for (int i = 0; i < rtr.length; i++)
+			rtr[i] = candidates.get(i);
+		Arrays.sort(rtr);
+		return rtr;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is SelectiveShardMatching.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.realtime.matching;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terrier.matching.Matching;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.MatchingQueryTerms.MatchingTerm;
+import org.terrier.matching.QueryResultSet;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.matchops.SingleTermOp;
+import org.terrier.realtime.multi.MultiIndex;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.Lexicon;
+import org.terrier.utility.ApplicationSetup;
+
+/**
+ * Matches each query on only the shards of a {@link MultiIndex} (or IncrementalIndex) selected for that query
+ * by an {@link IncrementalSelectiveMatching} policy, such as {@link IncrementalSelectiveTopical}.
+ * The selected shards are matched using a new instance of the same class as the parent matching, and
+ * the docids of the retrieved documents are mapped back to those of the full index.
+ * The documents are scored using the collection statistics of the full index, and the statistics of the
+ * single query terms are obtained from the lexicon of the full index, such that scores do not depend
+ * on which shards are selected.
+ * <p>
+ * This matching strategy can be configured by naming it before the matching strategy, e.g.
+ * <tt>matching=org.terrier.realtime.matching.SelectiveShardMatching,org.terrier.matching.daat.Full</tt>.
+ * <p><b>Properties</b>:
+ * <ul>
+ * <li><tt>matching.selective.policy</tt> - the policy used to select shards for each query, as
+ * understood by {@link IncrementalSelectiveMatching#get(String)}. Defaults to topical.</li>
+ * </ul>
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class SelectiveShardMatching implements Matching {
+
+	protected static final Logger logger = LoggerFactory.getLogger(SelectiveShardMatching.class);
+
+	protected final MultiIndex index;
+	protected final Matching parent;
+	protected final IncrementalSelectiveMatching policy;
+	protected CollectionStatistics collectionStatistics;
+	/** number of shards matched for the last query */
+	protected int shardsMatched;
+
+	/** Constructs a SelectiveShardMatching, using the policy named by the <tt>matching.selective.policy</tt> property.
+	 * @param _index the full index, which must be a MultiIndex
+	 * @param _parent the matching strategy for the full index
+	 */
+	public SelectiveShardMatching(Index _index, Matching _parent)
+	{
+		this(_index, _parent, IncrementalSelectiveMatching.get(ApplicationSetup.getProperty("matching.selective.policy", "topical")));
+	}
+
+	/** Constructs a SelectiveShardMatching using the specified policy.
+	 * @param _index the full index, which must be a MultiIndex
+	 * @param _parent the matching strategy for the full index
+	 * @param _policy selects the shards of each query
+	 */
+	public SelectiveShardMatching(Index _index, Matching _parent, IncrementalSelectiveMatching _policy)
+	{
+		if (! (_index instanceof MultiIndex))
+			throw new IllegalArgumentException(this.getClass().getSimpleName() + " requires a MultiIndex, found " + _index.getClass().getName());
+		this.index = (MultiIndex) _index;
+		this.parent = _parent;
+		this.policy = _policy;
+	}
+
+	/** Returns the number of shards matched for the last query */
+	public int getShardsMatched()
+	{
+		return shardsMatched;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String getInfo() {
+		return "SelectiveShard(" + policy.getClass().getSimpleName() + "," + parent.getInfo() + ")";
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ResultSet match(String queryNumber, MatchingQueryTerms queryTerms) throws IOException {
+		final List<Index> shards = index.getShards();
+		final List<Index> selected = policy.getSelectedIndices(shards, queryTerms);
+		shardsMatched = selected.size();
+		logger.debug("Query " + queryNumber + " selected " + selected.size() + " of " + shards.size() + " shards");
+		if (selected.size() == shards.size())
+			return parent.match(queryNumber, queryTerms);
+		if (selected.size() == 0)
+			return new QueryResultSet(0);
+
+		//the docid offset of each selected shard in the full index and in the subset.
+		//the number of documents of each shard is read once, as a live shard may grow meanwhile
+		final int[] fullOffsets = new int[selected.size()];
+		final int[] subsetOffsets = new int[selected.size()];
+		int fullOffset = 0;
+		int subsetOffset = 0;
+		int j = 0;
+		for (Index shard : shards) {
+			final int shardDocs = shard.getCollectionStatistics().getNumberOfDocuments();
+			if (j < selected.size() && shard == selected.get(j)) {
+				fullOffsets[j] = fullOffset;
+				subsetOffsets[j] = subsetOffset;
+				subsetOffset += shardDocs;
+				j++;
+			}
+			fullOffset += shardDocs;
+		}
+		if (j != selected.size())
+			throw new IllegalStateException("Selected shards were not in the order of the index");
+
+		//score using the statistics of the full index. These are recorded in a copy of the
+		//query terms, such that the query terms of the caller are not changed
+		final MatchingQueryTerms subsetQueryTerms = queryTerms.clone();
+		final Lexicon<String> lexicon = index.getLexicon();
+		for (MatchingTerm term : subsetQueryTerms) {
+			if (term.getValue().stats == null && term.getKey().getClass() == SingleTermOp.class
+					&& term.getKey().toString().equals(((SingleTermOp) term.getKey()).getTerm())) {
+				final LexiconEntry le = lexicon.getLexiconEntry(((SingleTermOp) term.getKey()).getTerm());
+				if (le != null)
+					term.getValue().stats = le;
+			}
+		}
+		final Matching subsetMatching;
+		try {
+			subsetMatching = parent.getClass().getConstructor(Index.class).newInstance(index.getShardSubset(selected));
+		} catch (Exception e) {
+			throw new IOException("Could not create matching " + parent.getClass().getName() + " for the selected shards", e);
+		}
+		subsetMatching.setCollectionStatistics(collectionStatistics != null ? collectionStatistics : index.getCollectionStatistics());
+		final ResultSet rs = subsetMatching.match(queryNumber, subsetQueryTerms);
+
+		final int[] docids = rs.getDocids();
+		for (int i = 0; i < rs.getResultSize(); i++) {
+			int shard = selected.size() - 1;
+			while (subsetOffsets[shard] > docids[i])
+				shard--;
+			docids[i] = fullOffsets[shard] + docids[i] - subsetOffsets[shard];
+		}
+		return rs;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setCollectionStatistics(CollectionStatistics cs) {
+		this.collectionStatistics = cs;
+		parent.setCollectionStatistics(cs);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is ShardSummary.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original author)
+ */
+
+package org.terrier.realtime.matching;
+
+import gnu.trove.TObjectIntHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.io.Writable;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+
+/**
+ * A compact summary of the contents of an index shard, used to decide which shards
+ * a query should be routed to. The summary records the number of documents and tokens of the shard,
+ * and the document frequency of each of its terms. Terms occurring in fewer than a minimum number of
+ * documents can be omitted, to reduce the size of the summary. As summaries are {@link Writable}, they can be
+ * built where a remote shard is hosted and sent to the broker that selects the shards.
+ *
+ * @author Craig Macdonald
+ * @since 5.3
+ */
+public class ShardSummary implements Writable {
+
+	protected int numberOfDocuments;
+	protected long numberOfTokens;
+	protected TObjectIntHashMap<String> documentFrequencies = new TObjectIntHashMap<String>();
+
+	/** Constructs an empty summary, e.g. for reading with {@link #readFields(DataInput)} */
+	public ShardSummary() {}
+
+	/**
+	 * Builds a summary of the specified shard, by scanning its lexicon.
+	 * @param shard the index shard to summarise
+	 * @param minDf the minimum document frequency of the terms to retain
+	 * @return the summary of the shard
+	 */
+	public static ShardSummary build(Index shard, int minDf) {
+		final ShardSummary summary = new ShardSummary();
+		final CollectionStatistics cs = shard.getCollectionStatistics();
+		summary.numberOfDocuments = cs.getNumberOfDocuments();
+		summary.numberOfTokens = cs.getNumberOfTokens();
+		for (Entry<String, LexiconEntry> lee : shard.getLexicon()) {
+			final int df = lee.getValue().getDocumentFrequency();
+			if (df >= minDf)
+				summary.documentFrequencies.put(lee.getKey(), df);
+		}
+		return summary;
+	}
+
+	/** Returns the number of documents in the shard when summarised */
+	public int getNumberOfDocuments() {
+		return numberOfDocuments;
+	}
+
+	/** Returns the number of tokens in the shard when summarised */
+	public long getNumberOfTokens() {
+		return numberOfTokens;
+	}
+
+	/** Returns the number of terms retained in the summary */
+	public int getNumberOfTerms() {
+		return documentFrequencies.size();
+	}
+
+	/** Returns the document frequency of the specified term in the shard, or 0 if it was not retained */
+	public int getDocumentFrequency(String term) {
+		return documentFrequencies.get(term);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(numberOfDocuments);
+		out.writeLong(numberOfTokens);
+		out.writeInt(documentFrequencies.size());
+		final Object[] terms = documentFrequencies.keys();
+		for (Object term : terms) {
+			out.writeUTF((String) term);
+			out.writeInt(documentFrequencies.get((String) term));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		numberOfDocuments = in.readInt();
+		numberOfTokens = in.readLong();
+		final int size = in.readInt();
+		documentFrequencies = new TObjectIntHashMap<String>(size);
+		for (int i = 0; i < size; i++)
+			documentFrequencies.put(in.readUTF(), in.readInt());
+	}
+}
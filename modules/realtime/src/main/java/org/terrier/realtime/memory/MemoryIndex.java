@@ -69,8 +69,10 @@ import org.terrier.structures.indexing.DocumentPostingList;
 import org.terrier.structures.indexing.LexiconBuilder;
 import org.terrier.structures.postings.IterablePosting;
 import org.terrier.structures.seralization.FixedSizeTextFactory;
+import org.terrier.terms.CachingTermPipeline;
 import org.terrier.terms.SkipTermPipeline;
 import org.terrier.terms.TermPipeline;
+import org.terrier.terms.TermPipelineCache;
 import org.terrier.utility.ApplicationSetup;
 import org.terrier.utility.ArrayUtils;
 import org.terrier.utility.FieldScore;
@@ -533,7 +535,15 @@ public class MemoryIndex extends Index implements UpdatableIndex,WritableIndex {
 				.split("\\s*,\\s*");
 
 		TermPipeline next = getEndOfPipeline();
-		final TermPipeline last = next;
+		TermPipeline last = next;
+		// memoise the output of the pipeline for frequent terms, if its
+		// stages allow
+		final TermPipelineCache cache = TermPipelineCache.create(pipes, PIPELINE_NAMESPACE);
+		CachingTermPipeline caching = null;
+		if (cache != null) {
+			caching = new CachingTermPipeline(last, cache);
+			next = last = caching.getCaptureStage();
+		}
 		TermPipeline tmp;
 		for (int i = pipes.length - 1; i >= 0; i--) {
 			try {
@@ -561,6 +571,10 @@ public class MemoryIndex extends Index implements UpdatableIndex,WritableIndex {
 			pipeline_first = new SkipTermPipeline(next, last);
 		else
 			pipeline_first = next;
+		if (caching != null) {
+			caching.setPipeline(pipeline_first);
+			pipeline_first = caching;
+		}
 	}
 
 	/** FIXME */
@@ -29,6 +29,7 @@ package org.terrier.realtime.multi;
 
 import java.io.IOException;
 
+import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.DocumentIndex;
 import org.terrier.structures.DocumentIndexEntry;
 
@@ -36,9 +37,11 @@ import org.terrier.structures.DocumentIndexEntry;
  * A Document index class that represents multiple document indices from
  * different shards. It is used within MultiIndex.
  * 
+ * Can be read by several threads concurrently, if the structures of the shards can.
  * @author Richard McCreadie, Stuart Mackie
  * @since 4.0
  */
+@ConcurrentReadable
 public class MultiDoc implements DocumentIndex {
 
 	private DocumentIndex[] docs;
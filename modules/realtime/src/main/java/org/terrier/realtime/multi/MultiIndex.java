@@ -51,7 +51,8 @@ import org.terrier.utility.ApplicationSetup;
  * uses a subset of the shards this contains.
  * 
  * <p><b>Properties</b></p>
- * <ul><li>multiindex.selectivematching</tt> - What policy should be used to perform matching. Two options are supported: all (default), mostrecent</li></ul>
+ * <ul><li>multiindex.selectivematching</tt> - What policy should be used to perform matching. Two options are supported: all (default), mostrecent.
+ * Policies that select shards according to the query, such as topical, are applied by {@link org.terrier.realtime.matching.SelectiveShardMatching}.</li></ul>
  * 
  * @author Richard McCreadie, Stuart Mackie
  * @since 4.0
@@ -77,6 +78,14 @@ public class MultiIndex extends Index {
 	 * Constructor.
 	 */
 	public MultiIndex(Index[] indices, boolean blocks, boolean fields) {
+		this(indices, blocks, fields, IncrementalSelectiveMatching.get(ApplicationSetup.getProperty("multiindex.selectivematching", "all")));
+		logger.info("***REALTIME*** MultiIndex (NEW)");
+	}
+	
+	/**
+	 * Constructor with the specified selective matching policy.
+	 */
+	protected MultiIndex(Index[] indices, boolean blocks, boolean fields, IncrementalSelectiveMatching policy) {
 		super(0l, 0l, 0l);
 		ArrayList<Index> in = new ArrayList<Index>(indices.length);
 		for (Index i : indices)
@@ -84,12 +93,18 @@ public class MultiIndex extends Index {
 		this.indices = in;
 		this.blocks = blocks;
 		this.fields = fields;
-		
-		// Selective Matching Policy
-		String policy = ApplicationSetup.getProperty("multiindex.selectivematching", "all");
-		selectiveMatchingPolicy = IncrementalSelectiveMatching.get(policy);
-
-		logger.info("***REALTIME*** MultiIndex (NEW)");
+		this.selectiveMatchingPolicy = policy;
+	}
+	
+	/**
+	 * Returns a MultiIndex over the specified shards of this index, which uses all of them during matching.
+	 * The docids of the returned index are numbered contiguously across the specified shards.
+	 * Closing the returned index closes the shards.
+	 * @param shards the shards to include, in the order of their docids
+	 * @return a new MultiIndex
+	 */
+	public MultiIndex getShardSubset(List<Index> shards) {
+		return new MultiIndex(shards.toArray(new Index[shards.size()]), blocks, fields, new IncrementalSelectiveMatching());
 	}
 
 	/** {@inheritDoc} */
@@ -118,12 +133,13 @@ public class MultiIndex extends Index {
 	/** {@inheritDoc} */
 	@SuppressWarnings("unchecked")
 	public Lexicon<String> getLexicon() {
-		int indexCount = indices.size();
+		final List<Index> shards = getShards();
+		int indexCount = shards.size();
 		int[] offsets = new int[indexCount];
 		Lexicon<String>[] lexicons = new Lexicon[indexCount];
 
 		int i = 0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			lexicons[i] = index.getLexicon();
 			offsets[i] = index.getCollectionStatistics()
 					.getNumberOfUniqueTerms();
@@ -136,13 +152,14 @@ public class MultiIndex extends Index {
 	/** {@inheritDoc} */
 	@SuppressWarnings("unchecked")
 	public PostingIndex<?> getInvertedIndex() {
-		int ondisk = indices.size();
+		final List<Index> shards = getShards();
+		int ondisk = shards.size();
 		int[] offsets = new int[ondisk];
 		PostingIndex<?>[] postings = new PostingIndex[ondisk];
 
 		int currentoffset = 0;
 		int i = 0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			postings[i] = index.getInvertedIndex();
 			offsets[i] = currentoffset;
 			currentoffset += index.getCollectionStatistics()
@@ -155,12 +172,13 @@ public class MultiIndex extends Index {
 
 	/** {@inheritDoc} */
 	public MetaIndex getMetaIndex() {
-		int ondisk = indices.size();
+		final List<Index> shards = getShards();
+		int ondisk = shards.size();
 		int[] offsets = new int[ondisk];
 		MetaIndex[] metas = new MetaIndex[ondisk];
 
 		int i =0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			metas[i] = index.getMetaIndex();
 			offsets[i] = index.getCollectionStatistics()
 					.getNumberOfDocuments();
@@ -172,12 +190,13 @@ public class MultiIndex extends Index {
 
 	/** {@inheritDoc} */
 	public DocumentIndex getDocumentIndex() {
-		int ondisk = indices.size();
+		final List<Index> shards = getShards();
+		int ondisk = shards.size();
 		int[] offsets = new int[ondisk];
 		DocumentIndex[] docs = new DocumentIndex[ondisk];
 
 		int i =0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			docs[i] = index.getDocumentIndex();
 			offsets[i] = index.getCollectionStatistics()
 					.getNumberOfDocuments();
@@ -189,11 +208,12 @@ public class MultiIndex extends Index {
 
 	/** {@inheritDoc} */
 	public CollectionStatistics getCollectionStatistics() {
-		int ondisk = indices.size();
+		final List<Index> shards = getShards();
+		int ondisk = shards.size();
 		CollectionStatistics[] stats = new CollectionStatistics[ondisk];
 
 		int i =0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			stats[i] = index.getCollectionStatistics();
 			i++;
 		}
@@ -203,11 +223,12 @@ public class MultiIndex extends Index {
 	
 	@SuppressWarnings("unchecked")
 	public PostingIndex<?> getDirectIndex() {
-		int ondisk = indices.size();
+		final List<Index> shards = getShards();
+		int ondisk = shards.size();
 		PostingIndex<?>[] postings = new PostingIndex[ondisk];
 
 		int i = 0;
-		for (Index index : selectiveMatchingPolicy.getSelectedIndices(indices)) {
+		for (Index index : selectiveMatchingPolicy.getSelectedIndices(shards)) {
 			postings[i] = index.getDirectIndex();
 			i++;
 		}
@@ -245,7 +266,9 @@ public class MultiIndex extends Index {
 	}
 	
 	public Index getIthShard(int i) {
-		return indices.get(i);
+		synchronized (indices) {
+			return indices.get(i);
+		}
 	}
 	
 	/**
@@ -253,7 +276,20 @@ public class MultiIndex extends Index {
 	 * @return integer number of shards
 	 */
 	public int getNumberOfShards() {
-		return indices.size();
+		synchronized (indices) {
+			return indices.size();
+		}
+	}
+	
+	/**
+	 * Returns a copy of the list of index shards. The list may be altered by flushes, merges
+	 * and deletions in other threads, so is copied while holding its lock.
+	 * @return the current index shards
+	 */
+	public List<Index> getShards() {
+		synchronized (indices) {
+			return new ArrayList<Index>(indices);
+		}
 	}
 
 }
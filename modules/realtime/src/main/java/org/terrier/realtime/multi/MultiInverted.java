@@ -29,6 +29,7 @@ package org.terrier.realtime.multi;
 
 import java.io.IOException;
 
+import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.Pointer;
 import org.terrier.structures.PostingIndex;
 import org.terrier.structures.postings.IterablePosting;
@@ -37,9 +38,11 @@ import org.terrier.structures.postings.IterablePosting;
  * An inverted file implementation for a MultIndex. It wraps around multiple inverted files
  * from the shards in the MultiIndex.
  * 
+ * Can be read by several threads concurrently, if the structures of the shards can.
  * @author Richard McCreadie, Stuart Mackie
  * @since 4.0
  */
+@ConcurrentReadable
 public class MultiInverted implements PostingIndex<Pointer> {
 
 	private PostingIndex<Pointer>[] postings;
@@ -32,12 +32,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang3.tuple.Pair;
+import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.Lexicon;
 import org.terrier.structures.LexiconEntry;
 import org.terrier.utility.ApplicationSetup;
@@ -62,11 +64,14 @@ import org.terrier.utility.StaTools;
  * <li><tt>MultiLexicon.updateTermListOnIteratorCreate</tt> - do we re-build the full list of terms in the lexicon when an iterator is created. This can be slow, but we might miss new terms otherwise.</li>
  * </ul>
  * 
+ * Can be read by several threads concurrently, if the structures of the shards can.
  * @author Richard McCreadie, Stuart Mackie
  * @since 4.0
  */
+@ConcurrentReadable
 public class MultiLexicon extends Lexicon<String> {
 
+	/** recently seen terms, by global termid. As an LRUMap alters on every access, all accesses synchronize on it */
 	LRUMap<Integer, String> hash2term = new LRUMap<>(1000);
 	private Lexicon<String>[] lexicons;
 	private int[] numTerms;
@@ -86,16 +91,23 @@ public class MultiLexicon extends Lexicon<String> {
 	public MultiLexicon(Lexicon<String>[] lexicons, int[] numTerms) {
 		this.lexicons = lexicons;
 		this.numTerms = numTerms;
-		Set<String> unorderedTerms = new HashSet<String>();
-		if (!approximateNumberofEntries)
+		//the terms of all lexicons are only enumerated when first required
+		this.uniqueTerms = new ArrayList<String>(0);
+	}
+	
+	/** Returns the sorted list of the terms in all lexicons, enumerating them if 
+	 * they have not yet been obtained, or if refresh is set. */
+	protected synchronized List<String> getUniqueTerms(boolean refresh) {
+		if (uniqueTerms.size()==0 || refresh) {
+			Set<String> unorderedTerms = new HashSet<String>();
 			for (Lexicon<String> lex : lexicons)
 				for (int t = 0; t < lex.numberOfEntries(); t++)
 					unorderedTerms.add(lex.getIthLexiconEntry(t).getKey());
-		uniqueTerms = new ArrayList<String>(unorderedTerms.size());
-		for (String t : unorderedTerms)
-			uniqueTerms.add(t);
-		Collections.sort(uniqueTerms);
-
+			ArrayList<String> terms = new ArrayList<String>(unorderedTerms);
+			Collections.sort(terms);
+			uniqueTerms = terms;
+		}
+		return uniqueTerms;
 	}
 
 	public Lexicon<String> getIthLexicon(int index) {
@@ -125,7 +137,7 @@ public class MultiLexicon extends Lexicon<String> {
 		if (approximateNumberofEntries)
 			return StaTools.max(numTerms);
 		else
-			return uniqueTerms.size();
+			return getUniqueTerms(false).size();
 	}
 
 	/** {@inheritDoc} */
@@ -145,14 +157,18 @@ public class MultiLexicon extends Lexicon<String> {
 		if (! found)
 			return null;
 		int hashcode = hashCode(term);
-		this.hash2term.putIfAbsent(hashcode, term);
+		synchronized (hash2term) {
+			this.hash2term.putIfAbsent(hashcode, term);
+		}
 		return new MultiLexiconEntry(les, hashcode);
 	}
 	
 	int computeGlobalTermIdFromLocal(int localtermid, int shard) {
 		String term = lexicons[shard].getLexiconEntry(localtermid).getKey();
 		int hashcode = hashCode(term);
-		this.hash2term.putIfAbsent(hashcode, term);
+		synchronized (hash2term) {
+			this.hash2term.putIfAbsent(hashcode, term);
+		}
 		return hashcode;
 	}
 
@@ -169,7 +185,10 @@ public class MultiLexicon extends Lexicon<String> {
 	
 	String globalTermId2Term(int hashcode) {
 		
-		String rtr = this.hash2term.get(hashcode);
+		String rtr;
+		synchronized (hash2term) {
+			rtr = this.hash2term.get(hashcode);
+		}
 		if (rtr != null)
 			return rtr;
 		
@@ -182,7 +201,9 @@ public class MultiLexicon extends Lexicon<String> {
 				Entry<String,LexiconEntry> lee = iter.next();
 				if (hashCode(lee.getKey()) == hashcode)
 				{
-					hash2term.put(hashcode, lee.getKey());
+					synchronized (hash2term) {
+						hash2term.put(hashcode, lee.getKey());
+					}
 					return lee.getKey();
 				}
 			}
@@ -219,7 +240,9 @@ public class MultiLexicon extends Lexicon<String> {
 		for (Lexicon<String> lex : lexicons) {
 			lex.close();
 		}
-		uniqueTerms.clear();
+		synchronized (this) {
+			uniqueTerms = new ArrayList<String>(0);
+		}
 	}
 
 	@Override
@@ -232,32 +255,21 @@ public class MultiLexicon extends Lexicon<String> {
 	public class LexiconEntryIterator implements Iterator<Entry<String, LexiconEntry>> {
 
 		int pos = 0;
+		final List<String> terms;
 
 		public LexiconEntryIterator() {
-
-			if (uniqueTerms.size()==0 || updateTermListOnIteratorCreate) {
-				Set<String> unorderedTerms = new HashSet<String>();
-				for (Lexicon<String> lex : lexicons)
-					for (int t = 0; t < lex.numberOfEntries(); t++)
-						unorderedTerms.add(lex.getIthLexiconEntry(t).getKey());
-				uniqueTerms = new ArrayList<String>(unorderedTerms.size());
-				for (String t : unorderedTerms)
-					uniqueTerms.add(t);
-				Collections.sort(uniqueTerms);
-			}
-
-
+			terms = getUniqueTerms(updateTermListOnIteratorCreate);
 		}
 
 		@Override
 		public boolean hasNext() {
-			return pos < uniqueTerms.size();
+			return pos < terms.size();
 		}
 
 		@Override
 		public Entry<String, LexiconEntry> next() {
 
-			String term = uniqueTerms.get(pos);
+			String term = terms.get(pos);
 			pos++;
 
 
@@ -29,14 +29,17 @@ package org.terrier.realtime.multi;
 
 import java.io.IOException;
 
+import org.terrier.structures.ConcurrentReadable;
 import org.terrier.structures.MetaIndex;
 
 /** A MetaIndex for use with a MultiIndex. It wraps around multiple individual
  * meta indices to make them look like a single structure.
  *  
+ * Can be read by several threads concurrently, if the structures of the shards can.
  * @author Richard McCreadie, Stuart Mackie
  * @since 4.0
  * */
+@ConcurrentReadable
 public class MultiMeta implements MetaIndex {
 
 	private MetaIndex[] metas;
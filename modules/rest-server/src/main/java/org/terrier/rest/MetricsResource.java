@@ -0,0 +1,58 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is MetricsResource.java.
+ *
+ * The Original Code is Copyright (C) 2017-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *  Craig Macdonald
+ */
+package org.terrier.rest;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.terrier.querying.QueryMetrics;
+
+/** Exports the metrics of the queries processed by this server, in the Prometheus text format.
+ * @see QueryMetrics
+ * @since 5.3
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+	static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+	@GET
+	@Produces(CONTENT_TYPE)
+	public Response metrics()
+	{
+		StringWriter sw = new StringWriter();
+		PrintWriter pw = new PrintWriter(sw);
+		QueryMetrics.write(pw);
+		return Response.ok(sw.toString())
+				.type(CONTENT_TYPE)
+				.build();
+	}
+}
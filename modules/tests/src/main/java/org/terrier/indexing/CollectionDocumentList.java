@@ -63,6 +63,12 @@ public class CollectionDocumentList implements Collection {
 		index = -1;
 	}
 
+	/** The documents are already independent of this collection */
+	@Override
+	public boolean detachDocuments() {
+		return true;
+	}
+
 	public void close() throws IOException {}
 
 }
@@ -30,6 +30,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.terrier.realtime.incremental.TestIncremental;
+import org.terrier.realtime.matching.TestSelectiveShardMatching;
 import org.terrier.realtime.memory.TestMemoryDirect;
 import org.terrier.realtime.memory.TestMemoryIndex;
 import org.terrier.realtime.memory.TestMemoryIndexer;
@@ -52,6 +53,7 @@ import org.terrier.realtime.multi.TestMultiIndex;
         TestMemoryLexicon.class,
         TestMemoryMetaIndex.class,
         TestMultiIndex.class,
+        TestSelectiveShardMatching.class,
         TestIncremental.class,
         TestMemoryDirect.class
 })
@@ -39,8 +39,11 @@ import org.terrier.evaluation.TestTRECQrelsInMemory;
 import org.terrier.fat.TestFatCandidateResultSet;
 import org.terrier.fat.TestFatFeaturedScoringMatching;
 import org.terrier.fat.TestFatFullMatching;
+import org.terrier.fat.TestFatPostingColumns;
 import org.terrier.fat.TestFatScoringMatching;
 import org.terrier.fat.TestLinearModelMatching;
+import org.terrier.fat.TestQuickScorer;
+import org.terrier.fat.TestWeightingModelSweep;
 import org.terrier.indexing.TestCollectionFactory;
 import org.terrier.indexing.TestCollections;
 import org.terrier.indexing.TestCompressionConfig;
@@ -60,34 +63,49 @@ import org.terrier.matching.TestMatching.TestTAATFullMatching;
 import org.terrier.matching.TestMatchingQueryTerms;
 import org.terrier.matching.TestResultSets;
 import org.terrier.matching.TestTRECResultsMatching;
+import org.terrier.matching.daat.TestFilteredFull;
+import org.terrier.matching.daat.TestStaticPriorFull;
+import org.terrier.matching.matchops.TestLevenshteinAutomaton;
 import org.terrier.matching.matchops.TestMatchOpQLParser;
 import org.terrier.matching.matchops.TestTRECQueryingMatchOpQL;
 import org.terrier.matching.models.TestWeightingModelFactory;
+import org.terrier.matching.saat.TestAnytime;
 import org.terrier.querying.TestDecorate;
 import org.terrier.querying.TestManager;
+import org.terrier.querying.TestQueryMetrics;
 import org.terrier.querying.TestSimpleDecorate;
 import org.terrier.querying.parser.TestQueryParser;
 import org.terrier.querying.summarisation.TestDefaultSummariser;
+import org.terrier.querying.summarisation.TestTokenSummariser;
 import org.terrier.rest.TestClientAndServer;
 import org.terrier.statistics.TestGammaFunction.TestWikipediaLanczosGammaFunction;
 import org.terrier.structures.TestBasicLexiconEntry;
 import org.terrier.structures.TestBitIndexPointer;
 import org.terrier.structures.TestCompressingMetaIndex;
+import org.terrier.structures.TestFSADocumentIndexColumns;
+import org.terrier.structures.TestFrontCodedLexicon;
 import org.terrier.structures.TestIndexOnDisk;
 import org.terrier.structures.TestIndexUtil;
+import org.terrier.structures.TestRangeIndex;
 import org.terrier.structures.TestTRECQuery;
 import org.terrier.structures.bit.TestBitPostingIndex;
 import org.terrier.structures.bit.TestBitPostingIndexInputStream;
 import org.terrier.structures.bit.TestPostingStructures;
+import org.terrier.structures.collections.TestDocidBitmap;
 import org.terrier.structures.collections.TestFSArrayFile;
 import org.terrier.structures.collections.TestFSOrderedMapFile;
+import org.terrier.structures.indexing.TestDocidReassigner;
 import org.terrier.structures.indexing.TestIndexing;
 import org.terrier.structures.indexing.TestIndexingFatalErrors;
 import org.terrier.structures.indexing.singlepass.TestInverted2DirectIndexBuilder;
+import org.terrier.structures.indexing.singlepass.TestPipelinedSinglePassIndexer;
+import org.terrier.structures.merging.TestIndexPruner;
 import org.terrier.structures.merging.TestMerger;
 import org.terrier.structures.postings.TestFieldORIterablePosting;
 import org.terrier.structures.postings.TestFieldOnlyIterablePosting;
+import org.terrier.structures.postings.TestMaterialisedORIterablePosting;
 import org.terrier.structures.postings.TestORIterablePosting;
+import org.terrier.structures.postings.TestANDIterablePosting;
 import org.terrier.structures.postings.TestPhraseIterablePosting;
 import org.terrier.structures.postings.TestProximityIterablePosting;
 import org.terrier.structures.serialization.TestFixedSizeTextFactory;
@@ -100,6 +118,7 @@ import org.terrier.utility.TestArrayUtils;
 import org.terrier.utility.TestCollectionStatistics;
 import org.terrier.utility.TestDistance;
 import org.terrier.utility.TestHeapSort;
+import org.terrier.utility.TestLatencyHistogram;
 import org.terrier.utility.TestMavenResolution;
 import org.terrier.utility.TestRounding;
 import org.terrier.utility.TestStaTools;
@@ -147,8 +166,11 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	TestFatCandidateResultSet.class,
 	TestFatFeaturedScoringMatching.class,
 	TestFatFullMatching.class,
+	TestFatPostingColumns.class,
 	TestFatScoringMatching.class,
 	TestLinearModelMatching.class,
+	TestQuickScorer.class,
+	TestWeightingModelSweep.class,
 	
 	//.indexing
 	TestCollections.class,
@@ -176,10 +198,14 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	TestTAATFullMatching.class,
 	TestTRECResultsMatching.class,
 	TestResultSets.class,
+	TestAnytime.class,
+	TestStaticPriorFull.class,
+	TestFilteredFull.class,
 	
 	//matching.matchops
 	TestTRECQueryingMatchOpQL.class,
 	TestMatchOpQLParser.class,
+	TestLevenshteinAutomaton.class,
 	
 	//matching.models
 	TestWeightingModelFactory.class,
@@ -188,12 +214,14 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	TestManager.class,
 	TestSimpleDecorate.class,
 	TestDecorate.class,
+	TestQueryMetrics.class,
 	
 	//querying.parser
 	TestQueryParser.class,
 	
 	//querying.summarisation
 	TestDefaultSummariser.class,
+	TestTokenSummariser.class,
 	
 	//rest
 	TestClientAndServer.class,
@@ -207,6 +235,9 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	TestBitPostingIndex.class,
 	TestBitPostingIndexInputStream.class,
 	TestCompressingMetaIndex.class,
+	TestFSADocumentIndexColumns.class,
+	TestFrontCodedLexicon.class,
+	TestRangeIndex.class,
 	TestPostingStructures.class,
 	TestIndexUtil.class,
 	TestTRECQuery.class,
@@ -215,16 +246,20 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	//.structures.collections
 	TestFSOrderedMapFile.class,
 	TestFSArrayFile.class,
+	TestDocidBitmap.class,
 	
 	//.structures.indexing
 	TestIndexing.class,
 	TestIndexingFatalErrors.class,
+	TestDocidReassigner.class,
 	
 	//structures.indexing.merging
 	TestMerger.class,
+	TestIndexPruner.class,
 	
 	//.structures.indexing.sp.hadoop
 	TestInverted2DirectIndexBuilder.class,
+	TestPipelinedSinglePassIndexer.class,
 	
 	//.structures.indexing.sp.hadoop
 //	TestBitPostingIndexInputFormat.class,
@@ -234,7 +269,9 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	//structures.postings
 	TestFieldOnlyIterablePosting.class,
 	TestORIterablePosting.class,
+	TestMaterialisedORIterablePosting.class,
 	TestFieldORIterablePosting.class,
+	TestANDIterablePosting.class,
 	TestPhraseIterablePosting.class,
 	TestProximityIterablePosting.class,
 	
@@ -252,6 +289,7 @@ import org.terrier.utility.io.TestRandomDataInputMemory;
 	TestCollectionStatistics.class,
 	TestDistance.class,
 	TestHeapSort.class,
+	TestLatencyHistogram.class,
 	TestMavenResolution.class,
 	TestRounding.class,
 	TestTagSet.class,
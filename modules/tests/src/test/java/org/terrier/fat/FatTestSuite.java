@@ -35,10 +35,13 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses( { 
 	TestFatCandidateResultSet.class,
+	TestFatPostingColumns.class,
 	TestFatFeaturedScoringMatching.class,
 	TestFatFullMatching.class,
 	TestFatScoringMatching.class,
-	TestLinearModelMatching.class
+	TestLinearModelMatching.class,
+	TestQuickScorer.class,
+	TestWeightingModelSweep.class
 })
 
 public class FatTestSuite {
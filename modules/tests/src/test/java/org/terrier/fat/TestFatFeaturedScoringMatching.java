@@ -26,6 +26,7 @@
 
 package org.terrier.fat;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -356,6 +357,44 @@ public class TestFatFeaturedScoringMatching extends ApplicationSetupBasedTest {
 		}
 	}
 	
+	@Test public void multipleDocumentsParallelFeatures() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("ignore.low.idf.terms", "false");
+		ApplicationSetup.setProperty("proximity.dependency.type","SD");
+		Index index = IndexTestUtils.makeIndexBlocks(
+				new String[]{"doc1", "doc2", "doc3", "doc4", "doc5"}, 
+				new String[]{"the lazy dog jumped over the quick fox", "a lazy afternoon", "the fox and the dog", 
+						"lazy dog lazy dog", "an unrelated document"});
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("lazy", 1.0d);
+		mqt.setTermProperty("dog", 1.0d);
+		mqt.setTermProperty("fox", 1.0d);
+		mqt.setDefaultTermWeightingModel(new Tf());
+		FatResultSet fr1 = (FatResultSet) new FatFull(index).match("query1", mqt);
+		assertEquals(4, fr1.getResultSize());
+		
+		final String[] features = new String[]{
+				"SAMPLE",
+				"WMODEL:Tf",
+				"WMODEL:BM25",
+				"QI:Dl",
+				"DSM:org.terrier.matching.dsms.DFRDependenceScoreModifier%proximity.ngram.length=2",
+				"WMODELt:Dl"};
+		ApplicationSetup.setProperty("fat.featured.scoring.matching.threads", "1");
+		FeaturedResultSet sequential = (FeaturedResultSet) new FatFeaturedScoringMatching(null, null, features).doMatch("query1", mqt, fr1);
+		ApplicationSetup.setProperty("fat.featured.scoring.matching.threads", "3");
+		ApplicationSetup.setProperty("fat.featured.scoring.matching.block.size", "1");
+		FeaturedResultSet parallel = (FeaturedResultSet) new FatFeaturedScoringMatching(null, null, features).doMatch("query1", mqt, FatUtils.recreate(fr1));
+		
+		assertEquals(features.length, sequential.getNumberOfFeatures());
+		assertArrayEquals(sequential.getFeatureNames(), parallel.getFeatureNames());
+		assertArrayEquals(sequential.getDocids(), parallel.getDocids());
+		for(int i=0;i<features.length;i++)
+			assertArrayEquals(sequential.getFeatureScores(i), parallel.getFeatureScores(i), 0.0d);
+		assertTrue(parallel.getFeatureScores("QI:Dl")[0] > 0);
+	}
+	
 	@Test public void testFilters()
 	{
 		Set<String> NS = new HashSet<>();
@@ -0,0 +1,232 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestFatPostingColumns.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+
+package org.terrier.fat;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.terrier.matching.BaseMatching;
+import org.terrier.matching.FatPostingColumns;
+import org.terrier.matching.FatResultSet;
+import org.terrier.matching.FatUtils;
+import org.terrier.matching.daat.CandidateResult;
+import org.terrier.matching.daat.FatCandidateResult;
+import org.terrier.matching.daat.FatCandidateResultSet;
+import org.terrier.matching.models.BM25;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.structures.BasicLexiconEntry;
+import org.terrier.structures.CollectionStatistics;
+import org.terrier.structures.EntryStatistics;
+import org.terrier.structures.FieldLexiconEntry;
+import org.terrier.structures.postings.BasicPostingImpl;
+import org.terrier.structures.postings.BlockFieldPostingImpl;
+import org.terrier.structures.postings.BlockPosting;
+import org.terrier.structures.postings.BlockPostingImpl;
+import org.terrier.structures.postings.FieldPosting;
+import org.terrier.structures.postings.WritablePosting;
+
+import com.google.common.collect.Sets;
+
+public class TestFatPostingColumns {
+
+	static FatCandidateResult result(int docid, double score, int doclen, int[] fieldLens, WritablePosting... postings)
+	{
+		final FatCandidateResult result = new FatCandidateResult(docid, postings.length);
+		result.updateScore(score);
+		for(int i=0;i<postings.length;i++)
+		{
+			if (postings[i] == null)
+				continue;
+			if (postings[i] instanceof FieldPosting)
+				((FieldPosting)postings[i]).setFieldLengths(fieldLens);
+			((BasicPostingImpl)postings[i]).setDocumentLength(doclen);
+			result.setPosting(i, postings[i]);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	static FatCandidateResultSet makeResultSet()
+	{
+		final List<CandidateResult> l = new ArrayList<CandidateResult>();
+		l.add(result(4, 3.0d, 10, new int[]{2,8},
+				new BlockFieldPostingImpl(4, 2, new int[]{1,7}, new int[]{1,1}),
+				new BlockPostingImpl(4, 1, new int[]{3})));
+		l.add(result(9, 2.0d, 20, new int[]{5,15},
+				new BlockFieldPostingImpl(9, 3, new int[]{0,4,12}, new int[]{2,1}),
+				null));
+		l.add(result(11, 1.0d, 7, new int[]{3,4},
+				null,
+				new BlockPostingImpl(11, 2, new int[]{5,6})));
+		final FieldLexiconEntry le = new FieldLexiconEntry(new int[]{4,3});
+		le.setStatistics(2, 5);
+		return new FatCandidateResultSet(
+				l,
+				new CollectionStatistics(50, 20, 400, 30, new long[]{100,300}, new String[]{"TITLE", "BODY"}),
+				new String[]{"a", "b"},
+				new EntryStatistics[]{le, new BasicLexiconEntry(6, 2, 3)},
+				new double[]{1, 2},
+				new Set[]{Sets.newHashSet(BaseMatching.BASE_MATCHING_TAG), Sets.newHashSet(BaseMatching.BASE_MATCHING_TAG)}
+				);
+	}
+
+	static void checkPostings(WritablePosting[][] expected, WritablePosting[][] actual)
+	{
+		assertEquals(expected.length, actual.length);
+		for(int d=0;d<expected.length;d++)
+		{
+			for(int t=0;t<expected[d].length;t++)
+			{
+				if (expected[d][t] == null)
+				{
+					assertNull(actual[d][t]);
+					continue;
+				}
+				assertEquals(expected[d][t].getClass(), actual[d][t].getClass());
+				assertEquals(expected[d][t].getId(), actual[d][t].getId());
+				assertEquals(expected[d][t].getFrequency(), actual[d][t].getFrequency());
+				assertEquals(expected[d][t].getDocumentLength(), actual[d][t].getDocumentLength());
+				assertArrayEquals(((BlockPosting)expected[d][t]).getPositions(), ((BlockPosting)actual[d][t]).getPositions());
+				if (expected[d][t] instanceof FieldPosting)
+				{
+					assertArrayEquals(((FieldPosting)expected[d][t]).getFieldFrequencies(), ((FieldPosting)actual[d][t]).getFieldFrequencies());
+					assertArrayEquals(((FieldPosting)expected[d][t]).getFieldLengths(), ((FieldPosting)actual[d][t]).getFieldLengths());
+				}
+			}
+		}
+	}
+
+	@Test public void testConversion()
+	{
+		final FatCandidateResultSet input = makeResultSet();
+		final WritablePosting[][] postings = input.getPostings();
+		assertTrue(FatPostingColumns.isSupported(postings));
+		final FatPostingColumns columns = FatPostingColumns.fromPostings(postings, 2, 2);
+		assertEquals(3, columns.getNumberOfDocuments());
+		assertEquals(2, columns.getNumberOfTerms());
+		assertTrue(columns.hasFields(0));
+		assertFalse(columns.hasFields(1));
+		assertTrue(columns.hasBlocks(0));
+		assertEquals(2, columns.getFrequency(0, 0));
+		assertEquals(0, columns.getFrequency(1, 1));
+		assertEquals(0, columns.getFrequency(2, 0));
+		assertEquals(20, columns.getDocumentLength(1));
+		checkPostings(postings, columns.toPostings(input.getDocids()));
+	}
+
+	@Test public void testScoring()
+	{
+		final FatCandidateResultSet input = makeResultSet();
+		final WritablePosting[][] postings = input.getPostings();
+		final FatPostingColumns columns = input.getPostingColumns();
+		assertNotNull(columns);
+		for(int t=0;t<2;t++)
+		{
+			final WeightingModel wm = new BM25();
+			wm.setCollectionStatistics(input.getCollectionStatistics());
+			wm.setEntryStatistics(input.getEntryStatistics()[t]);
+			wm.setKeyFrequency(input.getKeyFrequencies()[t]);
+			wm.prepare();
+			final FatPostingColumns.ColumnPosting cursor = columns.getPosting(t, input.getDocids());
+			assertEquals(t == 0, cursor instanceof FieldPosting);
+			for(int d=0;d<postings.length;d++)
+			{
+				if (postings[d][t] == null)
+					continue;
+				cursor.moveTo(d);
+				assertEquals(postings[d][t].getId(), cursor.getId());
+				assertEquals(wm.score(postings[d][t]), wm.score(cursor), 0.0d);
+			}
+		}
+	}
+
+	@Test public void testRecreate() throws Exception
+	{
+		final FatCandidateResultSet input = makeResultSet();
+		final FatResultSet output = FatUtils.recreate(input);
+		assertEquals(3, output.getResultSize());
+		assertArrayEquals(input.getDocids(), output.getDocids());
+		assertArrayEquals(input.getScores(), output.getScores(), 0.0d);
+		assertArrayEquals(input.getQueryTerms(), output.getQueryTerms());
+		assertEquals(FieldLexiconEntry.class, output.getEntryStatistics()[0].getClass());
+		assertEquals(5, output.getEntryStatistics()[0].getFrequency());
+		assertEquals(2, output.getCollectionStatistics().getNumberOfFields());
+		assertNotNull(output.getPostingColumns());
+		checkPostings(input.getPostings(), output.getPostings());
+	}
+
+	@Test public void testRewriteWithoutPostings() throws Exception
+	{
+		final FatCandidateResultSet input = makeResultSet();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		FatUtils.write(input, new DataOutputStream(baos));
+		//a result set read in columnar form should be written again without creating its postings
+		final FatCandidateResultSet read = new FatCandidateResultSet() {
+			@Override
+			public synchronized WritablePosting[][] getPostings() {
+				fail("postings should not be created");
+				return null;
+			}
+		};
+		read.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		baos = new ByteArrayOutputStream();
+		FatUtils.write(read, new DataOutputStream(baos));
+		final FatResultSet output = new FatCandidateResultSet();
+		output.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		checkPostings(input.getPostings(), output.getPostings());
+	}
+
+	@Test public void testReadMixedBlocks() throws Exception
+	{
+		final WritablePosting[][] postings = new WritablePosting[][]{
+			{new BasicPostingImpl(1, 2), new BlockPostingImpl(1, 2, new int[]{3,9})},
+			{null, new BlockPostingImpl(5, 1, new int[]{4})},
+			{new BasicPostingImpl(8, 1), null}
+		};
+		final FatPostingColumns columns = FatPostingColumns.fromPostings(postings, 2, 0);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		columns.write(new DataOutputStream(baos));
+		final FatPostingColumns read = FatPostingColumns.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		final WritablePosting[][] output = read.toPostings(new int[]{1,5,8});
+		assertFalse(read.hasBlocks(0));
+		assertTrue(read.hasBlocks(1));
+		assertEquals(2, output[0][0].getFrequency());
+		assertEquals(1, output[2][0].getFrequency());
+		assertNull(output[1][0]);
+		assertNull(output[2][1]);
+		assertArrayEquals(new int[]{3,9}, ((BlockPosting)output[0][1]).getPositions());
+		assertArrayEquals(new int[]{4}, ((BlockPosting)output[1][1]).getPositions());
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestQuickScorer.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+
+package org.terrier.fat;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terrier.matching.QuickScorer;
+
+public class TestQuickScorer {
+
+	@Rule
+	public TemporaryFolder tmpfolder = new TemporaryFolder();
+
+	static final int F = 4;
+	static final double[] MIN = {0, -1, 0, 2};
+	static final double[] FACTOR = {10, 3, 100, 1};
+	static final boolean[] LOG = {false, false, true, false};
+
+	/** a tree in the representation of Jforests */
+	static class Tree
+	{
+		int[] split, threshold, left, right;
+		double[] outputs;
+		int nodes = 0;
+		int leaves = 0;
+
+		Tree(int numLeaves, Random r)
+		{
+			split = new int[numLeaves-1];
+			threshold = new int[numLeaves-1];
+			left = new int[numLeaves-1];
+			right = new int[numLeaves-1];
+			outputs = new double[numLeaves];
+			//leaf ids are assigned in reverse, so that they are not in left-to-right order
+			leaves = numLeaves;
+			build(numLeaves, r);
+			for(int l=0;l<numLeaves;l++)
+				outputs[l] = r.nextGaussian();
+		}
+
+		int build(int numLeaves, Random r)
+		{
+			if (numLeaves == 1)
+				return ~(--leaves);
+			final int node = nodes++;
+			split[node] = r.nextInt(F);
+			threshold[node] = r.nextInt(20);
+			final int leftLeaves = 1 + r.nextInt(numLeaves - 1);
+			left[node] = build(leftLeaves, r);
+			right[node] = build(numLeaves - leftLeaves, r);
+			return node;
+		}
+	}
+
+	static int scale(int f, double value)
+	{
+		value = LOG[f] ? Math.log(value - MIN[f] + 1) * FACTOR[f] : (value - MIN[f]) * FACTOR[f];
+		return (int)Math.round(value);
+	}
+
+	/** scores as Jforests does, one tree at a time */
+	static double[] reference(Tree[] trees, double[] weights, double[][] features, int N)
+	{
+		final double[] scores = new double[N];
+		for(int t=0;t<trees.length;t++)
+			for(int d=0;d<N;d++)
+			{
+				int node = 0;
+				while(node >= 0)
+					node = scale(trees[t].split[node], features[trees[t].split[node]][d]) <= trees[t].threshold[node]
+						? trees[t].left[node] : trees[t].right[node];
+				scores[d] += weights[t] * trees[t].outputs[~node];
+			}
+		return scores;
+	}
+
+	static String join(int[] a)
+	{
+		return Arrays.toString(a).replaceAll("[\\[\\],]", "");
+	}
+
+	static String join(double[] a)
+	{
+		return Arrays.toString(a).replaceAll("[\\[\\],]", "");
+	}
+
+	@Test public void testRandomEnsemble() throws Exception
+	{
+		final Random r = new Random(42);
+		final int[] treeSizes = {2, 3, 8, 17, 64, 65, 100, 31};
+		final Tree[] trees = new Tree[treeSizes.length];
+		final double[] weights = new double[treeSizes.length];
+		for(int t=0;t<trees.length;t++)
+		{
+			trees[t] = new Tree(treeSizes[t], r);
+			weights[t] = r.nextDouble();
+		}
+		final int N = 200;
+		final double[][] features = new double[F][N];
+		for(int f=0;f<F;f++)
+			for(int d=0;d<N;d++)
+				features[f][d] = MIN[f] + r.nextDouble() * 2;
+		final double[] expected = reference(trees, weights, features, N);
+
+		final File model = tmpfolder.newFile("ensemble.xml");
+		try(PrintWriter pw = new PrintWriter(model))
+		{
+			pw.println("<Ensemble>");
+			for(int t=0;t<trees.length;t++)
+			{
+				pw.println("\t<Tree leaves=\"" + treeSizes[t] + "\" weight=\"" + weights[t] + "\">");
+				pw.println("\t\t<SplitFeatures>" + join(trees[t].split) + "</SplitFeatures>");
+				pw.println("\t\t<Thresholds>" + join(trees[t].threshold) + "</Thresholds>");
+				pw.println("\t\t<LeftChildren>" + join(trees[t].left) + "</LeftChildren>");
+				pw.println("\t\t<RightChildren>" + join(trees[t].right) + "</RightChildren>");
+				pw.println("\t\t<LeafOutputs>" + join(trees[t].outputs) + "</LeafOutputs>");
+				pw.println("\t</Tree>");
+			}
+			pw.println("</Ensemble>");
+		}
+		final QuickScorer qs = QuickScorer.load(model.toString(), MIN, FACTOR, LOG);
+		assertEquals(trees.length, qs.getNumberOfTrees());
+		final double[] scores = new double[N];
+		qs.score(N, features, scores);
+		//the scores are identical, not just close
+		assertArrayEquals(expected, scores, 0.0d);
+	}
+
+	@Test public void testStump()
+	{
+		final QuickScorer qs = new QuickScorer(
+				new int[][]{{1}}, new int[][]{{3}}, new int[][]{{-1}}, new int[][]{{-2}},
+				new double[][]{{-1, 2}}, new double[]{0.5}, MIN, FACTOR, LOG);
+		//feature 1 scaled: (v+1)*3, so values of up to 0 go left
+		final double[][] features = new double[F][];
+		features[0] = features[2] = features[3] = new double[]{5, 5, 5};
+		features[1] = new double[]{-1, 0, 0.5};
+		final double[] scores = new double[3];
+		qs.score(3, features, scores);
+		assertArrayEquals(new double[]{-0.5, -0.5, 1}, scores, 0.0d);
+	}
+}
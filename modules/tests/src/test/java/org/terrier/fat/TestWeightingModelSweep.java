@@ -0,0 +1,153 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestWeightingModelSweep.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+
+package org.terrier.fat;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.terrier.applications.batchquerying.WeightingModelSweep;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.daat.FatFull;
+import org.terrier.matching.daat.Full;
+import org.terrier.matching.models.BM25;
+import org.terrier.matching.models.PL2;
+import org.terrier.matching.models.WeightingModel;
+import org.terrier.querying.Request;
+import org.terrier.structures.Index;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestWeightingModelSweep extends ApplicationSetupBasedTest {
+
+	@Test public void testGrid() throws Exception
+	{
+		WeightingModelSweep sweep = new WeightingModelSweep("BM25%c=0.25,0.5 bm25.k_1=1.0,1.2; PL2%c=5;DPH",
+				"org.terrier.matching.FatScoringMatching");
+		List<WeightingModelSweep.Configuration> confs = sweep.getConfigurations();
+		assertEquals(6, confs.size());
+		assertEquals("BM25_c0.25_bm25.k_1-1.0", confs.get(0).getName());
+		assertEquals("BM25_c0.25_bm25.k_1-1.2", confs.get(1).getName());
+		assertEquals("BM25_c0.5_bm25.k_1-1.0", confs.get(2).getName());
+		assertEquals("PL2_c5", confs.get(4).getName());
+		assertEquals("DPH", confs.get(5).getName());
+		assertEquals(0.5d, confs.get(2).getWeightingModel().getParameter(), 0.0d);
+		assertEquals(5d, confs.get(4).getWeightingModel().getParameter(), 0.0d);
+		//the property set for the configurations is restored
+		assertNull(ApplicationSetup.getProperty("bm25.k_1", null));
+	}
+
+	static MatchingQueryTerms mqt(WeightingModel wm)
+	{
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setQueryId("test");
+		mqt.setTermProperty("dog", 1.0d);
+		mqt.setTermProperty("cat", 1.0d);
+		mqt.setDefaultTermWeightingModel(wm);
+		return mqt;
+	}
+
+	@Test public void testScoresMatchFull() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("ignore.low.idf.terms", "false");
+		Index index = IndexTestUtils.makeIndex(
+				new String[]{"doc1", "doc2", "doc3", "doc4"},
+				new String[]{"dog cat cat", "dog house house house", "cat", "fish dog dog cat mouse"});
+		WeightingModelSweep sweep = new WeightingModelSweep("BM25%c=0.3,0.75 bm25.k_1=0.9,2;PL2%c=3",
+				"org.terrier.matching.FatScoringMatching");
+
+		Request rq = new Request();
+		rq.setIndex(index);
+		rq.setQueryID("test");
+		rq.setMatchingQueryTerms(mqt(new BM25()));
+		ResultSet captured = new FatFull(index).match("test", rq.getMatchingQueryTerms());
+
+		for(WeightingModelSweep.Configuration conf : sweep.getConfigurations())
+		{
+			final WeightingModel wm;
+			if (conf.getName().startsWith("BM25"))
+			{
+				ApplicationSetup.setProperty("bm25.k_1", conf.getName().replaceFirst(".*-", ""));
+				wm = new BM25();
+				ApplicationSetup.getProperties().remove("bm25.k_1");
+			}
+			else
+				wm = new PL2();
+			wm.setParameter(conf.getWeightingModel().getParameter());
+			ResultSet expected = new Full(index).match("test", mqt(wm));
+			ResultSet actual = sweep.score(conf, rq, captured);
+			assertEquals(conf.getName(), expected.getResultSize(), actual.getResultSize());
+			assertArrayEquals(conf.getName(), expected.getDocids(), actual.getDocids());
+			assertArrayEquals(conf.getName() + " " + Arrays.toString(actual.getScores()),
+				expected.getScores(), actual.getScores(), 1e-9d);
+		}
+	}
+
+	@Test public void testConfigurationsRankDifferently() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("ignore.low.idf.terms", "false");
+		Index index = IndexTestUtils.makeIndex(
+				new String[]{"doc1", "doc2", "doc3", "doc4", "doc5", "doc6", "doc7", "doc8"},
+				new String[]{"dog cat", "dog dog dog cat house house house house house house house house house house", "cat", 
+					"fish mouse", "bird", "horse", "cow", "sheep"});
+		//c=0 and c=1 rank the documents differently
+		WeightingModelSweep sweep = new WeightingModelSweep("BM25%c=0.0,1.0,0.0",
+				"org.terrier.matching.FatScoringMatching");
+
+		Request rq = new Request();
+		rq.setIndex(index);
+		rq.setQueryID("test");
+		rq.setMatchingQueryTerms(mqt(new BM25()));
+		ResultSet captured = new FatFull(index).match("test", rq.getMatchingQueryTerms());
+		final int[] capturedDocids = captured.getDocids().clone();
+
+		int[][] rankings = new int[3][];
+		int c = 0;
+		for(WeightingModelSweep.Configuration conf : sweep.getConfigurations())
+		{
+			BM25 wm = new BM25();
+			wm.setParameter(conf.getWeightingModel().getParameter());
+			ResultSet expected = new Full(index).match("test", mqt(wm));
+			ResultSet actual = sweep.score(conf, rq, captured);
+			assertArrayEquals(conf.getName(), expected.getDocids(), actual.getDocids());
+			assertArrayEquals(conf.getName(), expected.getScores(), actual.getScores(), 1e-9d);
+			assertArrayEquals(capturedDocids, captured.getDocids());
+			rankings[c++] = actual.getDocids().clone();
+		}
+		assertFalse(Arrays.equals(rankings[0], rankings[1]));
+		assertArrayEquals(rankings[0], rankings[2]);
+	}
+}
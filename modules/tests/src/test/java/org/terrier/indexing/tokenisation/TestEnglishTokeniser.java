@@ -98,4 +98,23 @@ public class TestEnglishTokeniser extends BaseTestTokeniser {
 		testTokenisation(tokenise("...   a;b ?"), "a", "b");
 	}
 	
+	@Test public void testLowercase() throws Exception
+	{
+		testTokenisation(tokenise("Hello THERE mR"), "hello", "there", "mr");
+	}
+	
+	@Test public void testAcrossBufferBoundaries() throws Exception
+	{
+		//tokens must be assembled correctly when they straddle the tokeniser's read buffer
+		final StringBuilder text = new StringBuilder();
+		final String[] expected = new String[5000];
+		for(int i=0;i<expected.length;i++)
+		{
+			expected[i] = "Word" + (char)('a' + (i % 26)) + (i % 1000);
+			text.append(expected[i]).append(i % 2 == 0 ? " " : ", ");
+			expected[i] = expected[i].toLowerCase();
+		}
+		testTokenisation(tokenise(text.toString()), expected);
+	}
+	
 }
@@ -0,0 +1,169 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestFilteredFull.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.matching.daat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.Matching;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.PostingListManager;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.models.BM25;
+import org.terrier.querying.Request;
+import org.terrier.structures.FilterIndex;
+import org.terrier.structures.Index;
+import org.terrier.structures.indexing.FilterIndexBuilder;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestFilteredFull extends ApplicationSetupBasedTest {
+
+	static final int NUM_DOCS = 60;
+	static final String[] HOSTS = {"sport.bbc.co.uk", "www.gla.ac.uk", "www.dcs.gla.ac.uk"};
+
+	Index makeIndex() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "docno,filename");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "40,40");
+		ApplicationSetup.setProperty("indexer.meta.filter.keys", "docno,filename");
+		ApplicationSetup.setProperty("indexer.meta.filter.site.keys", "filename");
+		String[] docnos = new String[NUM_DOCS];
+		String[] docs = new String[NUM_DOCS];
+		for(int i=0;i<NUM_DOCS;i++)
+		{
+			docnos[i] = HOSTS[i % HOSTS.length] + "/" + i;
+			docs[i] = i % 4 == 0 ? "filler text" : "the dog" + (i % 5 == 0 ? " dog" : "") + (i % 7 == 0 ? " cat" : "");
+		}
+		return IndexTestUtils.makeIndex(docnos, docs);
+	}
+
+	static MatchingQueryTerms query(Request rq)
+	{
+		MatchingQueryTerms mqt = new MatchingQueryTerms("1", rq);
+		mqt.setTermProperty("dog", 1);
+		mqt.setTermProperty("cat", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		return mqt;
+	}
+
+	static void checkFiltered(Index index, Request rq, IntPredicate allowed) throws Exception
+	{
+		checkFiltered(index, rq, allowed, Full::new);
+	}
+
+	static void checkFiltered(Index index, Request rq, IntPredicate allowed, Function<Index,Matching> matching) throws Exception
+	{
+		//documents with tied scores may be ranked in any order, so compare by docid
+		ResultSet all = matching.apply(index).match("1", query(new Request()));
+		Map<Integer,Double> expected = new TreeMap<>();
+		for(int i=0;i<all.getResultSize();i++)
+			if (allowed.test(all.getDocids()[i]))
+				expected.put(all.getDocids()[i], all.getScores()[i]);
+		ResultSet filtered = matching.apply(index).match("1", query(rq));
+		Map<Integer,Double> actual = new TreeMap<>();
+		for(int i=0;i<filtered.getResultSize();i++)
+			actual.put(filtered.getDocids()[i], filtered.getScores()[i]);
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, actual);
+	}
+
+	@Test public void testFilterControl() throws Exception
+	{
+		Index index = makeIndex();
+		assertTrue(index.hasIndexStructure("filter"));
+		Request rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_FILTER, "docno=www.gla.ac.uk/1|www.gla.ac.uk/13|sport.bbc.co.uk/9|nothere");
+		checkFiltered(index, rq, d -> d == 1 || d == 13 || d == 9);
+	}
+
+	@Test public void testSiteControl() throws Exception
+	{
+		Index index = makeIndex();
+		Request rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "gla.ac.uk");
+		checkFiltered(index, rq, d -> d % 3 != 0);
+		assertNotNull(rq.getContextObject(FilterIndex.CONTEXT_SITE_APPLIED));
+
+		//conjunction of site and filter constraints
+		rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "UK");
+		rq.setControl(FilterIndex.CONTROL_FILTER, "filename=dcs.gla.ac.uk");
+		checkFiltered(index, rq, d -> d % 3 == 2);
+	}
+
+	@Test public void testTAAT() throws Exception
+	{
+		Index index = makeIndex();
+		Request rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "gla.ac.uk");
+		rq.setControl(FilterIndex.CONTROL_FILTER, "docno=www.gla.ac.uk/1|www.gla.ac.uk/13|sport.bbc.co.uk/9");
+		checkFiltered(index, rq, d -> d == 1 || d == 13, org.terrier.matching.taat.Full::new);
+		assertNotNull(rq.getContextObject(FilterIndex.CONTEXT_SITE_APPLIED));
+	}
+
+	@Test public void testNotAppliedByPostingListManager() throws Exception
+	{
+		//e.g. when rescoring, the site constraint has not been applied to the documents
+		Index index = makeIndex();
+		Request rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "gla.ac.uk");
+		PostingListManager plm = new PostingListManager(index, index.getCollectionStatistics(), query(rq));
+		plm.prepare(false);
+		plm.close();
+		assertNull(rq.getContextObject(FilterIndex.CONTEXT_SITE_APPLIED));
+	}
+
+	@Test public void testNoMatchingDocuments() throws Exception
+	{
+		Index index = makeIndex();
+		Request rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "org");
+		assertEquals(0, new Full(index).match("1", query(rq)).getResultSize());
+
+		//whole labels of the hostname are matched, unlike the endsWith() of SiteFilter
+		rq = new Request();
+		rq.setControl(FilterIndex.CONTROL_SITE, "la.ac.uk");
+		assertEquals(0, new Full(index).match("1", query(rq)).getResultSize());
+		assertNotNull(rq.getContextObject(FilterIndex.CONTEXT_SITE_APPLIED));
+	}
+
+	@Test(expected=IllegalArgumentException.class) public void testMultipleSiteKeys() throws Exception
+	{
+		//the site control has one value, so cannot be applied to several keys
+		new FilterIndexBuilder(null, "filter", new String[]{"docno", "filename"}, new String[]{"docno", "filename"});
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestStaticPriorFull.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+package org.terrier.matching.daat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.models.BM25;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.indexing.DocidReassigner;
+import org.terrier.structures.indexing.StaticScoreOrdering;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestStaticPriorFull extends ApplicationSetupBasedTest {
+
+	static final String[] DOCS = {
+		"the quick brown fox jumps over the lazy dog",
+		"dog dog dog",
+		"a fox and a dog",
+		"how much is that dog in the window",
+		"the fox",
+		"brown paper packages tied up with string",
+		"fox fox fox fox fox"
+	};
+	static final double[] PRIORS = {1.0, 0.3, 0.9, 0.2, 0.1, 0.6, 0.05};
+	static final int NUM_DOCS = DOCS.length + 20;
+
+	IndexOnDisk makeIndex() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		//filler documents ensure that the query terms have positive idf
+		String[] docnos = new String[NUM_DOCS];
+		String[] docs = new String[NUM_DOCS];
+		for(int i=0;i<NUM_DOCS;i++)
+		{
+			docnos[i] = "doc" + i;
+			docs[i] = i < DOCS.length ? DOCS[i] : "filler text number " + i;
+		}
+		return (IndexOnDisk) IndexTestUtils.makeIndex(docnos, docs);
+	}
+
+	static double[] makePriors()
+	{
+		double[] priors = new double[NUM_DOCS];
+		Arrays.fill(priors, 0.5);
+		System.arraycopy(PRIORS, 0, priors, 0, PRIORS.length);
+		return priors;
+	}
+
+	static MatchingQueryTerms query(String... terms)
+	{
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		for(String t : terms)
+			mqt.setTermProperty(t, 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		return mqt;
+	}
+
+	@Test public void testEarlyTermination() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		StaticScoreOrdering ordering = new StaticScoreOrdering(makePriors());
+		IndexOnDisk reordered = new DocidReassigner(source).reassign(ordering, ApplicationSetup.TERRIER_INDEX_PATH, "static");
+		double[] priors = ordering.getReorderedStaticScores();
+		for(int i=1;i<priors.length;i++)
+			assertTrue(priors[i] <= priors[i-1]);
+		assertEquals("doc0", reordered.getMetaIndex().getItem("docno", 0));
+		assertEquals("doc2", reordered.getMetaIndex().getItem("docno", 1));
+
+		ApplicationSetup.setProperty("matching.retrieved_set_size", "2");
+		StaticPriorFull matching = new StaticPriorFull(reordered, priors, 100);
+		assertTrue(matching.isEarlyTerminating());
+		ResultSet rs = matching.match("q1", query("fox"));
+		assertEquals(2, rs.getResultSize());
+		assertEquals(0, rs.getDocids()[0]);
+		assertEquals(1, rs.getDocids()[1]);
+		//the documents with the lowest priors are not considered
+		assertTrue(matching.getDocumentsScored() < 4);
+
+		//the same ranking is obtained without early termination
+		StaticPriorFull unordered = new StaticPriorFull(source, makePriors(), 100);
+		assertFalse(unordered.isEarlyTerminating());
+		ResultSet exhaustive = unordered.match("q1", query("fox"));
+		assertEquals(4, unordered.getDocumentsScored());
+		assertEquals(2, exhaustive.getResultSize());
+		for(int i=0;i<2;i++)
+		{
+			assertEquals(source.getMetaIndex().getItem("docno", exhaustive.getDocids()[i]),
+				reordered.getMetaIndex().getItem("docno", rs.getDocids()[i]));
+			assertEquals(exhaustive.getScores()[i], rs.getScores()[i], 1e-6d);
+		}
+		reordered.close();
+		source.close();
+	}
+
+	@Test public void testScoresIncludePriors() throws Exception
+	{
+		IndexOnDisk index = makeIndex();
+		ApplicationSetup.setProperty("matching.retrieved_set_size", "0");
+		ResultSet plain = new Full(index).match("q1", query("fox", "dog"));
+		double[] priors = makePriors();
+		ResultSet withPriors = new StaticPriorFull(index, priors, 2).match("q1", query("fox", "dog"));
+		assertEquals(plain.getResultSize(), withPriors.getResultSize());
+		for(int i=0;i<plain.getResultSize();i++)
+		{
+			final int docid = plain.getDocids()[i];
+			int j = 0;
+			while(withPriors.getDocids()[j] != docid)
+				j++;
+			assertEquals(plain.getScores()[i] + 2 * priors[docid], withPriors.getScores()[j], 1e-6d);
+		}
+		index.close();
+	}
+}
@@ -29,11 +29,19 @@ package org.terrier.matching.dsms;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 import org.junit.Test;
 import org.terrier.indexing.IndexTestUtils;
 import org.terrier.matching.CollectionResultSet;
 import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.PostingListManager;
+import org.terrier.matching.ProximityCapturePlugin;
+import org.terrier.matching.QueryResultSet;
 import org.terrier.matching.ResultSet;
+import org.terrier.matching.daat.Full;
+import org.terrier.matching.daat.PositionsCandidateResultSet;
 import org.terrier.matching.matchops.SingleTermOp;
 import org.terrier.matching.models.InL2;
 import org.terrier.querying.parser.Query.QTPBuilder;
@@ -87,4 +95,59 @@ public class TestDependenceScoreModifier extends ApplicationSetupBasedTest {
 		assertTrue(r.getScores()[0] > 1.0d);
 	}
 	
+	static Map<Integer,Double> scores(ResultSet r)
+	{
+		Map<Integer,Double> rtr = new TreeMap<>();
+		for(int i=0;i<r.getResultSize();i++)
+			rtr.put(r.getDocids()[i], r.getScores()[i]);
+		return rtr;
+	}
+	
+	@Test public void testCapturedPositions() throws Exception {
+		String[] docnos = new String[40];
+		String[] docs = new String[40];
+		for(int i=0;i<docs.length;i++)
+		{
+			docnos[i] = "doc" + i;
+			docs[i] = i % 3 == 0 
+				? "the brown fox and the lazy dog" 
+				: (i % 3 == 1 ? "brown is the fox" : "a fox that is brown" + (i % 2 == 0 ? " brown fox" : ""));
+		}
+		Index index = IndexTestUtils.makeIndexBlocks(docnos, docs);
+		ApplicationSetup.setProperty("matching.retrieved_set_size", "10");
+		for(String type : new String[]{"SD", "FD"})
+		{
+			ApplicationSetup.setProperty("proximity.dependency.type", type);
+			MatchingQueryTerms mqt = new MatchingQueryTerms();
+			mqt.setTermProperty("brown", 1);
+			mqt.setTermProperty("fox", 1);
+			mqt.setTermProperty("dog", 1);
+			mqt.setDefaultTermWeightingModel(new InL2());
+			ResultSet captured = new Full(index) {
+				@Override
+				protected void initialisePostings(PostingListManager plm) {
+					new ProximityCapturePlugin().processQuery(mqt, index, plm);
+				}
+			}.match("1", mqt);
+			assertTrue(captured instanceof PositionsCandidateResultSet);
+			assertEquals(10, captured.getResultSize());
+			for(int docid : captured.getDocids())
+				assertEquals(3, ((PositionsCandidateResultSet)captured).getPostings(docid).length);
+			
+			//the same documents, scored by re-opening the posting lists
+			ResultSet reopened = new QueryResultSet(captured.getResultSize());
+			System.arraycopy(captured.getDocids(), 0, reopened.getDocids(), 0, captured.getResultSize());
+			System.arraycopy(captured.getScores(), 0, reopened.getScores(), 0, captured.getResultSize());
+			Map<Integer,Double> before = scores(captured);
+			
+			for(DependenceScoreModifier dsm : new DependenceScoreModifier[]{new DFRDependenceScoreModifier(), new MRFDependenceScoreModifier()})
+			{
+				dsm.modifyScores(index, mqt, captured);
+				dsm.modifyScores(index, mqt, reopened);
+			}
+			assertEquals(scores(reopened).toString(), scores(captured).toString());
+			assertTrue(! before.equals(scores(captured)));
+		}
+	}
+	
 }
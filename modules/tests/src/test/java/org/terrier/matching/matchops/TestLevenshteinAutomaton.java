@@ -0,0 +1,63 @@
+package org.terrier.matching.matchops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.junit.Test;
+
+public class TestLevenshteinAutomaton {
+
+	@Test public void testAgainstLevenshteinDistance()
+	{
+		final LevenshteinDistance lev = new LevenshteinDistance();
+		final Random r = new Random(42);
+		final String[] terms = new String[2000];
+		for(int i=0;i<terms.length;i++)
+		{
+			final char[] chars = new char[1 + r.nextInt(8)];
+			for(int j=0;j<chars.length;j++)
+				chars[j] = (char)('a' + r.nextInt(4));
+			terms[i] = new String(chars);
+		}
+		Arrays.sort(terms);
+		for(String query : new String[]{"abc", "a", "dddd", "abcdabcd"})
+		{
+			for(int k=0;k<=2;k++)
+			{
+				final LevenshteinAutomaton automaton = new LevenshteinAutomaton(query, k);
+				for(String term : terms)
+				{
+					final int expected = lev.apply(query, term);
+					final int dead = automaton.setTerm(term);
+					if (dead == -1)
+					{
+						assertEquals(term, expected, automaton.getDistance());
+					}
+					else
+					{
+						assertTrue(term, expected > k);
+						//no term with the dead prefix can be within k edits
+						for(String other : terms)
+							if (other.startsWith(term.substring(0, dead)))
+								assertTrue(other, lev.apply(query, other) > k);
+					}
+				}
+			}
+		}
+	}
+
+	@Test public void testSuccessor()
+	{
+		assertEquals("ab", LevenshteinAutomaton.successor("aa"));
+		assertEquals("b", LevenshteinAutomaton.successor("a"));
+		assertEquals("a\ue000", LevenshteinAutomaton.successor("a\ud7ff"));
+		assertNull(LevenshteinAutomaton.successor(""));
+		assertNull(LevenshteinAutomaton.successor("a\uffff"));
+		assertNull(LevenshteinAutomaton.successor("a\ud800"));
+	}
+}
@@ -2,6 +2,7 @@ package org.terrier.matching.matchops;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -137,6 +138,50 @@ public class TestMatchOpSemantic extends ApplicationSetupBasedTest {
 		
 	}
 	
+	@Test
+	public void testFuzzyMaxExpansionsByFrequency() throws Exception {
+		
+		ApplicationSetup.setProperty("termpipelines", "");
+		Index index = IndexTestUtils.makeIndex(new String[]{"doc1", "doc2", "doc3"}, 
+				new String[]{"house mouse zebra", "mouse horse", "mouse horse zebras"});
+		Pair<EntryStatistics, IterablePosting> pair;
+		
+		//house, horse and mouse are within one edit of house, but house has the lowest document frequency
+		pair = new FuzzyTermOp("house", null, 2, 1, null, null).getPostingIterator(index);
+		assertNotNull(pair);
+		assertEquals(5, pair.getLeft().getDocumentFrequency());
+		assertEquals(5, pair.getLeft().getFrequency());
+		
+		//all three match when unlimited, while zebra(s) are never considered a match
+		pair = new FuzzyTermOp("house", null, null, 1, null, null).getPostingIterator(index);
+		assertEquals(6, pair.getLeft().getFrequency());
+		
+		//no matches at all
+		assertNull(new FuzzyTermOp("qqqqqqq", null, null, 1, null, null).getPostingIterator(index));
+	}
+	
+	@Test
+	public void testFuzzyLargeVocabulary() throws Exception {
+		
+		ApplicationSetup.setProperty("termpipelines", "");
+		final org.apache.commons.text.similarity.LevenshteinDistance lev = new org.apache.commons.text.similarity.LevenshteinDistance();
+		final StringBuilder doc = new StringBuilder();
+		int expected = 0;
+		for(char a = 'a'; a <= 'z'; a++)
+			for(char b = 'a'; b <= 'z'; b++)
+				for(String suffix : new String[]{"", "ouse", "use", "oose"})
+				{
+					final String term = "" + a + b + suffix;
+					doc.append(term).append(' ');
+					if (lev.apply("mouse", term) <= 1)
+						expected++;
+				}
+		Index index = IndexTestUtils.makeIndex(new String[]{"doc1"}, new String[]{doc.toString()});
+		Pair<EntryStatistics, IterablePosting> pair = new FuzzyTermOp("mouse", null, null, 1, null, null).getPostingIterator(index);
+		assertNotNull(pair);
+		assertEquals(expected, pair.getLeft().getFrequency());
+	}
+	
 	@Test
 	public void testPrefix() throws Exception {
 		
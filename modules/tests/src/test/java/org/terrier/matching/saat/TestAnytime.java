@@ -0,0 +1,160 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestAnytime.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+package org.terrier.matching.saat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.models.BM25;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.bit.ImpactOrderedPostingIndex;
+import org.terrier.structures.bit.ImpactOrderedPostingIndex.ImpactSegments;
+import org.terrier.structures.indexing.ImpactOrderedIndexBuilder;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestAnytime extends ApplicationSetupBasedTest {
+
+	static final String[] DOCS = {
+		"the quick brown fox jumps over the lazy dog",
+		"dog dog dog",
+		"a fox and a dog",
+		"how much is that dog in the window",
+		"the fox",
+		"brown paper packages tied up with string",
+		"fox fox fox fox fox"
+	};
+
+	IndexOnDisk makeIndex() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		//filler documents ensure that the query terms have positive idf
+		final int numDocs = DOCS.length + 20;
+		String[] docnos = new String[numDocs];
+		String[] docs = new String[numDocs];
+		for(int i=0;i<numDocs;i++)
+		{
+			docnos[i] = "doc" + i;
+			docs[i] = i < DOCS.length ? DOCS[i] : "filler text number " + i;
+		}
+		IndexOnDisk index = (IndexOnDisk) IndexTestUtils.makeIndex(docnos, docs);
+		new ImpactOrderedIndexBuilder(index, "BM25", 8).build("impact");
+		assertTrue(index.hasIndexStructure("impact"));
+		return index;
+	}
+
+	@Test public void testSegments() throws Exception
+	{
+		IndexOnDisk index = makeIndex();
+		ImpactOrderedPostingIndex impacts = (ImpactOrderedPostingIndex) index.getIndexStructure("impact");
+		assertEquals("BM25", impacts.getWeightingModel());
+		assertEquals(255, impacts.getQuantizationLevels());
+		for(Entry<String, LexiconEntry> lee : index.getLexicon())
+		{
+			Set<Integer> expected = new HashSet<>();
+			IterablePosting ip = index.getInvertedIndex().getPostings(lee.getValue());
+			while(ip.next() != IterablePosting.EOL)
+				expected.add(ip.getId());
+			ip.close();
+
+			Set<Integer> found = new HashSet<>();
+			ImpactSegments segments = impacts.getSegments(lee.getValue().getTermId());
+			assertNotNull(segments);
+			int lastImpact = Integer.MAX_VALUE;
+			int[] docids = null;
+			while(segments.nextSegment())
+			{
+				assertTrue(segments.getImpact() < lastImpact);
+				assertTrue(segments.getImpact() >= 1 && segments.getImpact() <= 255);
+				lastImpact = segments.getImpact();
+				docids = segments.readDocids(docids);
+				for(int i=0;i<segments.getLength();i++)
+				{
+					assertTrue(found.add(docids[i]));
+					if (i > 0)
+						assertTrue(docids[i] > docids[i-1]);
+				}
+			}
+			segments.close();
+			assertEquals(lee.getKey(), expected, found);
+		}
+		index.close();
+	}
+
+	@Test public void testMatching() throws Exception
+	{
+		IndexOnDisk index = makeIndex();
+		Anytime matching = new Anytime(index);
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("fox", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		ResultSet rs = matching.match("q1", mqt);
+		assertEquals(4, rs.getResultSize());
+		assertEquals(6, rs.getDocids()[0]);
+		assertEquals(4, matching.getPostingsProcessed());
+
+		//a second term, with an impact order consistent with the exhaustive BM25 ranking
+		mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("fox", 1);
+		mqt.setTermProperty("dog", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		rs = matching.match("q2", mqt);
+		ResultSet exhaustive = new org.terrier.matching.daat.Full(index).match("q2", mqt);
+		assertEquals(exhaustive.getResultSize(), rs.getResultSize());
+		assertEquals(exhaustive.getDocids()[0], rs.getDocids()[0]);
+		assertEquals(8, matching.getPostingsProcessed());
+		index.close();
+	}
+
+	@Test public void testBudget() throws Exception
+	{
+		IndexOnDisk index = makeIndex();
+		ApplicationSetup.setProperty("matching.saat.postings.budget", "1");
+		Anytime matching = new Anytime(index);
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("fox", 1);
+		mqt.setTermProperty("dog", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		ResultSet rs = matching.match("q1", mqt);
+		//only the segment with the highest impact is processed
+		assertTrue(matching.getPostingsProcessed() < 8);
+		assertEquals(matching.getPostingsProcessed(), rs.getResultSize());
+		int top = rs.getDocids()[0];
+		assertTrue(top == 6 || top == 1);
+		index.close();
+	}
+}
@@ -26,7 +26,10 @@
  */
 package org.terrier.querying;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -35,6 +38,7 @@ import org.terrier.matching.ResultSet;
 import org.terrier.matching.models.TF_IDF;
 import org.terrier.querying.summarisation.TestDefaultSummariser;
 import org.terrier.structures.Index;
+import org.terrier.structures.collections.LRUMap;
 import org.terrier.tests.ApplicationSetupBasedTest;
 import org.terrier.utility.ApplicationSetup;
 
@@ -66,6 +70,17 @@ public class TestDecorate extends ApplicationSetupBasedTest {
 		return srq;
 	}
 	
+	/** as performQuery, but without the decorate postfilter configured for the tests, so that
+	 * the result set has no metadata */
+	SearchRequest performUndecoratedQuery(Manager m, String query)
+	{
+		SearchRequest srq = m.newSearchRequest("test", query);
+		srq.setControl(SearchRequest.CONTROL_WMODEL, TF_IDF.class.getName());
+		srq.setControl("decorate", "off");
+		m.runSearchRequest(srq);
+		return srq;
+	}
+	
 	@Test public void testOneDocumentBasic() throws Exception {
 		Index index = createIndex();
 		Manager m = new LocalManager(index);
@@ -181,5 +196,130 @@ public class TestDecorate extends ApplicationSetupBasedTest {
 		assertTrue(rs.getMetaItems("abstract_emph")[0].startsWith("Lorem Ipsum has been the industry's standard dummy text ever <b>since</b>"));
 	}
 	
+	@Test public void testDecorateKeys() throws Exception {
+		Index index = createIndex();
+		Manager m = new LocalManager(index);
+		ResultSet rs; Decorate decorate; SearchRequest srq;
+		
+		srq = performUndecoratedQuery(m, "fox");
+		rs = ((Request) srq).getResultSet();
+		srq.setControl("decorateKeys", "filename");
+		decorate = new Decorate();
+		decorate.new_query(m, srq, rs);
+		decorate.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertEquals(1, rs.getMetaKeys().length);
+		assertEquals("doc1", rs.getMetaItems("filename")[0]);
+		
+		//the abstract is obtained by a later query, and the cache is shared
+		srq = performUndecoratedQuery(m, "fox");
+		rs = ((Request) srq).getResultSet();
+		srq.setControl("decorateKeys", "filename");
+		srq.setControl("emphasis", "abstract");
+		Decorate decorate2 = new Decorate();
+		decorate2.new_query(m, srq, rs);
+		assertSame(decorate.metaCache, decorate2.metaCache);
+		decorate2.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertEquals(3, rs.getMetaKeys().length);
+		assertEquals("doc1", rs.getMetaItems("filename")[0]);
+		assertEquals("The quick brown fox jumps over the lazy dog", rs.getMetaItems("abstract")[0]);
+		assertArrayEquals(new String[]{"doc1", "The quick brown fox jumps over the lazy dog"}, decorate2.metaCache.get(rs.getDocids()[0]));
+	}
 	
+	@Test public void testEarlyOnlyRequestedKeys() throws Exception {
+		Index index = createIndex();
+		Manager m = new LocalManager(index);
+		SearchRequest srq = performUndecoratedQuery(m, "fox");
+		srq.setControl("earlyDecorate", "filename");
+		ResultSet rs = ((Request) srq).getResultSet();
+		Decorate decorate = new Decorate();
+		decorate.process(m, (Request)srq);
+		assertEquals(1, rs.getMetaKeys().length);
+		assertEquals("doc1", rs.getMetaItems("filename")[0]);
+		assertArrayEquals(new String[]{"doc1", null}, decorate.metaCache.get(rs.getDocids()[0]));
+	}
+	
+	@Test public void testLRUMapMetaCache() throws Exception {
+		Index index = createIndex();
+		index.addIndexStructure("metacache", LRUMap.class.getName(), "java.lang.String", "\"100\"");
+		Manager m = new LocalManager(index);
+		SearchRequest srq = performUndecoratedQuery(m, "fox");
+		ResultSet rs = ((Request) srq).getResultSet();
+		Decorate decorate = new Decorate();
+		decorate.new_query(m, srq, rs);
+		decorate.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertEquals("doc1", rs.getMetaItems("filename")[0]);
+		@SuppressWarnings("unchecked")
+		LRUMap<Integer,String[]> cache = (LRUMap<Integer,String[]>) index.getIndexStructure("metacache");
+		assertEquals(1, cache.size());
+		assertArrayEquals(new String[]{"doc1", "The quick brown fox jumps over the lazy dog"}, cache.get(rs.getDocids()[0]));
+	}
+	
+	@Test public void testTokenSummary() throws Exception {
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "filename");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "20");
+		ApplicationSetup.setProperty("indexer.meta.reverse.keys", "");
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		ApplicationSetup.setProperty("decorate.summaries.tokens", "true");
+		Index index = IndexTestUtils.makeIndexBlocks(
+			new String[]{"doc1", "doc2"}, 
+			new String[]{"The quick brown fox jumps over the lazy dog", "Lorem ipsum"});
+		Manager m = new LocalManager(index);
+		SearchRequest srq = performQuery(m, "fox");
+		ResultSet rs = ((Request) srq).getResultSet();
+		srq.setControl("summaries", "snippet");
+		srq.setControl("emphasis", "snippet");
+		Decorate decorate = new Decorate();
+		decorate.new_query(m, srq, rs);
+		decorate.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertEquals(3, rs.getMetaKeys().length);
+		assertEquals("doc1", rs.getMetaItems("filename")[0]);
+		assertEquals("the quick brown fox jumps over the lazy dog", rs.getMetaItems("snippet")[0]);
+		assertEquals("the quick brown <b>fox</b> jumps over the lazy dog", rs.getMetaItems("snippet_emph")[0]);
+		
+		//the summariser is shared by later queries
+		Decorate decorate2 = new Decorate();
+		decorate2.new_query(m, srq, rs);
+		assertSame(decorate.tokenSummariser, decorate2.tokenSummariser);
+	}
+
+	@Test public void testTokenSummaryDefaultPipeline() throws Exception {
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "filename,abstract");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "20,2048");
+		ApplicationSetup.setProperty("indexer.meta.reverse.keys", "");
+		ApplicationSetup.setProperty("termpipelines", "Stopwords,PorterStemmer");
+		ApplicationSetup.setProperty("FileDocument.abstract", "abstract");
+		ApplicationSetup.setProperty("FileDocument.abstract.length", "2048");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		Index index = IndexTestUtils.makeIndexBlocks(
+			new String[]{"doc1", "doc2"}, 
+			new String[]{"The quick brown fox jumps over the lazy dog", "Lorem ipsum"});
+		assertTrue(index.hasIndexStructure("tokens"));
+		Manager m = new LocalManager(index);
+		SearchRequest srq = performQuery(m, "lazy");
+		ResultSet rs = ((Request) srq).getResultSet();
+		assertEquals(1, rs.getResultSize());
+		srq.setControl("summaries", "abstract");
+		srq.setControl("emphasis", "abstract");
+		
+		//by default, the summary is made from the text in the meta index, even though the index has tokens
+		Decorate decorate = new Decorate();
+		decorate.new_query(m, srq, rs);
+		decorate.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertNull(decorate.tokenSummariser);
+		assertEquals("The quick brown fox jumps over the lazy dog", rs.getMetaItems("abstract")[0]);
+		assertEquals("The quick brown fox jumps over the <b>lazy</b> dog", rs.getMetaItems("abstract_emph")[0]);
+		
+		//when enabled, the summary shows the stemmed tokens, and the stemmed query terms are emphasised
+		ApplicationSetup.setProperty("decorate.summaries.tokens", "true");
+		srq = performQuery(m, "lazy");
+		rs = ((Request) srq).getResultSet();
+		srq.setControl("summaries", "abstract");
+		srq.setControl("emphasis", "abstract");
+		decorate = new Decorate();
+		decorate.new_query(m, srq, rs);
+		decorate.filter(m, srq, rs, 0, rs.getDocids()[0]);
+		assertEquals("quick brown fox jump lazi dog", rs.getMetaItems("abstract")[0]);
+		assertEquals("quick brown fox jump <b>lazi</b> dog", rs.getMetaItems("abstract_emph")[0]);
+	}
 }
@@ -0,0 +1,92 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestQueryMetrics.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.querying;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.daat.Full;
+import org.terrier.matching.models.BM25;
+import org.terrier.structures.Index;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestQueryMetrics extends ApplicationSetupBasedTest {
+
+	@Test public void testMatchingMetrics() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		Index index = IndexTestUtils.makeIndex(
+				new String[]{"doc1", "doc2", "doc3"},
+				new String[]{"the dog", "the cat and dog", "a dog"});
+		final long before = QueryMetrics.getCounter("matching.postings");
+		Request rq = new Request();
+		MatchingQueryTerms mqt = new MatchingQueryTerms("1", rq);
+		mqt.setTermProperty("dog", 1);
+		mqt.setTermProperty("cat", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+
+		Map<String,Long> previous = QueryMetrics.begin(rq);
+		assertNull(previous);
+		new Full(index).match("1", mqt);
+		QueryMetrics.end(previous);
+
+		Map<String,Long> metrics = QueryMetrics.getMetrics(rq);
+		assertEquals(3l, metrics.get("matching.postings.dog").longValue());
+		assertEquals(1l, metrics.get("matching.postings.cat").longValue());
+		assertEquals(4l, metrics.get("matching.postings").longValue());
+		assertEquals(3l, metrics.get("matching.documents").longValue());
+		assertEquals(before + 4, QueryMetrics.getCounter("matching.postings"));
+
+		//no longer recording for this request
+		QueryMetrics.incrementRequest("matching.postings", 1);
+		assertEquals(4l, metrics.get("matching.postings").longValue());
+	}
+
+	@Test public void testWrite() throws Exception
+	{
+		QueryMetrics.recordTime("process.Test", 2000000l);
+		QueryMetrics.recordTime("process.Test", 4000000l);
+		QueryMetrics.increment("test.counter", 5);
+		StringWriter sw = new StringWriter();
+		QueryMetrics.write(new PrintWriter(sw));
+		String text = sw.toString();
+		assertTrue(text, text.contains("# TYPE terrier_test_counter_total counter"));
+		assertTrue(text, text.contains("terrier_test_counter_total 5"));
+		assertTrue(text, text.contains("# TYPE terrier_process_Test_seconds summary"));
+		assertTrue(text, text.contains("terrier_process_Test_seconds_count 2"));
+		assertTrue(text, text.contains("terrier_process_Test_seconds_sum 0.006"));
+		assertEquals(4000000l, QueryMetrics.getHistogram("process.Test").getValueAtPercentile(99));
+	}
+}
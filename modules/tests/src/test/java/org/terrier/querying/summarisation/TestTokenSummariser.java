@@ -0,0 +1,121 @@
+/*
+ * Terrier - Terabyte Retriever 
+ * Webpage: http://terrier.org 
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original is in 'TestTokenSummariser.java'
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk>
+ */
+package org.terrier.querying.summarisation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.structures.DocumentTokensIndex;
+import org.terrier.structures.DocumentTokensIndex.DocumentTokens;
+import org.terrier.structures.Index;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestTokenSummariser extends ApplicationSetupBasedTest {
+
+	static String toText(Index index, DocumentTokens doc)
+	{
+		return Arrays.stream(doc.termids).mapToObj(t -> index.getLexicon().getLexiconEntry(t).getKey()).collect(Collectors.joining(" "));
+	}
+	
+	@Test public void testTokens() throws Exception {
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		Index index = IndexTestUtils.makeIndexBlocks(
+			new String[]{"doc1", "doc2"}, 
+			new String[]{"The quick brown fox jumps over the lazy dog", "lazy afternoon"});
+		assertTrue(index.hasIndexStructure("tokens"));
+		DocumentTokensIndex tokens = (DocumentTokensIndex) index.getIndexStructure("tokens");
+		assertEquals(2, tokens.getNumberOfDocuments());
+		assertEquals("the quick brown fox jumps over the lazy dog", toText(index, tokens.getDocument(0)));
+		assertEquals("lazy afternoon", toText(index, tokens.getDocument(1)));
+		assertEquals(0, tokens.getDocument(0).sentences.length);
+		
+		assertTrue(TokenSummariser.canSummarise(index));
+		TokenSummariser s = new TokenSummariser(index);
+		assertEquals("the quick brown fox jumps over the lazy dog", s.generateSummary(0, new String[]{"fox"}));
+		assertEquals("lazy afternoon", s.generateSummary(1, new String[]{"unknown"}));
+	}
+	
+	@Test public void testTermidsDisabled() throws Exception {
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		Index index = IndexTestUtils.makeIndexBlocks(new String[]{"doc1"}, new String[]{"lazy afternoon"});
+		//summaries cannot be rendered without looking up the termids in the lexicon
+		index.setIndexProperty("index.lexicon.termids", "disabled");
+		assertFalse(TokenSummariser.canSummarise(index));
+	}
+	
+	@Test public void testWindow() throws Exception {
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		String[] words = Collections.nCopies(100, "filler").toArray(new String[0]);
+		words[10] = "other";
+		words[60] = "target";
+		words[62] = "other";
+		Index index = IndexTestUtils.makeIndexBlocks(new String[]{"doc1"}, new String[]{String.join(" ", words)});
+		String summary = new TokenSummariser(index).generateSummary(0, new String[]{"target", "other"});
+		//the window with both query terms is chosen
+		assertTrue(summary, summary.startsWith("...filler "));
+		assertTrue(summary, summary.contains(" target filler other "));
+		assertTrue(summary, summary.endsWith("..."));
+		assertEquals(TokenSummariser.WINDOW, summary.replace("...", "").split(" ").length);
+	}
+	
+	@Test public void testSentences() throws Exception {
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		ApplicationSetup.setProperty("block.delimiters.enabled", "true");
+		ApplicationSetup.setProperty("block.delimiters", "eos");
+		Index index = IndexTestUtils.makeIndexBlocks(new String[]{"doc1"}, 
+			new String[]{"alpha beta eos gamma target delta target eos epsilon target"});
+		DocumentTokens doc = ((DocumentTokensIndex) index.getIndexStructure("tokens")).getDocument(0);
+		assertEquals("alpha beta gamma target delta target epsilon target", toText(index, doc));
+		assertArrayEquals(new int[]{2, 6}, doc.sentences);
+		assertEquals("gamma target delta target...", new TokenSummariser(index).generateSummary(0, new String[]{"target"}));
+	}
+	
+	@Test public void testMultipleBuildersRefused() throws Exception {
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("block.tokens.store", "true");
+		ApplicationSetup.setProperty("indexing.max.docs.per.builder", "1");
+		try {
+			IndexTestUtils.makeIndexBlocks(new String[]{"doc1", "doc2"}, new String[]{"lazy afternoon", "quick fox"});
+			fail("tokens structures cannot be merged");
+		} catch (IllegalStateException ise) {
+			assertTrue(ise.getMessage(), ise.getMessage().contains("block.tokens.store"));
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestSelectiveShardMatching.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+
+package org.terrier.realtime.matching;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.HashMap;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.daat.Full;
+import org.terrier.matching.models.BM25;
+import org.terrier.realtime.memory.MemoryIndex;
+import org.terrier.realtime.multi.MultiIndex;
+import org.terrier.structures.Index;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestSelectiveShardMatching extends ApplicationSetupBasedTest {
+
+	static final String[][] SHARDS = {
+		{"the quick brown fox", "fox fox fox", "a fox in the window", "the lazy afternoon", "a sunny afternoon", "tea in the afternoon"},
+		{"the lazy dog", "dog dog dog", "how much is that dog", "the window cleaner", "a clean window", "open the window"},
+		{"brown paper packages", "tied up with string", "paper paper", "the morning paper", "a morning walk", "an evening walk"}
+	};
+
+	MultiIndex makeIndex() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		Index[] shards = new Index[SHARDS.length];
+		int docno = 0;
+		for(int i=0;i<SHARDS.length;i++)
+		{
+			String[] docnos = new String[SHARDS[i].length];
+			for(int j=0;j<docnos.length;j++)
+				docnos[j] = "doc" + (docno++);
+			shards[i] = IndexTestUtils.makeIndex(docnos, SHARDS[i]);
+		}
+		return new MultiIndex(shards, false, false);
+	}
+
+	static MatchingQueryTerms query(String... terms)
+	{
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		for(String t : terms)
+			mqt.setTermProperty(t, 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		return mqt;
+	}
+
+	@Test public void testSelection() throws Exception
+	{
+		MultiIndex index = makeIndex();
+		IncrementalSelectiveTopical policy = new IncrementalSelectiveTopical();
+		ShardSummary[] summaries = new ShardSummary[SHARDS.length];
+		for(int i=0;i<SHARDS.length;i++)
+			summaries[i] = policy.getSummary(index.getIthShard(i));
+		assertEquals(3, summaries[0].getDocumentFrequency("fox"));
+		assertEquals(0, summaries[1].getDocumentFrequency("fox"));
+
+		assertArrayEquals(new int[]{0}, IncrementalSelectiveTopical.selectShards(summaries, new String[]{"fox"}, 2));
+		assertArrayEquals(new int[]{1}, IncrementalSelectiveTopical.selectShards(summaries, new String[]{"dog"}, 1));
+		assertArrayEquals(new int[]{0,1}, IncrementalSelectiveTopical.selectShards(summaries, new String[]{"window"}, 3));
+		assertArrayEquals(new int[0], IncrementalSelectiveTopical.selectShards(summaries, new String[]{"unicorn"}, 3));
+		//the shard with the most documents containing window ranks higher
+		assertArrayEquals(new int[]{1}, IncrementalSelectiveTopical.selectShards(summaries, new String[]{"window"}, 1));
+
+		//summaries can be sent to a remote broker
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		summaries[2].write(new DataOutputStream(buffer));
+		ShardSummary read = new ShardSummary();
+		read.readFields(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+		assertEquals(summaries[2].getNumberOfDocuments(), read.getNumberOfDocuments());
+		assertEquals(summaries[2].getNumberOfTokens(), read.getNumberOfTokens());
+		assertEquals(summaries[2].getNumberOfTerms(), read.getNumberOfTerms());
+		assertEquals(3, read.getDocumentFrequency("paper"));
+		index.close();
+	}
+
+	@Test public void testMatching() throws Exception
+	{
+		MultiIndex index = makeIndex();
+		ApplicationSetup.setProperty("incremental.selectivematch.topical.shards", "1");
+		SelectiveShardMatching matching = new SelectiveShardMatching(index, new Full(index), new IncrementalSelectiveTopical());
+
+		//paper only occurs in the last shard, so the same documents and scores are obtained
+		MatchingQueryTerms mqt = query("paper");
+		ResultSet rs = matching.match("q1", mqt);
+		assertEquals(1, matching.getShardsMatched());
+		//the statistics are not recorded in the query terms of the caller
+		assertNull(mqt.getStatistics("paper"));
+		ResultSet exhaustive = new Full(index).match("q1", query("paper"));
+		assertEquals(3, rs.getResultSize());
+		assertEquals(exhaustive.getResultSize(), rs.getResultSize());
+		for(int i=0;i<rs.getResultSize();i++)
+		{
+			assertEquals(exhaustive.getDocids()[i], rs.getDocids()[i]);
+			assertEquals(exhaustive.getScores()[i], rs.getScores()[i], 1e-6d);
+		}
+		assertEquals("doc14", index.getMetaIndex().getItem("docno", rs.getDocids()[0]));
+
+		//only the documents of the selected shard are retrieved
+		rs = matching.match("q2", query("window"));
+		assertEquals(1, matching.getShardsMatched());
+		assertEquals(3, rs.getResultSize());
+		for(int docid : rs.getDocids())
+			assertEquals(1, docid / SHARDS[0].length);
+
+		rs = matching.match("q3", query("unicorn"));
+		assertEquals(0, matching.getShardsMatched());
+		assertEquals(0, rs.getResultSize());
+		index.close();
+	}
+
+	@Test public void testLiveShardSummary() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		MemoryIndex shard = new MemoryIndex();
+		for(int i=0;i<20;i++)
+			shard.indexDocument(IndexTestUtils.makeDocumentFromText("live document " + i, new HashMap<String,String>()));
+		IncrementalSelectiveTopical policy = new IncrementalSelectiveTopical();
+		ShardSummary summary = policy.getSummary(shard);
+		assertEquals(20, summary.getNumberOfDocuments());
+		assertEquals(20, summary.getDocumentFrequency("live"));
+
+		//the summary is not rebuilt until the shard has grown by 10%
+		shard.indexDocument(IndexTestUtils.makeDocumentFromText("live unicorn", new HashMap<String,String>()));
+		assertSame(summary, policy.getSummary(shard));
+		assertEquals(0, policy.getSummary(shard).getDocumentFrequency("unicorn"));
+		shard.indexDocument(IndexTestUtils.makeDocumentFromText("live unicorn", new HashMap<String,String>()));
+		assertNotSame(summary, policy.getSummary(shard));
+		assertEquals(22, policy.getSummary(shard).getNumberOfDocuments());
+		assertEquals(2, policy.getSummary(shard).getDocumentFrequency("unicorn"));
+
+		//unless configured to rebuild on every document
+		ApplicationSetup.setProperty("incremental.selectivematch.topical.rebuild.growth", "0");
+		summary = policy.getSummary(shard);
+		shard.indexDocument(IndexTestUtils.makeDocumentFromText("live unicorn", new HashMap<String,String>()));
+		assertNotSame(summary, policy.getSummary(shard));
+		assertEquals(3, policy.getSummary(shard).getDocumentFrequency("unicorn"));
+		shard.close();
+	}
+}
@@ -32,6 +32,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.net.URL;
 import java.util.Random;
 
 import org.glassfish.grizzly.http.server.HttpServer;
@@ -102,7 +104,17 @@ public class TestClientAndServer extends ApplicationSetupBasedTest {
 		SearchRequest srq = restManager.newSearchRequestFromQuery("token1");
 		restManager.runSearchRequest(srq);
 		assertEquals(1, srq.getResults().size());
-		assertEquals("doc1", srq.getResults().get(0).getMetadata("docno"));		
+		assertEquals("doc1", srq.getResults().get(0).getMetadata("docno"));
+		
+		//the server processed the query, so has latencies to export
+		StringBuilder metrics = new StringBuilder();
+		try(BufferedReader br = new BufferedReader(new InputStreamReader(new URL(uri + "metrics").openStream())))
+		{
+			String line;
+			while((line = br.readLine()) != null)
+				metrics.append(line).append('\n');
+		}
+		assertTrue(metrics.toString(), metrics.toString().contains("terrier_query_seconds_count"));
 		server.shutdown().get();	
 		//IndexUtil.deleteIndex(path, prefix);
 	}
@@ -157,6 +157,58 @@ public class TestCompressingMetaIndex extends ApplicationSetupBasedTest {
 			});
 	}
 		
+	@Test public void testReverseKey() throws Exception
+	{
+		testBase("meta", new String[]{"docno", "url"}, new int[]{5, 20}, new String[]{"docno"}, new String[][]{
+				new String[]{"doc1", "http://a.com/"},
+				new String[]{"doc20", "http://b.com/"},
+				new String[]{"doc3", "http://c.com/"},
+				new String[]{"doc4", "http://d.com/"}
+			});
+	}
+	
+	@Test public void testReverseKeyNoHash() throws Exception
+	{
+		ApplicationSetup.setProperty("metaindex.compressed.reverse.fphash", "false");
+		testBase("meta", new String[]{"docno", "url"}, new int[]{5, 20}, new String[]{"docno"}, new String[][]{
+				new String[]{"doc1", "http://a.com/"},
+				new String[]{"doc20", "http://b.com/"},
+				new String[]{"doc3", "http://c.com/"},
+				new String[]{"doc4", "http://d.com/"}
+			});
+	}
+	
+	@Test public void testReverseKeySurroundingWhitespace() throws Exception
+	{
+		IndexOnDisk index = Index.createNewIndex(ApplicationSetup.TERRIER_INDEX_PATH, ApplicationSetup.TERRIER_INDEX_PREFIX);
+		MetaIndexBuilder b = new CompressingMetaIndexBuilder(index, "meta",
+				new String[]{"docno"}, new int[]{8}, new String[]{"docno"});
+		b.writeDocumentEntry(new String[]{" doc1"});
+		b.writeDocumentEntry(new String[]{"doc2 "});
+		b.writeDocumentEntry(new String[]{" doc3 "});
+		b.close();
+		assertEquals("true", index.getIndexProperty("index.meta.reverse.docno.fphash", "false"));
+		MetaIndex mi = index.getMetaIndex();
+		assertEquals("doc1", mi.getItem("docno", 0));
+		assertEquals(0, mi.getDocument("docno", " doc1"));
+		assertEquals(0, mi.getDocument("docno", "doc1"));
+		assertEquals(1, mi.getDocument("docno", "doc2 "));
+		assertEquals(1, mi.getDocument("docno", "doc2"));
+		assertEquals(2, mi.getDocument("docno", " doc3 "));
+		assertEquals(2, mi.getDocument("docno", "doc3"));
+		assertEquals(-1, mi.getDocument("docno", "doc4"));
+		index.close();
+		IndexUtil.deleteIndex(index.getPath(), index.getPrefix());
+	}
+	
+	@Test public void testReverseKeyManyValues() throws Exception
+	{
+		final String[][] data = new String[1000][];
+		for(int i=0;i<data.length;i++)
+			data[i] = new String[]{"id" + (i * 7919 % 1000), "\u0400" + i};
+		testBase("meta", new String[]{"docno", "other"}, new int[]{7, 5}, new String[]{"docno", "other"}, data);
+	}
+	
 	@Test
 	public void testSingleKeyExtremeLengths() throws Exception
 	{
@@ -324,7 +376,12 @@ public class TestCompressingMetaIndex extends ApplicationSetupBasedTest {
 		assertNotNull(mi);
 
 		if (reverse)
-			assertEquals(docnos.length, ((CompressingMetaIndex)mi).forwardMetaMaps[0].size());
+		{
+			final CompressingMetaIndex cmi = (CompressingMetaIndex)mi;
+			assertEquals(docnos.length, cmi.forwardMetaHashes[0] != null 
+				? cmi.forwardMetaHashes[0].size()
+				: cmi.forwardMetaMaps[0].size());
+		}
 
 		
 		for(int i=0;i < docnos.length; i++)
@@ -0,0 +1,152 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestFSADocumentIndexColumns.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+package org.terrier.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.structures.collections.IntColumnFile;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.Files;
+
+/** Checks that document and field lengths are loaded from the column files written at indexing time,
+ * and that indices without such files can still be opened. */
+public class TestFSADocumentIndexColumns extends ApplicationSetupBasedTest {
+
+	@Test public void testInterleavedColumns() throws Exception
+	{
+		final String filename = new File(ApplicationSetup.TERRIER_INDEX_PATH, "test" + IntColumnFile.USUAL_EXTENSION).toString();
+		final int rows = 100000;
+		try(IntColumnFile.Writer w = new IntColumnFile.Writer(filename))
+		{
+			for(int i=0;i<rows;i++)
+			{
+				w.write(i);
+				w.write(-i);
+			}
+			assertEquals(2*rows, w.getCount());
+		}
+		assertEquals(2*rows, IntColumnFile.size(filename));
+		int[][] cols = new int[2][rows];
+		IntColumnFile.read(filename, ByteOrder.LITTLE_ENDIAN, cols);
+		for(int i=0;i<rows;i++)
+		{
+			assertEquals(i, cols[0][i]);
+			assertEquals(-i, cols[1][i]);
+		}
+		assertEquals(-1, IntColumnFile.size(filename + ".notexist"));
+	}
+
+	@Test public void testRows() throws Exception
+	{
+		//rows of 3 integers do not align with the read buffer
+		final String filename = new File(ApplicationSetup.TERRIER_INDEX_PATH, "rows" + IntColumnFile.USUAL_EXTENSION).toString();
+		final int rows = 100000;
+		try(IntColumnFile.Writer w = new IntColumnFile.Writer(filename))
+		{
+			for(int i=0;i<rows;i++)
+				w.write(new int[]{i, -i, 2*i});
+		}
+		int[][] read = new int[rows][3];
+		IntColumnFile.readRows(filename, ByteOrder.LITTLE_ENDIAN, read);
+		for(int i=0;i<rows;i++)
+			assertArrayEquals(new int[]{i, -i, 2*i}, read[i]);
+	}
+
+	@Test public void testDocumentLengths() throws Exception
+	{
+		//force the use of FSADocumentIndex rather than FSADocumentIndexInMem
+		ApplicationSetup.setProperty("indexing.max.encoded.documentindex.docs", "0");
+		Index index = IndexTestUtils.makeIndex(
+				new String[]{"doc1", "doc2", "doc3"},
+				new String[]{"the lazy dog", "a quick brown fox jumps", "dog"});
+		IndexOnDisk disk = (IndexOnDisk)index;
+		assertTrue(Files.exists(FSADocumentIndex.getColumnFilename(disk, "document", FSADocumentIndex.LENGTHS_COLUMN)));
+		DocumentIndex doi = index.getDocumentIndex();
+		assertTrue(doi instanceof FSADocumentIndex);
+		int[] expected = new int[doi.getNumberOfDocuments()];
+		for(int i=0;i<expected.length;i++)
+		{
+			expected[i] = doi.getDocumentEntry(i).getDocumentLength();
+			assertEquals(expected[i], doi.getDocumentLength(i));
+		}
+		assertEquals(4, expected[1]);
+
+		//an index without columns falls back to reading the entries
+		assertTrue(Files.delete(FSADocumentIndex.getColumnFilename(disk, "document", FSADocumentIndex.LENGTHS_COLUMN)));
+		doi = new FSADocumentIndex(disk, "document");
+		for(int i=0;i<expected.length;i++)
+			assertEquals(expected[i], doi.getDocumentLength(i));
+		index.close();
+	}
+
+	@Test public void testFieldLengths() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.max.encoded.documentindex.docs", "0");
+		ApplicationSetup.setProperty("FieldTags.process", "TITLE,BODY");
+		ApplicationSetup.setProperty("TrecDocTags.process", "DOCNO,TITLE,BODY");
+		Index index = IndexTestUtils.makeIndexFields(
+				new String[]{"doc1", "doc2", "doc3"},
+				new String[]{
+						"<DOCNO>1</DOCNO> <TITLE> Simple fox example</TITLE> <BODY> The quick brown fox jumps over the lazy dog </BODY>",
+						"<DOCNO>2</DOCNO> <TITLE> Simple dog </TITLE> <BODY> how much is that dog in the window </BODY>",
+						"<DOCNO>3</DOCNO> <TITLE> Copyright Statement </TITLE> <BODY> Terrier.org </BODY>"});
+		IndexOnDisk disk = (IndexOnDisk)index;
+		assertTrue(Files.exists(FSADocumentIndex.getColumnFilename(disk, "document", FSAFieldDocumentIndex.FIELD_LENGTHS_COLUMN)));
+		FieldDocumentIndex doi = new FSAFieldDocumentIndex(disk, "document");
+		int[][] expected = new int[doi.getNumberOfDocuments()][];
+		for(int i=0;i<expected.length;i++)
+		{
+			FieldDocumentIndexEntry fdie = (FieldDocumentIndexEntry) doi.getDocumentEntry(i);
+			expected[i] = fdie.getFieldLengths();
+			assertEquals(fdie.getDocumentLength(), doi.getDocumentLength(i));
+			assertArrayEquals(expected[i], doi.getFieldLengths(i));
+			for(int f=0;f<expected[i].length;f++)
+				assertEquals(expected[i][f], doi.getFieldLength(i, f));
+		}
+		assertEquals(2, expected[1][0]);
+		//the lengths are not allocated for each call
+		assertSame(doi.getFieldLengths(0), doi.getFieldLengths(1));
+
+		assertTrue(Files.delete(FSADocumentIndex.getColumnFilename(disk, "document", FSAFieldDocumentIndex.FIELD_LENGTHS_COLUMN)));
+		doi = new FSAFieldDocumentIndex(disk, "document");
+		for(int i=0;i<expected.length;i++)
+		{
+			assertArrayEquals(expected[i], doi.getFieldLengths(i));
+			for(int f=0;f<expected[i].length;f++)
+				assertEquals(expected[i][f], doi.getFieldLength(i, f));
+		}
+		index.close();
+	}
+}
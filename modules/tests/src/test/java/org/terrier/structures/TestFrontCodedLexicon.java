@@ -0,0 +1,192 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestFrontCodedLexicon.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.terrier.structures.indexing.LexiconBuilder;
+import org.terrier.structures.seralization.FixedSizeWriteableFactory;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+import org.terrier.utility.TermCodes;
+
+public class TestFrontCodedLexicon extends ApplicationSetupBasedTest
+{
+	IndexOnDisk createLexiconIndex(String[] tokens) throws Exception
+	{
+		ApplicationSetup.setProperty("lexicon.frontcoded", "true");
+		ApplicationSetup.setProperty("lexicon.frontcoded.blocksize", "4");
+		IndexOnDisk index = Index.createNewIndex(
+				ApplicationSetup.TERRIER_INDEX_PATH,
+				ApplicationSetup.TERRIER_INDEX_PREFIX);
+		LexiconBuilder lb = new LexiconBuilder(index, "lexicon", new TermCodes());
+		for(String tok: tokens)
+		{
+			lb.addTerm(tok, 1);
+		}
+		lb.finishedDirectIndexBuild();
+		lb.finishedInvertedIndexBuild();
+		return index;
+	}
+
+	@Test public void testOneTerm() throws Exception
+	{
+		Index index = createLexiconIndex(new String[]{"a", "a"});
+		Lexicon<String> lexicon = index.getLexicon();
+		assertTrue(lexicon instanceof FrontCodedLexicon);
+		assertEquals(1, lexicon.numberOfEntries());
+		assertNotNull(lexicon.getLexiconEntry("a"));
+		assertEquals(2, lexicon.getLexiconEntry("a").getFrequency());
+		assertNull(lexicon.getLexiconEntry("b"));
+		assertNull(lexicon.getLexiconEntry(""));
+		assertEquals("a", lexicon.getIthLexiconEntry(0).getKey());
+		assertEquals("a", lexicon.getLexiconEntry(0).getKey());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(expected=UnsupportedOperationException.class) public void testTermidsDisabled() throws Exception
+	{
+		IndexOnDisk index = createLexiconIndex(new String[]{"a", "b"});
+		Lexicon<String> lexicon = new FrontCodedLexicon("lexicon", index.getPath(), index.getPrefix(), 
+			(FixedSizeWriteableFactory<LexiconEntry>) index.getIndexStructure("lexicon-valuefactory"), 
+			"disabled", "file");
+		assertNotNull(lexicon.getLexiconEntry("b"));
+		lexicon.getLexiconEntry(1);
+	}
+
+	@Test public void testSubset() throws Exception
+	{
+		Index index = createLexiconIndex(new String[]{"a", "b", "a", "c", "d", "e", "f", "z"});
+		Iterator<Map.Entry<String,LexiconEntry>> iter;
+
+		iter = index.getLexicon().getLexiconEntryRange("g", "h");
+		assertFalse(iter.hasNext());
+
+		iter = index.getLexicon().getLexiconEntryRange("a", "c");
+		assertTrue(iter.hasNext());
+		assertEquals("a", iter.next().getKey());
+		assertTrue(iter.hasNext());
+		assertEquals("b", iter.next().getKey());
+		assertFalse(iter.hasNext());
+
+		iter = index.getLexicon().getLexiconEntryRange("f", "g");
+		assertTrue(iter.hasNext());
+		assertEquals("f", iter.next().getKey());
+		assertFalse(iter.hasNext());
+
+		iter = index.getLexicon().getLexiconEntryRange("e", "zz");
+		assertEquals("e", iter.next().getKey());
+		assertEquals("f", iter.next().getKey());
+		assertEquals("z", iter.next().getKey());
+		assertFalse(iter.hasNext());
+	}
+
+	@Test public void testConcurrentLookups() throws Exception
+	{
+		final String[] tokens = new String[200];
+		for(int i=0;i<tokens.length;i++)
+			tokens[i] = "term" + i;
+		final Index index = createLexiconIndex(tokens);
+		final Lexicon<String> lexicon = index.getLexicon();
+		assertTrue(lexicon.getClass().isAnnotationPresent(ConcurrentReadable.class));
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for(int t=0;t<4;t++)
+		{
+			final int offset = t;
+			results.add(pool.submit(() -> {
+				for(int r=0;r<50;r++)
+					for(int i=offset;i<tokens.length;i+=4)
+					{
+						final LexiconEntry le = lexicon.getLexiconEntry(tokens[i]);
+						if (le == null || le.getFrequency() != 1 || ! tokens[i].equals(lexicon.getLexiconEntry(le.getTermId()).getKey()))
+							return false;
+					}
+				return true;
+			}));
+		}
+		for(Future<Boolean> f : results)
+			assertTrue(f.get());
+		pool.shutdown();
+	}
+
+	@Test public void testSameAsMapFileLexicon() throws Exception
+	{
+		List<String> tokens = new ArrayList<String>();
+		for(String prefix : new String[]{"inter", "internat", "été", "中文", "z"})
+			for(int i=0;i<37;i++)
+				tokens.add(prefix + i);
+		IndexOnDisk index = createLexiconIndex(tokens.toArray(new String[0]));
+		Lexicon<String> fcLex = index.getLexicon();
+		assertTrue(fcLex instanceof FrontCodedLexicon);
+		Lexicon<String> mapLex = new FSOMapFileLexicon("lexicon", index);
+		assertEquals(mapLex.numberOfEntries(), fcLex.numberOfEntries());
+
+		//iteration order, lookup by term, index and termid
+		Iterator<Map.Entry<String,LexiconEntry>> fcIter = fcLex.iterator();
+		int i = 0;
+		for(Map.Entry<String,LexiconEntry> lee : mapLex)
+		{
+			assertTrue(fcIter.hasNext());
+			Map.Entry<String,LexiconEntry> fcLee = fcIter.next();
+			assertEquals(lee.getKey(), fcLee.getKey());
+			assertEquals(lee.getValue().getTermId(), fcLee.getValue().getTermId());
+			assertEquals(lee.getValue().getFrequency(), fcLee.getValue().getFrequency());
+
+			assertEquals(lee.getValue().getTermId(), fcLex.getLexiconEntry(lee.getKey()).getTermId());
+			assertEquals(lee.getKey(), fcLex.getIthLexiconEntry(i).getKey());
+			assertEquals(lee.getKey(), fcLex.getLexiconEntry(lee.getValue().getTermId()).getKey());
+			assertNull(fcLex.getLexiconEntry(lee.getKey() + "!"));
+			i++;
+		}
+		assertFalse(fcIter.hasNext());
+		assertEquals(tokens.size(), i);
+
+		//prefix ranges, as used by PrefixTermOp
+		for(String prefix : new String[]{"inter", "internat", "internat1", "é", "中", "y", "z3"})
+		{
+			final String hi = prefix.substring(0, prefix.length()-1) + (char)(prefix.charAt(prefix.length()-1)+1);
+			Iterator<Map.Entry<String,LexiconEntry>> mapRange = mapLex.getLexiconEntryRange(prefix, hi);
+			Iterator<Map.Entry<String,LexiconEntry>> fcRange = fcLex.getLexiconEntryRange(prefix, hi);
+			while(mapRange.hasNext())
+			{
+				assertTrue(fcRange.hasNext());
+				assertEquals(mapRange.next().getKey(), fcRange.next().getKey());
+			}
+			assertFalse(fcRange.hasNext());
+		}
+		mapLex.close();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestRangeIndex.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.matchops.DateRangeOp;
+import org.terrier.structures.indexing.RangeIndexBuilder;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestRangeIndex extends ApplicationSetupBasedTest {
+
+	static final int NUM_DOCS = 300;
+	static final long DAY = 24L * 3600 * 1000;
+
+	static int[] expected(int[] values, int lo, int hi)
+	{
+		return IntStream.range(0, values.length).filter(d -> values[d] >= lo && values[d] <= hi).toArray();
+	}
+
+	@Test public void testNumericRanges() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		IndexOnDisk index = (IndexOnDisk) IndexTestUtils.makeIndex(new String[]{"doc1"}, new String[]{"text"});
+		Random r = new Random(7);
+		int[] values = new int[NUM_DOCS];
+		for(int fanout : new int[]{2, 3, 16})
+		{
+			RangeIndexBuilder builder = new RangeIndexBuilder(index, "numrange" + fanout, fanout);
+			for(int d=0;d<NUM_DOCS;d++)
+				builder.addDocument(d, values[d] = r.nextInt(2000) - 1000);
+			builder.close();
+			RangeIndex ranges = new RangeIndex(index, "numrange" + fanout);
+			assertEquals(NUM_DOCS, ranges.getNumberOfDocuments());
+			for(int q=0;q<500;q++)
+			{
+				int lo = r.nextInt(2400) - 1200;
+				int hi = lo + r.nextInt(q % 2 == 0 ? 20 : 2000);
+				assertArrayEquals("lo="+lo+" hi="+hi, expected(values, lo, hi), ranges.getDocuments(lo, hi).toArray());
+			}
+			assertArrayEquals(IntStream.range(0, NUM_DOCS).toArray(), ranges.getDocuments(Integer.MIN_VALUE, Integer.MAX_VALUE).toArray());
+			assertTrue(ranges.getDocuments(5, 4).isEmpty());
+		}
+	}
+
+	@Test public void testDateRangeOp() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		ApplicationSetup.setProperty("indexer.meta.forward.keys", "docno,filename");
+		ApplicationSetup.setProperty("indexer.meta.forward.keylens", "30,30");
+		ApplicationSetup.setProperty("indexer.meta.daterange.key", "filename");
+		ApplicationSetup.setProperty("indexer.meta.daterange.fanout", "4");
+		//the date parser ignores the text after the date, which keeps the docnos unique
+		Random r = new Random(11);
+		int[] days = new int[NUM_DOCS];
+		String[] docnos = new String[NUM_DOCS];
+		String[] docs = new String[NUM_DOCS];
+		final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for(int d=0;d<NUM_DOCS;d++)
+		{
+			days[d] = 10000 + r.nextInt(3000);
+			docnos[d] = format.format(new Date(days[d] * DAY)) + "/" + d;
+			docs[d] = "news story";
+		}
+		Index index = IndexTestUtils.makeIndex(docnos, docs);
+		assertTrue(index.hasIndexStructure("daterange"));
+		for(int q=0;q<50;q++)
+		{
+			int lo = 9900 + r.nextInt(3200);
+			int hi = lo + r.nextInt(1000);
+			int[] exp = expected(days, lo, hi);
+			//times within the day do not matter
+			Pair<EntryStatistics,IterablePosting> pair = new DateRangeOp(new Date(lo * DAY + 5000), new Date(hi * DAY + DAY - 1)).getPostingIterator(index);
+			if (exp.length == 0)
+			{
+				assertEquals(null, pair);
+				continue;
+			}
+			assertEquals(exp.length, pair.getKey().getDocumentFrequency());
+			IterablePosting ip = pair.getValue();
+			int i = 0;
+			while(ip.next() != IterablePosting.EOL)
+			{
+				assertEquals(exp[i++], ip.getId());
+				assertEquals(1, ip.getFrequency());
+				assertEquals(2, ip.getDocumentLength());
+			}
+			assertEquals(exp.length, i);
+			//skipping
+			ip = new DateRangeOp(new Date(lo * DAY), new Date(hi * DAY)).getPostingIterator(index).getValue();
+			int target = exp[exp.length / 2];
+			assertEquals(target, ip.next(target));
+			assertEquals(target, ip.next(target - 1));
+			assertEquals(IterablePosting.EOL, ip.next(NUM_DOCS));
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestDocidBitmap.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestDocidBitmap {
+
+	/** makes a bitmap with a dense chunk, a sparse chunk and an empty chunk */
+	static BitSet makeSet(Random r, double denseProb, double sparseProb)
+	{
+		BitSet set = new BitSet();
+		for(int i=0;i<65536;i++)
+			if (r.nextDouble() < denseProb)
+				set.set(i);
+		for(int i=2*65536;i<3*65536;i++)
+			if (r.nextDouble() < sparseProb)
+				set.set(i);
+		set.set(5*65536 + 7);
+		return set;
+	}
+
+	static DocidBitmap toBitmap(BitSet set)
+	{
+		DocidBitmap.Builder b = new DocidBitmap.Builder();
+		for(int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i+1))
+			b.add(i);
+		return b.build();
+	}
+
+	static void check(BitSet expected, DocidBitmap actual)
+	{
+		assertEquals(expected.cardinality(), actual.cardinality());
+		assertArrayEquals(expected.stream().toArray(), actual.toArray());
+		for(int i=0;i<6*65536;i+=13)
+		{
+			assertEquals(expected.get(i), actual.contains(i));
+			assertEquals(expected.nextSetBit(i), actual.nextSetBit(i));
+		}
+	}
+
+	@Test public void testBuild()
+	{
+		BitSet set = makeSet(new Random(1), 0.3, 0.01);
+		DocidBitmap b = toBitmap(set);
+		check(set, b);
+		assertEquals(-1, b.nextSetBit(5*65536 + 8));
+		assertTrue(DocidBitmap.EMPTY.isEmpty());
+		assertEquals(-1, DocidBitmap.EMPTY.nextSetBit(0));
+		assertFalse(DocidBitmap.EMPTY.contains(0));
+	}
+
+	@Test public void testAndOr()
+	{
+		Random r = new Random(2);
+		BitSet s1 = makeSet(r, 0.3, 0.01);
+		BitSet s2 = makeSet(r, 0.02, 0.2);
+		DocidBitmap b1 = toBitmap(s1);
+		DocidBitmap b2 = toBitmap(s2);
+
+		BitSet and = (BitSet) s1.clone();
+		and.and(s2);
+		check(and, b1.and(b2));
+		check(and, b2.and(b1));
+
+		BitSet or = (BitSet) s1.clone();
+		or.or(s2);
+		check(or, b1.or(b2));
+		check(or, b2.or(b1));
+		check(s1, b1.or(DocidBitmap.EMPTY));
+		assertTrue(b1.and(DocidBitmap.EMPTY).isEmpty());
+	}
+
+	@Test public void testSerialisation() throws Exception
+	{
+		BitSet set = makeSet(new Random(3), 0.5, 0.05);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		toBitmap(set).write(new DataOutputStream(baos));
+		check(set, DocidBitmap.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray()))));
+	}
+}
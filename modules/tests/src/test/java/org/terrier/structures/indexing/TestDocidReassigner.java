@@ -0,0 +1,176 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestDocidReassigner.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+package org.terrier.structures.indexing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.structures.DocumentIndex;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.MetaIndex;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.postings.BlockPosting;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestDocidReassigner extends ApplicationSetupBasedTest {
+
+	static final String[] DOCNOS = {"d3", "d1", "d4", "d0", "d2"};
+	static final String[] DOCS = {
+		"the quick brown fox",
+		"lazy dog sleeps",
+		"quick dog jumps over the fox",
+		"brown dog",
+		"the end of the story"
+	};
+
+	@Test public void testMetaOrdering() throws Exception
+	{
+		IndexOnDisk source = (IndexOnDisk) IndexTestUtils.makeIndex(DOCNOS, DOCS);
+		checkMetaOrdering(source);
+	}
+
+	@Test public void testMetaOrderingBlocks() throws Exception
+	{
+		IndexOnDisk source = (IndexOnDisk) IndexTestUtils.makeIndexBlocks(DOCNOS, DOCS);
+		checkMetaOrdering(source);
+	}
+
+	void checkMetaOrdering(IndexOnDisk source) throws Exception
+	{
+		IndexOnDisk dest = new DocidReassigner(source).reassign(
+			new DocidReassigner.MetaKeyOrdering("docno"), ApplicationSetup.TERRIER_INDEX_PATH, "reordered");
+		dest.close();
+		dest = IndexOnDisk.createIndex(ApplicationSetup.TERRIER_INDEX_PATH, "reordered");
+		assertNotNull(dest);
+		assertTrue(dest.hasIndexStructure("direct"));
+		assertEquals(source.getCollectionStatistics().toString(), dest.getCollectionStatistics().toString());
+
+		final MetaIndex sourceMeta = source.getMetaIndex();
+		final MetaIndex destMeta = dest.getMetaIndex();
+		final DocumentIndex sourceDoi = source.getDocumentIndex();
+		final DocumentIndex destDoi = dest.getDocumentIndex();
+		final int[] oldDocids = new int[DOCNOS.length];
+		for(int i=0;i<DOCNOS.length;i++)
+		{
+			assertEquals("d" + i, destMeta.getItem("docno", i));
+			oldDocids[i] = Arrays.asList(DOCNOS).indexOf("d" + i);
+			assertEquals(sourceDoi.getDocumentLength(oldDocids[i]), destDoi.getDocumentLength(i));
+		}
+
+		//direct postings are unchanged
+		final PostingIndex<?> sourceDirect = source.getDirectIndex();
+		final PostingIndex<?> destDirect = dest.getDirectIndex();
+		for(int i=0;i<DOCNOS.length;i++)
+		{
+			assertEquals(readPostings(sourceDirect.getPostings(sourceDoi.getDocumentEntry(oldDocids[i])), null),
+				readPostings(destDirect.getPostings(destDoi.getDocumentEntry(i)), null));
+		}
+
+		//inverted postings contain the same documents, in order
+		for(Entry<String, LexiconEntry> lee : source.getLexicon())
+		{
+			final LexiconEntry destLe = dest.getLexicon().getLexiconEntry(lee.getKey());
+			assertNotNull(destLe);
+			assertEquals(lee.getValue().getTermId(), destLe.getTermId());
+			assertEquals(lee.getValue().getFrequency(), destLe.getFrequency());
+			assertEquals(lee.getValue().getDocumentFrequency(), destLe.getDocumentFrequency());
+			assertEquals(
+				readPostings(source.getInvertedIndex().getPostings(lee.getValue()), sourceMeta),
+				readPostings(dest.getInvertedIndex().getPostings(destLe), destMeta));
+			IterablePosting ip = dest.getInvertedIndex().getPostings(destLe);
+			int last = -1;
+			while(ip.next() != IterablePosting.EOL)
+			{
+				assertTrue(ip.getId() > last);
+				last = ip.getId();
+				assertEquals(destDoi.getDocumentLength(last), ip.getDocumentLength());
+			}
+		}
+		dest.close();
+		source.close();
+	}
+
+	/** Returns a description of each posting, keyed by docno if meta is specified, otherwise by id */
+	static Map<String,String> readPostings(IterablePosting ip, MetaIndex meta) throws Exception
+	{
+		Map<String,String> rtr = new TreeMap<>();
+		while(ip.next() != IterablePosting.EOL)
+		{
+			String value = String.valueOf(ip.getFrequency());
+			if (ip instanceof BlockPosting)
+				value += Arrays.toString(((BlockPosting)ip).getPositions());
+			rtr.put(meta != null ? meta.getItem("docno", ip.getId()) : String.valueOf(ip.getId()), value);
+		}
+		ip.close();
+		return rtr;
+	}
+
+	@Test public void testGraphBisection() throws Exception
+	{
+		ApplicationSetup.setProperty("reorder.bp.min.partition.size", "2");
+		//the initial split is AAAB|ABBB; BP should group the documents by topic
+		final String A = "apple banana cherry damson ";
+		final String B = "xray yankee zulu whisky ";
+		final String[] docs = {A + "one", A + "two", A + "three", B + "four", A + "five", B + "six", B + "seven", B + "eight"};
+		final String[] docnos = new String[docs.length];
+		for(int i=0;i<docs.length;i++)
+			docnos[i] = "doc" + i;
+		IndexOnDisk source = (IndexOnDisk) IndexTestUtils.makeIndex(docnos, docs);
+		int[] newDocids = new RecursiveGraphBisection().getNewDocids(source);
+		int[] sorted = newDocids.clone();
+		Arrays.sort(sorted);
+		assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7}, sorted);
+		final boolean firstIsA = newDocids[0] < 4;
+		for(int i=0;i<docs.length;i++)
+			assertEquals("doc" + i, docs[i].startsWith(A) == firstIsA, newDocids[i] < 4);
+
+		IndexOnDisk dest = new DocidReassigner(source).reassign(newDocids, ApplicationSetup.TERRIER_INDEX_PATH, "bp");
+		IterablePosting ip = dest.getInvertedIndex().getPostings(dest.getLexicon().getLexiconEntry("banana"));
+		int count = 0;
+		while(ip.next() != IterablePosting.EOL)
+		{
+			assertTrue(firstIsA ? ip.getId() < 4 : ip.getId() >= 4);
+			final String docno = dest.getMetaIndex().getItem("docno", ip.getId());
+			assertTrue(docs[Integer.parseInt(docno.substring(3))].startsWith(A));
+			count++;
+		}
+		assertEquals(4, count);
+		dest.close();
+		source.close();
+	}
+}
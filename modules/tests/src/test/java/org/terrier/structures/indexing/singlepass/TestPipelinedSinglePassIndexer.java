@@ -0,0 +1,268 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestPipelinedSinglePassIndexer.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.structures.indexing.singlepass;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.terrier.indexing.Collection;
+import org.terrier.indexing.CollectionDocumentList;
+import org.terrier.indexing.Document;
+import org.terrier.indexing.FileDocument;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.indexing.tokenisation.EnglishTokeniser;
+import org.terrier.structures.FieldEntryStatistics;
+import org.terrier.structures.Index;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestPipelinedSinglePassIndexer extends ApplicationSetupBasedTest
+{
+	static final String[] WORDS = new String[]{"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+		"running", "runner", "runs", "terrier", "information", "retrieval", "indexing"};
+
+	static String[][] makeDocuments(int count, int offset)
+	{
+		String[] docnos = new String[count];
+		String[] docs = new String[count];
+		for(int i=0;i<count;i++)
+		{
+			docnos[i] = "doc" + (i + offset);
+			StringBuilder s = new StringBuilder();
+			//some documents are empty or contain only stopwords
+			if (i % 17 != 3)
+				for(int j=0;j<(i*7 % 23);j++)
+					s.append(WORDS[(i*j + j) % WORDS.length]).append(' ');
+			docs[i] = s.toString();
+		}
+		return new String[][]{docnos, docs};
+	}
+
+	static void checkSameIndex(Index expected, Index actual) throws Exception
+	{
+		assertEquals(expected.getCollectionStatistics().getNumberOfDocuments(), actual.getCollectionStatistics().getNumberOfDocuments());
+		assertEquals(expected.getCollectionStatistics().getNumberOfTokens(), actual.getCollectionStatistics().getNumberOfTokens());
+		assertEquals(expected.getCollectionStatistics().getNumberOfUniqueTerms(), actual.getCollectionStatistics().getNumberOfUniqueTerms());
+		assertEquals(expected.getCollectionStatistics().getNumberOfPointers(), actual.getCollectionStatistics().getNumberOfPointers());
+		for(int i=0;i<expected.getCollectionStatistics().getNumberOfDocuments();i++)
+		{
+			assertEquals(expected.getMetaIndex().getItem("docno", i), actual.getMetaIndex().getItem("docno", i));
+			assertEquals(expected.getDocumentIndex().getDocumentLength(i), actual.getDocumentIndex().getDocumentLength(i));
+		}
+		PostingIndex<?> expectedInv = expected.getInvertedIndex();
+		PostingIndex<?> actualInv = actual.getInvertedIndex();
+		for(Map.Entry<String,LexiconEntry> lee : expected.getLexicon())
+		{
+			LexiconEntry le = actual.getLexicon().getLexiconEntry(lee.getKey());
+			assertNotNull(lee.getKey(), le);
+			assertEquals(lee.getValue().getFrequency(), le.getFrequency());
+			assertEquals(lee.getValue().getDocumentFrequency(), le.getDocumentFrequency());
+			IterablePosting ipExpected = expectedInv.getPostings(lee.getValue());
+			IterablePosting ipActual = actualInv.getPostings(le);
+			while(ipExpected.next() != IterablePosting.EOL)
+			{
+				assertEquals(ipExpected.getId(), ipActual.next());
+				assertEquals(ipExpected.getFrequency(), ipActual.getFrequency());
+			}
+			assertEquals(IterablePosting.EOL, ipActual.next());
+		}
+	}
+
+	Index makeIndex(String[][] docs) throws Exception
+	{
+		return IndexTestUtils.makeIndex(docs[0], docs[1], PipelinedSinglePassIndexer.class);
+	}
+
+	@Test public void testSameAsSinglePass() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.singlepass.threads", "4");
+		ApplicationSetup.setProperty("indexing.singlepass.queue.size", "8");
+		//force several runs to be written by the background thread
+		ApplicationSetup.setProperty("indexing.singlepass.max.documents.flush", "50");
+		ApplicationSetup.setProperty("docs.check", "1000");
+		String[][] docs = makeDocuments(500, 0);
+		Index expected = IndexTestUtils.makeIndexSinglePass(docs[0], docs[1]);
+		Index actual = makeIndex(docs);
+		checkSameIndex(expected, actual);
+	}
+
+	@Test public void testSingleThread() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.singlepass.threads", "1");
+		ApplicationSetup.setProperty("indexing.singlepass.queue.size", "1");
+		String[][] docs = makeDocuments(50, 0);
+		Index expected = IndexTestUtils.makeIndexSinglePass(docs[0], docs[1]);
+		Index actual = makeIndex(docs);
+		checkSameIndex(expected, actual);
+	}
+
+	@Test public void testFields() throws Exception
+	{
+		ApplicationSetup.setProperty("FieldTags.process", "TITLE,BODY");
+		ApplicationSetup.setProperty("indexing.singlepass.threads", "3");
+		String[] docnos = new String[]{"doc1", "doc2", "doc3", "doc4"};
+		String[] docs = new String[]{
+			"<TITLE> Simple fox example 1</TITLE> <BODY> The quick brown fox jumps over the lazy dog </BODY>",
+			"<TITLE> Simple dog example 1 </TITLE> <BODY> how much is that dog in the window </BODY>",
+			"<TITLE> Simple dog example 2 </TITLE> <BODY> For example, what type of terrier is it? </BODY>",
+			"<TITLE> Copyright Statement </TITLE> <BODY> Terrier.org </BODY>"};
+		Index expected = IndexTestUtils.makeIndexFields(docnos, docs,
+			new BasicSinglePassIndexer(ApplicationSetup.TERRIER_INDEX_PATH, "expected"), ApplicationSetup.TERRIER_INDEX_PATH, "expected");
+		Index actual = IndexTestUtils.makeIndexFields(docnos, docs,
+			new PipelinedSinglePassIndexer(ApplicationSetup.TERRIER_INDEX_PATH, "actual"), ApplicationSetup.TERRIER_INDEX_PATH, "actual");
+		assertEquals(2, actual.getCollectionStatistics().getNumberOfFields());
+		checkSameIndex(expected, actual);
+		for(String term : new String[]{"dog", "exampl", "terrier"})
+		{
+			assertArrayEquals(
+				((FieldEntryStatistics)expected.getLexicon().getLexiconEntry(term)).getFieldFrequencies(),
+				((FieldEntryStatistics)actual.getLexicon().getLexiconEntry(term)).getFieldFrequencies());
+		}
+	}
+
+	/** A document that records the largest number of documents being tokenised at once */
+	static class ConcurrencyRecordingDocument implements Document
+	{
+		final AtomicInteger active;
+		final AtomicInteger maxActive;
+		final Document parent;
+
+		ConcurrencyRecordingDocument(Document _parent, AtomicInteger _active, AtomicInteger _maxActive)
+		{
+			this.parent = _parent;
+			this.active = _active;
+			this.maxActive = _maxActive;
+		}
+
+		@Override
+		public String getNextTerm() {
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			try{
+				Thread.sleep(1);
+			} catch (InterruptedException ie) {}
+			active.decrementAndGet();
+			return parent.getNextTerm();
+		}
+
+		@Override public Set<String> getFields() { return parent.getFields(); }
+		@Override public boolean endOfDocument() { return parent.endOfDocument(); }
+		@Override public Reader getReader() { return parent.getReader(); }
+		@Override public String getProperty(String name) { return parent.getProperty(name); }
+		@Override public Map<String,String> getAllProperties() { return parent.getAllProperties(); }
+	}
+
+	/** Indexes one collection, returning the largest number of documents that were tokenised at once */
+	int indexRecordingConcurrency(String[][] docs, final boolean detachable, String prefix) throws Exception
+	{
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		Document[] sourceDocs = new Document[docs[0].length];
+		for(int i=0;i<sourceDocs.length;i++)
+		{
+			Map<String,String> docProperties = new HashMap<String,String>();
+			docProperties.put("docno", docs[0][i]);
+			sourceDocs[i] = new ConcurrencyRecordingDocument(
+				new FileDocument(new ByteArrayInputStream(docs[1][i].getBytes()), docProperties, new EnglishTokeniser()), 
+				active, maxActive);
+		}
+		Collection collection = new CollectionDocumentList(sourceDocs) {
+			@Override
+			public boolean detachDocuments() {
+				return detachable;
+			}
+		};
+		new PipelinedSinglePassIndexer(ApplicationSetup.TERRIER_INDEX_PATH, prefix).index(new Collection[]{collection});
+		Index index = Index.createIndex(ApplicationSetup.TERRIER_INDEX_PATH, prefix);
+		checkSameIndex(IndexTestUtils.makeIndexSinglePass(docs[0], docs[1]), index);
+		index.close();
+		return maxActive.get();
+	}
+
+	@Test public void testParallelTokenisationOfOneCollection() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.singlepass.threads", "4");
+		String[][] docs = makeDocuments(100, 0);
+		//documents of a single collection are tokenised in parallel when detached
+		assertTrue(indexRecordingConcurrency(docs, true, "detached") > 1);
+		//otherwise, they are tokenised while holding the lock on the collection
+		assertEquals(1, indexRecordingConcurrency(docs, false, "attached"));
+	}
+
+	@Test public void testSeveralCollections() throws Exception
+	{
+		ApplicationSetup.setProperty("indexing.singlepass.threads", "3");
+		ApplicationSetup.setProperty("indexing.singlepass.queue.size", "4");
+		Collection[] collections = new Collection[4];
+		Set<String> docnos = new HashSet<String>();
+		List<String> allDocnos = new ArrayList<String>();
+		List<String> allDocs = new ArrayList<String>();
+		int numDocs = 0;
+		for(int i=0;i<collections.length;i++)
+		{
+			String[][] docs = makeDocuments(40 + i * 10, numDocs);
+			collections[i] = IndexTestUtils.makeCollection(docs[0], docs[1]);
+			allDocnos.addAll(Arrays.asList(docs[0]));
+			allDocs.addAll(Arrays.asList(docs[1]));
+			docnos.addAll(Arrays.asList(docs[0]));
+			numDocs += docs[0].length;
+		}
+		Index expected = IndexTestUtils.makeIndexSinglePass(allDocnos.toArray(new String[0]), allDocs.toArray(new String[0]));
+		PipelinedSinglePassIndexer indexer = new PipelinedSinglePassIndexer(ApplicationSetup.TERRIER_INDEX_PATH, ApplicationSetup.TERRIER_INDEX_PREFIX);
+		indexer.index(collections);
+		Index index = Index.createIndex();
+		assertNotNull(index);
+		assertEquals(numDocs, index.getCollectionStatistics().getNumberOfDocuments());
+		//all documents are indexed, each exactly once
+		for(int i=0;i<numDocs;i++)
+			assertTrue(docnos.remove(index.getMetaIndex().getItem("docno", i)));
+		assertEquals(0, docnos.size());
+		//documents are interleaved, but the statistics are unchanged
+		assertEquals(expected.getCollectionStatistics().getNumberOfTokens(), index.getCollectionStatistics().getNumberOfTokens());
+		assertEquals(expected.getCollectionStatistics().getNumberOfPointers(), index.getCollectionStatistics().getNumberOfPointers());
+		for(Map.Entry<String,LexiconEntry> lee : expected.getLexicon())
+		{
+			LexiconEntry le = index.getLexicon().getLexiconEntry(lee.getKey());
+			assertNotNull(lee.getKey(), le);
+			assertEquals(lee.getValue().getFrequency(), le.getFrequency());
+			assertEquals(lee.getValue().getDocumentFrequency(), le.getDocumentFrequency());
+		}
+		index.close();
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestIndexPruner.java.
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craig.macdonald@glasgow.ac.uk>
+ */
+package org.terrier.structures.merging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+import org.terrier.indexing.IndexTestUtils;
+import org.terrier.matching.FallThroughMatching;
+import org.terrier.matching.MatchingQueryTerms;
+import org.terrier.matching.ResultSet;
+import org.terrier.matching.daat.Full;
+import org.terrier.matching.models.BM25;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.LexiconEntry;
+import org.terrier.structures.merging.IndexPruner.Strategy;
+import org.terrier.structures.postings.IterablePosting;
+import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
+
+public class TestIndexPruner extends ApplicationSetupBasedTest {
+
+	static final String[] DOCS = {
+		"the quick brown fox jumps over the lazy dog",
+		"dog dog dog",
+		"a fox and a dog",
+		"how much is that dog in the window",
+		"the fox",
+		"brown paper packages tied up with string",
+		"fox fox fox fox fox",
+		"a lazy afternoon"
+	};
+
+	IndexOnDisk makeIndex() throws Exception
+	{
+		ApplicationSetup.setProperty("termpipelines", "");
+		String[] docnos = new String[DOCS.length];
+		for(int i=0;i<DOCS.length;i++)
+			docnos[i] = "doc" + i;
+		return (IndexOnDisk) IndexTestUtils.makeIndex(docnos, DOCS);
+	}
+
+	/** Checks the pruned index is valid and consistent, and returns the postings of each term */
+	static Map<String,Map<Integer,Integer>> checkPruned(IndexOnDisk source, IndexOnDisk pruned) throws Exception
+	{
+		assertEquals(source.getCollectionStatistics().getNumberOfDocuments(), pruned.getCollectionStatistics().getNumberOfDocuments());
+		//document statistics are kept from the full index
+		assertEquals(source.getCollectionStatistics().getNumberOfTokens(), pruned.getCollectionStatistics().getNumberOfTokens());
+		assertNull(pruned.getDirectIndex());
+		for(int i=0;i<DOCS.length;i++)
+		{
+			assertEquals("doc" + i, pruned.getMetaIndex().getItem("docno", i));
+			assertEquals(source.getDocumentIndex().getDocumentLength(i), pruned.getDocumentIndex().getDocumentLength(i));
+		}
+		Map<String,Map<Integer,Integer>> rtr = new HashMap<>();
+		long pointers = 0;
+		int terms = 0;
+		for(Entry<String, LexiconEntry> lee : pruned.getLexicon())
+		{
+			terms++;
+			Map<Integer,Integer> postings = new HashMap<>();
+			int TF = 0;
+			int last = -1;
+			IterablePosting ip = pruned.getInvertedIndex().getPostings(lee.getValue());
+			while(ip.next() != IterablePosting.EOL)
+			{
+				assertTrue(ip.getId() > last);
+				last = ip.getId();
+				postings.put(ip.getId(), ip.getFrequency());
+				TF += ip.getFrequency();
+			}
+			ip.close();
+			assertTrue(postings.size() > 0);
+			assertEquals(postings.size(), lee.getValue().getDocumentFrequency());
+			assertEquals(TF, lee.getValue().getFrequency());
+			assertEquals(lee.getKey(), pruned.getLexicon().getLexiconEntry(lee.getValue().getTermId()).getKey());
+			pointers += postings.size();
+			rtr.put(lee.getKey(), postings);
+
+			//retained postings are unchanged from the full index
+			ip = source.getInvertedIndex().getPostings(source.getLexicon().getLexiconEntry(lee.getKey()));
+			while(ip.next() != IterablePosting.EOL)
+				if (postings.containsKey(ip.getId()))
+					assertEquals(ip.getFrequency(), postings.get(ip.getId()).intValue());
+			ip.close();
+		}
+		assertEquals(terms, pruned.getCollectionStatistics().getNumberOfUniqueTerms());
+		assertEquals(pointers, pruned.getCollectionStatistics().getNumberOfPointers());
+		assertTrue(pointers < source.getCollectionStatistics().getNumberOfPointers());
+		return rtr;
+	}
+
+	@Test public void testTermPruning() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		IndexPruner pruner = new IndexPruner(source, Strategy.TERM, 0.5);
+		//in such a small collection, BM25 gives the common terms an idf of zero
+		pruner.setWeightingModel("Tf");
+		IndexOnDisk pruned = pruner.prune(ApplicationSetup.TERRIER_INDEX_PATH, "pruned");
+		Map<String,Map<Integer,Integer>> postings = checkPruned(source, pruned);
+		assertEquals(source.getCollectionStatistics().getNumberOfUniqueTerms(), pruned.getCollectionStatistics().getNumberOfUniqueTerms());
+		for(Entry<String, LexiconEntry> lee : source.getLexicon())
+		{
+			final int df = lee.getValue().getDocumentFrequency();
+			assertEquals(lee.getKey(), (int)Math.ceil(df * 0.5), postings.get(lee.getKey()).size());
+		}
+		//the highest tf documents are retained
+		assertTrue(postings.get("fox").containsKey(6));
+		assertTrue(postings.get("dog").containsKey(1));
+		pruned.close();
+		source.close();
+	}
+
+	@Test public void testDocidPruning() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		IndexOnDisk pruned = new IndexPruner(source, Strategy.DOCID, 0.5).prune(ApplicationSetup.TERRIER_INDEX_PATH, "pruned");
+		Map<String,Map<Integer,Integer>> postings = checkPruned(source, pruned);
+		for(Map<Integer,Integer> p : postings.values())
+			for(int docid : p.keySet())
+				assertTrue(docid < 4);
+		assertNull(pruned.getLexicon().getLexiconEntry("paper"));
+		assertNotNull(pruned.getLexicon().getLexiconEntry("window"));
+		pruned.close();
+		source.close();
+	}
+
+	@Test public void testDocumentPruning() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		IndexOnDisk pruned = new IndexPruner(source, Strategy.DOCUMENT, 0.3).prune(ApplicationSetup.TERRIER_INDEX_PATH, "pruned");
+		Map<String,Map<Integer,Integer>> postings = checkPruned(source, pruned);
+		//every document retains at least one posting
+		int[] perDoc = new int[DOCS.length];
+		for(Map<Integer,Integer> p : postings.values())
+			for(int docid : p.keySet())
+				perDoc[docid]++;
+		final IndexPruner pruner = new IndexPruner(source, Strategy.DOCUMENT, 0.3);
+		for(int i=0;i<DOCS.length;i++)
+		{
+			assertTrue("doc" + i, perDoc[i] >= 1);
+			assertTrue("doc" + i, perDoc[i] >= pruner.getRetainedCount(source.getDocumentIndex().getDocumentEntry(i).getNumberOfEntries()));
+		}
+		pruned.close();
+		source.close();
+	}
+
+	@Test public void testFallThroughLoadsTier() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		new IndexPruner(source, Strategy.DOCID, 0.5).prune(source.getPath(), source.getPrefix() + "-pruned").close();
+		FallThroughMatching matching = new FallThroughMatching(source, new Full(source));
+		//the first-tier index is closed along with the full index
+		assertTrue(source.getIndexStructure(FallThroughMatching.TIER_STRUCTURE) instanceof IndexOnDisk);
+
+		matching.setMinResults(1);
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("fox", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		ResultSet rs = matching.match("q1", mqt);
+		assertEquals(2, rs.getResultSize());
+		assertEquals(0, matching.getFallThroughCount());
+		matching.close();
+		source.close();
+	}
+
+	@Test public void testFallThrough() throws Exception
+	{
+		IndexOnDisk source = makeIndex();
+		IndexOnDisk pruned = new IndexPruner(source, Strategy.DOCID, 0.5).prune(ApplicationSetup.TERRIER_INDEX_PATH, "pruned");
+		FallThroughMatching matching = new FallThroughMatching(new Full(pruned), new Full(source));
+
+		matching.setMinResults(2);
+		MatchingQueryTerms mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("dog", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		ResultSet rs = matching.match("q1", mqt);
+		//dog occurs in docs 0-3, all in the first tier
+		assertEquals(4, rs.getResultSize());
+		assertEquals(0, matching.getFallThroughCount());
+
+		mqt = new MatchingQueryTerms();
+		mqt.setTermProperty("fox", 1);
+		mqt.setDefaultTermWeightingModel(new BM25());
+		rs = matching.match("q2", mqt);
+		//fox occurs in docs 0, 2, 4, 6; the first tier has 2
+		assertEquals(2, rs.getResultSize());
+		matching.setMinResults(3);
+		rs = matching.match("q2", mqt);
+		assertEquals(4, rs.getResultSize());
+		assertEquals(1, matching.getFallThroughCount());
+		assertEquals(4, mqt.getStatistics("fox").getDocumentFrequency());
+		pruned.close();
+		source.close();
+	}
+}
@@ -1,6 +1,10 @@
 package org.terrier.structures.postings;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
 
 import org.junit.Test;
 import org.terrier.structures.Pointer;
@@ -64,4 +68,66 @@ public class TestANDIterablePosting {
 		
 		joined.close();
 	}
+	
+	@Test public void testSkipPastMismatch() throws Exception
+	{
+		IterablePosting[] ips = new IterablePosting[]{
+				new ArrayOfBasicIterablePosting(new int[]{0,5,10}, new int[]{1,1,1}),
+				new ArrayOfBasicIterablePosting(new int[]{3,10}, new int[]{1,1}),
+		};
+		IterablePosting joined = new ANDIterablePosting(ips, new Pointer[]{new SimpleBitIndexPointer(0, (byte) 0, 3),new SimpleBitIndexPointer(0,(byte)  0, 2)});
+		assertEquals(10, joined.next(1));
+		assertEquals(10, joined.next(10));
+		assertEquals(IterablePosting.EOL, joined.next());
+		assertTrue(joined.endOfPostings());
+		joined.close();
+	}
+	
+	@Test public void testManyRandom() throws Exception
+	{
+		final Random r = new Random(3);
+		for(int trial=0;trial<50;trial++)
+		{
+			final int numLists = 2 + r.nextInt(4);
+			final IterablePosting[] ips = new IterablePosting[numLists];
+			final Pointer[] pointers = new Pointer[numLists];
+			TreeSet<Integer> expected = null;
+			for(int i=0;i<numLists;i++)
+			{
+				final int[] ids = r.ints(5 + r.nextInt(300), 0, 500).sorted().distinct().toArray();
+				ips[i] = new ArrayOfBasicIterablePosting(ids, new int[ids.length]);
+				pointers[i] = new SimpleBitIndexPointer(0, (byte) 0, ids.length);
+				final TreeSet<Integer> set = new TreeSet<>();
+				for(int id : ids)
+					set.add(id);
+				if (expected == null)
+					expected = set;
+				else
+					expected.retainAll(set);
+			}
+			final IterablePosting joined = new ANDIterablePosting(ips, pointers);
+			int prev = -1;
+			while(true)
+			{
+				final Integer e;
+				final int id;
+				if (r.nextBoolean())
+				{
+					id = joined.next();
+					e = expected.higher(prev);
+				} else {
+					final int target = prev + 1 + r.nextInt(50);
+					id = joined.next(target);
+					e = expected.ceiling(target);
+				}
+				if (e == null)
+				{
+					assertEquals(IterablePosting.EOL, id);
+					break;
+				}
+				assertEquals(e.intValue(), id);
+				prev = id;
+			}
+		}
+	}
 }
@@ -28,6 +28,10 @@ package org.terrier.structures.postings;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
 import org.junit.Test;
 
 public class TestORIterablePosting
@@ -192,5 +196,56 @@ public class TestORIterablePosting
 		
 	}
 	
-	
-}
\ No newline at end of file
+	/** makes many random posting lists, and checks the merged frequencies, with random skips */
+	@Test public void testManyRandom() throws Exception
+	{
+		final Random r = new Random(42);
+		for(int trial=0;trial<20;trial++)
+		{
+			final int numLists = 1 + r.nextInt(100);
+			final TreeMap<Integer,Integer> expected = new TreeMap<>();
+			final IterablePosting[] ips = new IterablePosting[numLists];
+			for(int i=0;i<numLists;i++)
+			{
+				final int[] ids = r.ints(r.nextInt(50), 0, 1000).sorted().distinct().toArray();
+				final int[] tfs = new int[ids.length];
+				final int[] lens = new int[ids.length];
+				for(int j=0;j<ids.length;j++)
+				{
+					tfs[j] = 1 + r.nextInt(5);
+					lens[j] = ids[j] + 10;
+					expected.merge(ids[j], tfs[j], Integer::sum);
+				}
+				ips[i] = new ArrayOfBasicIterablePosting(ids, tfs, lens);
+			}
+			final IterablePosting joined = joinPostings(ips);
+			int prev = -1;
+			while(true)
+			{
+				final int id;
+				final Map.Entry<Integer,Integer> e;
+				if (r.nextBoolean())
+				{
+					id = joined.next();
+					e = expected.higherEntry(prev);
+				} else {
+					final int target = prev + 1 + r.nextInt(100);
+					id = joined.next(target);
+					e = expected.ceilingEntry(target);
+				}
+				if (e == null)
+				{
+					assertEquals(IterablePosting.EOL, id);
+					break;
+				}
+				assertEquals(e.getKey().intValue(), id);
+				assertEquals(e.getValue().intValue(), joined.getFrequency());
+				assertEquals(id + 10, joined.getDocumentLength());
+				//skipping to the current posting does not move
+				assertEquals(id, joined.next(id));
+				prev = id;
+			}
+			assertEquals(IterablePosting.EOL, joined.next());
+		}
+	}
+}
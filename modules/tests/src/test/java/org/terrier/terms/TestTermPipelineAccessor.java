@@ -26,8 +26,14 @@
 package org.terrier.terms;
 
 import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.terrier.tests.ApplicationSetupBasedTest;
+import org.terrier.utility.ApplicationSetup;
 
 /** Test that a TermPipelineAccessor behaves as expected
  * @since 3.0
@@ -48,4 +54,48 @@ public class TestTermPipelineAccessor extends ApplicationSetupBasedTest {
 		assertNull(tpa.pipelineTerm("i"));
 		assertNull(tpa.pipelineTerm("the"));
 	}
+	
+	@Test public void testCachedResults()
+	{
+		BaseTermPipelineAccessor tpa = new BaseTermPipelineAccessor(Stopwords.class.getName(), TRv2PorterStemmer.class.getName());
+		assertNotNull(tpa.cache);
+		for(int i=0;i<3;i++)
+		{
+			assertNull(tpa.pipelineTerm("the"));
+			assertEquals("meet", tpa.pipelineTerm("meeting"));
+		}
+		assertEquals(2, tpa.cache.size());
+		assertEquals(TermPipelineCache.DISCARDED, tpa.cache.get("the"));
+		assertEquals("meet", tpa.cache.get("meeting"));
+	}
+	
+	@Test public void testNotCached()
+	{
+		//stages that are not known to be cacheable disable the cache
+		assertNull(new BaseTermPipelineAccessor(DumpTerm.class.getName(), "Stopwords").cache);
+		ApplicationSetup.setProperty("termpipelines.cache.size", "0");
+		assertNull(new BaseTermPipelineAccessor("Stopwords").cache);
+	}
+	
+	@Test public void testCachingTermPipeline()
+	{
+		final List<String> received = new ArrayList<String>();
+		TermPipeline end = new TermPipeline() {
+			public void processTerm(String t) {
+				received.add(t);
+			}
+			public boolean reset() {
+				return true;
+			}
+		};
+		TermPipelineCache cache = new TermPipelineCache(1);
+		CachingTermPipeline caching = new CachingTermPipeline(end, cache);
+		caching.setPipeline(new Stopwords(new PorterStemmer(caching.getCaptureStage())));
+		for(String t : new String[]{"meeting", "the", "meeting", "archaeology", "the", "archaeology"})
+			caching.processTerm(t);
+		assertEquals(Arrays.asList("meet", "meet", "archaeolog", "archaeolog"), received);
+		//bounded
+		assertEquals(1, cache.size());
+		assertTrue(caching.reset());
+	}
 }
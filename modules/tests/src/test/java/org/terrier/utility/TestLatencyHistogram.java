@@ -0,0 +1,86 @@
+/*
+ * Terrier - Terabyte Retriever
+ * Webpage: http://terrier.org/
+ * Contact: terrier{a.}dcs.gla.ac.uk
+ * University of Glasgow - School of Computing Science
+ * http://www.gla.ac.uk/
+ *
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See
+ * the License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is TestLatencyHistogram.java
+ *
+ * The Original Code is Copyright (C) 2004-2020 the University of Glasgow.
+ * All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Craig Macdonald <craigm{a.}dcs.gla.ac.uk> (original contributor)
+ */
+package org.terrier.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+	@Test public void testBuckets()
+	{
+		int last = -1;
+		for(long v : new long[]{0, 1, 31, 32, 33, 63, 64, 65, 1000, 1L << 40, Long.MAX_VALUE})
+		{
+			final int i = LatencyHistogram.index(v);
+			assertTrue(i >= last);
+			assertTrue(i < LatencyHistogram.NUM_BUCKETS);
+			assertTrue(v <= LatencyHistogram.highestValue(i));
+			assertTrue(i == 0 || v > LatencyHistogram.highestValue(i-1));
+			last = i;
+		}
+		for(int i=0;i<LatencyHistogram.NUM_BUCKETS;i++)
+			assertEquals(i, LatencyHistogram.index(LatencyHistogram.highestValue(i)));
+	}
+
+	@Test public void testEmpty()
+	{
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getValueAtPercentile(99));
+		assertEquals(0d, h.getMean(), 0d);
+	}
+
+	@Test public void testPercentiles()
+	{
+		LatencyHistogram h = new LatencyHistogram();
+		Random r = new Random(42);
+		long[] values = new long[10000];
+		for(int i=0;i<values.length;i++)
+		{
+			values[i] = (long) Math.abs(r.nextGaussian() * 1e6);
+			h.record(values[i]);
+		}
+		Arrays.sort(values);
+		assertEquals(values.length, h.getCount());
+		assertEquals(values[values.length-1], h.getMax());
+		for(double p : new double[]{1, 50, 90, 99, 99.9, 100})
+		{
+			final long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+			final long approx = h.getValueAtPercentile(p);
+			assertTrue(p + ": " + approx + " vs " + exact, approx >= exact);
+			assertTrue(p + ": " + approx + " vs " + exact, approx <= exact + exact / 32 + 1);
+		}
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMax());
+	}
+}